@@ -0,0 +1,488 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingTransport;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import tachyon.Constants;
+import tachyon.TachyonURI;
+import tachyon.ThriftAsyncClientPool;
+import tachyon.client.netty.NettyRemoteBlockReader;
+import tachyon.conf.TachyonConf;
+import tachyon.master.MasterClient;
+import tachyon.thrift.ClientBlockInfo;
+import tachyon.thrift.ClientFileInfo;
+import tachyon.thrift.FileDoesNotExistException;
+import tachyon.thrift.MasterService;
+import tachyon.thrift.NetAddress;
+import tachyon.thrift.WorkerService;
+import tachyon.worker.WorkerClient;
+
+/**
+ * Asynchronous API of a {@link TachyonFS}, obtained with {@link TachyonFS#getAsync()}. Every call
+ * returns immediately with a future, so a single thread can keep hundreds of requests in flight.
+ *
+ * Metadata calls and block lock / unlock calls go over non-blocking Thrift connections to the
+ * master and the local worker, all driven by one selector thread. At most
+ * <code>tachyon.user.master.client.pool.size</code> and
+ * <code>tachyon.user.worker.client.pool.size</code> calls are on the wire at once, the others wait
+ * in a queue without holding a thread. Remote block reads always go over Netty, whatever
+ * <code>tachyon.user.remote.block.reader.class</code> is set to.
+ *
+ * The addresses of the master and of the local worker, and the user id of the client, are resolved
+ * once when the asynchronous API is created, so that no call blocks on them, neither the caller nor
+ * the selector thread.
+ *
+ * Failures are reported through the futures as IOExceptions. Listeners added to the futures run on
+ * the selector or event loop thread unless given an executor, so they must not block.
+ */
+public final class AsyncTachyonFS implements Closeable {
+  private final TachyonFS mTachyonFS;
+  private final ClientFileInfoCache mClientFileInfoCache;
+  private final InetSocketAddress mMasterAddress;
+  /** The address of the worker, null if the client is connected to none. */
+  private final InetSocketAddress mWorkerAddress;
+  private final boolean mIsLocalWorker;
+  private final long mUserId;
+  private final TAsyncClientManager mClientManager;
+  private final ThriftAsyncClientPool<MasterService.AsyncClient> mMasterPool;
+  private final ThriftAsyncClientPool<WorkerService.AsyncClient> mWorkerPool;
+
+  AsyncTachyonFS(TachyonFS tachyonFS, MasterClient masterClient, WorkerClient workerClient,
+      ClientFileInfoCache clientFileInfoCache, TachyonConf tachyonConf) throws IOException {
+    mTachyonFS = tachyonFS;
+    mClientFileInfoCache = clientFileInfoCache;
+    // Resolved here, on the thread creating the API, as they may connect to the master and worker.
+    mMasterAddress = masterClient.getAddress();
+    mUserId = masterClient.getUserId();
+    mIsLocalWorker = workerClient.isLocal();
+    mWorkerAddress = workerClient.isConnected() ? workerClient.getAddress() : null;
+    mClientManager = new TAsyncClientManager();
+    mMasterPool = new ThriftAsyncClientPool<MasterService.AsyncClient>(mClientManager,
+        tachyonConf.getInt(Constants.USER_MASTER_CLIENT_POOL_SIZE,
+            Constants.DEFAULT_USER_MASTER_CLIENT_POOL_SIZE)) {
+      @Override
+      protected InetSocketAddress getAddress() {
+        return mMasterAddress;
+      }
+
+      @Override
+      protected MasterService.AsyncClient createClient(TProtocolFactory protocolFactory,
+          TAsyncClientManager manager, TNonblockingTransport transport) {
+        return new MasterService.AsyncClient(protocolFactory, manager, transport);
+      }
+    };
+    mWorkerPool = new ThriftAsyncClientPool<WorkerService.AsyncClient>(mClientManager,
+        tachyonConf.getInt(Constants.USER_WORKER_CLIENT_POOL_SIZE,
+            Constants.DEFAULT_USER_WORKER_CLIENT_POOL_SIZE)) {
+      @Override
+      protected InetSocketAddress getAddress() throws IOException {
+        if (mWorkerAddress == null) {
+          throw new IOException("The client is not connected to a worker");
+        }
+        return mWorkerAddress;
+      }
+
+      @Override
+      protected WorkerService.AsyncClient createClient(TProtocolFactory protocolFactory,
+          TAsyncClientManager manager, TNonblockingTransport transport) {
+        return new WorkerService.AsyncClient(protocolFactory, manager, transport);
+      }
+    };
+  }
+
+  /**
+   * Closes the connections of the asynchronous API. Outstanding calls fail.
+   */
+  @Override
+  public void close() {
+    try {
+      mMasterPool.close();
+      mWorkerPool.close();
+    } finally {
+      mClientManager.stop();
+    }
+  }
+
+  /**
+   * Creates a new file, and the necessary parent folders.
+   *
+   * @param path the path of the file
+   * @param blockSizeByte the block size of the file in bytes
+   * @return the future id of the file
+   */
+  public ListenableFuture<Integer> createFile(final TachyonURI path, final long blockSizeByte) {
+    if (!isPathValid(path)) {
+      return invalidPath(path);
+    }
+    return mMasterPool.submit(
+        new MasterCall<MasterService.AsyncClient.user_createFile_call, Integer>() {
+          @Override
+          protected void start(MasterService.AsyncClient client,
+              AsyncMethodCallback<MasterService.AsyncClient.user_createFile_call> callback)
+              throws TException {
+            client.user_createFile(path.getPath(), "", blockSizeByte, true, callback);
+          }
+
+          @Override
+          protected Integer getResult(MasterService.AsyncClient.user_createFile_call response)
+              throws Exception {
+            return response.getResult();
+          }
+        });
+  }
+
+  /**
+   * Deletes a file or folder.
+   *
+   * @param path the path of the file or folder
+   * @param recursive whether to delete a non-empty folder recursively
+   * @return the future result, true if the deletion succeeded
+   */
+  public ListenableFuture<Boolean> delete(final TachyonURI path, final boolean recursive) {
+    if (!isPathValid(path)) {
+      return invalidPath(path);
+    }
+    return mMasterPool.submit(
+        new MasterCall<MasterService.AsyncClient.user_delete_call, Boolean>() {
+          @Override
+          protected void start(MasterService.AsyncClient client,
+              AsyncMethodCallback<MasterService.AsyncClient.user_delete_call> callback)
+              throws TException {
+            client.user_delete(-1, path.getPath(), recursive, callback);
+          }
+
+          @Override
+          protected Boolean getResult(MasterService.AsyncClient.user_delete_call response)
+              throws Exception {
+            return response.getResult();
+          }
+
+          @Override
+          protected void completed() {
+            mClientFileInfoCache.invalidate(-1, path.getPath());
+          }
+        });
+  }
+
+  /**
+   * Gets the blocks of a file.
+   *
+   * @param fileId the id of the file
+   * @return the future list of the blocks of the file
+   */
+  public ListenableFuture<List<ClientBlockInfo>> getFileBlocks(final int fileId) {
+    return mMasterPool.submit(
+        new MasterCall<MasterService.AsyncClient.user_getFileBlocks_call, List<ClientBlockInfo>>() {
+          @Override
+          protected void start(MasterService.AsyncClient client,
+              AsyncMethodCallback<MasterService.AsyncClient.user_getFileBlocks_call> callback)
+              throws TException {
+            client.user_getFileBlocks(fileId, "", callback);
+          }
+
+          @Override
+          protected List<ClientBlockInfo> getResult(
+              MasterService.AsyncClient.user_getFileBlocks_call response) throws Exception {
+            return response.getResult();
+          }
+        });
+  }
+
+  /**
+   * Gets the status of a file or folder from the master, and refreshes the metadata cache of the
+   * client with it.
+   *
+   * @param fileId the id of the file, or -1 to use the path
+   * @param path the path of the file, ignored if fileId is not -1
+   * @return the future status, null if the file does not exist
+   */
+  public ListenableFuture<ClientFileInfo> getFileStatus(final int fileId, TachyonURI path) {
+    if (fileId == -1 && !isPathValid(path)) {
+      return invalidPath(path);
+    }
+    final String pathString = fileId == -1 ? path.getPath() : "";
+    final long invalidations = mClientFileInfoCache.getInvalidations();
+    return mMasterPool.submit(
+        new MasterCall<MasterService.AsyncClient.getFileStatus_call, ClientFileInfo>() {
+          @Override
+          protected void start(MasterService.AsyncClient client,
+              AsyncMethodCallback<MasterService.AsyncClient.getFileStatus_call> callback)
+              throws TException {
+            client.getFileStatus(fileId, pathString, callback);
+          }
+
+          @Override
+          protected ClientFileInfo getResult(MasterService.AsyncClient.getFileStatus_call response)
+              throws Exception {
+            ClientFileInfo info = response.getResult();
+            if (info.getId() == -1) {
+              mClientFileInfoCache.invalidate(fileId, pathString);
+              return null;
+            }
+            mClientFileInfoCache.put(info, invalidations);
+            return info;
+          }
+        });
+  }
+
+  /**
+   * Lists the entries of a folder, or the status of a file.
+   *
+   * @param path the path of the folder or file
+   * @return the future list of the statuses of the entries
+   */
+  public ListenableFuture<List<ClientFileInfo>> listStatus(final TachyonURI path) {
+    if (!isPathValid(path)) {
+      return invalidPath(path);
+    }
+    return mMasterPool.submit(
+        new MasterCall<MasterService.AsyncClient.liststatus_call, List<ClientFileInfo>>() {
+          @Override
+          protected void start(MasterService.AsyncClient client,
+              AsyncMethodCallback<MasterService.AsyncClient.liststatus_call> callback)
+              throws TException {
+            client.liststatus(path.getPath(), callback);
+          }
+
+          @Override
+          protected List<ClientFileInfo> getResult(
+              MasterService.AsyncClient.liststatus_call response) throws Exception {
+            return response.getResult();
+          }
+        });
+  }
+
+  /**
+   * Creates a folder.
+   *
+   * @param path the path of the folder
+   * @param recursive whether to create the necessary parent folders
+   * @return the future result, true if the folder was created or already exists
+   */
+  public ListenableFuture<Boolean> mkdirs(final TachyonURI path, final boolean recursive) {
+    if (!isPathValid(path)) {
+      return invalidPath(path);
+    }
+    return mMasterPool.submit(
+        new MasterCall<MasterService.AsyncClient.user_mkdirs_call, Boolean>() {
+          @Override
+          protected void start(MasterService.AsyncClient client,
+              AsyncMethodCallback<MasterService.AsyncClient.user_mkdirs_call> callback)
+              throws TException {
+            client.user_mkdirs(path.getPath(), recursive, callback);
+          }
+
+          @Override
+          protected Boolean getResult(MasterService.AsyncClient.user_mkdirs_call response)
+              throws Exception {
+            return response.getResult();
+          }
+        });
+  }
+
+  /**
+   * Renames a file or folder.
+   *
+   * @param srcPath the path of the file or folder
+   * @param dstPath the new path
+   * @return the future result, true if the rename succeeded
+   */
+  public ListenableFuture<Boolean> rename(final TachyonURI srcPath, final TachyonURI dstPath) {
+    if (!isPathValid(srcPath)) {
+      return invalidPath(srcPath);
+    }
+    if (!isPathValid(dstPath)) {
+      return invalidPath(dstPath);
+    }
+    return mMasterPool.submit(
+        new MasterCall<MasterService.AsyncClient.user_rename_call, Boolean>() {
+          @Override
+          protected void start(MasterService.AsyncClient client,
+              AsyncMethodCallback<MasterService.AsyncClient.user_rename_call> callback)
+              throws TException {
+            client.user_rename(-1, srcPath.getPath(), dstPath.getPath(), callback);
+          }
+
+          @Override
+          protected Boolean getResult(MasterService.AsyncClient.user_rename_call response)
+              throws Exception {
+            return response.getResult();
+          }
+
+          @Override
+          protected void completed() {
+            mClientFileInfoCache.invalidate(-1, srcPath.getPath());
+            mClientFileInfoCache.invalidate(-1, dstPath.getPath());
+          }
+        });
+  }
+
+  /**
+   * Locks a block in the local worker, so that it is not evicted until it is unlocked. Every
+   * successful lock must be matched by one {@link #unlockBlock(long)}. These locks are taken with
+   * the user id of the client, like the locks of the blocking API: the worker releases a lock of
+   * the block held by the user on unlock, whichever API took it, so a block must not be unlocked
+   * more times than it was locked through both APIs.
+   *
+   * @param blockId the id of the block
+   * @return the future path of the block file, null if there is no local worker or the block is
+   *         not in it
+   */
+  public ListenableFuture<String> lockBlock(final long blockId) {
+    if (!mIsLocalWorker) {
+      return Futures.immediateFuture(null);
+    }
+    return mWorkerPool.submit(
+        new WorkerCall<WorkerService.AsyncClient.lockBlock_call, String>() {
+          @Override
+          protected void start(WorkerService.AsyncClient client,
+              AsyncMethodCallback<WorkerService.AsyncClient.lockBlock_call> callback)
+              throws TException {
+            client.lockBlock(blockId, mUserId, callback);
+          }
+
+          @Override
+          protected String getResult(WorkerService.AsyncClient.lockBlock_call response)
+              throws Exception {
+            try {
+              return response.getResult();
+            } catch (FileDoesNotExistException e) {
+              return null;
+            }
+          }
+        });
+  }
+
+  /**
+   * Unlocks a block locked with {@link #lockBlock(long)}.
+   *
+   * @param blockId the id of the block
+   * @return the future result, true if the block was unlocked
+   */
+  public ListenableFuture<Boolean> unlockBlock(final long blockId) {
+    return mWorkerPool.submit(
+        new WorkerCall<WorkerService.AsyncClient.unlockBlock_call, Boolean>() {
+          @Override
+          protected void start(WorkerService.AsyncClient client,
+              AsyncMethodCallback<WorkerService.AsyncClient.unlockBlock_call> callback)
+              throws TException {
+            client.unlockBlock(blockId, mUserId, callback);
+          }
+
+          @Override
+          protected Boolean getResult(WorkerService.AsyncClient.unlockBlock_call response)
+              throws Exception {
+            return response.getResult();
+          }
+        });
+  }
+
+  /**
+   * Reads a range of a block from the workers holding it in memory, trying the locations in order.
+   * The locations of a block only in the under file system are skipped.
+   *
+   * @param blockInfo the block to read
+   * @param offset the offset in the block to start reading at
+   * @param length the number of bytes to read
+   * @return the future data read, null if no worker could serve the range
+   */
+  public ListenableFuture<ByteBuffer> readRemoteBlock(ClientBlockInfo blockInfo, long offset,
+      long length) {
+    SettableFuture<ByteBuffer> result = SettableFuture.create();
+    readRemoteBlock(blockInfo, 0, offset, length, result);
+    return result;
+  }
+
+  private void readRemoteBlock(final ClientBlockInfo blockInfo, int locationIndex,
+      final long offset, final long length, final SettableFuture<ByteBuffer> result) {
+    try {
+      ListenableFuture<ByteBuffer> read = null;
+      while (read == null && locationIndex < blockInfo.getLocationsSize()) {
+        NetAddress location = blockInfo.getLocations().get(locationIndex ++);
+        // The data is not in the memory of the location if its data port is -1.
+        if (location.mSecondaryPort == -1) {
+          continue;
+        }
+        try {
+          read = NettyRemoteBlockReader.readRemoteBlockAsync(
+              new InetSocketAddress(location.mHost, location.mSecondaryPort), blockInfo.blockId,
+              offset, length);
+        } catch (RuntimeException e) {
+          // Fall back to the next location.
+        }
+      }
+      if (read == null) {
+        result.set(null);
+        return;
+      }
+      final ListenableFuture<ByteBuffer> pending = read;
+      final int nextIndex = locationIndex;
+      pending.addListener(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            ByteBuffer data = null;
+            try {
+              data = Futures.getUnchecked(pending);
+            } catch (RuntimeException e) {
+              // Fall back to the next location.
+            }
+            if (data != null) {
+              mTachyonFS.getClientMetrics().incBytesReadRemote(data.remaining());
+              result.set(data);
+            } else {
+              readRemoteBlock(blockInfo, nextIndex, offset, length, result);
+            }
+          } catch (RuntimeException e) {
+            result.setException(e);
+          }
+        }
+      }, MoreExecutors.sameThreadExecutor());
+    } catch (RuntimeException e) {
+      result.setException(e);
+    }
+  }
+
+  private static boolean isPathValid(TachyonURI path) {
+    return path != null && path.getPath().startsWith(TachyonURI.SEPARATOR);
+  }
+
+  private static <T> ListenableFuture<T> invalidPath(TachyonURI path) {
+    return Futures.immediateFailedFuture(new IOException("Illegal path parameter: " + path));
+  }
+
+  private abstract static class MasterCall<M, R>
+      extends ThriftAsyncClientPool.Call<MasterService.AsyncClient, M, R> {}
+
+  private abstract static class WorkerCall<M, R>
+      extends ThriftAsyncClientPool.Call<WorkerService.AsyncClient, M, R> {}
+}
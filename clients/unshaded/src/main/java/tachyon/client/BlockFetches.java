@@ -0,0 +1,245 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+
+/**
+ * Coordinates the fetches of the blocks the streams of a client do not have locally, so that
+ * concurrent readers of the same block share the work instead of repeating it (single flight):
+ * <ul>
+ * <li>a range of a block requested while the same range is being fetched, from the remote workers
+ * or from the under file system, waits for that fetch and gets a copy of its data, instead of
+ * fetching it again. The data is copied only when a reader waits for it;</li>
+ * <li>a block is recached into the local worker by one stream at a time, the other streams reading
+ * it do not try to, as only one of them could create the block. The claim of a stream which
+ * stopped recaching, or was dropped without being closed, is taken over by the next stream.</li>
+ * </ul>
+ * This class is thread safe.
+ */
+final class BlockFetches {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+
+  /**
+   * The stream recaching a block.
+   */
+  interface RecacheOwner {
+    /**
+     * @return true if the stream is still recaching the block it claimed
+     */
+    boolean isRecaching();
+  }
+
+  /** The fetches in progress, by range. */
+  private final ConcurrentMap<Key, Fetch> mFetches = new ConcurrentHashMap<Key, Fetch>();
+  /** The blocks being recached, by the claims of the streams recaching them. */
+  private final ConcurrentMap<Long, RecacheClaim> mRecaching =
+      new ConcurrentHashMap<Long, RecacheClaim>();
+
+  /**
+   * Fetches a range of a block, or waits for the fetch of the same range in progress.
+   *
+   * @param blockId the id of the block
+   * @param fromUnderFs whether the range is fetched from the under file system, rather than from
+   *        the workers
+   * @param offset the offset of the range in the block
+   * @param length the length of the range
+   * @param fetcher fetches the range, returning null if it cannot be fetched. It is run by the
+   *        caller, so it may read into storage of the caller
+   * @return the data fetched, the one returned by the fetcher if the caller ran it, otherwise a
+   *         copy owned by the caller, or null if the fetch failed
+   */
+  ByteBuffer fetch(long blockId, boolean fromUnderFs, long offset, long length,
+      Callable<ByteBuffer> fetcher) {
+    Key key = new Key(blockId, fromUnderFs, offset, length);
+    Fetch fetch = new Fetch();
+    while (true) {
+      Fetch inProgress = mFetches.putIfAbsent(key, fetch);
+      if (inProgress == null) {
+        break;
+      }
+      if (inProgress.join()) {
+        LOG.debug("Waiting for the fetch in progress of {} bytes at {} of block {}", length,
+            offset, blockId);
+        return inProgress.await();
+      }
+      // The fetch completed meanwhile, fetch the range again.
+      mFetches.remove(key, inProgress);
+    }
+
+    ByteBuffer data = null;
+    try {
+      data = fetcher.call();
+    } catch (Exception e) {
+      LOG.warn("Failed to fetch block " + blockId, e);
+    } finally {
+      mFetches.remove(key, fetch);
+      fetch.finish(data);
+    }
+    return data;
+  }
+
+  /**
+   * Claims the recaching of a block. A successful claim must be released with
+   * {@link #finishRecache(long, RecacheOwner)}. The claim held by another stream is taken over if
+   * that stream is no longer recaching, or was garbage collected without releasing it.
+   *
+   * @param blockId the id of the block
+   * @param owner the stream recaching the block
+   * @return true if the caller may recache the block, false if another stream is recaching it
+   */
+  boolean startRecache(long blockId, RecacheOwner owner) {
+    RecacheClaim claim = new RecacheClaim(owner);
+    while (true) {
+      RecacheClaim current = mRecaching.putIfAbsent(blockId, claim);
+      if (current == null) {
+        return true;
+      }
+      RecacheOwner currentOwner = current.get();
+      if (currentOwner != null && currentOwner.isRecaching()) {
+        return false;
+      }
+      if (mRecaching.replace(blockId, current, claim)) {
+        LOG.debug("Took over the stale recache claim of block {}", blockId);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Releases the recaching of a block claimed with {@link #startRecache(long, RecacheOwner)}. Does
+   * nothing if the claim was taken over by another stream.
+   *
+   * @param blockId the id of the block
+   * @param owner the stream which claimed the block
+   */
+  void finishRecache(long blockId, RecacheOwner owner) {
+    RecacheClaim current = mRecaching.get(blockId);
+    if (current != null && current.get() == owner) {
+      mRecaching.remove(blockId, current);
+    }
+  }
+
+  /**
+   * @return the number of callers waiting for the fetch in progress of the range, for tests
+   */
+  int getWaiters(long blockId, boolean fromUnderFs, long offset, long length) {
+    Fetch fetch = mFetches.get(new Key(blockId, fromUnderFs, offset, length));
+    return fetch == null ? 0 : fetch.getWaiters();
+  }
+
+  private static ByteBuffer copy(ByteBuffer data) {
+    if (data == null) {
+      return null;
+    }
+    ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+    copy.put(data.duplicate());
+    copy.flip();
+    return copy;
+  }
+
+  /**
+   * A fetch in progress. The caller running it copies its data for the callers which joined it
+   * before it completed, so that no copy is made when nobody waits, and the caller may reuse its
+   * data as soon as the fetch returns.
+   */
+  private static final class Fetch {
+    private int mWaiters = 0;
+    private boolean mDone = false;
+    private ByteBuffer mData = null;
+
+    synchronized boolean join() {
+      if (mDone) {
+        return false;
+      }
+      mWaiters ++;
+      return true;
+    }
+
+    synchronized void finish(ByteBuffer data) {
+      if (mWaiters > 0) {
+        mData = copy(data);
+      }
+      mDone = true;
+      notifyAll();
+    }
+
+    synchronized ByteBuffer await() {
+      try {
+        while (!mDone) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      return mData == null ? null : copy(mData);
+    }
+
+    synchronized int getWaiters() {
+      return mWaiters;
+    }
+  }
+
+  private static final class RecacheClaim extends WeakReference<RecacheOwner> {
+    RecacheClaim(RecacheOwner owner) {
+      super(owner);
+    }
+  }
+
+  private static final class Key {
+    private final long mBlockId;
+    private final boolean mFromUnderFs;
+    private final long mOffset;
+    private final long mLength;
+
+    Key(long blockId, boolean fromUnderFs, long offset, long length) {
+      mBlockId = blockId;
+      mFromUnderFs = fromUnderFs;
+      mOffset = offset;
+      mLength = length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return mBlockId == that.mBlockId && mFromUnderFs == that.mFromUnderFs
+          && mOffset == that.mOffset && mLength == that.mLength;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(mBlockId, mFromUnderFs, mOffset, mLength);
+    }
+  }
+}
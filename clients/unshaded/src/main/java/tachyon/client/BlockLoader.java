@@ -0,0 +1,254 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.TachyonURI;
+import tachyon.conf.TachyonConf;
+import tachyon.thrift.ClientBlockInfo;
+import tachyon.thrift.ClientFileInfo;
+import tachyon.thrift.InvalidPathException;
+import tachyon.util.CommonUtils;
+
+/**
+ * Loads the blocks of files from the under file system into the memory of Tachyon, to warm it up
+ * before they are read. The blocks are read from the under file system and cached by the worker
+ * local to the client, directly, without going through a read of the file.
+ * <code>tachyon.user.load.threads</code> blocks are loaded concurrently, and the bytes read from
+ * the under file system are capped at <code>tachyon.user.load.bandwidth.bytes</code> per second,
+ * so that a warmup does not starve the running jobs. Blocks already in memory on any worker are
+ * skipped, so a load is resumed by running it again. The progress is logged periodically. A loader
+ * is used for a single load.
+ */
+public final class BlockLoader {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  private static final long PROGRESS_INTERVAL_MS = 10 * Constants.SECOND_MS;
+
+  private final TachyonFS mTfs;
+  private final LoadTaskPool mTasks;
+  /** The limiter of the bytes read from the under file system, null if unlimited */
+  private final RateLimiter mThrottle;
+
+  private final AtomicLong mFiles = new AtomicLong(0);
+  private final AtomicLong mBlocksLoaded = new AtomicLong(0);
+  private final AtomicLong mBytesLoaded = new AtomicLong(0);
+  private final AtomicLong mBlocksSkipped = new AtomicLong(0);
+  private final AtomicLong mFailures = new AtomicLong(0);
+
+  /**
+   * @param tfs the Tachyon client, whose local worker caches the blocks
+   * @param tachyonConf the configuration of the client
+   */
+  public BlockLoader(TachyonFS tfs, TachyonConf tachyonConf) {
+    mTfs = tfs;
+    mTasks = new LoadTaskPool(tachyonConf.getInt(Constants.USER_LOAD_THREADS, 8),
+        "client-load-%d");
+    long bandwidthBytes = tachyonConf.getBytes(Constants.USER_LOAD_BANDWIDTH_BYTES, 0);
+    mThrottle = bandwidthBytes > 0 ? RateLimiter.create(bandwidthBytes) : null;
+  }
+
+  /**
+   * Loads the files matching a path, and the files under the matching directories, into memory,
+   * and waits for the load to finish. The components of the path may contain the wildcards
+   * <code>*</code> and <code>?</code>.
+   *
+   * @param pattern the path or glob of the files and directories to load
+   * @return true if all the blocks are in memory, false if some failed to be loaded
+   * @throws IOException if no path matches or the listing of Tachyon fails
+   */
+  public boolean load(TachyonURI pattern) throws IOException {
+    try {
+      List<TachyonURI> paths = expand(pattern);
+      if (paths.isEmpty()) {
+        throw new IOException(pattern + " does not exist");
+      }
+      for (TachyonURI path : paths) {
+        submitPath(path);
+      }
+      awaitTasks(pattern);
+    } finally {
+      mTasks.shutdown();
+    }
+    LOG.info("Loaded " + pattern + ": " + getProgress());
+    return mFailures.get() == 0;
+  }
+
+  /**
+   * @return a summary of the progress of the load
+   */
+  public String getProgress() {
+    return mFiles.get() + " files, " + mBlocksLoaded.get() + " blocks (" + mBytesLoaded.get()
+        + " bytes) loaded, " + mBlocksSkipped.get() + " blocks already in memory, "
+        + mFailures.get() + " failures";
+  }
+
+  /**
+   * Resolves the wildcards of a path against the directories of Tachyon.
+   */
+  private List<TachyonURI> expand(TachyonURI pattern) throws IOException {
+    String[] components;
+    try {
+      components = CommonUtils.getPathComponents(pattern.getPath());
+    } catch (InvalidPathException e) {
+      throw new IOException(e);
+    }
+    List<TachyonURI> paths = new ArrayList<TachyonURI>();
+    paths.add(new TachyonURI(TachyonURI.SEPARATOR));
+    for (int k = 1; k < components.length; k ++) {
+      List<TachyonURI> children = new ArrayList<TachyonURI>();
+      if (!isGlob(components[k])) {
+        for (TachyonURI path : paths) {
+          children.add(new TachyonURI(CommonUtils.concatPath(path, components[k])));
+        }
+      } else {
+        Pattern regex = globToRegex(components[k]);
+        for (TachyonURI path : paths) {
+          if (!mTfs.exist(path) || mTfs.getFile(path).isFile()) {
+            continue;
+          }
+          for (ClientFileInfo info : mTfs.listStatus(path)) {
+            if (regex.matcher(info.getName()).matches()) {
+              children.add(new TachyonURI(info.getPath()));
+            }
+          }
+        }
+      }
+      paths = children;
+    }
+    List<TachyonURI> existing = new ArrayList<TachyonURI>();
+    for (TachyonURI path : paths) {
+      if (mTfs.exist(path)) {
+        existing.add(path);
+      }
+    }
+    return existing;
+  }
+
+  private void submitPath(final TachyonURI path) {
+    mTasks.submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          loadPath(path);
+        } catch (IOException e) {
+          failed("Failed to load " + path, e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Submits the tasks loading the blocks of a file, or the tasks loading the children of a
+   * directory.
+   */
+  private void loadPath(TachyonURI path) throws IOException {
+    TachyonFile file = mTfs.getFile(path);
+    if (file == null) {
+      throw new IOException(path + " does not exist");
+    }
+    if (file.isDirectory()) {
+      for (ClientFileInfo child : mTfs.listStatus(path)) {
+        submitPath(new TachyonURI(child.getPath()));
+      }
+      return;
+    }
+    mFiles.incrementAndGet();
+    int numberOfBlocks = file.getNumberOfBlocks();
+    for (int k = 0; k < numberOfBlocks; k ++) {
+      ClientBlockInfo blockInfo = file.getClientBlockInfo(k);
+      if (TachyonFile.isInWorkerMemory(blockInfo)) {
+        mBlocksSkipped.incrementAndGet();
+      } else if (file.getUfsPath().isEmpty()) {
+        failed("Block " + k + " of " + path + " is lost and not in the under file system", null);
+      } else {
+        submitBlock(file, path, k, blockInfo.getLength());
+      }
+    }
+  }
+
+  private void submitBlock(final TachyonFile file, final TachyonURI path, final int blockIndex,
+      final long length) {
+    mTasks.submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          if (file.recache(blockIndex, mThrottle)) {
+            mBlocksLoaded.incrementAndGet();
+            mBytesLoaded.addAndGet(length);
+          } else {
+            failed("Failed to load block " + blockIndex + " of " + path, null);
+          }
+        } catch (IOException e) {
+          failed("Failed to load block " + blockIndex + " of " + path, e);
+        }
+      }
+    });
+  }
+
+  private void awaitTasks(final TachyonURI pattern) throws IOException {
+    try {
+      mTasks.await(PROGRESS_INTERVAL_MS, new Runnable() {
+        @Override
+        public void run() {
+          LOG.info("Loading " + pattern + ": " + getProgress());
+        }
+      });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading " + pattern);
+    }
+  }
+
+  private void failed(String message, IOException e) {
+    LOG.warn(message, e);
+    mFailures.incrementAndGet();
+  }
+
+  private static boolean isGlob(String component) {
+    return component.indexOf('*') >= 0 || component.indexOf('?') >= 0;
+  }
+
+  private static Pattern globToRegex(String glob) {
+    StringBuilder regex = new StringBuilder();
+    StringBuilder literal = new StringBuilder();
+    for (char c : glob.toCharArray()) {
+      if (c == '*' || c == '?') {
+        if (literal.length() > 0) {
+          regex.append(Pattern.quote(literal.toString()));
+          literal.setLength(0);
+        }
+        regex.append(c == '*' ? ".*" : ".");
+      } else {
+        literal.append(c);
+      }
+    }
+    if (literal.length() > 0) {
+      regex.append(Pattern.quote(literal.toString()));
+    }
+    return Pattern.compile(regex.toString());
+  }
+}
@@ -46,9 +46,20 @@ public class BlockOutStream extends OutStream {
   private final String mLocalFilePath;
   private final RandomAccessFile mLocalFile;
   private final FileChannel mLocalFileChannel;
-  private final ByteBuffer mBuffer;
+  private final long mBufferBytes;
+  /** Taken from the buffer pool of the client, given back when the stream is closed. */
+  private ByteBuffer mBuffer;
 
   private long mAvailableBytes = 0;
+  /**
+   * How much space to reserve in the worker the next time the reserved space runs out. It starts
+   * at <code>tachyon.user.quota.unit.bytes</code> and doubles with every reservation, up to
+   * <code>tachyon.user.quota.unit.max.bytes</code>, so that writing a large block takes a few
+   * space requests rather than one per quota unit.
+   */
+  private long mNextRequestBytes;
+  private final long mQuotaUnitBytes;
+  private final long mMaxQuotaUnitBytes;
   private long mInFileBytes = 0;
   private long mWrittenBytes = 0;
 
@@ -105,16 +116,57 @@ public class BlockOutStream extends OutStream {
     CommonUtils.setLocalFileStickyBit(mLocalFilePath);
     LOG.info(mLocalFilePath + " was created!");
     mAvailableBytes += initialBytes;
-
-    long allocateBytes = mTachyonConf.getBytes(Constants.USER_FILE_BUFFER_BYTES, Constants.MB) + 4L;
-    mBuffer = ByteBuffer.allocate(Ints.checkedCast(allocateBytes));
+    mQuotaUnitBytes = mTachyonConf.getBytes(Constants.USER_QUOTA_UNIT_BYTES, 8 * Constants.MB);
+    mMaxQuotaUnitBytes = Math.max(mQuotaUnitBytes,
+        mTachyonConf.getBytes(Constants.USER_QUOTA_UNIT_MAX_BYTES,
+            Constants.DEFAULT_USER_QUOTA_UNIT_MAX_BYTES));
+    mNextRequestBytes = mQuotaUnitBytes;
+
+    mBufferBytes = mTachyonConf.getBytes(Constants.USER_FILE_BUFFER_BYTES, Constants.MB);
+    mBuffer = mTachyonFS.getBufferPool().acquire(Ints.checkedCast(mBufferBytes + 4L));
   }
 
   private synchronized void appendCurrentBuffer(byte[] buf, int offset, int length)
       throws IOException {
+    requestSpace(length);
+    MappedByteBuffer out = mLocalFileChannel.map(MapMode.READ_WRITE, mInFileBytes, length);
+    out.put(buf, offset, length);
+    CommonUtils.cleanDirectBuffer(out);
+    mInFileBytes += length;
+    mAvailableBytes -= length;
+  }
+
+  // Writes out the content of the buffer, which may be direct, and clears it.
+  private synchronized void flushBuffer() throws IOException {
+    int length = mBuffer.position();
+    if (length == 0) {
+      return;
+    }
+    requestSpace(length);
+    MappedByteBuffer out = mLocalFileChannel.map(MapMode.READ_WRITE, mInFileBytes, length);
+    mBuffer.flip();
+    out.put(mBuffer);
+    mBuffer.clear();
+    CommonUtils.cleanDirectBuffer(out);
+    mInFileBytes += length;
+    mAvailableBytes -= length;
+  }
+
+  private void requestSpace(int length) throws IOException {
     if (mAvailableBytes < length) {
-      long bytesRequested = mTachyonFS.requestSpace(mBlockId, length - mAvailableBytes);
-      if (bytesRequested + mAvailableBytes >= length) {
+      long neededBytes = length - mAvailableBytes;
+      // Never reserve past the end of the block.
+      long unreservedBytes = mBlockCapacityByte - mInFileBytes - mAvailableBytes;
+      long toRequestBytes = Math.max(neededBytes, Math.min(mNextRequestBytes, unreservedBytes));
+      long bytesRequested = mTachyonFS.requestSpace(mBlockId, toRequestBytes);
+      if (bytesRequested < neededBytes && toRequestBytes > neededBytes) {
+        // The worker may have room for what this write needs, but not for a larger reservation.
+        mNextRequestBytes = mQuotaUnitBytes;
+        bytesRequested = mTachyonFS.requestSpace(mBlockId, neededBytes);
+      } else {
+        mNextRequestBytes = Math.min(mNextRequestBytes * 2, mMaxQuotaUnitBytes);
+      }
+      if (bytesRequested >= neededBytes) {
         mAvailableBytes += bytesRequested;
       } else {
         mCanWrite = false;
@@ -122,12 +174,11 @@ public class BlockOutStream extends OutStream {
             + " blockId(%d) requestSize(%d)", mFile.mFileId, mBlockId, length - mAvailableBytes));
       }
     }
+  }
 
-    MappedByteBuffer out = mLocalFileChannel.map(MapMode.READ_WRITE, mInFileBytes, length);
-    out.put(buf, offset, length);
-    CommonUtils.cleanDirectBuffer(out);
-    mInFileBytes += length;
-    mAvailableBytes -= length;
+  private void releaseBuffer() {
+    mTachyonFS.getBufferPool().release(mBuffer);
+    mBuffer = null;
   }
 
   @Override
@@ -135,6 +186,7 @@ public class BlockOutStream extends OutStream {
     if (!mClosed) {
       mCloser.close();
       mClosed = true;
+      releaseBuffer();
       mTachyonFS.cancelBlock(mBlockId);
       LOG.info(String.format("Canceled output of block. blockId(%d) path(%s)", mBlockId,
           mLocalFilePath));
@@ -151,12 +203,11 @@ public class BlockOutStream extends OutStream {
   @Override
   public void close() throws IOException {
     if (!mClosed) {
-      if (mBuffer.position() > 0) {
-        appendCurrentBuffer(mBuffer.array(), 0, mBuffer.position());
-      }
+      flushBuffer();
       mCloser.close();
       mTachyonFS.cacheBlock(mBlockId);
       mClosed = true;
+      releaseBuffer();
     }
   }
 
@@ -208,22 +259,16 @@ public class BlockOutStream extends OutStream {
       throw new IOException("Out of capacity.");
     }
 
-    long userFileBufferBytes =
-        mTachyonConf.getBytes(Constants.USER_FILE_BUFFER_BYTES, Constants.MB);
-    if (mBuffer.position() > 0 && mBuffer.position() + len > userFileBufferBytes) {
+    if (mBuffer.position() + len > mBufferBytes) {
       // Write the non-empty buffer if the new write will overflow it.
-      appendCurrentBuffer(mBuffer.array(), 0, mBuffer.position());
-      mBuffer.clear();
+      flushBuffer();
     }
 
-    if (len > userFileBufferBytes / 2) {
+    if (len > mBufferBytes / 2) {
       // This write is "large", so do not write it to the buffer, but write it out directly to the
-      // mapped file.
-      if (mBuffer.position() > 0) {
-        // Make sure all bytes in the buffer are written out first, to prevent out-of-order writes.
-        appendCurrentBuffer(mBuffer.array(), 0, mBuffer.position());
-        mBuffer.clear();
-      }
+      // mapped file. Make sure all bytes in the buffer are written out first, to prevent
+      // out-of-order writes.
+      flushBuffer();
       appendCurrentBuffer(b, off, len);
     } else if (len > 0) {
       // Write the data to the buffer, and not directly to the mapped file.
@@ -242,13 +287,11 @@ public class BlockOutStream extends OutStream {
       throw new IOException("Out of capacity.");
     }
 
-    if (mBuffer.position()
-        >= mTachyonConf.getBytes(Constants.USER_FILE_BUFFER_BYTES, Constants.MB)) {
-      appendCurrentBuffer(mBuffer.array(), 0, mBuffer.position());
-      mBuffer.clear();
+    if (mBuffer.position() >= mBufferBytes) {
+      flushBuffer();
     }
 
-    CommonUtils.putIntByteBuffer(mBuffer, b);
+    mBuffer.put((byte) (b & 0xFF));
     mWrittenBytes ++;
   }
 }
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tachyon.Constants;
+import tachyon.conf.TachyonConf;
+import tachyon.util.CommonUtils;
+
+/**
+ * The buffers of the streams of a client. Streams allocate a buffer of
+ * <code>tachyon.user.file.buffer.bytes</code> or so per block or per stream, so a job writing or
+ * reading thousands of files churns through as many large buffers. Instead, streams take their
+ * buffers from this pool and give them back when they are done, so that later blocks and streams
+ * reuse them.
+ *
+ * The pool keeps at most <code>tachyon.user.buffer.pool.max.bytes</code> of idle buffers, buffers
+ * given back beyond that are dropped. With <code>tachyon.user.buffer.pool.direct</code> the buffers
+ * handed out by {@link #acquire(int)} are direct, buffers which must be backed by an array are
+ * taken with {@link #acquireHeap(int)}. This class is thread safe.
+ */
+public final class ClientBufferPool implements Closeable {
+  private final boolean mDirect;
+  private final long mMaxPooledBytes;
+  /** The idle direct buffers by capacity. */
+  private final ConcurrentMap<Integer, Queue<ByteBuffer>> mDirectBuffers =
+      new ConcurrentHashMap<Integer, Queue<ByteBuffer>>();
+  /** The idle heap buffers by capacity. */
+  private final ConcurrentMap<Integer, Queue<ByteBuffer>> mHeapBuffers =
+      new ConcurrentHashMap<Integer, Queue<ByteBuffer>>();
+  private final AtomicLong mPooledBytes = new AtomicLong(0);
+  private volatile boolean mClosed = false;
+
+  /**
+   * @param tachyonConf the configuration of the client
+   */
+  ClientBufferPool(TachyonConf tachyonConf) {
+    this(tachyonConf.getBoolean(Constants.USER_BUFFER_POOL_DIRECT, false),
+        tachyonConf.getBytes(Constants.USER_BUFFER_POOL_MAX_BYTES,
+            Constants.DEFAULT_USER_BUFFER_POOL_MAX_BYTES));
+  }
+
+  /**
+   * @param direct whether {@link #acquire(int)} hands out direct buffers
+   * @param maxPooledBytes the maximum number of bytes of idle buffers kept, 0 to disable pooling
+   */
+  ClientBufferPool(boolean direct, long maxPooledBytes) {
+    mDirect = direct;
+    mMaxPooledBytes = Math.max(maxPooledBytes, 0);
+  }
+
+  /**
+   * Takes a buffer from the pool, direct if the pool is configured so. The buffer is cleared, its
+   * content is undefined.
+   *
+   * @param capacity the capacity of the buffer
+   * @return a buffer of the given capacity
+   */
+  public ByteBuffer acquire(int capacity) {
+    return acquire(capacity, mDirect);
+  }
+
+  private ByteBuffer acquire(int capacity, boolean direct) {
+    Queue<ByteBuffer> queue = (direct ? mDirectBuffers : mHeapBuffers).get(capacity);
+    ByteBuffer buffer = queue == null ? null : queue.poll();
+    if (buffer == null) {
+      return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+    mPooledBytes.addAndGet(-capacity);
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Takes a buffer backed by an array from the pool. The buffer is cleared, its content is
+   * undefined.
+   *
+   * @param capacity the capacity of the buffer
+   * @return a heap buffer of the given capacity
+   */
+  public ByteBuffer acquireHeap(int capacity) {
+    return acquire(capacity, false);
+  }
+
+  /**
+   * Gives a buffer taken from {@link #acquire(int)} or {@link #acquireHeap(int)} back to the pool.
+   * The caller must not use the buffer anymore.
+   *
+   * @param buffer the buffer, null is ignored
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer == null) {
+      return;
+    }
+    int capacity = buffer.capacity();
+    if (mClosed) {
+      CommonUtils.cleanDirectBuffer(buffer);
+      return;
+    }
+    if (mPooledBytes.addAndGet(capacity) > mMaxPooledBytes) {
+      mPooledBytes.addAndGet(-capacity);
+      CommonUtils.cleanDirectBuffer(buffer);
+      return;
+    }
+    ConcurrentMap<Integer, Queue<ByteBuffer>> buffers =
+        buffer.isDirect() ? mDirectBuffers : mHeapBuffers;
+    Queue<ByteBuffer> queue = buffers.get(capacity);
+    if (queue == null) {
+      buffers.putIfAbsent(capacity, new ConcurrentLinkedQueue<ByteBuffer>());
+      queue = buffers.get(capacity);
+    }
+    queue.offer(buffer);
+  }
+
+  /**
+   * @return the number of bytes of the idle buffers in the pool
+   */
+  public long getPooledBytes() {
+    return mPooledBytes.get();
+  }
+
+  /**
+   * Drops the idle buffers and frees the direct ones. Buffers given back later are dropped too.
+   */
+  @Override
+  public void close() {
+    mClosed = true;
+    drain(mDirectBuffers);
+    drain(mHeapBuffers);
+  }
+
+  private void drain(ConcurrentMap<Integer, Queue<ByteBuffer>> buffers) {
+    for (Queue<ByteBuffer> queue : buffers.values()) {
+      ByteBuffer buffer;
+      while ((buffer = queue.poll()) != null) {
+        mPooledBytes.addAndGet(-buffer.capacity());
+        CommonUtils.cleanDirectBuffer(buffer);
+      }
+    }
+  }
+}
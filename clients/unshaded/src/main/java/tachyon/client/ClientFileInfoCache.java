@@ -0,0 +1,176 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import tachyon.Constants;
+import tachyon.TachyonURI;
+import tachyon.conf.TachyonConf;
+import tachyon.thrift.ClientFileInfo;
+import tachyon.worker.ClientMetrics;
+
+/**
+ * The cache of the {@link ClientFileInfo} a client has fetched from the master, indexed by file id
+ * and by path. The number of entries is bounded by
+ * <code>tachyon.user.metadata.cache.max.size</code> and entries expire
+ * <code>tachyon.user.metadata.cache.expiry.ms</code> after they were fetched, so a long-lived
+ * client neither grows without bound nor keeps using stale block locations. The operations of the
+ * client which change metadata invalidate the affected entries once the master has applied the
+ * change. The info fetched before an invalidation is not cached, see
+ * {@link #put(ClientFileInfo, long)}, so a status read concurrently with a change can not cache the
+ * info from before the change.
+ */
+final class ClientFileInfoCache {
+  private final Cache<Integer, ClientFileInfo> mIdToClientFileInfo;
+  private final Cache<String, ClientFileInfo> mPathToClientFileInfo;
+  private final ClientMetrics mClientMetrics;
+  /** The number of invalidations so far. */
+  private final AtomicLong mInvalidations = new AtomicLong(0);
+
+  /**
+   * @param tachyonConf the configuration of the client
+   * @param clientMetrics the metrics to record the cache hits and misses to
+   */
+  ClientFileInfoCache(TachyonConf tachyonConf, ClientMetrics clientMetrics) {
+    long maxSize = tachyonConf.getLong(Constants.USER_METADATA_CACHE_MAX_SIZE, 10000);
+    long expiryMs =
+        tachyonConf.getLong(Constants.USER_METADATA_CACHE_EXPIRY_MS, Constants.MINUTE_MS);
+    mIdToClientFileInfo = CacheBuilder.newBuilder().maximumSize(maxSize)
+        .expireAfterWrite(expiryMs, TimeUnit.MILLISECONDS).build();
+    mPathToClientFileInfo = CacheBuilder.newBuilder().maximumSize(maxSize)
+        .expireAfterWrite(expiryMs, TimeUnit.MILLISECONDS).build();
+    mClientMetrics = clientMetrics;
+  }
+
+  /**
+   * @param fileId the id of the file
+   * @return the cached info of the file, or null if it is not cached
+   */
+  ClientFileInfo get(int fileId) {
+    return recordLookup(mIdToClientFileInfo.getIfPresent(fileId));
+  }
+
+  /**
+   * @param path the path of the file
+   * @return the cached info of the file, or null if it is not cached
+   */
+  ClientFileInfo get(String path) {
+    return recordLookup(mPathToClientFileInfo.getIfPresent(path));
+  }
+
+  /**
+   * Caches the info of a file under both its id and its path.
+   *
+   * @param info the info fetched from the master
+   */
+  void put(ClientFileInfo info) {
+    mIdToClientFileInfo.put(info.getId(), info);
+    mPathToClientFileInfo.put(info.getPath(), info);
+  }
+
+  /**
+   * Caches the info of a file, unless the cache was invalidated since the info was requested, in
+   * which case the info may predate the change which caused the invalidation.
+   *
+   * @param info the info fetched from the master
+   * @param invalidations the value of {@link #getInvalidations()} before the info was requested
+   */
+  void put(ClientFileInfo info, long invalidations) {
+    put(info);
+    // Checked after caching, so an invalidation racing with the put can not be missed.
+    if (mInvalidations.get() != invalidations) {
+      mIdToClientFileInfo.invalidate(info.getId());
+      mPathToClientFileInfo.invalidate(info.getPath());
+    }
+  }
+
+  /**
+   * @return the number of invalidations so far, to pass to {@link #put(ClientFileInfo, long)}
+   */
+  long getInvalidations() {
+    return mInvalidations.get();
+  }
+
+  /**
+   * Invalidates the cached info of a file, and of everything under it if it is a folder.
+   *
+   * @param fileId the id of the file, or -1 to use the path
+   * @param path the path of the file, used when the id is -1
+   */
+  void invalidate(int fileId, String path) {
+    mInvalidations.incrementAndGet();
+    if (fileId != -1) {
+      ClientFileInfo info = mIdToClientFileInfo.getIfPresent(fileId);
+      mIdToClientFileInfo.invalidate(fileId);
+      if (info == null) {
+        // The two indexes evict independently, the file may still be cached by path.
+        for (ClientFileInfo cached : mPathToClientFileInfo.asMap().values()) {
+          if (cached.getId() == fileId) {
+            info = cached;
+            break;
+          }
+        }
+      }
+      if (info == null) {
+        return;
+      }
+      path = info.getPath();
+    }
+    invalidateTree(path);
+  }
+
+  /**
+   * Drops all the cached info.
+   */
+  void invalidateAll() {
+    mInvalidations.incrementAndGet();
+    mIdToClientFileInfo.invalidateAll();
+    mPathToClientFileInfo.invalidateAll();
+  }
+
+  private void invalidateTree(String path) {
+    String prefix = path.endsWith(TachyonURI.SEPARATOR) ? path : path + TachyonURI.SEPARATOR;
+    List<String> paths = new ArrayList<String>();
+    for (String cachedPath : mPathToClientFileInfo.asMap().keySet()) {
+      if (cachedPath.equals(path) || cachedPath.startsWith(prefix)) {
+        paths.add(cachedPath);
+      }
+    }
+    for (String cachedPath : paths) {
+      ClientFileInfo info = mPathToClientFileInfo.getIfPresent(cachedPath);
+      if (info != null) {
+        mIdToClientFileInfo.invalidate(info.getId());
+      }
+      mPathToClientFileInfo.invalidate(cachedPath);
+    }
+  }
+
+  private ClientFileInfo recordLookup(ClientFileInfo info) {
+    if (info != null) {
+      mClientMetrics.incMetadataCacheHits(1);
+    } else {
+      mClientMetrics.incMetadataCacheMisses(1);
+    }
+    return info;
+  }
+}
@@ -17,6 +17,7 @@ package tachyon.client;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,18 +33,34 @@ import tachyon.util.CommonUtils;
  * <code>FileOutStream</code> implementation of TachyonFile. To get an instance of this class, one
  * should call the method <code>getOutStream</code> of <code>tachyon.client.TachyonFile</code>,
  * rather than constructing a new instance directly in the client code.
+ *
+ * Unless <code>tachyon.user.file.write.pipelined</code> is false, the stream commits each block as
+ * soon as it is full, and writes the under file system copy of <code>THROUGH</code> writes, in the
+ * background, so that writing the next data overlaps with both.
  */
 public class FileOutStream extends OutStream {
   private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  // The number of full blocks, and of buffers of the under file system copy, which may be pending.
+  private static final int MAX_PENDING_BLOCKS = 2;
+  private static final int MAX_PENDING_UFS_BUFFERS = 4;
 
   private final long mBlockCapacityByte;
+  private final boolean mPipelined;
+  /** Commits the full blocks in order. */
+  private final WritePipeline mBlockPipeline;
 
   private BlockOutStream mCurrentBlockOutStream;
   private List<BlockOutStream> mPreviousBlockOutStreams;
   private long mCachedBytes;
 
+  private UnderFileSystem mUnderFsClient = null;
   private OutputStream mCheckpointOutputStream = null;
   private String mUnderFsFile = null;
+  /** Writes the under file system copy in order. */
+  private WritePipeline mUfsPipeline = null;
+  private int mUfsBufferBytes;
+  /** The data not handed to the under file system pipeline yet. */
+  private ByteBuffer mUfsBuffer = null;
 
   private boolean mClosed = false;
   private boolean mCancel = false;
@@ -60,6 +77,8 @@ public class FileOutStream extends OutStream {
     super(file, opType, tachyonConf);
 
     mBlockCapacityByte = file.getBlockSizeByte();
+    mPipelined = tachyonConf.getBoolean(Constants.USER_FILE_WRITE_PIPELINED, true);
+    mBlockPipeline = new WritePipeline(mPipelined, MAX_PENDING_BLOCKS);
 
     // TODO Support and test append.
     mCurrentBlockOutStream = null;
@@ -69,12 +88,14 @@ public class FileOutStream extends OutStream {
     if (mWriteType.isThrough()) {
       mUnderFsFile = CommonUtils.concatPath(mTachyonFS.createAndGetUserUfsTempFolder(ufsConf),
           mFile.mFileId);
-      UnderFileSystem underfsClient = UnderFileSystem.get(mUnderFsFile, ufsConf, tachyonConf);
+      mUnderFsClient = UnderFileSystem.get(mUnderFsFile, ufsConf, tachyonConf);
       if (mBlockCapacityByte > Integer.MAX_VALUE) {
         throw new IOException("BLOCK_CAPACITY (" + mBlockCapacityByte + ") can not bigger than "
             + Integer.MAX_VALUE);
       }
-      mCheckpointOutputStream = underfsClient.create(mUnderFsFile, (int) mBlockCapacityByte);
+      mCheckpointOutputStream = mUnderFsClient.create(mUnderFsFile, (int) mBlockCapacityByte);
+      mUfsPipeline = new WritePipeline(mPipelined, MAX_PENDING_UFS_BUFFERS);
+      mUfsBufferBytes = (int) tachyonConf.getBytes(Constants.USER_FILE_BUFFER_BYTES, Constants.MB);
     }
   }
 
@@ -94,15 +115,52 @@ public class FileOutStream extends OutStream {
       mTachyonFS.getClientMetrics().incBlocksWrittenLocal(1);
     }
 
+    // Hand the last data to both pipelines first, so that they finish concurrently.
+    IOException cacheFailure = null;
+    if (mWriteType.isCache() && !mCancel && mCurrentBlockOutStream != null) {
+      try {
+        commitBlock(mCurrentBlockOutStream);
+      } catch (IOException ioe) {
+        cacheFailure = ioe;
+      }
+    }
+    IOException ufsFailure = null;
+    if (mWriteType.isThrough() && !mCancel) {
+      try {
+        submitUfsBuffer();
+      } catch (IOException ioe) {
+        ufsFailure = ioe;
+      }
+    }
+
     Boolean canComplete = false;
     if (mWriteType.isThrough()) {
       if (mCancel) {
+        try {
+          mUfsPipeline.await();
+        } catch (IOException ioe) {
+          LOG.warn("Fail to write the under file system copy of a canceled file", ioe);
+        }
+        releaseUfsBuffer();
         mCheckpointOutputStream.close();
-        UnderFileSystem underFsClient = UnderFileSystem.get(mUnderFsFile, mTachyonConf);
-        underFsClient.delete(mUnderFsFile, false);
+        mUnderFsClient.delete(mUnderFsFile, false);
+        mUnderFsClient.close();
       } else {
-        mCheckpointOutputStream.flush();
-        mCheckpointOutputStream.close();
+        boolean written = false;
+        try {
+          if (ufsFailure != null) {
+            throw ufsFailure;
+          }
+          mUfsPipeline.await();
+          mCheckpointOutputStream.flush();
+          mCheckpointOutputStream.close();
+          mUnderFsClient.close();
+          written = true;
+        } finally {
+          if (!written) {
+            abandonAfterUfsFailure();
+          }
+        }
         mTachyonFS.addCheckpoint(mFile.mFileId);
         canComplete = true;
       }
@@ -110,22 +168,32 @@ public class FileOutStream extends OutStream {
 
     if (mWriteType.isCache()) {
       try {
-        if (mCancel) {
+        mBlockPipeline.await();
+      } catch (IOException ioe) {
+        if (cacheFailure == null) {
+          cacheFailure = ioe;
+        }
+      }
+      try {
+        if (mCancel || cacheFailure != null) {
+          // Blocks already committed stay, the others are canceled.
           for (BlockOutStream bos : mPreviousBlockOutStreams) {
             bos.cancel();
           }
         } else {
-          for (BlockOutStream bos : mPreviousBlockOutStreams) {
-            bos.close();
-          }
           canComplete = true;
         }
       } catch (IOException ioe) {
+        if (cacheFailure == null) {
+          cacheFailure = ioe;
+        }
+      }
+      if (cacheFailure != null) {
         if (mWriteType.isMustCache()) {
-          LOG.error(ioe.getMessage(), ioe);
-          throw new IOException("Fail to cache: " + mWriteType, ioe);
+          LOG.error(cacheFailure.getMessage(), cacheFailure);
+          throw new IOException("Fail to cache: " + mWriteType, cacheFailure);
         } else {
-          LOG.warn("Fail to cache for: ", ioe);
+          LOG.warn("Fail to cache for: ", cacheFailure);
         }
       }
     }
@@ -139,10 +207,60 @@ public class FileOutStream extends OutStream {
     mClosed = true;
   }
 
+  /**
+   * Releases what the stream holds once writing the under file system copy failed, which leaves
+   * the file incomplete: the blocks not committed yet are canceled, and the stream is closed so
+   * that closing it again does nothing. The failures met on the way are logged, the caller throws
+   * the failure of the under file system copy.
+   */
+  private void abandonAfterUfsFailure() {
+    mClosed = true;
+    releaseUfsBuffer();
+    try {
+      mCheckpointOutputStream.close();
+    } catch (IOException ioe) {
+      LOG.warn("Fail to close the under file system copy " + mUnderFsFile, ioe);
+    }
+    try {
+      mUnderFsClient.close();
+    } catch (IOException ioe) {
+      LOG.warn("Fail to close the under file system client", ioe);
+    }
+    if (mWriteType.isCache()) {
+      try {
+        mBlockPipeline.await();
+      } catch (IOException ioe) {
+        LOG.warn("Fail to cache the blocks of file " + mFile.mFileId, ioe);
+      }
+      for (BlockOutStream bos : mPreviousBlockOutStreams) {
+        try {
+          bos.cancel();
+        } catch (IOException ioe) {
+          LOG.warn("Fail to cancel a block of file " + mFile.mFileId, ioe);
+        }
+      }
+    }
+  }
+
+  /**
+   * Commits a full block through the block pipeline. Blocks must be committed in their order in
+   * the file, which the pipeline keeps.
+   */
+  private void commitBlock(final BlockOutStream bos) throws IOException {
+    mBlockPipeline.submit(new WritePipeline.Step() {
+      @Override
+      public void run() throws IOException {
+        bos.close();
+      }
+    });
+  }
+
   @Override
   public void flush() throws IOException {
     // TODO We only flush the checkpoint output stream. Flush for RAMFS block streams.
     if (mWriteType.isThrough()) {
+      submitUfsBuffer();
+      mUfsPipeline.await();
       mCheckpointOutputStream.flush();
     }
   }
@@ -154,6 +272,9 @@ public class FileOutStream extends OutStream {
       }
       mPreviousBlockOutStreams.add(mCurrentBlockOutStream);
       mTachyonFS.getClientMetrics().incBlocksWrittenLocal(1);
+      BlockOutStream fullBlock = mCurrentBlockOutStream;
+      mCurrentBlockOutStream = null;
+      commitBlock(fullBlock);
     }
 
     if (mWriteType.isCache()) {
@@ -210,7 +331,7 @@ public class FileOutStream extends OutStream {
     }
 
     if (mWriteType.isThrough()) {
-      mCheckpointOutputStream.write(b, off, len);
+      writeUfs(b, off, len);
       mTachyonFS.getClientMetrics().incBytesWrittenUfs(len);
     }
   }
@@ -237,8 +358,75 @@ public class FileOutStream extends OutStream {
     }
 
     if (mWriteType.isThrough()) {
-      mCheckpointOutputStream.write(b);
+      if (mPipelined) {
+        getUfsBuffer().put((byte) (b & 0xFF));
+        if (!mUfsBuffer.hasRemaining()) {
+          submitUfsBuffer();
+        }
+      } else {
+        mCheckpointOutputStream.write(b);
+      }
       mTachyonFS.getClientMetrics().incBytesWrittenUfs(1);
     }
   }
+
+  /**
+   * Writes data to the under file system copy. When pipelined, the data is copied to a buffer,
+   * which is written in the background once full.
+   */
+  private void writeUfs(byte[] b, int off, int len) throws IOException {
+    if (!mPipelined) {
+      mCheckpointOutputStream.write(b, off, len);
+      return;
+    }
+    while (len > 0) {
+      ByteBuffer buffer = getUfsBuffer();
+      int bytes = Math.min(len, buffer.remaining());
+      buffer.put(b, off, bytes);
+      off += bytes;
+      len -= bytes;
+      if (!buffer.hasRemaining()) {
+        submitUfsBuffer();
+      }
+    }
+  }
+
+  private ByteBuffer getUfsBuffer() {
+    if (mUfsBuffer == null) {
+      mUfsBuffer = mTachyonFS.getBufferPool().acquireHeap(mUfsBufferBytes);
+    }
+    return mUfsBuffer;
+  }
+
+  /**
+   * Hands the buffered data of the under file system copy to its pipeline, if any.
+   */
+  private void submitUfsBuffer() throws IOException {
+    final ByteBuffer buffer = mUfsBuffer;
+    if (buffer == null || buffer.position() == 0) {
+      return;
+    }
+    mUfsBuffer = null;
+    buffer.flip();
+    mUfsPipeline.submit(new WritePipeline.Step() {
+      @Override
+      public void run() throws IOException {
+        try {
+          mCheckpointOutputStream.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        } finally {
+          mTachyonFS.getBufferPool().release(buffer);
+        }
+      }
+
+      @Override
+      public void abandon() {
+        mTachyonFS.getBufferPool().release(buffer);
+      }
+    });
+  }
+
+  private void releaseUfsBuffer() {
+    mTachyonFS.getBufferPool().release(mUfsBuffer);
+    mUfsBuffer = null;
+  }
 }
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A range of bytes in a file, used by the vectored read API
+ * {@link TachyonFile#readRanges(java.util.List)}.
+ */
+public final class FileRange {
+  private final long mOffset;
+  private final int mLength;
+
+  /**
+   * @param offset the offset of the first byte of the range in the file
+   * @param length the number of bytes in the range
+   */
+  public FileRange(long offset, int length) {
+    Preconditions.checkArgument(offset >= 0, "Offset can not be negative: " + offset);
+    Preconditions.checkArgument(length >= 0, "Length can not be negative: " + length);
+    mOffset = offset;
+    mLength = length;
+  }
+
+  /**
+   * @return the offset of the first byte of the range in the file
+   */
+  public long getOffset() {
+    return mOffset;
+  }
+
+  /**
+   * @return the number of bytes in the range
+   */
+  public int getLength() {
+    return mLength;
+  }
+
+  /**
+   * @return the offset right after the last byte of the range
+   */
+  public long getEnd() {
+    return mOffset + mLength;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof FileRange)) {
+      return false;
+    }
+    FileRange that = (FileRange) obj;
+    return mOffset == that.mOffset && mLength == that.mLength;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (mOffset ^ (mOffset >>> 32)) * 31 + mLength;
+  }
+
+  @Override
+  public String toString() {
+    return "FileRange(" + mOffset + ", " + mLength + ")";
+  }
+}
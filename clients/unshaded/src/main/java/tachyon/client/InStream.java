@@ -17,6 +17,8 @@ package tachyon.client;
 
 import java.io.InputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 import tachyon.conf.TachyonConf;
 
@@ -68,4 +70,16 @@ public abstract class InStream extends InputStream {
 
   @Override
   public abstract long skip(long n) throws IOException;
+
+  /**
+   * Reads several ranges of the file without moving the stream pointer.
+   *
+   * @param ranges the ranges to read, measured in bytes from the beginning of the file
+   * @return one buffer per range, in the same order as the ranges
+   * @throws IOException if a range could not be read
+   * @see TachyonFile#readRanges(List)
+   */
+  public List<ByteBuffer> readRanges(List<FileRange> ranges) throws IOException {
+    return mFile.readRanges(ranges);
+  }
 }
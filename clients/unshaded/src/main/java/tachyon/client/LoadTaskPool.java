@@ -0,0 +1,93 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import tachyon.util.ThreadFactoryUtils;
+
+/**
+ * The threads running the tasks of a bulk load, e.g. of {@link UfsLoader} or {@link BlockLoader}:
+ * a fixed number of threads, and the count of the tasks submitted and not done yet, so that the
+ * load can wait for all its tasks, including the ones submitted by other tasks. A pool is used for
+ * a single load.
+ */
+final class LoadTaskPool {
+  private final ExecutorService mExecutor;
+  /** The number of tasks submitted and not done yet, guarded by this. */
+  private int mPendingTasks = 0;
+
+  /**
+   * @param threads the number of threads running the tasks
+   * @param threadNameFormat the format of the names of the threads
+   */
+  LoadTaskPool(int threads, String threadNameFormat) {
+    mExecutor = Executors.newFixedThreadPool(Math.max(threads, 1),
+        ThreadFactoryUtils.build(threadNameFormat, true));
+  }
+
+  /**
+   * Submits a task, which may submit more tasks.
+   *
+   * @param task the task to run
+   */
+  void submit(final Runnable task) {
+    synchronized (this) {
+      mPendingTasks ++;
+    }
+    mExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          task.run();
+        } finally {
+          synchronized (LoadTaskPool.this) {
+            if (-- mPendingTasks == 0) {
+              LoadTaskPool.this.notifyAll();
+            }
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Waits for all the tasks submitted to be done, reporting the progress periodically meanwhile.
+   *
+   * @param progressIntervalMs how often to report the progress
+   * @param progress reports the progress
+   * @throws InterruptedException if interrupted while waiting
+   */
+  synchronized void await(long progressIntervalMs, Runnable progress)
+      throws InterruptedException {
+    long lastProgressMs = System.currentTimeMillis();
+    while (mPendingTasks > 0) {
+      wait(progressIntervalMs);
+      if (System.currentTimeMillis() - lastProgressMs >= progressIntervalMs) {
+        progress.run();
+        lastProgressMs = System.currentTimeMillis();
+      }
+    }
+  }
+
+  /**
+   * Stops the threads, interrupting the tasks still running.
+   */
+  void shutdown() {
+    mExecutor.shutdownNow();
+  }
+}
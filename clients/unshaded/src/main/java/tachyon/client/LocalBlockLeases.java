@@ -0,0 +1,301 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.util.ThreadFactoryUtils;
+import tachyon.worker.WorkerClient;
+
+/**
+ * The locks a client holds on blocks of its local worker, for short-circuit reads.
+ *
+ * Locking a block in the worker and unlocking it are RPCs, and so is reporting an access to it, so
+ * reading many small local blocks costs three RPCs per block. To avoid that, a block lock taken in
+ * the worker is kept as a lease for <code>tachyon.user.local.read.lease.ms</code> after the last
+ * local reader released it: reading the block again within the lease needs no RPC at all. Expired
+ * leases are released, and accesses are reported to the worker deduplicated, in the background, by
+ * a thread of this client.
+ *
+ * Idle leases keep the worker from evicting their blocks, and from evicting the other blocks hashed
+ * onto the same worker locks, so at most <code>tachyon.user.local.read.lease.max</code> leases are
+ * kept idle, the blocks released beyond that are unlocked right away. The idle leases are also
+ * released right away when this client fails to get space in the worker, see
+ * {@link #releaseIdle()}. A lease time of 0 disables leases: blocks are unlocked as soon as they
+ * are released, and accesses are reported right away.
+ *
+ * No monitor is held during the RPCs to the worker, which may block, e.g. behind a lock the worker
+ * is waiting for: a block being locked in the worker is marked as such, and the other readers of
+ * the block wait for that lock instead of taking their own.
+ */
+final class LocalBlockLeases implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+
+  private static final int NUM_BLOCK_LOCKS = 64;
+
+  private final WorkerClient mWorkerClient;
+  private final long mLeaseMs;
+  private final int mMaxIdleLeases;
+  /** The blocks locked in the worker, or being locked, by block id. */
+  private final Map<Long, Lease> mLeases = new ConcurrentHashMap<Long, Lease>();
+  /**
+   * Guards the leases of the blocks, which are hashed onto a fixed number of monitors. Never held
+   * during an RPC.
+   */
+  private final Object[] mBlockLocks = new Object[NUM_BLOCK_LOCKS];
+  /** The number of leases no reader holds. */
+  private final AtomicInteger mIdleLeases = new AtomicInteger(0);
+  /** The blocks read since the accesses were last reported to the worker. */
+  private final Set<Long> mAccessedBlocks =
+      Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+  /** Releases the expired leases, null if leases are disabled. */
+  private final ScheduledExecutorService mReaper;
+  private volatile boolean mClosed = false;
+
+  /**
+   * @param workerClient the client of the local worker
+   * @param leaseMs how long a block stays locked after its last reader released it, 0 to disable
+   * @param maxIdleLeases the maximum number of blocks kept locked with no reader
+   */
+  LocalBlockLeases(WorkerClient workerClient, long leaseMs, int maxIdleLeases) {
+    mWorkerClient = workerClient;
+    mLeaseMs = Math.max(leaseMs, 0);
+    mMaxIdleLeases = Math.max(maxIdleLeases, 0);
+    for (int i = 0; i < NUM_BLOCK_LOCKS; i ++) {
+      mBlockLocks[i] = new Object();
+    }
+    if (mLeaseMs > 0 && mMaxIdleLeases > 0) {
+      long periodMs = Math.max(mLeaseMs / 2, 10);
+      mReaper = Executors.newSingleThreadScheduledExecutor(
+          ThreadFactoryUtils.build("client-local-lease-%d", true));
+      mReaper.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          reap(System.currentTimeMillis());
+        }
+      }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    } else {
+      mReaper = null;
+    }
+  }
+
+  /**
+   * Locks a block for a reader, taking a lock in the worker unless the client already holds one.
+   *
+   * @param blockId the id of the block
+   * @param blockLockId the id of the reader's lock
+   * @return the path of the block file, or null if the block is not in the local worker
+   * @throws IOException if the worker could not be reached
+   */
+  String lock(long blockId, int blockLockId) throws IOException {
+    Object blockLock = getBlockLock(blockId);
+    Lease lease;
+    synchronized (blockLock) {
+      while (true) {
+        lease = mLeases.get(blockId);
+        if (lease == null) {
+          // This reader locks the block in the worker, the others wait for it.
+          lease = new Lease();
+          mLeases.put(blockId, lease);
+          break;
+        }
+        if (lease.mPath != null) {
+          if (lease.mLockIds.isEmpty()) {
+            mIdleLeases.decrementAndGet();
+          }
+          lease.mLockIds.add(blockLockId);
+          lease.mIdleSinceMs = -1;
+          return lease.mPath;
+        }
+        try {
+          blockLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for the lock of block " + blockId);
+        }
+      }
+    }
+
+    String blockPath = null;
+    try {
+      if (mWorkerClient.isLocal()) {
+        blockPath = mWorkerClient.lockBlock(blockId);
+      }
+    } finally {
+      synchronized (blockLock) {
+        if (blockPath != null) {
+          lease.mPath = blockPath;
+          lease.mLockIds.add(blockLockId);
+        } else {
+          mLeases.remove(blockId);
+        }
+        blockLock.notifyAll();
+      }
+    }
+    return blockPath;
+  }
+
+  /**
+   * Releases the lock of a reader. When no reader holds the block anymore, the lock in the worker
+   * is kept as a lease, or released right away if leases are disabled or too many leases are idle.
+   *
+   * @param blockId the id of the block
+   * @param blockLockId the id of the reader's lock
+   * @return true if the lock was released, false if there is no local worker
+   * @throws IOException if the worker could not be reached
+   */
+  boolean unlock(long blockId, int blockLockId) throws IOException {
+    synchronized (getBlockLock(blockId)) {
+      Lease lease = mLeases.get(blockId);
+      if (lease == null || lease.mPath == null) {
+        return true;
+      }
+      lease.mLockIds.remove(blockLockId);
+      if (!lease.mLockIds.isEmpty()) {
+        return true;
+      }
+      if (mReaper != null && !mClosed && mIdleLeases.incrementAndGet() <= mMaxIdleLeases) {
+        lease.mIdleSinceMs = System.currentTimeMillis();
+        return true;
+      }
+      if (mReaper != null && !mClosed) {
+        mIdleLeases.decrementAndGet();
+      }
+      mLeases.remove(blockId);
+    }
+    if (!mWorkerClient.isLocal()) {
+      return false;
+    }
+    return mWorkerClient.unlockBlock(blockId);
+  }
+
+  /**
+   * Records an access to a local block. With leases, the access is reported to the worker in the
+   * background, otherwise right away.
+   *
+   * @param blockId the id of the block
+   * @throws IOException if the worker could not be reached
+   */
+  void access(long blockId) throws IOException {
+    if (mReaper == null || mClosed) {
+      mWorkerClient.accessBlock(blockId);
+    } else {
+      mAccessedBlocks.add(blockId);
+    }
+  }
+
+  /**
+   * Reports the pending accesses and releases all the idle leases, so that the worker can evict
+   * their blocks.
+   *
+   * @return true if any lease was released
+   */
+  boolean releaseIdle() {
+    return reap(Long.MAX_VALUE);
+  }
+
+  /**
+   * Reports the pending accesses and releases all the leases. The locks of readers still holding
+   * blocks are released in the worker when the readers release them.
+   */
+  @Override
+  public void close() {
+    mClosed = true;
+    if (mReaper != null) {
+      mReaper.shutdownNow();
+    }
+    releaseIdle();
+  }
+
+  /**
+   * Reports the pending accesses, then releases the leases idle since before
+   * <code>nowMs - leaseMs</code>.
+   *
+   * @param nowMs the current time, or Long.MAX_VALUE to release all the idle leases
+   * @return true if any lease was released
+   */
+  private boolean reap(long nowMs) {
+    Iterator<Long> accessed = mAccessedBlocks.iterator();
+    while (accessed.hasNext()) {
+      long blockId = accessed.next();
+      accessed.remove();
+      try {
+        mWorkerClient.accessBlock(blockId);
+      } catch (IOException e) {
+        LOG.warn("Failed to report the access to block " + blockId + ": " + e.getMessage());
+      }
+    }
+
+    boolean released = false;
+    for (Map.Entry<Long, Lease> entry : mLeases.entrySet()) {
+      long blockId = entry.getKey();
+      if (!entry.getValue().isExpired(nowMs, mLeaseMs)) {
+        continue;
+      }
+      synchronized (getBlockLock(blockId)) {
+        Lease lease = mLeases.get(blockId);
+        if (lease == null || !lease.isExpired(nowMs, mLeaseMs)) {
+          continue;
+        }
+        mLeases.remove(blockId);
+        mIdleLeases.decrementAndGet();
+      }
+      released = true;
+      try {
+        mWorkerClient.unlockBlock(blockId);
+      } catch (IOException e) {
+        LOG.warn("Failed to release the lease on block " + blockId + ": " + e.getMessage());
+      }
+    }
+    return released;
+  }
+
+  private Object getBlockLock(long blockId) {
+    return mBlockLocks[(int) ((blockId & Long.MAX_VALUE) % NUM_BLOCK_LOCKS)];
+  }
+
+  /**
+   * A lock held in the worker on one block, or being taken. Guarded by the monitor of the block.
+   */
+  private static final class Lease {
+    /** The path of the block file, null while the block is being locked in the worker. */
+    String mPath = null;
+    /** The ids of the local readers holding the block. */
+    final Set<Integer> mLockIds = new HashSet<Integer>(4);
+    /** When the last reader released the block, -1 while readers hold it. */
+    volatile long mIdleSinceMs = -1;
+
+    boolean isExpired(long nowMs, long leaseMs) {
+      long idleSinceMs = mIdleSinceMs;
+      return idleSinceMs >= 0 && (nowMs == Long.MAX_VALUE || nowMs - idleSinceMs >= leaseMs);
+    }
+  }
+}
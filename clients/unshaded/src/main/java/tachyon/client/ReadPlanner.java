@@ -0,0 +1,280 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import tachyon.Constants;
+import tachyon.conf.TachyonConf;
+import tachyon.worker.ClientMetrics;
+
+/**
+ * Plans where the blocks a client does not have locally are read from. Reads from the local worker
+ * are always preferred, as they do not go over the network. For the others, the planner measures
+ * the throughput of every remote worker and of the under file system as the client reads from
+ * them, and counts the requests in flight to every worker as a measure of its load. With
+ * <code>tachyon.user.read.adaptive</code> enabled, it then
+ * <ul>
+ * <li>orders the workers holding a block by locality (workers on the local host first), then by
+ * measured throughput shared among their requests in flight, trying unmeasured workers first so
+ * that they get measured;</li>
+ * <li>reads a checkpointed block directly from the under file system when it has proven
+ * {@link #UFS_PREFERENCE_FACTOR} times faster than the best worker holding it;</li>
+ * <li>recaches a block for <code>ReadType.CACHE</code> only once the client has read it
+ * <code>tachyon.user.read.adaptive.recache.min.accesses</code> times, so that blocks read once do
+ * not evict the working set of the workers.</li>
+ * </ul>
+ * The reads it moves to the under file system and the recaches it skips are counted in the client
+ * metrics. When disabled, the planner keeps the default order and always recaches. This class is
+ * thread safe.
+ */
+final class ReadPlanner {
+  /** The weight of a new measurement in the moving average of a throughput. */
+  private static final double THROUGHPUT_WEIGHT = 0.3;
+  /** How much faster the under file system must be than the best worker to be read from. */
+  static final double UFS_PREFERENCE_FACTOR = 2.0;
+  private static final int MAX_TRACKED_BLOCKS = 10000;
+  private static final String UNDER_FS_SOURCE = "ufs";
+
+  private final boolean mEnabled;
+  private final int mRecacheMinAccesses;
+  private final String mLocalHost;
+  private final ClientMetrics mClientMetrics;
+  /** The statistics of the sources read from, by "host:port" for workers. */
+  private final ConcurrentMap<String, SourceStats> mSources =
+      new ConcurrentHashMap<String, SourceStats>();
+  /** The number of times the client read the recently read blocks. */
+  private final Cache<Long, AtomicInteger> mBlockAccesses =
+      CacheBuilder.newBuilder().maximumSize(MAX_TRACKED_BLOCKS).build();
+
+  /**
+   * @param tachyonConf the configuration of the client
+   * @param localHost the name of the local host
+   * @param clientMetrics the metrics to record the decisions to
+   */
+  ReadPlanner(TachyonConf tachyonConf, String localHost, ClientMetrics clientMetrics) {
+    this(tachyonConf.getBoolean(Constants.USER_READ_ADAPTIVE, false),
+        tachyonConf.getInt(Constants.USER_READ_ADAPTIVE_RECACHE_MIN_ACCESSES, 2), localHost,
+        clientMetrics);
+  }
+
+  /**
+   * @param enabled whether the planner changes the default plan
+   * @param recacheMinAccesses the number of reads of a block from which it is recached
+   * @param localHost the name of the local host
+   * @param clientMetrics the metrics to record the decisions to
+   */
+  ReadPlanner(boolean enabled, int recacheMinAccesses, String localHost,
+      ClientMetrics clientMetrics) {
+    mEnabled = enabled;
+    mRecacheMinAccesses = Math.max(recacheMinAccesses, 1);
+    mLocalHost = localHost;
+    mClientMetrics = clientMetrics;
+  }
+
+  /**
+   * Orders the workers holding a block from the best to read from to the worst.
+   *
+   * @param addresses the data server addresses of the workers
+   * @return the addresses in the order to try them
+   */
+  List<InetSocketAddress> orderWorkers(List<InetSocketAddress> addresses) {
+    if (!mEnabled || addresses.size() < 2) {
+      return addresses;
+    }
+    // Scores are computed once, as they change while other threads read.
+    final int size = addresses.size();
+    final double[] scores = new double[size];
+    final boolean[] local = new boolean[size];
+    List<Integer> indexes = new ArrayList<Integer>(size);
+    for (int k = 0; k < size; k ++) {
+      scores[k] = getScore(addresses.get(k));
+      local[k] = isLocal(addresses.get(k));
+      indexes.add(k);
+    }
+    Collections.sort(indexes, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        if (local[a] != local[b]) {
+          return local[a] ? -1 : 1;
+        }
+        return Double.compare(scores[b], scores[a]);
+      }
+    });
+    List<InetSocketAddress> ordered = new ArrayList<InetSocketAddress>(size);
+    for (int index : indexes) {
+      ordered.add(addresses.get(index));
+    }
+    return ordered;
+  }
+
+  /**
+   * Decides whether to read a block directly from the under file system rather than from the
+   * workers holding it.
+   *
+   * @param addresses the data server addresses of the workers holding the block
+   * @param checkpointed whether the block has a copy in the under file system
+   * @return true to read from the under file system, false to read from the workers
+   */
+  boolean shouldReadFromUnderFs(List<InetSocketAddress> addresses, boolean checkpointed) {
+    if (!mEnabled || !checkpointed || addresses.isEmpty()) {
+      return false;
+    }
+    double underFsThroughput = getThroughput(UNDER_FS_SOURCE);
+    if (Double.isNaN(underFsThroughput)) {
+      return false;
+    }
+    double bestThroughput = 0;
+    for (InetSocketAddress address : addresses) {
+      double throughput = getThroughput(getKey(address));
+      if (Double.isNaN(throughput)) {
+        // The worker has not been measured yet, give it a chance.
+        return false;
+      }
+      bestThroughput = Math.max(bestThroughput, throughput);
+    }
+    if (underFsThroughput > bestThroughput * UFS_PREFERENCE_FACTOR) {
+      mClientMetrics.incAdaptiveReadsUfs(1);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Records a read of a block and decides whether it is worth caching it in the local worker.
+   *
+   * @param blockId the id of the block read
+   * @return true to recache the block, false otherwise
+   */
+  boolean shouldRecache(long blockId) {
+    if (!mEnabled) {
+      return true;
+    }
+    AtomicInteger accesses = mBlockAccesses.getIfPresent(blockId);
+    if (accesses == null) {
+      mBlockAccesses.asMap().putIfAbsent(blockId, new AtomicInteger(0));
+      accesses = mBlockAccesses.asMap().get(blockId);
+    }
+    if (accesses == null || accesses.incrementAndGet() < mRecacheMinAccesses) {
+      mClientMetrics.incAdaptiveRecachesSkipped(1);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Records the start of a request to a worker.
+   *
+   * @param address the data server address of the worker
+   */
+  void startWorkerRead(InetSocketAddress address) {
+    getStats(getKey(address)).mInFlight.incrementAndGet();
+  }
+
+  /**
+   * Records the end of a request to a worker started with
+   * {@link #startWorkerRead(InetSocketAddress)}. A failed request counts as no bytes read.
+   *
+   * @param address the data server address of the worker
+   * @param bytes the number of bytes read
+   * @param elapsedNs the time the request took
+   */
+  void endWorkerRead(InetSocketAddress address, long bytes, long elapsedNs) {
+    SourceStats stats = getStats(getKey(address));
+    stats.mInFlight.decrementAndGet();
+    stats.record(bytes, elapsedNs);
+  }
+
+  /**
+   * Records a read from the under file system.
+   *
+   * @param bytes the number of bytes read
+   * @param elapsedNs the time the read took
+   */
+  void recordUnderFsRead(long bytes, long elapsedNs) {
+    getStats(UNDER_FS_SOURCE).record(bytes, elapsedNs);
+  }
+
+  /**
+   * @param address the data server address of a worker
+   * @return the measured throughput of the worker in bytes per ms, NaN if not measured yet
+   */
+  double getWorkerThroughput(InetSocketAddress address) {
+    return getThroughput(getKey(address));
+  }
+
+  private double getScore(InetSocketAddress address) {
+    SourceStats stats = mSources.get(getKey(address));
+    if (stats == null || Double.isNaN(stats.getThroughput())) {
+      return Double.MAX_VALUE;
+    }
+    return stats.getThroughput() / (1 + Math.max(stats.mInFlight.get(), 0));
+  }
+
+  private double getThroughput(String key) {
+    SourceStats stats = mSources.get(key);
+    return stats == null ? Double.NaN : stats.getThroughput();
+  }
+
+  private SourceStats getStats(String key) {
+    SourceStats stats = mSources.get(key);
+    if (stats == null) {
+      mSources.putIfAbsent(key, new SourceStats());
+      stats = mSources.get(key);
+    }
+    return stats;
+  }
+
+  private boolean isLocal(InetSocketAddress address) {
+    return address.getHostName().equals(mLocalHost);
+  }
+
+  private static String getKey(InetSocketAddress address) {
+    return address.getHostName() + ":" + address.getPort();
+  }
+
+  /**
+   * The measurements of a source of data.
+   */
+  private static final class SourceStats {
+    private final AtomicInteger mInFlight = new AtomicInteger(0);
+    /** The moving average of the throughput in bytes per ms, NaN until the first measurement. */
+    private double mThroughput = Double.NaN;
+
+    synchronized void record(long bytes, long elapsedNs) {
+      double throughput = bytes / Math.max(elapsedNs / 1000000.0, 0.001);
+      if (Double.isNaN(mThroughput)) {
+        mThroughput = throughput;
+      } else {
+        mThroughput += THROUGHPUT_WEIGHT * (throughput - mThroughput);
+      }
+    }
+
+    synchronized double getThroughput() {
+      return mThroughput;
+    }
+  }
+}
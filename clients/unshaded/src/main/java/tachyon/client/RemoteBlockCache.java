@@ -0,0 +1,177 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.nio.ByteBuffer;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+import tachyon.Constants;
+import tachyon.conf.TachyonConf;
+import tachyon.worker.ClientMetrics;
+
+/**
+ * The cache of the ranges of blocks a client has read from remote workers, keyed by block id and
+ * offset in the block, so that reopening a file, or reading a block again, does not fetch the same
+ * data over the network again. Blocks never change once committed, so the cached ranges stay valid.
+ *
+ * The cache holds at most <code>tachyon.user.remote.read.cache.max.bytes</code> of data, evicting
+ * the least recently used ranges, and is disabled when that is 0. With
+ * <code>tachyon.user.remote.read.cache.direct</code> the ranges are kept outside of the Java heap.
+ * A range is served from a cached range starting at the same offset, or from a cached whole block.
+ * This class is thread safe.
+ */
+final class RemoteBlockCache {
+  private final boolean mDirect;
+  private final long mMaxBytes;
+  private final Cache<Key, ByteBuffer> mRanges;
+  private final ClientMetrics mClientMetrics;
+
+  /**
+   * @param tachyonConf the configuration of the client
+   * @param clientMetrics the metrics to record the cache hits and misses to
+   */
+  RemoteBlockCache(TachyonConf tachyonConf, ClientMetrics clientMetrics) {
+    this(tachyonConf.getBytes(Constants.USER_REMOTE_READ_CACHE_MAX_BYTES, 0),
+        tachyonConf.getBoolean(Constants.USER_REMOTE_READ_CACHE_DIRECT, false), clientMetrics);
+  }
+
+  /**
+   * @param maxBytes the maximum number of bytes cached, 0 to disable the cache
+   * @param direct whether to keep the cached ranges outside of the Java heap
+   * @param clientMetrics the metrics to record the cache hits and misses to
+   */
+  RemoteBlockCache(long maxBytes, boolean direct, ClientMetrics clientMetrics) {
+    mDirect = direct;
+    mMaxBytes = Math.max(maxBytes, 0);
+    // A single segment, so that the maximum weight bounds the whole cache and not each segment.
+    mRanges = CacheBuilder.newBuilder().concurrencyLevel(1).maximumWeight(mMaxBytes)
+        .weigher(new Weigher<Key, ByteBuffer>() {
+          @Override
+          public int weigh(Key key, ByteBuffer value) {
+            return value.capacity();
+          }
+        }).build();
+    mClientMetrics = clientMetrics;
+  }
+
+  /**
+   * @return true if the cache is enabled, false otherwise
+   */
+  boolean isEnabled() {
+    return mMaxBytes > 0;
+  }
+
+  /**
+   * Looks up a range of a block.
+   *
+   * @param blockId the id of the block
+   * @param offset the offset of the range in the block
+   * @param len the length of the range
+   * @return a copy of the range, or null if it is not cached
+   */
+  ByteBuffer get(long blockId, long offset, long len) {
+    if (!isEnabled()) {
+      return null;
+    }
+    ByteBuffer range = copy(mRanges.getIfPresent(new Key(blockId, offset)), 0, len);
+    if (range == null && offset > 0) {
+      range = copy(mRanges.getIfPresent(new Key(blockId, 0)), offset, len);
+    }
+    if (range != null) {
+      mClientMetrics.incRemoteReadCacheHits(1);
+      mClientMetrics.incRemoteReadCacheBytesSaved(len);
+    } else {
+      mClientMetrics.incRemoteReadCacheMisses(1);
+    }
+    return range;
+  }
+
+  /**
+   * Caches a copy of a range of a block read from a remote worker. Ranges larger than the cache are
+   * not cached.
+   *
+   * @param blockId the id of the block
+   * @param offset the offset of the range in the block
+   * @param data the data of the range, from its position to its limit, which are not changed
+   */
+  void put(long blockId, long offset, ByteBuffer data) {
+    int len = data.remaining();
+    if (!isEnabled() || len == 0 || len > mMaxBytes) {
+      return;
+    }
+    ByteBuffer copy = mDirect ? ByteBuffer.allocateDirect(len) : ByteBuffer.allocate(len);
+    copy.put(data.duplicate());
+    copy.flip();
+    mRanges.put(new Key(blockId, offset), copy);
+  }
+
+  /**
+   * @return the number of bytes cached
+   */
+  long getCachedBytes() {
+    long bytes = 0;
+    for (ByteBuffer range : mRanges.asMap().values()) {
+      bytes += range.capacity();
+    }
+    return bytes;
+  }
+
+  // Readers get a heap copy they own, like the buffers read from remote workers, so the cached
+  // ranges are never changed or used after they are evicted.
+  private static ByteBuffer copy(ByteBuffer range, long offset, long len) {
+    if (range == null || offset + len > range.capacity()) {
+      return null;
+    }
+    ByteBuffer source = range.duplicate();
+    source.limit((int) (offset + len));
+    source.position((int) offset);
+    ByteBuffer copy = ByteBuffer.allocate((int) len);
+    copy.put(source);
+    copy.flip();
+    return copy;
+  }
+
+  private static final class Key {
+    private final long mBlockId;
+    private final long mOffset;
+
+    Key(long blockId, long offset) {
+      mBlockId = blockId;
+      mOffset = offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return mBlockId == that.mBlockId && mOffset == that.mOffset;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(mBlockId, mOffset);
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.conf.TachyonConf;
+import tachyon.util.ThreadFactoryUtils;
+
+/**
+ * Fetches a range of a block from a list of remote workers holding it. Depending on the
+ * configuration, the locations are either tried one after another, or the request is hedged: if
+ * the current location has not answered after <code>tachyon.user.remote.read.hedge.delay.ms</code>,
+ * the same range is requested from the next location and whichever answers first wins. Large
+ * ranges can also be split into chunks that are fetched from different locations in parallel.
+ */
+final class RemoteBlockFetcher {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+
+  // Hedged and split reads nest (each chunk of a split read may be hedged), so the pool must not
+  // be bounded, otherwise the outer tasks could starve the inner ones.
+  private static final ExecutorService REMOTE_READ_EXECUTOR = Executors.newCachedThreadPool(
+      ThreadFactoryUtils.build("client-remote-read-%d", true));
+
+  private RemoteBlockFetcher() {}
+
+  /**
+   * Reads <code>length</code> bytes starting at <code>offset</code> of the block from one of the
+   * given addresses.
+   *
+   * @param addresses the data server addresses of the workers holding the block, in preference
+   *        order
+   * @param blockId the id of the block to read
+   * @param offset the offset in the block to start reading at
+   * @param length the number of bytes to read
+   * @param conf the TachyonConf to use
+   * @return the data read, or null if no location could serve the range
+   */
+  static ByteBuffer fetch(List<InetSocketAddress> addresses, long blockId, long offset,
+      long length, TachyonConf conf) {
+    return fetch(addresses, blockId, offset, length, conf, null);
+  }
+
+  /**
+   * Reads <code>length</code> bytes starting at <code>offset</code> of the block from one of the
+   * given addresses, recording the requests to the workers in a planner.
+   *
+   * @param addresses the data server addresses of the workers holding the block, in preference
+   *        order
+   * @param blockId the id of the block to read
+   * @param offset the offset in the block to start reading at
+   * @param length the number of bytes to read
+   * @param conf the TachyonConf to use
+   * @param planner the planner to record the requests in, or null
+   * @return the data read, or null if no location could serve the range
+   */
+  static ByteBuffer fetch(List<InetSocketAddress> addresses, long blockId, long offset,
+      long length, TachyonConf conf, ReadPlanner planner) {
+    if (addresses.isEmpty()) {
+      return null;
+    }
+    long splitBytes = conf.getBytes(Constants.USER_REMOTE_READ_SPLIT_MIN_BYTE, 0);
+    if (splitBytes > 0 && addresses.size() > 1 && length >= splitBytes) {
+      return fetchSplit(addresses, blockId, offset, length, conf, planner);
+    }
+    return fetchRange(addresses, blockId, offset, length, conf, planner);
+  }
+
+  /**
+   * Reads a single range, hedging the request over the addresses if hedging is enabled.
+   */
+  private static ByteBuffer fetchRange(List<InetSocketAddress> addresses, long blockId,
+      long offset, long length, TachyonConf conf, ReadPlanner planner) {
+    long hedgeDelayMs = conf.getLong(Constants.USER_REMOTE_READ_HEDGE_DELAY_MS, -1);
+    if (hedgeDelayMs < 0 || addresses.size() == 1) {
+      for (InetSocketAddress address : addresses) {
+        ByteBuffer buf = readFromAddress(address, blockId, offset, length, conf, planner);
+        if (buf != null) {
+          return buf;
+        }
+      }
+      return null;
+    }
+    return fetchHedged(addresses, blockId, offset, length, hedgeDelayMs, conf, planner);
+  }
+
+  private static ByteBuffer fetchHedged(List<InetSocketAddress> addresses, long blockId,
+      long offset, long length, long hedgeDelayMs, TachyonConf conf, ReadPlanner planner) {
+    CompletionService<ByteBuffer> completionService =
+        new ExecutorCompletionService<ByteBuffer>(REMOTE_READ_EXECUTOR);
+    List<Future<ByteBuffer>> futures = new ArrayList<Future<ByteBuffer>>(addresses.size());
+    int next = 0;
+    int outstanding = 0;
+    try {
+      futures.add(completionService.submit(
+          new ReadTask(addresses.get(next ++), blockId, offset, length, conf, planner)));
+      outstanding ++;
+      while (outstanding > 0) {
+        Future<ByteBuffer> done;
+        if (next < addresses.size()) {
+          done = completionService.poll(hedgeDelayMs, TimeUnit.MILLISECONDS);
+        } else {
+          done = completionService.take();
+        }
+        if (done == null) {
+          // The outstanding requests are slow, hedge with the next location.
+          LOG.info("Hedging read of block {} to {} after {} ms", blockId, addresses.get(next),
+              hedgeDelayMs);
+          futures.add(completionService.submit(
+              new ReadTask(addresses.get(next ++), blockId, offset, length, conf, planner)));
+          outstanding ++;
+          continue;
+        }
+        outstanding --;
+        ByteBuffer buf = getQuietly(done);
+        if (buf != null) {
+          return buf;
+        }
+        if (next < addresses.size()) {
+          // A location failed, move on to the next one right away instead of waiting.
+          futures.add(completionService.submit(
+              new ReadTask(addresses.get(next ++), blockId, offset, length, conf, planner)));
+          outstanding ++;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      for (Future<ByteBuffer> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Splits the range into one chunk per location and reads the chunks in parallel. Each chunk
+   * prefers a different location and falls back to the others.
+   */
+  private static ByteBuffer fetchSplit(final List<InetSocketAddress> addresses,
+      final long blockId, long offset, long length, final TachyonConf conf,
+      final ReadPlanner planner) {
+    int chunks = addresses.size();
+    long chunkLength = (length + chunks - 1) / chunks;
+    List<Future<ByteBuffer>> futures = new ArrayList<Future<ByteBuffer>>(chunks);
+    for (int i = 0; i < chunks; i ++) {
+      final long chunkOffset = offset + i * chunkLength;
+      final long len = Math.min(chunkLength, offset + length - chunkOffset);
+      if (len <= 0) {
+        break;
+      }
+      final List<InetSocketAddress> rotated = new ArrayList<InetSocketAddress>(chunks);
+      for (int k = 0; k < chunks; k ++) {
+        rotated.add(addresses.get((i + k) % chunks));
+      }
+      futures.add(REMOTE_READ_EXECUTOR.submit(new Callable<ByteBuffer>() {
+        @Override
+        public ByteBuffer call() {
+          return fetchRange(rotated, blockId, chunkOffset, len, conf, planner);
+        }
+      }));
+    }
+
+    ByteBuffer result = ByteBuffer.allocate((int) length);
+    try {
+      for (Future<ByteBuffer> future : futures) {
+        ByteBuffer chunk = future.get();
+        if (chunk == null) {
+          LOG.warn("Failed to read a chunk of block {} in parallel", blockId);
+          return null;
+        }
+        result.put(chunk);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      LOG.error("Failed to read block " + blockId + " in parallel", e.getCause());
+      return null;
+    } finally {
+      for (Future<ByteBuffer> future : futures) {
+        future.cancel(true);
+      }
+    }
+    result.flip();
+    return result;
+  }
+
+  private static ByteBuffer getQuietly(Future<ByteBuffer> future) throws InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      return null;
+    }
+  }
+
+  private static ByteBuffer readFromAddress(InetSocketAddress address, long blockId, long offset,
+      long length, TachyonConf conf, ReadPlanner planner) {
+    if (planner != null) {
+      planner.startWorkerRead(address);
+    }
+    long startNs = System.nanoTime();
+    ByteBuffer buf = null;
+    try {
+      buf = RemoteBlockReader.Factory.createRemoteBlockReader(conf).readRemoteBlock(
+          address.getHostName(), address.getPort(), blockId, offset, length);
+      return buf;
+    } catch (IOException e) {
+      LOG.error("Fail to retrieve byte buffer for block " + blockId + " from remote " + address
+          + " with offset " + offset + " and length " + length, e);
+      return null;
+    } finally {
+      if (planner != null) {
+        planner.endWorkerRead(address, buf == null ? 0 : buf.remaining(),
+            System.nanoTime() - startNs);
+      }
+    }
+  }
+
+  /**
+   * Reads a range of a block from a single location.
+   */
+  private static final class ReadTask implements Callable<ByteBuffer> {
+    private final InetSocketAddress mAddress;
+    private final long mBlockId;
+    private final long mOffset;
+    private final long mLength;
+    private final TachyonConf mTachyonConf;
+    private final ReadPlanner mPlanner;
+
+    ReadTask(InetSocketAddress address, long blockId, long offset, long length,
+        TachyonConf conf, ReadPlanner planner) {
+      mAddress = address;
+      mBlockId = blockId;
+      mOffset = offset;
+      mLength = length;
+      mTachyonConf = conf;
+      mPlanner = planner;
+    }
+
+    @Override
+    public ByteBuffer call() {
+      return readFromAddress(mAddress, mBlockId, mOffset, mLength, mTachyonConf, mPlanner);
+    }
+  }
+}
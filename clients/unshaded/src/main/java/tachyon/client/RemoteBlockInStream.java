@@ -20,7 +20,11 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +32,7 @@ import org.slf4j.LoggerFactory;
 import tachyon.Constants;
 import tachyon.conf.TachyonConf;
 import tachyon.thrift.ClientBlockInfo;
+import tachyon.thrift.ClientWorkerInfo;
 import tachyon.thrift.NetAddress;
 import tachyon.underfs.UnderFileSystem;
 import tachyon.util.NetworkUtils;
@@ -45,6 +50,8 @@ public class RemoteBlockInStream extends BlockInStream {
    * the block from the workers, we use this checkpoint stream
    */
   private InputStream mCheckpointInputStream = null;
+  /** The under file system client of the checkpoint, released on close. */
+  private UnderFileSystem mUnderFsClient = null;
 
   /**
    * The position in the checkpointed file that the open input stream is on, relative to the block.
@@ -71,9 +78,27 @@ public class RemoteBlockInStream extends BlockInStream {
   /**
    * true if we are re-caching the file. The re-caching gets canceled if we do anything other than a
    * straight read through the file. That means, any skipping or seeking around will cancel the
-   * re-cache.
+   * re-cache. Volatile, as the other streams of the client check it to tell whether the claim of
+   * this stream is stale.
    */
-  private boolean mRecache;
+  private volatile boolean mRecache;
+
+  /**
+   * Whether this stream holds the recaching of the block in {@link BlockFetches}, so that the other
+   * streams of the client reading the block do not recache it too.
+   */
+  private boolean mRecacheClaimed = false;
+
+  /**
+   * Identifies this stream in its recache claim. The claim is only weakly referenced, so that a
+   * stream dropped without being closed does not keep the block from being recached.
+   */
+  private final BlockFetches.RecacheOwner mRecacheOwner = new BlockFetches.RecacheOwner() {
+    @Override
+    public boolean isRecaching() {
+      return mRecache;
+    }
+  };
 
   /**
    * True initially, will be false after a cache miss, meaning no worker had this block in memory.
@@ -96,12 +121,27 @@ public class RemoteBlockInStream extends BlockInStream {
    */
   private long mBytesReadRemote = 0;
 
+  /**
+   * The minimum number of bytes of a read from the under file system for it to be served by a
+   * positioned read instead of the checkpoint stream, or 0 to always use the stream.
+   */
+  private final long mUnderFsPositionedReadMinBytes;
+
+  /**
+   * Whether a block which is in no worker is read through a worker, which fetches it from the under
+   * file system and caches it.
+   */
+  private final boolean mReadThrough;
+
   /**
    * The maximum number of tries to read a remote block. Since the stored ClientBlockInfo might not
    * be accurate when executing a remote read, we refresh it and retry reading a certain number of
    * times before giving up.
    */
   private static final int MAX_REMOTE_READ_ATTEMPTS = 2;
+  // The backoff between the requests to a worker fetching a block being read through.
+  private static final long READ_THROUGH_RETRY_INITIAL_MS = 100;
+  private static final long READ_THROUGH_RETRY_MAX_MS = Constants.SECOND_MS;
 
   /**
    * @param file the file the block belongs to
@@ -132,9 +172,19 @@ public class RemoteBlockInStream extends BlockInStream {
 
     mBlockInfo = mFile.getClientBlockInfo(mBlockIndex);
 
-    mRecache = readType.isCache();
+    ReadPlanner planner = mTachyonFS.getReadPlanner();
+    mRecache = readType.isCache() && planner.shouldRecache(mBlockInfo.blockId);
+    if (planner.shouldReadFromUnderFs(getWorkerAddresses(mBlockInfo, mTachyonConf),
+        !mFile.getUfsPath().isEmpty())) {
+      LOG.info("Reading block {} from the under file system, which is faster than the workers",
+          mBlockInfo.blockId);
+      mAttemptReadFromWorkers = false;
+    }
 
     mUFSConf = ufsConf;
+    mUnderFsPositionedReadMinBytes =
+        mTachyonConf.getBytes(Constants.USER_UFS_POSITIONED_READ_MIN_BYTE, 8 * Constants.MB);
+    mReadThrough = mTachyonConf.getBoolean(Constants.USER_UFS_READ_THROUGH, false);
   }
 
   /**
@@ -145,28 +195,47 @@ public class RemoteBlockInStream extends BlockInStream {
   private void cancelRecache() throws IOException {
     if (mRecache) {
       mRecache = false;
-      if (mBlockOutStream != null) {
-        mBlockOutStream.cancel();
+      try {
+        if (mBlockOutStream != null) {
+          mBlockOutStream.cancel();
+        }
+      } finally {
+        releaseRecache();
       }
     }
   }
 
+  private void releaseRecache() {
+    if (mRecacheClaimed) {
+      mRecacheClaimed = false;
+      mTachyonFS.getBlockFetches().finishRecache(mBlockInfo.blockId, mRecacheOwner);
+    }
+  }
+
   @Override
   public void close() throws IOException {
     if (mClosed) {
       return;
     }
-    if (mRecache && mBlockOutStream != null) {
-      // We only finish re-caching if we've gotten to the end of the file
-      if (mBlockPos == mBlockInfo.length) {
-        mBlockOutStream.close();
-      } else {
-        mBlockOutStream.cancel();
+    try {
+      if (mRecache && mBlockOutStream != null) {
+        // We only finish re-caching if we've gotten to the end of the file
+        if (mBlockPos == mBlockInfo.length) {
+          mBlockOutStream.close();
+        } else {
+          mBlockOutStream.cancel();
+        }
       }
+    } finally {
+      mRecache = false;
+      releaseRecache();
     }
     if (mCheckpointInputStream != null) {
       mCheckpointInputStream.close();
     }
+    if (mUnderFsClient != null) {
+      mUnderFsClient.close();
+    }
     if (mBytesReadRemote > 0) {
       mTachyonFS.getClientMetrics().incBlocksReadRemote(1);
     }
@@ -206,11 +275,22 @@ public class RemoteBlockInStream extends BlockInStream {
     // Lazy initialization of the out stream for caching to avoid collisions with other caching
     // attempts that are invalidated later due to seek/skips
     if (bytesLeft > 0 && mBlockOutStream == null && mRecache) {
-      try {
-        mBlockOutStream = new BlockOutStream(mFile, WriteType.TRY_CACHE, mBlockIndex, mTachyonConf);
-      } catch (IOException ioe) {
-        LOG.warn("Recache attempt failed.", ioe);
-        cancelRecache();
+      if (!mTachyonFS.getBlockFetches().startRecache(mBlockInfo.blockId, mRecacheOwner)) {
+        // Only one of the streams could create the block, leave it to the one recaching it. This
+        // stream reads past the start of the block without recaching it, so it cannot recache the
+        // block later, but the next stream reading the block from its start claims it again once
+        // the claim is released or stale.
+        LOG.debug("Block {} is recached by another stream", mBlockInfo.blockId);
+        mRecache = false;
+      } else {
+        mRecacheClaimed = true;
+        try {
+          mBlockOutStream =
+              new BlockOutStream(mFile, WriteType.TRY_CACHE, mBlockIndex, mTachyonConf);
+        } catch (IOException ioe) {
+          LOG.warn("Recache attempt failed.", ioe);
+          cancelRecache();
+        }
       }
     }
 
@@ -232,6 +312,15 @@ public class RemoteBlockInStream extends BlockInStream {
     if (bytesLeft > 0) {
       // Unable to read from worker memory, reading this block from underfs in the future.
       mAttemptReadFromWorkers = false;
+      if (mUnderFsPositionedReadMinBytes > 0 && bytesLeft >= mUnderFsPositionedReadMinBytes) {
+        // A large read is served by a positioned read, which some under file systems, e.g. S3,
+        // fetch in parallel ranges, instead of streaming it through the checkpoint stream.
+        int readBytes = readFromUnderFs(b, off, bytesLeft);
+        if (readBytes >= 0) {
+          bytesLeft -= readBytes;
+          return len - bytesLeft;
+        }
+      }
       // We failed to read everything from mCurrentBuffer, so we need to stream the rest from the
       // underfs
       if (!setupStreamFromUnderFs()) {
@@ -241,7 +330,10 @@ public class RemoteBlockInStream extends BlockInStream {
         return len - bytesLeft;
       }
       while (bytesLeft > 0) {
+        long startNs = System.nanoTime();
         int readBytes = mCheckpointInputStream.read(b, off, bytesLeft);
+        mTachyonFS.getReadPlanner().recordUnderFsRead(Math.max(readBytes, 0),
+            System.nanoTime() - startNs);
         if (readBytes <= 0) {
           LOG.error("Checkpoint stream read 0 bytes, which shouldn't ever happen");
           return len - bytesLeft;
@@ -259,57 +351,84 @@ public class RemoteBlockInStream extends BlockInStream {
     return len;
   }
 
-  public static ByteBuffer readRemoteByteBuffer(TachyonFS tachyonFS, ClientBlockInfo blockInfo,
-      long offset, long len, TachyonConf conf) {
-    ByteBuffer buf = null;
-
+  /**
+   * Reads a range of a block from the remote workers holding it, or from the
+   * {@link RemoteBlockCache} of the client if it was read before. See {@link RemoteBlockFetcher}
+   * for how the locations are tried. A range being read by another thread of the client is not
+   * read again, its data is shared, see {@link BlockFetches}.
+   *
+   * @param tachyonFS the TachyonFS client
+   * @param blockInfo the info of the block to read
+   * @param offset the offset in the block to start reading at
+   * @param len the number of bytes to read
+   * @param conf the TachyonConf to use
+   * @return the data read, or null if no worker could serve the range
+   */
+  public static ByteBuffer readRemoteByteBuffer(final TachyonFS tachyonFS,
+      final ClientBlockInfo blockInfo, final long offset, final long len,
+      final TachyonConf conf) {
+    ByteBuffer cached = tachyonFS.getRemoteBlockCache().get(blockInfo.blockId, offset, len);
+    if (cached != null) {
+      return cached;
+    }
+    final List<InetSocketAddress> addresses;
     try {
-      List<NetAddress> blockLocations = blockInfo.getLocations();
-      LOG.info("Block locations:" + blockLocations);
-      String localhost = NetworkUtils.getLocalHostName(conf);
-
-      for (NetAddress blockLocation : blockLocations) {
-        String host = blockLocation.mHost;
-        int port = blockLocation.mSecondaryPort;
-
-        // The data is not in remote machine's memory if port == -1.
-        if (port == -1) {
-          continue;
-        }
-
-        if (host.equals(InetAddress.getLocalHost().getHostName())
-            || host.equals(InetAddress.getLocalHost().getHostAddress()) || host.equals(localhost)) {
-          LOG.warn("Master thinks the local machine has data, but not!"
-              + "(or local read is disabled) blockId:{}", blockInfo.blockId);
-        }
-        LOG.info(host + ":" + port + " current host is " + localhost + " "
-            + NetworkUtils.getLocalIpAddress(conf));
-
-        try {
-          buf =
-              retrieveByteBufferFromRemoteMachine(new InetSocketAddress(host, port),
-                  blockInfo.blockId, offset, len, conf);
-          if (buf != null) {
-            break;
-          }
-        } catch (IOException e) {
-          LOG.error("Fail to retrieve byte buffer for block " + blockInfo.blockId + " from remote "
-              + host + ":" + port + " with offset " + offset + " and length " + len, e);
-          buf = null;
-        }
-      }
+      addresses = getWorkerAddresses(blockInfo, conf);
     } catch (IOException e) {
       LOG.error("Failed to get read data from remote ", e);
-      buf = null;
+      return null;
     }
 
-    return buf;
+    return tachyonFS.getBlockFetches().fetch(blockInfo.blockId, false, offset, len,
+        new Callable<ByteBuffer>() {
+          @Override
+          public ByteBuffer call() {
+            ReadPlanner planner = tachyonFS.getReadPlanner();
+            ByteBuffer data = RemoteBlockFetcher.fetch(planner.orderWorkers(addresses),
+                blockInfo.blockId, offset, len, conf, planner);
+            if (data != null) {
+              // Cached before the fetch completes, so that a later read of the range finds it.
+              tachyonFS.getRemoteBlockCache().put(blockInfo.blockId, offset, data);
+            }
+            return data;
+          }
+        });
   }
 
-  private static ByteBuffer retrieveByteBufferFromRemoteMachine(InetSocketAddress address,
-      long blockId, long offset, long length, TachyonConf conf) throws IOException {
-    return RemoteBlockReader.Factory.createRemoteBlockReader(conf).readRemoteBlock(
-        address.getHostName(), address.getPort(), blockId, offset, length);
+  /**
+   * Gets the data server addresses of the workers holding a block in memory.
+   *
+   * @param blockInfo the info of the block
+   * @param conf the TachyonConf to use
+   * @return the addresses, in the order of the locations of the block
+   * @throws IOException if the local host cannot be resolved
+   */
+  private static List<InetSocketAddress> getWorkerAddresses(ClientBlockInfo blockInfo,
+      TachyonConf conf) throws IOException {
+    List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+    List<NetAddress> blockLocations = blockInfo.getLocations();
+    LOG.info("Block locations:" + blockLocations);
+    String localhost = NetworkUtils.getLocalHostName(conf);
+
+    for (NetAddress blockLocation : blockLocations) {
+      String host = blockLocation.mHost;
+      int port = blockLocation.mSecondaryPort;
+
+      // The data is not in remote machine's memory if port == -1.
+      if (port == -1) {
+        continue;
+      }
+
+      if (host.equals(InetAddress.getLocalHost().getHostName())
+          || host.equals(InetAddress.getLocalHost().getHostAddress()) || host.equals(localhost)) {
+        LOG.warn("Master thinks the local machine has data, but not!"
+            + "(or local read is disabled) blockId:{}", blockInfo.blockId);
+      }
+      LOG.info(host + ":" + port + " current host is " + localhost + " "
+          + NetworkUtils.getLocalIpAddress(conf));
+      addresses.add(new InetSocketAddress(host, port));
+    }
+    return addresses;
   }
 
   @Override
@@ -342,14 +461,19 @@ public class RemoteBlockInStream extends BlockInStream {
       if (checkpointPath.equals("")) {
         return false;
       }
-      UnderFileSystem underfsClient = UnderFileSystem.get(checkpointPath, mUFSConf, mTachyonConf);
-      mCheckpointInputStream = underfsClient.open(checkpointPath);
-      // We skip to the offset of the block in the file, so we're at the beginning of the block.
-      if (mCheckpointInputStream.skip(mBlockInfo.offset) != mBlockInfo.offset) {
-        throw new IOException("Failed to skip to the block offset " + mBlockInfo.offset
-            + " in the checkpoint file");
+      setupUnderFsClient(checkpointPath);
+      if (mCheckpointInputStream != null) {
+        mCheckpointInputStream.close();
+        mCheckpointInputStream = null;
+      }
+      // The stream is opened at mBlockPos, so that under file systems able to start reading at an
+      // offset, e.g. with a ranged request, do not read the file from its start.
+      mCheckpointInputStream =
+          mUnderFsClient.open(checkpointPath, mBlockInfo.offset + mBlockPos);
+      if (mCheckpointInputStream == null) {
+        return false;
       }
-      mCheckpointPos = 0;
+      mCheckpointPos = mBlockPos;
     }
     // We need to skip to mBlockPos
     while (mCheckpointPos < mBlockPos) {
@@ -363,6 +487,59 @@ public class RemoteBlockInStream extends BlockInStream {
     return true;
   }
 
+  /**
+   * Reads at mBlockPos with a positioned read of the checkpoint file, recording it like a read of
+   * the checkpoint stream. The same read by another stream of the client in progress is waited for
+   * instead of being repeated, see {@link BlockFetches}.
+   *
+   * @return the number of bytes read, or -1 if the checkpoint cannot be read
+   */
+  private int readFromUnderFs(final byte[] b, final int off, final int len) throws IOException {
+    final String checkpointPath = mFile.getUfsPath();
+    if (checkpointPath.equals("")) {
+      return -1;
+    }
+    setupUnderFsClient(checkpointPath);
+    final long position = mBlockInfo.offset + mBlockPos;
+    ByteBuffer data = mTachyonFS.getBlockFetches().fetch(mBlockInfo.blockId, true, mBlockPos, len,
+        new Callable<ByteBuffer>() {
+          @Override
+          public ByteBuffer call() throws IOException {
+            // Read straight into the array of the caller, the streams waiting for the read, if
+            // any, get a copy.
+            long startNs = System.nanoTime();
+            int readBytes = mUnderFsClient.read(checkpointPath, position, b, off, len);
+            mTachyonFS.getReadPlanner().recordUnderFsRead(Math.max(readBytes, 0),
+                System.nanoTime() - startNs);
+            mTachyonFS.getClientMetrics().incBytesReadUfs(Math.max(readBytes, 0));
+            return ByteBuffer.wrap(b, off, Math.max(readBytes, 0));
+          }
+        });
+    if (data == null) {
+      return -1;
+    }
+    int readBytes = data.remaining();
+    if (readBytes == 0) {
+      LOG.error("Positioned read of the checkpoint read 0 bytes, which shouldn't ever happen");
+      return 0;
+    }
+    if (!data.hasArray() || data.array() != b) {
+      // Joined the read of another stream.
+      data.get(b, off, readBytes);
+    }
+    if (mRecache) {
+      mBlockOutStream.write(b, off, readBytes);
+    }
+    mBlockPos += readBytes;
+    return readBytes;
+  }
+
+  private void setupUnderFsClient(String checkpointPath) {
+    if (mUnderFsClient == null) {
+      mUnderFsClient = UnderFileSystem.get(checkpointPath, mUFSConf, mTachyonConf);
+    }
+  }
+
   @Override
   public long skip(long n) throws IOException {
     if (n <= 0) {
@@ -410,6 +587,95 @@ public class RemoteBlockInStream extends BlockInStream {
       // The read failed, refresh the block info and try again
       mBlockInfo = mFile.getClientBlockInfo(mBlockIndex);
     }
+    if (mReadThrough && !TachyonFile.isInWorkerMemory(mBlockInfo)
+        && !mFile.getUfsPath().isEmpty()) {
+      mCurrentBuffer = readThrough(length);
+      if (mCurrentBuffer != null) {
+        // The worker cached the block, so there is nothing left to recache, and the next ranges
+        // are read from the worker.
+        cancelRecache();
+        mBlockInfo = mFile.getClientBlockInfo(mBlockIndex);
+        return true;
+      }
+    }
     return false;
   }
+
+  /**
+   * Reads the range at mBufferStartPos of a block which is in no worker through a worker, which
+   * fetches the block from the under file system and caches it. The worker answers once the block
+   * is fetched, which may take longer than a remote read, so the request is repeated with a
+   * backoff, joining the fetch in progress, until
+   * <code>tachyon.user.ufs.read.through.timeout.ms</code>.
+   *
+   * @return the data read, or null if the block could not be read through
+   */
+  private ByteBuffer readThrough(long length) throws IOException {
+    InetSocketAddress address = getReadThroughAddress();
+    if (address == null) {
+      return null;
+    }
+    LOG.info("Reading block {} through worker {}", mBlockInfo.blockId, address);
+    List<InetSocketAddress> addresses = Collections.singletonList(address);
+    long timeoutMs = mTachyonConf.getLong(Constants.USER_UFS_READ_THROUGH_TIMEOUT_MS,
+        Constants.MINUTE_MS);
+    long requestTimeoutMs = mTachyonConf.getLong(Constants.USER_NETTY_TIMEOUT_MS,
+        Constants.SECOND_MS);
+    long deadlineMs = System.currentTimeMillis() + timeoutMs;
+    long backoffMs = READ_THROUGH_RETRY_INITIAL_MS;
+    while (true) {
+      long startMs = System.currentTimeMillis();
+      ByteBuffer data = RemoteBlockFetcher.fetch(addresses, mBlockInfo.blockId, mBufferStartPos,
+          length, mTachyonConf);
+      if (data != null) {
+        return data;
+      }
+      long nowMs = System.currentTimeMillis();
+      if (nowMs - startMs < requestTimeoutMs || nowMs >= deadlineMs) {
+        // An early answer is an error from the worker, e.g. read through is disabled, rather than
+        // a fetch still in progress.
+        LOG.warn("Failed to read block {} through worker {}", mBlockInfo.blockId, address);
+        return null;
+      }
+      try {
+        Thread.sleep(Math.min(backoffMs, deadlineMs - nowMs));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      backoffMs = Math.min(backoffMs * 2, READ_THROUGH_RETRY_MAX_MS);
+    }
+  }
+
+  /**
+   * Picks the worker to read a block through: the local worker if there is one, otherwise a worker
+   * picked by the block id, so that all the clients reading a cold block go to the same worker and
+   * share its fetch from the under file system.
+   *
+   * @return the data server address of the worker, or null if there is no worker
+   */
+  private InetSocketAddress getReadThroughAddress() throws IOException {
+    List<NetAddress> addresses = new ArrayList<NetAddress>();
+    String localhost = NetworkUtils.getLocalHostName(mTachyonConf);
+    for (ClientWorkerInfo worker : mTachyonFS.getWorkersInfo()) {
+      NetAddress address = worker.getAddress();
+      if (address.mHost.equals(localhost)) {
+        return new InetSocketAddress(address.mHost, address.mSecondaryPort);
+      }
+      addresses.add(address);
+    }
+    if (addresses.isEmpty()) {
+      return null;
+    }
+    Collections.sort(addresses, new Comparator<NetAddress>() {
+      @Override
+      public int compare(NetAddress a, NetAddress b) {
+        int byHost = a.mHost.compareTo(b.mHost);
+        return byHost != 0 ? byHost : a.mSecondaryPort - b.mSecondaryPort;
+      }
+    });
+    NetAddress address =
+        addresses.get((int) ((mBlockInfo.blockId & Long.MAX_VALUE) % addresses.size()));
+    return new InetSocketAddress(address.mHost, address.mSecondaryPort);
+  }
 }
@@ -19,11 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -57,6 +53,10 @@ import tachyon.worker.WorkerClient;
  * while {@link tachyon.hadoop.AbstractTFS} provides another API that exposes Tachyon as HDFS file
  * system. Under the hood, this class maintains a MasterClient to talk to the master server and
  * WorkerClients to interact with different Tachyon workers.
+ *
+ * A TachyonFS instance is thread safe and meant to be shared by all the threads of an application.
+ * It holds no client-wide lock: the master and worker clients keep pools of connections, so calls
+ * from different threads proceed concurrently.
  */
 public class TachyonFS extends AbstractTachyonFS {
 
@@ -164,22 +164,25 @@ public class TachyonFS extends AbstractTachyonFS {
   /** Whether to use ZooKeeper or not */
   private final boolean mZookeeperMode;
   // Cached ClientFileInfo
-  private final Map<String, ClientFileInfo> mPathToClientFileInfo =
-      new HashMap<String, ClientFileInfo>();
-  private final Map<Integer, ClientFileInfo> mIdToClientFileInfo =
-      new HashMap<Integer, ClientFileInfo>();
-
-  private UnderFileSystem mUnderFileSystem;
-
-  /** All Blocks that have been locked. */
-  private final Map<Long, Set<Integer>> mLockedBlockIds = new HashMap<Long, Set<Integer>>();
-  /** Mapping from block id to path of the block locked */
-  private final Map<Long, String> mLockedBlockIdToPath = new HashMap<Long, String>();
+  private final ClientFileInfoCache mClientFileInfoCache;
+  /** The asynchronous API of this client, created on first use. */
+  private volatile AsyncTachyonFS mAsyncTachyonFS = null;
+
+  private volatile UnderFileSystem mUnderFileSystem;
+
+  /** The blocks locked in the local worker, and the leases kept on them. */
+  private final LocalBlockLeases mLocalBlockLeases;
+  /** The buffers shared by the streams of this client. */
+  private final ClientBufferPool mBufferPool;
+  private final RemoteBlockCache mRemoteBlockCache;
+  private final ReadPlanner mReadPlanner;
+  /** Shares the fetches of the same blocks between the streams of this client. */
+  private final BlockFetches mBlockFetches = new BlockFetches();
   /** Each user facing block has a unique block lock id. */
   private final AtomicInteger mBlockLockId = new AtomicInteger(0);
 
-  private TachyonURI mRootUri = null;
-  private ClientMetrics mClientMetrics = new ClientMetrics();
+  private final TachyonURI mRootUri;
+  private final ClientMetrics mClientMetrics = new ClientMetrics();
 
   private TachyonFS(TachyonConf tachyonConf) throws IOException {
     super(tachyonConf);
@@ -197,6 +200,17 @@ public class TachyonFS extends AbstractTachyonFS {
     mWorkerClient =
         mCloser.register(new WorkerClient(mMasterClient, mExecutorService, mTachyonConf,
             mClientMetrics));
+    // Registered after the worker client so that the leases are released before it is closed.
+    mLocalBlockLeases = mCloser.register(new LocalBlockLeases(mWorkerClient,
+        mTachyonConf.getLong(Constants.USER_LOCAL_READ_LEASE_MS,
+            Constants.DEFAULT_USER_LOCAL_READ_LEASE_MS),
+        mTachyonConf.getInt(Constants.USER_LOCAL_READ_LEASE_MAX,
+            Constants.DEFAULT_USER_LOCAL_READ_LEASE_MAX)));
+    mClientFileInfoCache = new ClientFileInfoCache(mTachyonConf, mClientMetrics);
+    mBufferPool = mCloser.register(new ClientBufferPool(mTachyonConf));
+    mRemoteBlockCache = new RemoteBlockCache(mTachyonConf, mClientMetrics);
+    mReadPlanner = new ReadPlanner(mTachyonConf, NetworkUtils.getLocalHostName(mTachyonConf),
+        mClientMetrics);
     mUserFailedSpaceRequestLimits =
         mTachyonConf.getInt(Constants.USER_FAILED_SPACE_REQUEST_LIMITS,
             Constants.DEFAULT_USER_FAILED_SPACE_REQUEST_LIMITS);
@@ -207,14 +221,15 @@ public class TachyonFS extends AbstractTachyonFS {
   }
 
   /**
-   * Update the latest block access time on the worker.
+   * Update the latest block access time on the worker. The access may be reported in the
+   * background, see {@link LocalBlockLeases}.
    *
    * @param blockId the local block's id
    * @throws IOException
    */
-  synchronized void accessLocalBlock(long blockId) throws IOException {
+  void accessLocalBlock(long blockId) throws IOException {
     if (mWorkerClient.isLocal()) {
-      mWorkerClient.accessBlock(blockId);
+      mLocalBlockLeases.access(blockId);
     }
   }
 
@@ -224,7 +239,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @param fid the file id
    * @throws IOException
    */
-  synchronized void addCheckpoint(int fid) throws IOException {
+  void addCheckpoint(int fid) throws IOException {
     mWorkerClient.addCheckpoint(fid);
   }
 
@@ -235,17 +250,36 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return true if succeed, false otherwise
    * @throws IOException
    */
-  synchronized boolean asyncCheckpoint(int fid) throws IOException {
+  boolean asyncCheckpoint(int fid) throws IOException {
     return mWorkerClient.asyncCheckpoint(fid);
   }
 
+  /**
+   * Returns the asynchronous API of this client. It shares the user id, the local worker and the
+   * metadata cache of this client, and is closed with it.
+   *
+   * @return the asynchronous API of this client
+   * @throws IOException if the asynchronous API could not be set up
+   */
+  public AsyncTachyonFS getAsync() throws IOException {
+    if (mAsyncTachyonFS == null) {
+      synchronized (this) {
+        if (mAsyncTachyonFS == null) {
+          mAsyncTachyonFS = mCloser.register(new AsyncTachyonFS(this, mMasterClient,
+              mWorkerClient, mClientFileInfoCache, mTachyonConf));
+        }
+      }
+    }
+    return mAsyncTachyonFS;
+  }
+
   /**
    * Notify the worker that the block is cached.
    *
    * @param blockId the block id
    * @throws IOException
    */
-  public synchronized void cacheBlock(long blockId) throws IOException {
+  public void cacheBlock(long blockId) throws IOException {
     mWorkerClient.cacheBlock(blockId);
   }
 
@@ -255,7 +289,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @param blockId the block id
    * @throws IOException
    */
-  public synchronized void cancelBlock(long blockId) throws IOException {
+  public void cancelBlock(long blockId) throws IOException {
     mWorkerClient.cancelBlock(blockId);
   }
 
@@ -279,8 +313,12 @@ public class TachyonFS extends AbstractTachyonFS {
    * @param fid the file id
    * @throws IOException
    */
-  synchronized void completeFile(int fid) throws IOException {
-    mMasterClient.user_completeFile(fid);
+  void completeFile(int fid) throws IOException {
+    try {
+      mMasterClient.user_completeFile(fid);
+    } finally {
+      mClientFileInfoCache.invalidate(fid, null);
+    }
   }
 
   /**
@@ -290,17 +328,20 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the UnderFileSystem temporary folder
    * @throws IOException
    */
-  synchronized String createAndGetUserUfsTempFolder(Object ufsConf) throws IOException {
+  String createAndGetUserUfsTempFolder(Object ufsConf) throws IOException {
     String tmpFolder = mWorkerClient.getUserUfsTempFolder();
     if (tmpFolder == null) {
       return null;
     }
 
-    if (mUnderFileSystem == null) {
-      mUnderFileSystem = UnderFileSystem.get(tmpFolder, ufsConf, mTachyonConf);
+    // Racing threads may both create the UnderFileSystem, which is harmless.
+    UnderFileSystem ufs = mUnderFileSystem;
+    if (ufs == null) {
+      ufs = UnderFileSystem.get(tmpFolder, ufsConf, mTachyonConf);
+      mUnderFileSystem = ufs;
     }
 
-    mUnderFileSystem.mkdirs(tmpFolder, true);
+    ufs.mkdirs(tmpFolder, true);
 
     return tmpFolder;
   }
@@ -320,7 +361,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the dependency's id
    * @throws IOException
    */
-  public synchronized int createDependency(List<String> parents, List<String> children,
+  public int createDependency(List<String> parents, List<String> children,
       String commandPrefix, List<ByteBuffer> data, String comment, String framework,
       String frameworkVersion, int dependencyType, long childrenBlockSizeByte) throws IOException {
     return mMasterClient.user_createDependency(parents, children, commandPrefix, data, comment,
@@ -338,7 +379,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return The file id, which is globally unique.
    */
   @Override
-  public synchronized int createFile(TachyonURI path, TachyonURI ufsPath, long blockSizeByte,
+  public int createFile(TachyonURI path, TachyonURI ufsPath, long blockSizeByte,
       boolean recursive) throws IOException {
     validateUri(path);
     return mMasterClient.user_createFile(path.getPath(), ufsPath.toString(), blockSizeByte,
@@ -353,7 +394,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the id if succeed, -1 otherwise
    * @throws IOException
    */
-  public synchronized int createRawTable(TachyonURI path, int columns) throws IOException {
+  public int createRawTable(TachyonURI path, int columns) throws IOException {
     return createRawTable(path, columns, ByteBuffer.allocate(0));
   }
 
@@ -366,7 +407,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the id if succeed, -1 otherwise
    * @throws IOException
    */
-  public synchronized int createRawTable(TachyonURI path, int columns, ByteBuffer metadata)
+  public int createRawTable(TachyonURI path, int columns, ByteBuffer metadata)
       throws IOException {
     validateUri(path);
     int maxColumns = mTachyonConf.getInt(Constants.MAX_COLUMNS, 1000);
@@ -390,10 +431,14 @@ public class TachyonFS extends AbstractTachyonFS {
    * @throws IOException
    */
   @Override
-  public synchronized boolean delete(int fileId, TachyonURI path, boolean recursive)
+  public boolean delete(int fileId, TachyonURI path, boolean recursive)
       throws IOException {
     validateUri(path);
-    return mMasterClient.user_delete(fileId, path.getPath(), recursive);
+    try {
+      return mMasterClient.user_delete(fileId, path.getPath(), recursive);
+    } finally {
+      mClientFileInfoCache.invalidate(fileId, path.getPath());
+    }
   }
 
   /**
@@ -403,7 +448,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return true if it exists, false otherwise
    * @throws IOException
    */
-  public synchronized boolean exist(TachyonURI path) throws IOException {
+  public boolean exist(TachyonURI path) throws IOException {
     return getFileStatus(-1, path, false) != null;
   }
 
@@ -416,7 +461,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the block id if exists
    * @throws IOException if the file does not exist, or connection issue.
    */
-  public synchronized long getBlockId(int fileId, int blockIndex) throws IOException {
+  public long getBlockId(int fileId, int blockIndex) throws IOException {
     ClientFileInfo info = getFileStatus(fileId, true);
 
     if (info == null) {
@@ -433,7 +478,7 @@ public class TachyonFS extends AbstractTachyonFS {
   /**
    * @return a new block lock id
    */
-  synchronized int getBlockLockId() {
+  int getBlockLockId() {
     return mBlockLockId.getAndIncrement();
   }
 
@@ -444,7 +489,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the ClientBlockInfo of the specified block
    * @throws IOException
    */
-  synchronized ClientBlockInfo getClientBlockInfo(long blockId) throws IOException {
+  ClientBlockInfo getClientBlockInfo(long blockId) throws IOException {
     return mMasterClient.user_getClientBlockInfo(blockId);
   }
 
@@ -455,10 +500,40 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the ClientDependencyInfo of the specified dependency
    * @throws IOException
    */
-  public synchronized ClientDependencyInfo getClientDependencyInfo(int depId) throws IOException {
+  public ClientDependencyInfo getClientDependencyInfo(int depId) throws IOException {
     return mMasterClient.getClientDependencyInfo(depId);
   }
 
+  /**
+   * Get the pool of the buffers shared by the streams of this client.
+   *
+   * @return the ClientBufferPool object.
+   */
+  public ClientBufferPool getBufferPool() {
+    return mBufferPool;
+  }
+
+  /**
+   * @return the cache of the block ranges this client has read from remote workers
+   */
+  RemoteBlockCache getRemoteBlockCache() {
+    return mRemoteBlockCache;
+  }
+
+  /**
+   * @return the planner of the reads of the blocks this client does not have locally
+   */
+  ReadPlanner getReadPlanner() {
+    return mReadPlanner;
+  }
+
+  /**
+   * @return the coordinator of the concurrent fetches of the same blocks by this client
+   */
+  BlockFetches getBlockFetches() {
+    return mBlockFetches;
+  }
+
   /**
    * Get the user's ClientMetrics.
    *
@@ -478,7 +553,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @param fid file id.
    * @return TachyonFile of the file id, or null if the file does not exist.
    */
-  public synchronized TachyonFile getFile(int fid) throws IOException {
+  public TachyonFile getFile(int fid) throws IOException {
     return getFile(fid, true);
   }
 
@@ -488,7 +563,7 @@ public class TachyonFS extends AbstractTachyonFS {
    *
    * @return TachyonFile of the file id, or null if the file does not exist.
    */
-  public synchronized TachyonFile getFile(int fid, boolean useCachedMetadata) throws IOException {
+  public TachyonFile getFile(int fid, boolean useCachedMetadata) throws IOException {
     ClientFileInfo clientFileInfo = getFileStatus(fid, TachyonURI.EMPTY_URI, useCachedMetadata);
     if (clientFileInfo == null) {
       return null;
@@ -503,7 +578,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return TachyonFile of the path, or null if the file does not exist.
    * @throws IOException
    */
-  public synchronized TachyonFile getFile(TachyonURI path) throws IOException {
+  public TachyonFile getFile(TachyonURI path) throws IOException {
     validateUri(path);
     return getFile(path, false);
   }
@@ -517,7 +592,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return TachyonFile of the path, or null if the file does not exist.
    * @throws IOException
    */
-  public synchronized TachyonFile getFile(TachyonURI path, boolean useCachedMetadata)
+  public TachyonFile getFile(TachyonURI path, boolean useCachedMetadata)
       throws IOException {
     validateUri(path);
     ClientFileInfo clientFileInfo = getFileStatus(-1, path, useCachedMetadata);
@@ -534,7 +609,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the list of the blocks' info
    * @throws IOException
    */
-  public synchronized List<ClientBlockInfo> getFileBlocks(int fid) throws IOException {
+  public List<ClientBlockInfo> getFileBlocks(int fid) throws IOException {
     // TODO Should read from mClientFileInfos if possible. Should add timeout to improve this.
     return mMasterClient.user_getFileBlocks(fid, "");
   }
@@ -545,7 +620,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @param path the path in Tachyon file system
    * @return the file id if exists, -1 otherwise
    */
-  public synchronized int getFileId(TachyonURI path) {
+  public int getFileId(TachyonURI path) {
     try {
       ClientFileInfo fileInfo = getFileStatus(-1, path, false);
       return fileInfo == null ? -1 : fileInfo.getId();
@@ -557,36 +632,30 @@ public class TachyonFS extends AbstractTachyonFS {
   /**
    * Gets file status.
    *
-   * @param cache ClientFileInfo cache.
-   * @param key the key in the cache.
    * @param fileId the id of the queried file. If it is -1, uses path.
    * @param path the path of the queried file. If fielId is not -1, this parameter is ignored.
    * @param useCachedMetaData whether to use the cached data or not.
    * @return the clientFileInfo.
    * @throws IOException
    */
-  private synchronized <K> ClientFileInfo getFileStatus(Map<K, ClientFileInfo> cache, K key,
-      int fileId, String path, boolean useCachedMetaData) throws IOException {
+  private ClientFileInfo getFileStatus(int fileId, String path,
+      boolean useCachedMetaData) throws IOException {
     ClientFileInfo info = null;
     if (useCachedMetaData) {
-      info = cache.get(key);
+      info = fileId != -1 ? mClientFileInfoCache.get(fileId) : mClientFileInfoCache.get(path);
       if (info != null) {
         return info;
       }
     }
 
+    long invalidations = mClientFileInfoCache.getInvalidations();
     info = mMasterClient.getFileStatus(fileId, path);
 
-    fileId = info.getId();
-    if (fileId == -1) {
-      cache.remove(key);
+    if (info.getId() == -1) {
+      mClientFileInfoCache.invalidate(fileId, path);
       return null;
     }
-    path = info.getPath();
-
-    // TODO: LRU
-    mIdToClientFileInfo.put(fileId, info);
-    mPathToClientFileInfo.put(path, info);
+    mClientFileInfoCache.put(info, invalidations);
 
     return info;
   }
@@ -602,15 +671,13 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the ClientFileInfo of the file. null if the file does not exist.
    * @throws IOException
    */
-  public synchronized ClientFileInfo getFileStatus(int fileId, TachyonURI path,
+  public ClientFileInfo getFileStatus(int fileId, TachyonURI path,
       boolean useCachedMetadata) throws IOException {
     if (fileId != -1) {
-      return getFileStatus(mIdToClientFileInfo, Integer.valueOf(fileId), fileId,
-          TachyonURI.EMPTY_URI.getPath(), useCachedMetadata);
+      return getFileStatus(fileId, TachyonURI.EMPTY_URI.getPath(), useCachedMetadata);
     }
     validateUri(path);
-    String p = path.getPath();
-    return getFileStatus(mPathToClientFileInfo, p, fileId, p, useCachedMetadata);
+    return getFileStatus(fileId, path.getPath(), useCachedMetadata);
   }
 
   @Override
@@ -626,7 +693,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the ClientFileInfo of the file. null if the file does not exist.
    * @throws IOException
    */
-  public synchronized ClientFileInfo getFileStatus(int fileId, boolean useCachedMetadata)
+  public ClientFileInfo getFileStatus(int fileId, boolean useCachedMetadata)
       throws IOException {
     return getFileStatus(fileId, TachyonURI.EMPTY_URI, useCachedMetadata);
   }
@@ -639,9 +706,18 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the temporary path of the block file
    * @throws IOException
    */
-  public synchronized String getLocalBlockTemporaryPath(long blockId, long initialBytes)
+  public String getLocalBlockTemporaryPath(long blockId, long initialBytes)
       throws IOException {
-    String blockPath = mWorkerClient.requestBlockLocation(blockId, initialBytes);
+    String blockPath;
+    try {
+      blockPath = mWorkerClient.requestBlockLocation(blockId, initialBytes);
+    } catch (IOException e) {
+      // The blocks leased by this client can not be evicted, release them and try again.
+      if (!mLocalBlockLeases.releaseIdle()) {
+        throw e;
+      }
+      blockPath = mWorkerClient.requestBlockLocation(blockId, initialBytes);
+    }
 
     File localTempFolder;
     try {
@@ -669,7 +745,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the RawTable
    * @throws IOException
    */
-  public synchronized RawTable getRawTable(int id) throws IOException {
+  public RawTable getRawTable(int id) throws IOException {
     ClientRawTableInfo clientRawTableInfo = mMasterClient.user_getClientRawTableInfo(id, "");
     return new RawTable(this, clientRawTableInfo);
   }
@@ -681,7 +757,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the RawTable
    * @throws IOException
    */
-  public synchronized RawTable getRawTable(TachyonURI path) throws IOException {
+  public RawTable getRawTable(TachyonURI path) throws IOException {
     validateUri(path);
     ClientRawTableInfo clientRawTableInfo =
         mMasterClient.user_getClientRawTableInfo(-1, path.getPath());
@@ -692,7 +768,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the address of the UnderFileSystem
    * @throws IOException
    */
-  public synchronized String getUfsAddress() throws IOException {
+  public String getUfsAddress() throws IOException {
     return mMasterClient.user_getUfsAddress();
   }
 
@@ -700,7 +776,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return URI of the root of the filesystem
    */
   @Override
-  public synchronized TachyonURI getUri() {
+  public TachyonURI getUri() {
     return mRootUri;
   }
 
@@ -718,7 +794,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return get the total number of bytes used in Tachyon cluster
    * @throws IOException
    */
-  public synchronized long getUsedBytes() throws IOException {
+  public long getUsedBytes() throws IOException {
     return mMasterClient.getUsedBytes();
   }
 
@@ -726,7 +802,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return get the capacity of Tachyon cluster
    * @throws IOException
    */
-  public synchronized long getCapacityBytes() throws IOException {
+  public long getCapacityBytes() throws IOException {
     return mMasterClient.getCapacityBytes();
   }
 
@@ -734,7 +810,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return all the works' info
    * @throws IOException
    */
-  public synchronized List<ClientWorkerInfo> getWorkersInfo() throws IOException {
+  public List<ClientWorkerInfo> getWorkersInfo() throws IOException {
     return mMasterClient.getWorkersInfo();
   }
 
@@ -742,7 +818,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return true if there is a local worker, false otherwise
    * @throws IOException
    */
-  public synchronized boolean hasLocalWorker() throws IOException {
+  public boolean hasLocalWorker() throws IOException {
     return mWorkerClient.isLocal();
   }
 
@@ -751,7 +827,7 @@ public class TachyonFS extends AbstractTachyonFS {
    *
    * @return true if this client is connected to master, false otherwise
    */
-  public synchronized boolean isConnected() {
+  public boolean isConnected() {
     return mMasterClient.isConnected();
   }
 
@@ -761,8 +837,8 @@ public class TachyonFS extends AbstractTachyonFS {
    * @param fid the file id
    * @return true if the file is a directory, false otherwise
    */
-  synchronized boolean isDirectory(int fid) {
-    return mIdToClientFileInfo.get(fid).isFolder;
+  boolean isDirectory(int fid) throws IOException {
+    return getFileStatus(fid, true).isFolder;
   }
 
   /**
@@ -774,7 +850,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @throws IOException
    */
   @Override
-  public synchronized List<ClientFileInfo> listStatus(TachyonURI path) throws IOException {
+  public List<ClientFileInfo> listStatus(TachyonURI path) throws IOException {
     validateUri(path);
     return mMasterClient.listStatus(path.getPath());
   }
@@ -788,29 +864,12 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the path of the block file locked
    * @throws IOException
    */
-  synchronized String lockBlock(long blockId, int blockLockId) throws IOException {
+  String lockBlock(long blockId, int blockLockId) throws IOException {
     if (blockId <= 0 || blockLockId < 0) {
       return null;
     }
 
-    if (mLockedBlockIds.containsKey(blockId)) {
-      mLockedBlockIds.get(blockId).add(blockLockId);
-      return mLockedBlockIdToPath.get(blockId);
-    }
-
-    if (!mWorkerClient.isLocal()) {
-      return null;
-    }
-    String blockPath = mWorkerClient.lockBlock(blockId);
-
-    if (blockPath != null) {
-      Set<Integer> lockIds = new HashSet<Integer>(4);
-      lockIds.add(blockLockId);
-      mLockedBlockIds.put(blockId, lockIds);
-      mLockedBlockIdToPath.put(blockId, blockPath);
-      return blockPath;
-    }
-    return null;
+    return mLocalBlockLeases.lock(blockId, blockLockId);
   }
 
   /**
@@ -822,13 +881,13 @@ public class TachyonFS extends AbstractTachyonFS {
    * @throws IOException
    */
   @Override
-  public synchronized boolean mkdirs(TachyonURI path, boolean recursive) throws IOException {
+  public boolean mkdirs(TachyonURI path, boolean recursive) throws IOException {
     validateUri(path);
     return mMasterClient.user_mkdirs(path.getPath(), recursive);
   }
 
   /** Alias for setPinned(fid, true). */
-  public synchronized void pinFile(int fid) throws IOException {
+  public void pinFile(int fid) throws IOException {
     setPinned(fid, true);
   }
 
@@ -844,10 +903,14 @@ public class TachyonFS extends AbstractTachyonFS {
    * @throws IOException
    */
   @Override
-  public synchronized boolean freepath(int fileId, TachyonURI path, boolean recursive)
+  public boolean freepath(int fileId, TachyonURI path, boolean recursive)
       throws IOException {
     validateUri(path);
-    return mMasterClient.user_freepath(fileId, path.getPath(), recursive);
+    try {
+      return mMasterClient.user_freepath(fileId, path.getPath(), recursive);
+    } finally {
+      mClientFileInfoCache.invalidate(fileId, path.getPath());
+    }
   }
 
   /**
@@ -857,7 +920,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return true if success, false otherwise
    * @throws IOException
    */
-  public synchronized boolean promoteBlock(long blockId) throws IOException {
+  public boolean promoteBlock(long blockId) throws IOException {
     if (mWorkerClient.isLocal()) {
       return mWorkerClient.promoteBlock(blockId);
     }
@@ -875,11 +938,16 @@ public class TachyonFS extends AbstractTachyonFS {
    * @throws IOException
    */
   @Override
-  public synchronized boolean rename(int fileId, TachyonURI srcPath, TachyonURI dstPath)
+  public boolean rename(int fileId, TachyonURI srcPath, TachyonURI dstPath)
       throws IOException {
     validateUri(srcPath);
     validateUri(dstPath);
-    return mMasterClient.user_rename(fileId, srcPath.getPath(), dstPath.getPath());
+    try {
+      return mMasterClient.user_rename(fileId, srcPath.getPath(), dstPath.getPath());
+    } finally {
+      mClientFileInfoCache.invalidate(fileId, srcPath.getPath());
+      mClientFileInfoCache.invalidate(-1, dstPath.getPath());
+    }
   }
 
   /**
@@ -888,8 +956,12 @@ public class TachyonFS extends AbstractTachyonFS {
    * @param fileId the lost file id
    * @throws IOException
    */
-  public synchronized void reportLostFile(int fileId) throws IOException {
-    mMasterClient.user_reportLostFile(fileId);
+  public void reportLostFile(int fileId) throws IOException {
+    try {
+      mMasterClient.user_reportLostFile(fileId);
+    } finally {
+      mClientFileInfoCache.invalidate(fileId, null);
+    }
   }
 
   /**
@@ -898,7 +970,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @param depId the dependency id
    * @throws IOException
    */
-  public synchronized void requestFilesInDependency(int depId) throws IOException {
+  public void requestFilesInDependency(int depId) throws IOException {
     mMasterClient.user_requestFilesInDependency(depId);
   }
 
@@ -910,7 +982,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @return the size bytes that allocated to the block, -1 if no local worker exists
    * @throws IOException
    */
-  public synchronized long requestSpace(long blockId, long requestSpaceBytes) throws IOException {
+  public long requestSpace(long blockId, long requestSpaceBytes) throws IOException {
     if (!hasLocalWorker()) {
       return -1;
     }
@@ -923,6 +995,8 @@ public class TachyonFS extends AbstractTachyonFS {
       if (mWorkerClient.requestSpace(blockId, toRequestSpaceBytes)) {
         return toRequestSpaceBytes;
       }
+      // The blocks leased by this client can not be evicted, release them before trying again.
+      mLocalBlockLeases.releaseIdle();
     }
     return 0;
   }
@@ -934,8 +1008,12 @@ public class TachyonFS extends AbstractTachyonFS {
    * Calling setPinned() on a folder will recursively set the "pinned" flag on all of that folder's
    * children. This may be an expensive operation for folders with many files/subfolders.
    */
-  public synchronized void setPinned(int fid, boolean pinned) throws IOException {
-    mMasterClient.user_setPinned(fid, pinned);
+  public void setPinned(int fid, boolean pinned) throws IOException {
+    try {
+      mMasterClient.user_setPinned(fid, pinned);
+    } finally {
+      mClientFileInfoCache.invalidate(fid, null);
+    }
   }
 
   /**
@@ -955,31 +1033,16 @@ public class TachyonFS extends AbstractTachyonFS {
    * @param blockLockId The block lock id of the block of unlock. <code>blockLockId</code> must be
    *        non-negative.
    */
-  synchronized boolean unlockBlock(long blockId, int blockLockId) throws IOException {
+  boolean unlockBlock(long blockId, int blockLockId) throws IOException {
     if (blockId <= 0 || blockLockId < 0) {
       return false;
     }
 
-    if (!mLockedBlockIds.containsKey(blockId)) {
-      return true;
-    }
-    Set<Integer> lockIds = mLockedBlockIds.get(blockId);
-    lockIds.remove(blockLockId);
-    if (!lockIds.isEmpty()) {
-      return true;
-    }
-
-    if (!mWorkerClient.isLocal()) {
-      return false;
-    }
-
-    mLockedBlockIdToPath.remove(blockId);
-    mLockedBlockIds.remove(blockId);
-    return mWorkerClient.unlockBlock(blockId);
+    return mLocalBlockLeases.unlock(blockId, blockLockId);
   }
 
   /** Alias for setPinned(fid, false). */
-  public synchronized void unpinFile(int fid) throws IOException {
+  public void unpinFile(int fid) throws IOException {
     setPinned(fid, false);
   }
 
@@ -990,7 +1053,7 @@ public class TachyonFS extends AbstractTachyonFS {
    * @param metadata the new meta data
    * @throws IOException
    */
-  public synchronized void updateRawTableMetadata(int id, ByteBuffer metadata) throws IOException {
+  public void updateRawTableMetadata(int id, ByteBuffer metadata) throws IOException {
     mMasterClient.user_updateRawTableMetadata(id, metadata);
   }
 
@@ -28,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.io.Closer;
+import com.google.common.util.concurrent.RateLimiter;
 
 import tachyon.Constants;
 import tachyon.TachyonURI;
@@ -318,6 +319,22 @@ public class TachyonFile implements Comparable<TachyonFile> {
     return getUnCachedFileStatus().getInMemoryPercentage() == 100;
   }
 
+  /**
+   * Return whether a worker has a block in memory. The master also reports the hosts of the under
+   * file system copy of a checkpointed block as its locations, without a data server port.
+   *
+   * @param blockInfo the info of the block
+   * @return true if a worker has the block, false otherwise
+   */
+  static boolean isInWorkerMemory(ClientBlockInfo blockInfo) {
+    for (NetAddress location : blockInfo.getLocations()) {
+      if (location.mSecondaryPort != -1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * @return the file size in bytes
    * @throws IOException
@@ -392,6 +409,33 @@ public class TachyonFile implements Comparable<TachyonFile> {
    */
   private TachyonByteBuffer readLocalByteBuffer(int blockIndex, long offset, long len)
       throws IOException {
+    return readLocalByteBuffer(getClientBlockInfo(blockIndex), offset, len);
+  }
+
+  /**
+   * Read local block return a TachyonByteBuffer
+   *
+   * @param info The info of the block.
+   * @param offset The start position to read.
+   * @param len The length to read. -1 represents read the whole block.
+   * @return <code>TachyonByteBuffer</code> containing the block.
+   * @throws IOException
+   */
+  TachyonByteBuffer readLocalByteBuffer(ClientBlockInfo info, long offset, long len)
+      throws IOException {
+    return readLocalByteBuffer(info.blockId, offset, len);
+  }
+
+  /**
+   * Read local block return a TachyonByteBuffer
+   *
+   * @param blockId The id of the block.
+   * @param offset The start position to read.
+   * @param len The length to read. -1 represents read the whole block.
+   * @return <code>TachyonByteBuffer</code> containing the block.
+   * @throws IOException
+   */
+  TachyonByteBuffer readLocalByteBuffer(long blockId, long offset, long len) throws IOException {
     if (offset < 0) {
       throw new IOException("Offset can not be negative: " + offset);
     }
@@ -399,9 +443,6 @@ public class TachyonFile implements Comparable<TachyonFile> {
       throw new IOException("Length can not be negative except -1: " + len);
     }
 
-    ClientBlockInfo info = getClientBlockInfo(blockIndex);
-    long blockId = info.blockId;
-
     int blockLockId = mTachyonFS.getBlockLockId();
     String localFileName = mTachyonFS.lockBlock(blockId, blockLockId);
 
@@ -445,6 +486,59 @@ public class TachyonFile implements Comparable<TachyonFile> {
     return null;
   }
 
+  /**
+   * Advanced API.
+   *
+   * Reads several ranges of this file at once. Nearby ranges are coalesced, and the resulting
+   * requests are grouped by block and issued concurrently, so this is much cheaper than a seek and
+   * a read per range. The position of any open stream of this file is not affected.
+   *
+   * @param ranges the ranges to read, in any order
+   * @return one buffer per range, in the same order as the ranges
+   * @throws IOException if the file is not complete, a range is past the end of the file, or a
+   *         range could not be read
+   */
+  public List<ByteBuffer> readRanges(List<FileRange> ranges) throws IOException {
+    if (!isComplete()) {
+      throw new IOException("The file " + this + " is not complete.");
+    }
+    return new VectoredReader(this, mTachyonConf).read(ranges);
+  }
+
+  /**
+   * Advanced API.
+   *
+   * Reads up to <code>len</code> bytes of this file starting at <code>position</code>, directly
+   * from the block holding that position: the local worker, a remote worker or the under file
+   * system. Unlike a seek and a read on a stream, this involves no stream, so any number of
+   * threads can read this way at once. A read does not cross a block boundary, so it may return
+   * fewer bytes than requested.
+   *
+   * @param position the position in the file to read at
+   * @param b the array to read into
+   * @param off the offset in the array to read into
+   * @param len the maximum number of bytes to read
+   * @return the number of bytes read, or -1 if the position is at or past the end of the file
+   * @throws IOException if the file is not complete, or the data could not be read
+   */
+  public int read(long position, byte[] b, int off, int len) throws IOException {
+    if (b == null) {
+      throw new NullPointerException();
+    } else if (position < 0 || off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException(String.format(
+          "Buffer length (%d), offset(%d), len(%d), position(%d)", b.length, off, len, position));
+    }
+    // The length and blocks of a complete file do not change, so its cached status will do.
+    ClientFileInfo info = getCachedFileStatus();
+    if (!info.isIsComplete()) {
+      info = getUnCachedFileStatus();
+      if (!info.isIsComplete()) {
+        throw new IOException("The file " + this + " is not complete.");
+      }
+    }
+    return new VectoredReader(this, mTachyonConf).read(info, position, b, off, len);
+  }
+
   /**
    * Get the the whole block from remote workers.
    *
@@ -482,17 +576,27 @@ public class TachyonFile implements Comparable<TachyonFile> {
    * @throws IOException
    */
   boolean recache(int blockIndex) throws IOException {
+    return recache(blockIndex, null);
+  }
+
+  /**
+   * Re-cache the block into memory, throttling the reads from the under file system.
+   *
+   * @param blockIndex The block index of the current file.
+   * @param throttle the limiter of the bytes read per second, or null to read at full speed
+   * @return true if succeed, false otherwise
+   * @throws IOException
+   */
+  boolean recache(int blockIndex, RateLimiter throttle) throws IOException {
     String path = getUfsPath();
     UnderFileSystem underFsClient = UnderFileSystem.get(path, mTachyonConf);
 
     InputStream inputStream = null;
     BlockOutStream bos = null;
     try {
-      inputStream = underFsClient.open(path);
-
       long length = getBlockSizeByte();
       long offset = blockIndex * length;
-      inputStream.skip(offset);
+      inputStream = underFsClient.open(path, offset);
 
       int bufferBytes =
           (int) mTachyonConf.getBytes(Constants.USER_FILE_BUFFER_BYTES, Constants.MB) * 4;
@@ -501,6 +605,9 @@ public class TachyonFile implements Comparable<TachyonFile> {
       int limit;
       while (length > 0 && ((limit = inputStream.read(buffer)) >= 0)) {
         if (limit != 0) {
+          if (throttle != null) {
+            throttle.acquire(limit);
+          }
           if (length >= limit) {
             bos.write(buffer, 0, limit);
             length -= limit;
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.Pair;
+import tachyon.PrefixList;
+import tachyon.TachyonURI;
+import tachyon.conf.TachyonConf;
+import tachyon.thrift.ClientFileInfo;
+import tachyon.underfs.UnderFileSystem;
+import tachyon.util.CommonUtils;
+
+/**
+ * Loads the metadata of a tree of an under file system into Tachyon, for {@link UfsUtils}. The
+ * directories are listed concurrently by <code>tachyon.user.ufs.load.threads</code> threads, and
+ * the files of a directory are created in batches, every batch by one thread. The existing entries
+ * of a Tachyon directory are fetched with a single listing, instead of one existence check per
+ * file, and skipped, so a load which was interrupted or failed for some files is resumed by running
+ * it again. The progress is logged periodically. A loader is used for a single load.
+ */
+final class UfsLoader {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  /** The maximum number of files created by one task. */
+  private static final int BATCH_SIZE = 100;
+  private static final long PROGRESS_INTERVAL_MS = 10 * Constants.SECOND_MS;
+
+  private final TachyonFS mTfs;
+  private final UnderFileSystem mUfs;
+  /** The root of the loaded tree, which the excluded prefixes are relative to. */
+  private final TachyonURI mUfsRoot;
+  private final PrefixList mExcludePathPrefix;
+  private final LoadTaskPool mTasks;
+
+  private final AtomicLong mDirectories = new AtomicLong(0);
+  private final AtomicLong mFilesCreated = new AtomicLong(0);
+  private final AtomicLong mFilesSkipped = new AtomicLong(0);
+  private final AtomicLong mFailures = new AtomicLong(0);
+  /** The first failure, guarded by this. */
+  private IOException mFirstFailure = null;
+
+  /**
+   * @param tfs the Tachyon client
+   * @param ufs the client of the under file system
+   * @param ufsRoot the root of the tree to load
+   * @param excludePathPrefix the paths relative to the root to exclude
+   * @param tachyonConf the configuration of the client
+   */
+  UfsLoader(TachyonFS tfs, UnderFileSystem ufs, TachyonURI ufsRoot, PrefixList excludePathPrefix,
+      TachyonConf tachyonConf) {
+    mTfs = tfs;
+    mUfs = ufs;
+    mUfsRoot = ufsRoot;
+    mExcludePathPrefix = excludePathPrefix;
+    mTasks = new LoadTaskPool(tachyonConf.getInt(Constants.USER_UFS_LOAD_THREADS, 16),
+        "client-ufs-load-%d");
+  }
+
+  /**
+   * Loads a file or a directory and everything under it, and waits for the load to finish.
+   *
+   * @param ufsPath the path in the under file system
+   * @param tfsPath the path to load it to in Tachyon
+   * @throws IOException if some paths failed to be loaded, once all the others are loaded
+   */
+  void load(final TachyonURI ufsPath, final TachyonURI tfsPath) throws IOException {
+    try {
+      if (mUfs.isFile(ufsPath.toString())) {
+        if (!mTfs.exist(tfsPath)) {
+          List<Pair<TachyonURI, TachyonURI>> file = new ArrayList<Pair<TachyonURI, TachyonURI>>(1);
+          file.add(new Pair<TachyonURI, TachyonURI>(ufsPath, tfsPath));
+          submitFiles(file);
+        } else {
+          LOG.info("File " + tfsPath + " already exists in Tachyon.");
+          mFilesSkipped.incrementAndGet();
+        }
+      } else {
+        submitDirectory(ufsPath, tfsPath);
+      }
+      awaitTasks();
+    } finally {
+      mTasks.shutdown();
+    }
+    logProgress("Loaded");
+    synchronized (this) {
+      if (mFirstFailure != null) {
+        throw new IOException("Failed to load " + mFailures.get() + " paths of " + ufsPath
+            + ", loading it again loads them without reloading the others", mFirstFailure);
+      }
+    }
+  }
+
+  private void submitDirectory(final TachyonURI ufsPath, final TachyonURI tfsPath) {
+    mTasks.submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          loadDirectory(ufsPath, tfsPath);
+        } catch (IOException e) {
+          failed("Failed to load directory " + ufsPath, e);
+        }
+      }
+    });
+  }
+
+  private void submitFiles(final List<Pair<TachyonURI, TachyonURI>> files) {
+    mTasks.submit(new Runnable() {
+      @Override
+      public void run() {
+        for (Pair<TachyonURI, TachyonURI> file : files) {
+          try {
+            int fileId = mTfs.createFile(file.getSecond(), file.getFirst());
+            if (fileId == -1) {
+              failed("Failed to create tachyon file " + file.getSecond(), null);
+            } else {
+              LOG.debug("Created tachyon file {} with file id {} and checkpoint location {}",
+                  file.getSecond(), fileId, file.getFirst());
+              mFilesCreated.incrementAndGet();
+            }
+          } catch (IOException e) {
+            failed("Failed to create tachyon file " + file.getSecond(), e);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Creates a directory in Tachyon, and submits the tasks loading its children.
+   */
+  private void loadDirectory(TachyonURI ufsPath, TachyonURI tfsPath) throws IOException {
+    LOG.debug("Loading directory {} to {}", ufsPath, tfsPath);
+    // The root always exists, and the master refuses to create it.
+    if (!tfsPath.isRoot() && !mTfs.mkdirs(tfsPath, true)) {
+      throw new IOException("Failed to create tachyon folder " + tfsPath);
+    }
+    mDirectories.incrementAndGet();
+    String[] children = mUfs.list(ufsPath.toString()); // ufs.list() returns relative path
+    if (children == null) {
+      return;
+    }
+    Set<String> existing = new HashSet<String>();
+    List<ClientFileInfo> infos = mTfs.listStatus(tfsPath);
+    if (infos != null) {
+      for (ClientFileInfo info : infos) {
+        existing.add(info.getName());
+      }
+    }
+
+    List<Pair<TachyonURI, TachyonURI>> files = new ArrayList<Pair<TachyonURI, TachyonURI>>();
+    for (String child : children) {
+      if (child.isEmpty()) { // Prevent infinite loops
+        continue;
+      }
+      String childUfsPath = CommonUtils.concatPath(ufsPath, child);
+      String checkPath = childUfsPath.substring(mUfsRoot.toString().length());
+      if (checkPath.startsWith(TachyonURI.SEPARATOR)) {
+        checkPath = checkPath.substring(TachyonURI.SEPARATOR.length());
+      }
+      if (mExcludePathPrefix.inList(checkPath)) {
+        LOG.info("excluded: " + checkPath);
+        continue;
+      }
+      TachyonURI childTfsPath = new TachyonURI(CommonUtils.concatPath(tfsPath, child));
+      if (!mUfs.isFile(childUfsPath)) {
+        submitDirectory(new TachyonURI(childUfsPath), childTfsPath);
+      } else if (existing.contains(child)) {
+        LOG.debug("File {} already exists in Tachyon.", childTfsPath);
+        mFilesSkipped.incrementAndGet();
+      } else {
+        files.add(new Pair<TachyonURI, TachyonURI>(new TachyonURI(childUfsPath), childTfsPath));
+        if (files.size() == BATCH_SIZE) {
+          submitFiles(files);
+          files = new ArrayList<Pair<TachyonURI, TachyonURI>>();
+        }
+      }
+    }
+    if (!files.isEmpty()) {
+      submitFiles(files);
+    }
+  }
+
+  private void awaitTasks() throws IOException {
+    try {
+      mTasks.await(PROGRESS_INTERVAL_MS, new Runnable() {
+        @Override
+        public void run() {
+          logProgress("Loading");
+        }
+      });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading " + mUfsRoot);
+    }
+  }
+
+  private void failed(String message, IOException e) {
+    LOG.warn(message, e);
+    mFailures.incrementAndGet();
+    synchronized (this) {
+      if (mFirstFailure == null) {
+        mFirstFailure = e == null ? new IOException(message) : e;
+      }
+    }
+  }
+
+  private void logProgress(String state) {
+    LOG.info(state + " " + mUfsRoot + ": " + mDirectories.get() + " directories and "
+        + mFilesCreated.get() + " files created, " + mFilesSkipped.get()
+        + " existing files skipped, " + mFailures.get() + " failures");
+  }
+}
@@ -18,8 +18,6 @@ package tachyon.client;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.UnknownHostException;
-import java.util.LinkedList;
-import java.util.Queue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -146,67 +144,17 @@ public class UfsUtils {
       // }
     }
 
-    Queue<TachyonURI> ufsPathQueue = new LinkedList<TachyonURI>();
-    if (excludePathPrefix.outList(ufsRootPath)) {
-      ufsPathQueue.add(ufsAddrRootPath);
+    if (!excludePathPrefix.outList(ufsRootPath)) {
+      return;
     }
-
-    while (!ufsPathQueue.isEmpty()) {
-      TachyonURI ufsPath = ufsPathQueue.poll(); // this is the absolute path
-      LOG.info("Loading: " + ufsPath);
-      if (ufs.isFile(ufsPath.toString())) { // TODO: Fix path matching issue
-        TachyonURI tfsPath = buildTFSPath(directoryName, ufsAddrRootPath, ufsPath);
-        LOG.debug("Loading ufs. tfs path = " + tfsPath + ".");
-        if (tfs.exist(tfsPath)) {
-          LOG.info("File " + tfsPath + " already exists in Tachyon.");
-          continue;
-        }
-        int fileId = tfs.createFile(tfsPath, ufsPath);
-        if (fileId == -1) {
-          LOG.warn("Failed to create tachyon file: " + tfsPath);
-        } else {
-          LOG.info("Create tachyon file " + tfsPath + " with file id " + fileId + " and "
-              + "checkpoint location " + ufsPath);
-        }
-      } else { // ufsPath is a directory
-        LOG.debug("Loading ufs. ufs path is a directory.");
-        String[] files = ufs.list(ufsPath.toString()); // ufs.list() returns relative path
-        if (files != null) {
-          for (String filePath : files) {
-            if (filePath.isEmpty()) { // Prevent infinite loops
-              continue;
-            }
-            LOG.info("Get: " + filePath);
-            String aPath = CommonUtils.concatPath(ufsPath, filePath);
-            String checkPath = aPath.substring(ufsAddrRootPath.toString().length());
-            if (checkPath.startsWith(TachyonURI.SEPARATOR)) {
-              checkPath = checkPath.substring(TachyonURI.SEPARATOR.length());
-            }
-            if (excludePathPrefix.inList(checkPath)) {
-              LOG.info("excluded: " + checkPath);
-            } else {
-              ufsPathQueue.add(new TachyonURI(aPath));
-            }
-          }
-        }
-        // ufsPath is a directory, so only concat the tfsRoot with the relative path
-        TachyonURI tfsPath = new TachyonURI(CommonUtils.concatPath(
-            tachyonPath, ufsPath.getPath().substring(ufsAddrRootPath.getPath().length())));
-        LOG.debug("Loading ufs. ufs path is a directory. tfsPath = " + tfsPath + ".");
-        if (!tfs.exist(tfsPath)) {
-          LOG.debug("Loading ufs. ufs path is a directory. make dir = "
-                  + tfsPath + ".");
-          tfs.mkdir(tfsPath);
-          // TODO Add the following.
-          // if (tfs.mkdir(tfsPath)) {
-          // LOG.info("Created mTachyonFS folder " + tfsPath + " with checkpoint location " +
-          // ufsPath);
-          // } else {
-          // LOG.info("Failed to create tachyon folder: " + tfsPath);
-          // }
-        }
-      }
+    TachyonURI tfsPath;
+    if (ufs.isFile(ufsAddrRootPath.toString())) {
+      tfsPath = buildTFSPath(directoryName, ufsAddrRootPath, ufsAddrRootPath);
+    } else {
+      tfsPath = tachyonPath;
     }
+    new UfsLoader(tfs, ufs, ufsAddrRootPath, excludePathPrefix, tachyonConf).load(
+        ufsAddrRootPath, tfsPath);
   }
 
   public static void main(String[] args) {
@@ -0,0 +1,371 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+
+import tachyon.Constants;
+import tachyon.conf.TachyonConf;
+import tachyon.thrift.ClientBlockInfo;
+import tachyon.thrift.ClientFileInfo;
+import tachyon.underfs.UnderFileSystem;
+import tachyon.util.ThreadFactoryUtils;
+
+/**
+ * Implements the vectored read API of {@link TachyonFile}. The requested ranges are cut at block
+ * boundaries, the pieces of each block are sorted and coalesced when they are at most
+ * <code>tachyon.user.vectored.read.merge.gap.byte</code> apart, and every coalesced span is read
+ * with a single request, from the local worker, a remote worker or the under file system. The
+ * spans are read concurrently. It also implements the positional reads of {@link TachyonFile},
+ * which read a single range of one block into an array.
+ */
+final class VectoredReader {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+
+  private static final TachyonConf TACHYON_CONF = new TachyonConf();
+  private static final ExecutorService VECTORED_READ_EXECUTOR = Executors.newFixedThreadPool(
+      TACHYON_CONF.getInt(Constants.USER_VECTORED_READ_THREADS, 16),
+      ThreadFactoryUtils.build("client-vectored-read-%d", true));
+
+  private final TachyonFile mFile;
+  private final TachyonFS mTachyonFS;
+  private final TachyonConf mTachyonConf;
+
+  /**
+   * @param file the file to read from
+   * @param tachyonConf the TachyonConf instance for this read
+   */
+  VectoredReader(TachyonFile file, TachyonConf tachyonConf) {
+    mFile = file;
+    mTachyonFS = file.mTachyonFS;
+    mTachyonConf = tachyonConf;
+  }
+
+  /**
+   * Reads the given ranges of the file.
+   *
+   * @param ranges the ranges to read, in any order, possibly overlapping
+   * @return one buffer per range, in the same order as the ranges
+   * @throws IOException if a range is past the end of the file, or could not be read
+   */
+  List<ByteBuffer> read(List<FileRange> ranges) throws IOException {
+    long fileLength = mFile.length();
+    long blockSize = mFile.getBlockSizeByte();
+    for (FileRange range : ranges) {
+      if (range.getEnd() > fileLength) {
+        throw new IOException(range + " is past the end of file " + mFile.getPath()
+            + " of length " + fileLength);
+      }
+    }
+    List<ClientBlockInfo> blockInfos = mTachyonFS.getFileBlocks(mFile.mFileId);
+
+    // Cut the ranges at block boundaries.
+    List<Piece> pieces = new ArrayList<Piece>();
+    for (int i = 0; i < ranges.size(); i ++) {
+      FileRange range = ranges.get(i);
+      long pos = range.getOffset();
+      while (pos < range.getEnd()) {
+        int blockIndex = (int) (pos / blockSize);
+        long blockEnd = Math.min((blockIndex + 1) * blockSize, range.getEnd());
+        pieces.add(new Piece(i, (int) (pos - range.getOffset()), blockIndex,
+            pos - blockIndex * blockSize, (int) (blockEnd - pos)));
+        pos = blockEnd;
+      }
+    }
+
+    List<Span> spans = coalesce(pieces);
+    List<ByteBuffer> spanData = readSpans(spans, blockInfos);
+
+    List<ByteBuffer> results = new ArrayList<ByteBuffer>(ranges.size());
+    for (FileRange range : ranges) {
+      results.add(range.getLength() == 0 ? ByteBuffer.allocate(0) : null);
+    }
+    for (int s = 0; s < spans.size(); s ++) {
+      Span span = spans.get(s);
+      ByteBuffer data = spanData.get(s);
+      for (Piece piece : span.mPieces) {
+        ByteBuffer slice = data.slice();
+        slice.position((int) (piece.mBlockOffset - span.mBlockOffset));
+        slice.limit(slice.position() + piece.mLength);
+        int length = ranges.get(piece.mRangeIndex).getLength();
+        if (piece.mLength == length) {
+          // The range lies within one block, hand out a view of the span without copying.
+          results.set(piece.mRangeIndex, slice.slice());
+          continue;
+        }
+        ByteBuffer result = results.get(piece.mRangeIndex);
+        if (result == null) {
+          result = ByteBuffer.allocate(length);
+          results.set(piece.mRangeIndex, result);
+        }
+        result.position(piece.mRangeOffset);
+        result.put(slice);
+      }
+    }
+    for (ByteBuffer result : results) {
+      result.rewind();
+    }
+    return results;
+  }
+
+  /**
+   * Reads from the block of the file holding the given position into the given array.
+   *
+   * @param info the status of the file, which must be complete
+   * @param position the position in the file to read at
+   * @param b the array to read into
+   * @param off the offset in the array to read into
+   * @param len the maximum number of bytes to read
+   * @return the number of bytes read, up to the end of the block, or -1 at the end of the file
+   * @throws IOException if the data could not be read
+   */
+  int read(ClientFileInfo info, long position, byte[] b, int off, int len) throws IOException {
+    if (position >= info.getLength()) {
+      return -1;
+    }
+    long blockSize = info.getBlockSizeByte();
+    int blockIndex = (int) (position / blockSize);
+    long blockOffset = position - blockIndex * blockSize;
+    int length = (int) Math.min(len,
+        Math.min(info.getLength(), (blockIndex + 1) * blockSize) - position);
+    if (length == 0) {
+      return 0;
+    }
+
+    long blockId = info.getBlockIds().get(blockIndex);
+    if (mTachyonConf.getBoolean(Constants.USER_ENABLE_LOCAL_READ,
+        Constants.DEFAULT_USER_ENABLE_LOCAL_READ)) {
+      TachyonByteBuffer local = mFile.readLocalByteBuffer(blockId, blockOffset, length);
+      if (local != null) {
+        try {
+          local.mData.get(b, off, length);
+          mTachyonFS.getClientMetrics().incBytesReadLocal(length);
+          return length;
+        } finally {
+          local.close();
+        }
+      }
+    }
+
+    ClientBlockInfo blockInfo = mTachyonFS.getClientBlockInfo(blockId);
+    ByteBuffer data = RemoteBlockInStream.readRemoteByteBuffer(mTachyonFS, blockInfo,
+        blockOffset, length, mTachyonConf);
+    if (data != null) {
+      data.get(b, off, length);
+      mTachyonFS.getClientMetrics().incBytesReadRemote(length);
+      return length;
+    }
+
+    readFromUnderFs(blockInfo.offset + blockOffset, b, off, length);
+    return length;
+  }
+
+  private List<Span> coalesce(List<Piece> pieces) {
+    long mergeGap = mTachyonConf.getBytes(Constants.USER_VECTORED_READ_MERGE_GAP_BYTE,
+        64 * Constants.KB);
+    long maxSpan = mTachyonConf.getBytes(Constants.USER_REMOTE_READ_BUFFER_SIZE_BYTE,
+        8 * Constants.MB);
+    Collections.sort(pieces, new Comparator<Piece>() {
+      @Override
+      public int compare(Piece a, Piece b) {
+        if (a.mBlockIndex != b.mBlockIndex) {
+          return a.mBlockIndex < b.mBlockIndex ? -1 : 1;
+        }
+        if (a.mBlockOffset != b.mBlockOffset) {
+          return a.mBlockOffset < b.mBlockOffset ? -1 : 1;
+        }
+        return 0;
+      }
+    });
+
+    List<Span> spans = new ArrayList<Span>();
+    Span current = null;
+    for (Piece piece : pieces) {
+      if (piece.mLength == 0) {
+        continue;
+      }
+      long pieceEnd = piece.mBlockOffset + piece.mLength;
+      if (current != null && current.mBlockIndex == piece.mBlockIndex
+          && piece.mBlockOffset - current.getEnd() <= mergeGap
+          && Math.max(pieceEnd, current.getEnd()) - current.mBlockOffset <= maxSpan) {
+        current.add(piece);
+      } else {
+        current = new Span(piece);
+        spans.add(current);
+      }
+    }
+    return spans;
+  }
+
+  private List<ByteBuffer> readSpans(List<Span> spans, final List<ClientBlockInfo> blockInfos)
+      throws IOException {
+    List<ByteBuffer> data = new ArrayList<ByteBuffer>(spans.size());
+    if (spans.size() == 1) {
+      data.add(readSpan(spans.get(0), blockInfos.get(spans.get(0).mBlockIndex)));
+      return data;
+    }
+
+    List<Future<ByteBuffer>> futures = new ArrayList<Future<ByteBuffer>>(spans.size());
+    for (final Span span : spans) {
+      futures.add(VECTORED_READ_EXECUTOR.submit(new Callable<ByteBuffer>() {
+        @Override
+        public ByteBuffer call() throws IOException {
+          return readSpan(span, blockInfos.get(span.mBlockIndex));
+        }
+      }));
+    }
+    try {
+      for (Future<ByteBuffer> future : futures) {
+        data.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading ranges of " + mFile.getPath());
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      for (Future<ByteBuffer> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return data;
+  }
+
+  private ByteBuffer readSpan(Span span, ClientBlockInfo blockInfo) throws IOException {
+    long length = span.getEnd() - span.mBlockOffset;
+    if (mTachyonConf.getBoolean(Constants.USER_ENABLE_LOCAL_READ,
+        Constants.DEFAULT_USER_ENABLE_LOCAL_READ)) {
+      TachyonByteBuffer local = mFile.readLocalByteBuffer(blockInfo, span.mBlockOffset, length);
+      if (local != null) {
+        try {
+          ByteBuffer data = ByteBuffer.allocate((int) length);
+          data.put(local.mData);
+          data.flip();
+          mTachyonFS.getClientMetrics().incBytesReadLocal(length);
+          return data;
+        } finally {
+          local.close();
+        }
+      }
+    }
+
+    ByteBuffer data = RemoteBlockInStream.readRemoteByteBuffer(mTachyonFS, blockInfo,
+        span.mBlockOffset, length, mTachyonConf);
+    if (data != null) {
+      mTachyonFS.getClientMetrics().incBytesReadRemote(length);
+      return data;
+    }
+
+    byte[] ufsData = new byte[(int) length];
+    readFromUnderFs(blockInfo.offset + span.mBlockOffset, ufsData, 0, (int) length);
+    return ByteBuffer.wrap(ufsData);
+  }
+
+  private void readFromUnderFs(long offset, byte[] data, int off, int length)
+      throws IOException {
+    String ufsPath = mFile.getUfsPath();
+    if (ufsPath.isEmpty()) {
+      throw new IOException("Failed to read " + length + " bytes at " + offset + " of "
+          + mFile.getPath() + " from workers, and the file is not in the under file system");
+    }
+    LOG.info("Reading {} bytes at {} from under file system {}", length, offset, ufsPath);
+    UnderFileSystem ufs = UnderFileSystem.get(ufsPath, mFile.getUFSConf(), mTachyonConf);
+    InputStream in = ufs.open(ufsPath);
+    try {
+      long skipped = 0;
+      while (skipped < offset) {
+        long n = in.skip(offset - skipped);
+        if (n <= 0) {
+          throw new IOException("Failed to skip to " + offset + " in " + ufsPath);
+        }
+        skipped += n;
+      }
+      int read = 0;
+      while (read < length) {
+        int n = in.read(data, off + read, length - read);
+        if (n < 0) {
+          throw new IOException("Unexpected end of " + ufsPath + " at " + (offset + read));
+        }
+        read += n;
+      }
+      mTachyonFS.getClientMetrics().incBytesReadUfs(length);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * The part of a requested range that lies within one block.
+   */
+  private static final class Piece {
+    final int mRangeIndex;
+    final int mRangeOffset;
+    final int mBlockIndex;
+    final long mBlockOffset;
+    final int mLength;
+
+    Piece(int rangeIndex, int rangeOffset, int blockIndex, long blockOffset, int length) {
+      mRangeIndex = rangeIndex;
+      mRangeOffset = rangeOffset;
+      mBlockIndex = blockIndex;
+      mBlockOffset = blockOffset;
+      mLength = length;
+    }
+  }
+
+  /**
+   * A contiguous region of one block covering one or more pieces, read with one request.
+   */
+  private static final class Span {
+    final int mBlockIndex;
+    final long mBlockOffset;
+    final List<Piece> mPieces = new ArrayList<Piece>();
+    private long mEnd;
+
+    Span(Piece first) {
+      mBlockIndex = first.mBlockIndex;
+      mBlockOffset = first.mBlockOffset;
+      mEnd = first.mBlockOffset;
+      add(first);
+    }
+
+    void add(Piece piece) {
+      mPieces.add(piece);
+      mEnd = Math.max(mEnd, piece.mBlockOffset + piece.mLength);
+    }
+
+    long getEnd() {
+      return mEnd;
+    }
+  }
+}
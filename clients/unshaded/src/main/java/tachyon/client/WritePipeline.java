@@ -0,0 +1,160 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import tachyon.util.ThreadFactoryUtils;
+
+/**
+ * Runs the steps of a write, e.g. committing blocks or writing to the under file system, in the
+ * background and in the order they were submitted, so that the writer can go on with the next
+ * data meanwhile. At most a given number of steps are pending, further submissions wait.
+ *
+ * The first step that fails fails the pipeline: the later steps are dropped, each given the chance
+ * to release what it holds through {@link Step#abandon()}, and the failure is rethrown by the next
+ * call to {@link #submit(Step)} or {@link #await()}. A pipeline created with
+ * <code>async</code> false runs every step right away in the submitting thread instead. The steps
+ * of all pipelines run on a shared pool of daemon threads. This class is thread safe.
+ */
+final class WritePipeline {
+  private static final ExecutorService PIPELINE_EXECUTOR = Executors.newCachedThreadPool(
+      ThreadFactoryUtils.build("client-write-pipeline-%d", true));
+
+  /**
+   * A step of a write.
+   */
+  abstract static class Step {
+    abstract void run() throws IOException;
+
+    /**
+     * Called instead of {@link #run()} when the step is dropped after a failure, to release the
+     * resources the step holds, e.g. its buffers. Does nothing by default.
+     */
+    void abandon() {}
+  }
+
+  private final boolean mAsync;
+  private final int mMaxPendingSteps;
+  private final Semaphore mPermits;
+  private final Queue<Step> mSteps = new ConcurrentLinkedQueue<Step>();
+  /** Whether a thread of the pool is running the steps of this pipeline. */
+  private final AtomicBoolean mRunning = new AtomicBoolean(false);
+  private final Runnable mRunner = new Runnable() {
+    @Override
+    public void run() {
+      runSteps();
+    }
+  };
+  private volatile IOException mFailure = null;
+
+  /**
+   * @param async whether to run the steps in the background
+   * @param maxPendingSteps the maximum number of steps submitted but not run yet
+   */
+  WritePipeline(boolean async, int maxPendingSteps) {
+    mAsync = async;
+    mMaxPendingSteps = Math.max(maxPendingSteps, 1);
+    mPermits = new Semaphore(mMaxPendingSteps);
+  }
+
+  /**
+   * Submits a step, waiting if too many steps are pending.
+   *
+   * @param step the step to run after the steps submitted before
+   * @throws IOException if a step submitted before failed, or the step failed when run right away
+   */
+  void submit(Step step) throws IOException {
+    try {
+      checkFailure();
+    } catch (IOException e) {
+      step.abandon();
+      throw e;
+    }
+    if (!mAsync) {
+      step.run();
+      return;
+    }
+    try {
+      mPermits.acquire();
+    } catch (InterruptedException e) {
+      step.abandon();
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the write pipeline");
+    }
+    mSteps.add(step);
+    if (mRunning.compareAndSet(false, true)) {
+      PIPELINE_EXECUTOR.execute(mRunner);
+    }
+  }
+
+  /**
+   * Waits for all the steps submitted to run.
+   *
+   * @throws IOException if a step failed
+   */
+  void await() throws IOException {
+    if (mAsync) {
+      try {
+        mPermits.acquire(mMaxPendingSteps);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for the write pipeline");
+      }
+      mPermits.release(mMaxPendingSteps);
+    }
+    checkFailure();
+  }
+
+  private void checkFailure() throws IOException {
+    IOException failure = mFailure;
+    if (failure != null) {
+      throw new IOException(failure.getMessage(), failure);
+    }
+  }
+
+  private void runSteps() {
+    while (true) {
+      Step step;
+      while ((step = mSteps.poll()) != null) {
+        try {
+          if (mFailure == null) {
+            step.run();
+          } else {
+            step.abandon();
+          }
+        } catch (IOException e) {
+          mFailure = e;
+        } catch (RuntimeException e) {
+          mFailure = new IOException(e);
+        } finally {
+          mPermits.release();
+        }
+      }
+      mRunning.set(false);
+      // A step may have been added after the queue was found empty, but before the flag was reset.
+      if (mSteps.isEmpty() || !mRunning.compareAndSet(false, true)) {
+        return;
+      }
+    }
+  }
+}
@@ -23,15 +23,24 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.ScheduledFuture;
 
 import tachyon.Constants;
 import tachyon.client.RemoteBlockReader;
@@ -51,16 +60,16 @@ import tachyon.network.protocol.RPCResponse;
 public final class NettyRemoteBlockReader implements RemoteBlockReader {
   private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
 
-  // The maximum number of seconds to wait for a response from the server.
-  private static final long TIMEOUT_SECOND = 1L;
-
   // Share both the encoder and decoder with all the client pipelines.
   private static final RPCMessageEncoder ENCODER = new RPCMessageEncoder();
   private static final RPCMessageDecoder DECODER = new RPCMessageDecoder();
 
   private static final TachyonConf TACHYON_CONF = new TachyonConf();
-  private static final ChannelType CHANNEL_TYPE = TACHYON_CONF.getEnum(
-      Constants.USER_NETTY_CHANNEL, ChannelType.defaultType());
+  // The maximum number of milliseconds to wait for a response from the server.
+  private static final long TIMEOUT_MS = TACHYON_CONF.getLong(Constants.USER_NETTY_TIMEOUT_MS,
+      Constants.SECOND_MS);
+  private static final ChannelType CHANNEL_TYPE =
+      NettyUtils.getChannelType(TACHYON_CONF, Constants.USER_NETTY_CHANNEL);
   private static final Class<? extends SocketChannel> CLIENT_CHANNEL_CLASS = NettyUtils
       .getClientChannelClass(CHANNEL_TYPE);
   // Reuse EventLoopGroup for all clients.
@@ -75,7 +84,7 @@ public final class NettyRemoteBlockReader implements RemoteBlockReader {
   // TODO: Creating a new remote block reader may be expensive, so consider a connection pool.
   public NettyRemoteBlockReader() {
     mHandler = new ClientHandler();
-    mClientBootstrap = createClientBootstrap();
+    mClientBootstrap = createClientBootstrap(mHandler);
   }
 
   @Override
@@ -92,7 +101,7 @@ public final class NettyRemoteBlockReader implements RemoteBlockReader {
       mHandler.addListener(listener);
       channel.writeAndFlush(new RPCBlockRequest(blockId, offset, length));
 
-      RPCResponse response = listener.get(TIMEOUT_SECOND, TimeUnit.SECONDS);
+      RPCResponse response = listener.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
       channel.close().sync();
 
       if (response.getType() == RPCMessage.Type.RPC_BLOCK_RESPONSE) {
@@ -114,7 +123,59 @@ public final class NettyRemoteBlockReader implements RemoteBlockReader {
     return null;
   }
 
-  private Bootstrap createClientBootstrap() {
+  /**
+   * Reads a range of a block from a remote data server without blocking the calling thread. The
+   * connection, the request and the response are all handled by the shared Netty event loop, so a
+   * single thread may keep many reads in flight.
+   *
+   * @param address the address of the data server
+   * @param blockId the id of the block to read
+   * @param offset the offset in the block to start reading at
+   * @param length the number of bytes to read
+   * @return the future data read, which is null if the block is not in the remote worker
+   */
+  public static ListenableFuture<ByteBuffer> readRemoteBlockAsync(final InetSocketAddress address,
+      final long blockId, long offset, long length) {
+    final SettableFuture<ByteBuffer> result = SettableFuture.create();
+    final RPCBlockRequest request = new RPCBlockRequest(blockId, offset, length);
+    Bootstrap boot = createClientBootstrap(new AsyncResponseHandler(blockId, result));
+    boot.connect(address).addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) {
+        if (!future.isSuccess()) {
+          result.setException(new IOException("Failed to connect to " + address, future.cause()));
+          return;
+        }
+        final Channel channel = future.channel();
+        final ScheduledFuture<?> timeout = channel.eventLoop().schedule(new Runnable() {
+          @Override
+          public void run() {
+            result.setException(new IOException("Timed out reading block " + blockId + " from "
+                + address + " after " + TIMEOUT_MS + " ms"));
+          }
+        }, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        result.addListener(new Runnable() {
+          @Override
+          public void run() {
+            timeout.cancel(false);
+            channel.close();
+          }
+        }, MoreExecutors.sameThreadExecutor());
+        channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
+          @Override
+          public void operationComplete(ChannelFuture future) {
+            if (!future.isSuccess()) {
+              result.setException(new IOException("Failed to send the request for block "
+                  + blockId + " to " + address, future.cause()));
+            }
+          }
+        });
+      }
+    });
+    return result;
+  }
+
+  private static Bootstrap createClientBootstrap(final ChannelHandler handler) {
     final Bootstrap boot = new Bootstrap();
 
     boot.group(WORKER_GROUP).channel(CLIENT_CHANNEL_CLASS);
@@ -130,10 +191,55 @@ public final class NettyRemoteBlockReader implements RemoteBlockReader {
         pipeline.addLast(RPCMessage.createFrameDecoder());
         pipeline.addLast(ENCODER);
         pipeline.addLast(DECODER);
-        pipeline.addLast(mHandler);
+        pipeline.addLast(handler);
       }
     });
 
     return boot;
   }
+
+  /**
+   * Completes the future of one asynchronous read with the response received on its channel.
+   */
+  private static final class AsyncResponseHandler
+      extends SimpleChannelInboundHandler<RPCMessage> {
+    private final long mBlockId;
+    private final SettableFuture<ByteBuffer> mResult;
+
+    AsyncResponseHandler(long blockId, SettableFuture<ByteBuffer> result) {
+      mBlockId = blockId;
+      mResult = result;
+    }
+
+    @Override
+    public void channelRead0(ChannelHandlerContext ctx, RPCMessage msg) {
+      if (msg.getType() != RPCMessage.Type.RPC_BLOCK_RESPONSE) {
+        mResult.setException(new IOException("Unexpected response message type: "
+            + msg.getType() + " (expected: " + RPCMessage.Type.RPC_BLOCK_RESPONSE + ")"));
+        return;
+      }
+      RPCBlockResponse blockResponse = (RPCBlockResponse) msg;
+      if (blockResponse.getBlockId() < 0) {
+        LOG.info("Data " + mBlockId + " is not in remote machine.");
+        mResult.set(null);
+      } else if (blockResponse.getPayloadDataBuffer() == null) {
+        mResult.set(ByteBuffer.allocate(0));
+      } else {
+        mResult.set(blockResponse.getPayloadDataBuffer().getReadOnlyByteBuffer());
+      }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      mResult.setException(new IOException("Connection closed before block " + mBlockId
+          + " was received"));
+      super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+      mResult.setException(cause);
+      ctx.close();
+    }
+  }
 }
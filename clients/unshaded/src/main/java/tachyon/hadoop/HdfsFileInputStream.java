@@ -15,9 +15,11 @@
 
 package tachyon.hadoop;
 
+import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import com.google.common.primitives.Ints;
 import org.apache.hadoop.conf.Configuration;
@@ -47,15 +49,20 @@ public class HdfsFileInputStream extends InputStream implements Seekable, Positi
   private int mHadoopBufferSize;
   private TachyonFile mTachyonFile;
 
-  private FSDataInputStream mHdfsInputStream = null;
+  /** Created on the first read from HDFS, positional reads may create it concurrently. */
+  private volatile FSDataInputStream mHdfsInputStream = null;
 
-  private InStream mTachyonFileInputStream = null;
+  private volatile InStream mTachyonFileInputStream = null;
 
-  private boolean mClosed = false;
+  private volatile boolean mClosed = false;
 
   private int mBufferLimit = 0;
   private int mBufferPosition = 0;
-  private byte[] mBuffer;
+  /**
+   * The buffer of the reads from HDFS, taken from the buffer pool of the client when the stream
+   * falls back to HDFS, and given back when it is closed.
+   */
+  private ByteBuffer mBuffer = null;
 
   private final TachyonConf mTachyonConf;
 
@@ -64,8 +71,6 @@ public class HdfsFileInputStream extends InputStream implements Seekable, Positi
     LOG.debug("PartitionInputStreamHdfs({}, {}, {}, {}, {})", tfs, fileId, hdfsPath, conf,
         bufferSize);
     mTachyonConf = tachyonConf;
-    long bufferBytes = mTachyonConf.getBytes(Constants.USER_FILE_BUFFER_BYTES, 0);
-    mBuffer = new byte[Ints.checkedCast(bufferBytes) * 4];
     mCurrentPosition = 0;
     mTFS = tfs;
     mFileId = fileId;
@@ -101,23 +106,28 @@ public class HdfsFileInputStream extends InputStream implements Seekable, Positi
     if (mHdfsInputStream != null) {
       mHdfsInputStream.close();
     }
+    if (mBuffer != null) {
+      mTFS.getBufferPool().release(mBuffer);
+      mBuffer = null;
+    }
     mClosed = true;
   }
 
-  private void getHdfsInputStream() throws IOException {
+  private synchronized FSDataInputStream getHdfsInputStream() throws IOException {
     if (mHdfsInputStream == null) {
       FileSystem fs = mHdfsPath.getFileSystem(mHadoopConf);
-      mHdfsInputStream = fs.open(mHdfsPath, mHadoopBufferSize);
-      mHdfsInputStream.seek(mCurrentPosition);
+      FSDataInputStream in = fs.open(mHdfsPath, mHadoopBufferSize);
+      in.seek(mCurrentPosition);
+      mHdfsInputStream = in;
     }
+    return mHdfsInputStream;
   }
 
   private void getHdfsInputStream(long position) throws IOException {
-    if (mHdfsInputStream == null) {
-      FileSystem fs = mHdfsPath.getFileSystem(mHadoopConf);
-      mHdfsInputStream = fs.open(mHdfsPath, mHadoopBufferSize);
-    }
-    mHdfsInputStream.seek(position);
+    getHdfsInputStream().seek(position);
+    // The buffered bytes were read at the previous position.
+    mBufferPosition = 0;
+    mBufferLimit = 0;
   }
 
   /**
@@ -142,15 +152,21 @@ public class HdfsFileInputStream extends InputStream implements Seekable, Positi
       } catch (IOException e) {
         LOG.error(e.getMessage(), e);
         mTachyonFileInputStream = null;
+        // A positional read may have opened the HDFS stream elsewhere.
+        getHdfsInputStream(mCurrentPosition);
       }
     }
     getHdfsInputStream();
-    return readFromHdfsBuffer();
+    int ret = readFromHdfsBuffer();
+    if (ret != -1) {
+      mCurrentPosition ++;
+    }
+    return ret;
   }
 
   @Override
   public int read(byte[] b) throws IOException {
-    throw new IOException("Not supported");
+    return read(b, 0, b.length);
   }
 
   @Override
@@ -162,96 +178,104 @@ public class HdfsFileInputStream extends InputStream implements Seekable, Positi
       int ret = 0;
       try {
         ret = mTachyonFileInputStream.read(b, off, len);
-        mCurrentPosition += ret;
+        if (ret > 0) {
+          mCurrentPosition += ret;
+        }
         return ret;
       } catch (IOException e) {
         LOG.error(e.getMessage(), e);
         mTachyonFileInputStream = null;
+        // A positional read may have opened the HDFS stream elsewhere.
+        getHdfsInputStream(mCurrentPosition);
       }
     }
 
     getHdfsInputStream();
-    b[off] = (byte) readFromHdfsBuffer();
-    if (b[off] == -1) {
-      return -1;
+    int ret;
+    if (mBufferPosition < mBufferLimit) {
+      // Hand out the bytes buffered by read() first.
+      ret = Math.min(len, mBufferLimit - mBufferPosition);
+      System.arraycopy(mBuffer.array(), mBufferPosition, b, off, ret);
+      mBufferPosition += ret;
+    } else {
+      ret = mHdfsInputStream.read(b, off, len);
     }
-    return 1;
+    if (ret > 0) {
+      mCurrentPosition += ret;
+    }
+    return ret;
   }
 
   /**
    * Read up to the specified number of bytes, from a given position within a file, and return the
-   * number of bytes read. This does not change the current offset of a file, and is thread-safe.
+   * number of bytes read. This does not change the current offset of a file, and is thread-safe:
+   * the data is read directly from the block holding the position, or from HDFS with its own
+   * positional read, so concurrent positional reads neither wait for each other nor disturb the
+   * sequential reads of the stream. A read does not cross a block boundary.
    */
   @Override
-  public synchronized int read(long position, byte[] buffer, int offset, int length)
-      throws IOException {
+  public int read(long position, byte[] buffer, int offset, int length) throws IOException {
     if (mClosed) {
       throw new IOException("Cannot read from a closed stream.");
     }
-    int ret = -1;
-    long oldPos = getPos();
-    if ((position < 0) || (position >= mTachyonFile.length())) {
-      return ret;
+    if (position < 0) {
+      return -1;
     }
 
     if (mTachyonFileInputStream != null) {
       try {
-        mTachyonFileInputStream.seek(position);
-        ret = mTachyonFileInputStream.read(buffer, offset, length);
-        return ret;
-      } finally {
-        mTachyonFileInputStream.seek(oldPos);
+        return mTachyonFile.read(position, buffer, offset, length);
+      } catch (IOException e) {
+        LOG.error(e.getMessage(), e);
       }
     }
 
-    try {
-      getHdfsInputStream(position);
-      ret = mHdfsInputStream.read(buffer, offset, length);
-      return ret;
-    } finally {
-      if (mHdfsInputStream != null) {
-        mHdfsInputStream.seek(oldPos);
-      }
-    }
+    return getHdfsInputStream().read(position, buffer, offset, length);
   }
 
   private int readFromHdfsBuffer() throws IOException {
     if (mBufferPosition < mBufferLimit) {
-      return mBuffer[mBufferPosition ++];
+      return mBuffer.get(mBufferPosition ++) & 0xFF;
     }
     LOG.error("Reading from HDFS directly");
-    while ((mBufferLimit = mHdfsInputStream.read(mBuffer)) == 0) {
+    if (mBuffer == null) {
+      long bufferBytes = mTachyonConf.getBytes(Constants.USER_FILE_BUFFER_BYTES, 0);
+      mBuffer = mTFS.getBufferPool().acquireHeap(Ints.checkedCast(bufferBytes) * 4);
+    }
+    while ((mBufferLimit = mHdfsInputStream.read(mBuffer.array())) == 0) {
       LOG.error("Read 0 bytes in readFromHdfsBuffer for " + mHdfsPath);
     }
     if (mBufferLimit == -1) {
       return -1;
     }
     mBufferPosition = 0;
-    return mBuffer[mBufferPosition ++];
+    return mBuffer.get(mBufferPosition ++) & 0xFF;
   }
 
   /**
    * Read a number of bytes equal to the length of the buffer, from a given position within a file.
    * This does not change the current offset of a file, and is thread-safe.
-   * <p>
-   * This method is not supported in HdfsFileInputStream and an IOException will be thrown.
-   * </p>
    */
   @Override
   public void readFully(long position, byte[] buffer) throws IOException {
-    throw new IOException("Not supported");
+    readFully(position, buffer, 0, buffer.length);
   }
 
   /**
    * Read the specified number of bytes, from a given position within a file. This does not change
    * the current offset of a file, and is thread-safe.
-   * <p>
-   * This method is not supported in HdfsFileInputStream and an IOException will be thrown.
-   * </p>
    */
   @Override
   public void readFully(long position, byte[] buffer, int offset, int length) throws IOException {
-    throw new IOException("Not supported");
+    int read = 0;
+    while (read < length) {
+      int ret = read(position + read, buffer, offset + read, length - read);
+      if (ret < 0) {
+        throw new EOFException("End of file reached before reading " + length + " bytes at "
+            + position + " of " + mHdfsPath);
+      }
+      read += ret;
+    }
   }
 
   /**
@@ -58,9 +58,15 @@ public class Constants {
   public static final int DEFAULT_WORKER_MAX_WORKER_THREADS = 2048;
 
   public static final int DEFAULT_USER_FAILED_SPACE_REQUEST_LIMITS = 3;
+  public static final int DEFAULT_USER_MASTER_CLIENT_POOL_SIZE = 16;
+  public static final int DEFAULT_USER_WORKER_CLIENT_POOL_SIZE = 16;
 
   public static final boolean DEFAULT_USER_ENABLE_LOCAL_READ = true;
+  public static final long DEFAULT_USER_LOCAL_READ_LEASE_MS = 1000;
+  public static final int DEFAULT_USER_LOCAL_READ_LEASE_MAX = 16;
   public static final boolean DEFAULT_USER_ENABLE_LOCAL_WRITE = true;
+  public static final long DEFAULT_USER_BUFFER_POOL_MAX_BYTES = 64 * MB;
+  public static final long DEFAULT_USER_QUOTA_UNIT_MAX_BYTES = 256 * MB;
 
   public static final int DEFAULT_BLOCK_SIZE_BYTE = 512 * MB;
 
@@ -101,6 +107,7 @@ public class Constants {
   public static final String UNDERFS_WORKERS_FOLDER = "tachyon.workers.folder";
   public static final String UNDERFS_HDFS_IMPL = "tachyon.underfs.hdfs.impl";
   public static final String UNDERFS_HADOOP_CONFIGURATION = "tachyon.underfs.hadoop.configuration";
+  public static final String UNDERFS_CACHE_ENABLED = "tachyon.underfs.cache.enabled";
   public static final String ASYNC_ENABLED = "tachyon.async.enabled";
   public static final String MAX_COLUMNS = "tachyon.max.columns";
   public static final String IN_TEST_MODE = "tachyon.test.mode";
@@ -110,6 +117,10 @@ public class Constants {
   public static final String UNDERFS_GLUSTERFS_MOUNTS = "tachyon.underfs.glusterfs.mounts";
   public static final String UNDERFS_GLUSTERFS_MR_DIR =
       "tachyon.underfs.glusterfs.mapred.system.dir";
+  public static final String UNDERFS_S3_UPLOAD_PART_BYTES = "tachyon.underfs.s3.upload.part.bytes";
+  public static final String UNDERFS_S3_UPLOAD_THREADS = "tachyon.underfs.s3.upload.threads";
+  public static final String UNDERFS_S3_READ_CHUNK_BYTES = "tachyon.underfs.s3.read.chunk.bytes";
+  public static final String UNDERFS_S3_READ_THREADS = "tachyon.underfs.s3.read.threads";
   public static final String USE_ZOOKEEPER = "tachyon.usezookeeper";
   public static final String ZOOKEEPER_ADDRESS = "tachyon.zookeeper.address";
   public static final String ZOOKEEPER_ELECTION_PATH = "tachyon.zookeeper.election.path";
@@ -136,6 +147,12 @@ public class Constants {
   public static final String MASTER_KEYTAB_KEY = "tachyon.master.keytab.file";
   public static final String MASTER_PRINCIPAL_KEY = "tachyon.master.principal";
   public static final String MASTER_RETRY_COUNT = "tachyon.master.retry";
+  public static final String MASTER_UFS_DELETE_THREADS = "tachyon.master.ufs.delete.threads";
+  public static final String MASTER_LAZY_LOAD_ENABLED = "tachyon.master.lazy.load.enabled";
+  public static final String MASTER_LAZY_LOAD_UFS_ROOT = "tachyon.master.lazy.load.ufs.root";
+  public static final String MASTER_LAZY_LOAD_TTL_MS = "tachyon.master.lazy.load.ttl.ms";
+  public static final String MASTER_LAZY_LOAD_TIMEOUT_MS = "tachyon.master.lazy.load.timeout.ms";
+  public static final String MASTER_LAZY_LOAD_THREADS = "tachyon.master.lazy.load.threads";
 
   public static final String WORKER_MEMORY_SIZE = "tachyon.worker.memory.size";
   public static final String WORKER_PORT = "tachyon.worker.port";
@@ -151,6 +168,10 @@ public class Constants {
   public static final String WORKER_CHECKPOINT_THREADS = "tachyon.worker.checkpoint.threads";
   public static final String WORKER_PER_THREAD_CHECKPOINT_CAP_MB_SEC =
       "tachyon.worker.per.thread.checkpoint.cap.mb.sec";
+  public static final String WORKER_UFS_READ_THROUGH_ENABLED =
+      "tachyon.worker.ufs.read.through.enabled";
+  public static final String WORKER_UFS_READ_THROUGH_THREADS =
+      "tachyon.worker.ufs.read.through.threads";
   public static final String WORKER_NETTY_BOSS_THREADS =
       "tachyon.worker.network.netty.boss.threads";
   public static final String WORKER_NETTY_WORKER_THREADS =
@@ -158,6 +179,14 @@ public class Constants {
   public static final String WORKER_NETWORK_NETTY_CHANNEL = "tachyon.worker.network.netty.channel";
   public static final String WORKER_NETTY_FILE_TRANSFER_TYPE =
       "tachyon.worker.network.netty.file.transfer";
+  public static final String WORKER_NIO_FILE_TRANSFER_TYPE =
+      "tachyon.worker.network.nio.file.transfer";
+  public static final String WORKER_NETTY_READ_BANDWIDTH =
+      "tachyon.worker.network.netty.read.bandwidth";
+  public static final String WORKER_NETTY_READ_CLIENT_BANDWIDTH =
+      "tachyon.worker.network.netty.read.client.bandwidth";
+  public static final String WORKER_NETTY_READ_THREADS =
+      "tachyon.worker.network.netty.read.threads";
   public static final String WORKER_NETTY_WATERMARK_HIGH =
       "tachyon.worker.network.netty.watermark.high";
   public static final String WORKER_NETTY_WATERMARK_LOW =
@@ -200,17 +229,53 @@ public class Constants {
   public static final String USER_FAILED_SPACE_REQUEST_LIMITS =
       "tachyon.user.failed.space.request.limits";
   public static final String USER_QUOTA_UNIT_BYTES = "tachyon.user.quota.unit.bytes";
+  public static final String USER_QUOTA_UNIT_MAX_BYTES = "tachyon.user.quota.unit.max.bytes";
   public static final String USER_FILE_BUFFER_BYTES = "tachyon.user.file.buffer.bytes";
+  public static final String USER_BUFFER_POOL_MAX_BYTES = "tachyon.user.buffer.pool.max.bytes";
+  public static final String USER_BUFFER_POOL_DIRECT = "tachyon.user.buffer.pool.direct";
+  public static final String USER_FILE_WRITE_PIPELINED = "tachyon.user.file.write.pipelined";
+  public static final String USER_METADATA_CACHE_MAX_SIZE = "tachyon.user.metadata.cache.max.size";
+  public static final String USER_METADATA_CACHE_EXPIRY_MS =
+      "tachyon.user.metadata.cache.expiry.ms";
   public static final String USER_HEARTBEAT_INTERVAL_MS = "tachyon.user.heartbeat.interval.ms";
+  public static final String USER_MASTER_CLIENT_POOL_SIZE =
+      "tachyon.user.master.client.pool.size";
+  public static final String USER_WORKER_CLIENT_POOL_SIZE =
+      "tachyon.user.worker.client.pool.size";
   public static final String USER_DEFAULT_BLOCK_SIZE_BYTE = "tachyon.user.default.block.size.byte";
   public static final String USER_NETTY_WORKER_THREADS =
       "tachyon.user.network.netty.worker.threads";
   public static final String USER_NETTY_CHANNEL = "tachyon.user.network.netty.channel";
   public static final String USER_REMOTE_READ_BUFFER_SIZE_BYTE =
       "tachyon.user.remote.read.buffer.size.byte";
+  public static final String USER_REMOTE_READ_HEDGE_DELAY_MS =
+      "tachyon.user.remote.read.hedge.delay.ms";
+  public static final String USER_REMOTE_READ_SPLIT_MIN_BYTE =
+      "tachyon.user.remote.read.split.min.byte";
+  public static final String USER_REMOTE_READ_CACHE_MAX_BYTES =
+      "tachyon.user.remote.read.cache.max.bytes";
+  public static final String USER_REMOTE_READ_CACHE_DIRECT =
+      "tachyon.user.remote.read.cache.direct";
+  public static final String USER_READ_ADAPTIVE = "tachyon.user.read.adaptive";
+  public static final String USER_READ_ADAPTIVE_RECACHE_MIN_ACCESSES =
+      "tachyon.user.read.adaptive.recache.min.accesses";
+  public static final String USER_NETTY_TIMEOUT_MS = "tachyon.user.network.netty.timeout.ms";
+  public static final String USER_VECTORED_READ_MERGE_GAP_BYTE =
+      "tachyon.user.vectored.read.merge.gap.byte";
+  public static final String USER_VECTORED_READ_THREADS = "tachyon.user.vectored.read.threads";
+  public static final String USER_UFS_POSITIONED_READ_MIN_BYTE =
+      "tachyon.user.ufs.positioned.read.min.byte";
+  public static final String USER_UFS_LOAD_THREADS = "tachyon.user.ufs.load.threads";
+  public static final String USER_LOAD_THREADS = "tachyon.user.load.threads";
+  public static final String USER_LOAD_BANDWIDTH_BYTES = "tachyon.user.load.bandwidth.bytes";
+  public static final String USER_UFS_READ_THROUGH = "tachyon.user.ufs.read.through";
+  public static final String USER_UFS_READ_THROUGH_TIMEOUT_MS =
+      "tachyon.user.ufs.read.through.timeout.ms";
   public static final String USER_DEFAULT_WRITE_TYPE = "tachyon.user.file.writetype.default";
   public static final String USER_REMOTE_BLOCK_READER = "tachyon.user.remote.block.reader.class";
   public static final String USER_ENABLE_LOCAL_READ = "tachyon.user.localread.enable";
+  public static final String USER_LOCAL_READ_LEASE_MS = "tachyon.user.local.read.lease.ms";
+  public static final String USER_LOCAL_READ_LEASE_MAX = "tachyon.user.local.read.lease.max";
   public static final String USER_ENABLE_LOCAL_WRITE = "tachyon.user.localwrite.enable";
 
   public static final String S3_ACCESS_KEY = "fs.s3n.awsAccessKeyId";
@@ -222,7 +287,7 @@ public class Constants {
   public static final boolean DEBUG = Boolean.valueOf(System.getProperty(TACHYON_DEBUG, "false"));
 
   public static final long CLIENT_METRICS_VERSION = 1L;
-  public static final int CLIENT_METRICS_SIZE = 9;
+  public static final int CLIENT_METRICS_SIZE = 16;
   public static final int CLIENT_METRICS_VERSION_INDEX = 0;
   public static final int BLOCKS_READ_LOCAL_INDEX = 1;
   public static final int BLOCKS_READ_REMOTE_INDEX = 2;
@@ -232,5 +297,12 @@ public class Constants {
   public static final int BYTES_READ_UFS_INDEX = 6;
   public static final int BYTES_WRITTEN_LOCAL_INDEX = 7;
   public static final int BYTES_WRITTEN_UFS_INDEX = 8;
+  public static final int METADATA_CACHE_HITS_INDEX = 9;
+  public static final int METADATA_CACHE_MISSES_INDEX = 10;
+  public static final int REMOTE_READ_CACHE_HITS_INDEX = 11;
+  public static final int REMOTE_READ_CACHE_MISSES_INDEX = 12;
+  public static final int REMOTE_READ_CACHE_BYTES_SAVED_INDEX = 13;
+  public static final int ADAPTIVE_READS_UFS_INDEX = 14;
+  public static final int ADAPTIVE_RECACHES_SKIPPED_INDEX = 15;
 
 }
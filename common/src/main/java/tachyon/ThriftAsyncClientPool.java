@@ -0,0 +1,288 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClient;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingSocket;
+import org.apache.thrift.transport.TNonblockingTransport;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * A bounded pool of asynchronous Thrift clients to one server, driven by a
+ * {@link TAsyncClientManager}. Calls never block the caller: each call is queued, and started on
+ * an idle client as soon as one is available, and its future completes from the selector thread of
+ * the manager. A Thrift async client runs one call at a time, so at most <code>maxSize</code> calls
+ * are on the wire, while any number of calls may be outstanding.
+ *
+ * Listeners of the returned futures run on the selector thread unless they are given their own
+ * executor, so they should not block.
+ *
+ * @param <C> the type of the Thrift async clients
+ */
+public abstract class ThriftAsyncClientPool<C extends TAsyncClient> implements Closeable {
+  /**
+   * One asynchronous call.
+   *
+   * @param <C> the type of the Thrift async clients
+   * @param <M> the type of the Thrift method call, e.g. getFileStatus_call
+   * @param <R> the type of the result
+   */
+  public abstract static class Call<C, M, R> {
+    /**
+     * Starts the call on the given client.
+     *
+     * @param client the client to run the call on
+     * @param callback the callback to pass to the client
+     * @throws TException if the call could not be started
+     */
+    protected abstract void start(C client, AsyncMethodCallback<M> callback) throws TException;
+
+    /**
+     * Extracts the result of a completed call.
+     *
+     * @param response the completed method call
+     * @return the result of the call
+     * @throws Exception the exception thrown by the server, if any
+     */
+    protected abstract R getResult(M response) throws Exception;
+
+    /**
+     * Called once the call has succeeded or failed, before its future is completed, e.g. to
+     * invalidate the state the call changed. Does nothing by default.
+     */
+    protected void completed() {}
+  }
+
+  private static final TProtocolFactory PROTOCOL_FACTORY = new TBinaryProtocol.Factory();
+
+  private final TAsyncClientManager mManager;
+  private final int mMaxSize;
+  private final Queue<C> mIdleClients = new ArrayDeque<C>();
+  private final Queue<PendingCall<?, ?>> mPendingCalls = new ArrayDeque<PendingCall<?, ?>>();
+  private final Set<PendingCall<?, ?>> mRunningCalls = new HashSet<PendingCall<?, ?>>();
+  private final Map<C, TNonblockingTransport> mTransports =
+      new IdentityHashMap<C, TNonblockingTransport>();
+  private int mNumClients = 0;
+  private boolean mClosed = false;
+
+  /**
+   * @param manager the manager running the calls, shared with other pools and closed by the owner
+   * @param maxSize the maximum number of clients, i.e. of calls on the wire at the same time
+   */
+  public ThriftAsyncClientPool(TAsyncClientManager manager, int maxSize) {
+    Preconditions.checkArgument(maxSize > 0, "The pool size must be positive: " + maxSize);
+    mManager = manager;
+    mMaxSize = maxSize;
+  }
+
+  /**
+   * Gets the address to open new clients to. It may be called on the selector thread, when a call
+   * completes and a pending call needs a new client, so it must not block.
+   *
+   * @return the address of the server to open new clients to
+   * @throws IOException if the address could not be determined
+   */
+  protected abstract InetSocketAddress getAddress() throws IOException;
+
+  /**
+   * Creates a client over the given transport.
+   *
+   * @param protocolFactory the protocol factory to use
+   * @param manager the manager to use
+   * @param transport the transport, connecting to {@link #getAddress()}
+   * @return the new client
+   */
+  protected abstract C createClient(TProtocolFactory protocolFactory, TAsyncClientManager manager,
+      TNonblockingTransport transport);
+
+  /**
+   * Submits a call. Failures of the call, including the exceptions declared by the Thrift method,
+   * are reported through the future as IOExceptions.
+   *
+   * @param call the call to run
+   * @return the future result of the call
+   */
+  public <M, R> ListenableFuture<R> submit(Call<C, M, R> call) {
+    SettableFuture<R> future = SettableFuture.create();
+    synchronized (this) {
+      if (mClosed) {
+        future.setException(new IOException("The client pool is closed"));
+        return future;
+      }
+      mPendingCalls.add(new PendingCall<M, R>(call, future));
+    }
+    dispatch();
+    return future;
+  }
+
+  /**
+   * Starts pending calls as long as there are idle clients or new ones may be opened.
+   */
+  private void dispatch() {
+    while (true) {
+      C client;
+      PendingCall<?, ?> call;
+      synchronized (this) {
+        if (mClosed || mPendingCalls.isEmpty()) {
+          return;
+        }
+        client = mIdleClients.poll();
+        if (client == null) {
+          if (mNumClients >= mMaxSize) {
+            return;
+          }
+          // Reserve a slot, the client is opened outside of the lock.
+          mNumClients ++;
+        }
+        call = mPendingCalls.poll();
+        mRunningCalls.add(call);
+      }
+      if (client == null) {
+        try {
+          client = openClient();
+        } catch (IOException e) {
+          synchronized (this) {
+            mNumClients --;
+            mRunningCalls.remove(call);
+          }
+          call.fail(e);
+          continue;
+        }
+      }
+      call.start(client);
+    }
+  }
+
+  private C openClient() throws IOException {
+    InetSocketAddress address = getAddress();
+    TNonblockingTransport transport =
+        new TNonblockingSocket(address.getHostName(), address.getPort());
+    C client = createClient(PROTOCOL_FACTORY, mManager, transport);
+    synchronized (this) {
+      mTransports.put(client, transport);
+    }
+    return client;
+  }
+
+  private void done(PendingCall<?, ?> call, C client, boolean healthy) {
+    synchronized (this) {
+      mRunningCalls.remove(call);
+      if (healthy && !mClosed) {
+        mIdleClients.add(client);
+      } else {
+        TNonblockingTransport transport = mTransports.remove(client);
+        if (transport != null) {
+          transport.close();
+          mNumClients --;
+        }
+      }
+    }
+    dispatch();
+  }
+
+  /**
+   * Closes the pool. Pending and running calls fail with an IOException. The manager is not
+   * stopped.
+   */
+  @Override
+  public void close() {
+    List<PendingCall<?, ?>> calls = new ArrayList<PendingCall<?, ?>>();
+    synchronized (this) {
+      mClosed = true;
+      calls.addAll(mPendingCalls);
+      calls.addAll(mRunningCalls);
+      mPendingCalls.clear();
+      mRunningCalls.clear();
+      mIdleClients.clear();
+      for (TNonblockingTransport transport : mTransports.values()) {
+        transport.close();
+      }
+      mTransports.clear();
+      mNumClients = 0;
+    }
+    for (PendingCall<?, ?> call : calls) {
+      call.fail(new IOException("The client pool is closed"));
+    }
+  }
+
+  /**
+   * A submitted call and its future.
+   */
+  private final class PendingCall<M, R> {
+    private final Call<C, M, R> mCall;
+    private final SettableFuture<R> mFuture;
+
+    PendingCall(Call<C, M, R> call, SettableFuture<R> future) {
+      mCall = call;
+      mFuture = future;
+    }
+
+    void start(final C client) {
+      try {
+        mCall.start(client, new AsyncMethodCallback<M>() {
+          @Override
+          public void onComplete(M response) {
+            try {
+              R result = mCall.getResult(response);
+              mCall.completed();
+              mFuture.set(result);
+            } catch (Exception e) {
+              fail(e);
+            }
+            done(PendingCall.this, client, true);
+          }
+
+          @Override
+          public void onError(Exception e) {
+            fail(e);
+            done(PendingCall.this, client, false);
+          }
+        });
+      } catch (TException e) {
+        fail(e);
+        done(this, client, false);
+      }
+    }
+
+    void fail(Exception e) {
+      try {
+        mCall.completed();
+      } finally {
+        mFuture.setException(e instanceof IOException ? e : new IOException(e));
+      }
+    }
+  }
+}
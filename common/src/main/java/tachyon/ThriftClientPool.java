@@ -0,0 +1,150 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+import org.apache.thrift.TServiceClient;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded pool of Thrift clients to one server. Thrift clients are not thread safe, so every
+ * caller acquires a client for the duration of one call and releases it afterwards. Idle clients
+ * are reused, new ones are opened on demand, and callers block while <code>maxSize</code> clients
+ * are in use.
+ *
+ * A client whose transport is closed, for example by {@link #invalidate(TServiceClient)} after a
+ * failed call, is dropped when it is released.
+ *
+ * @param <C> the type of the Thrift clients
+ */
+public abstract class ThriftClientPool<C extends TServiceClient> implements Closeable {
+  private final Semaphore mPermits;
+  private final Queue<C> mIdleClients = new ConcurrentLinkedQueue<C>();
+  private volatile boolean mClosed = false;
+
+  /**
+   * @param maxSize the maximum number of clients in use at the same time
+   */
+  public ThriftClientPool(int maxSize) {
+    Preconditions.checkArgument(maxSize > 0, "The pool size must be positive: " + maxSize);
+    mPermits = new Semaphore(maxSize);
+  }
+
+  /**
+   * Opens a new client. Called without any lock held, possibly by several threads at once.
+   *
+   * @return a client with an open transport
+   * @throws TTransportException if the connection could not be opened
+   */
+  protected abstract C createClient() throws TTransportException;
+
+  /**
+   * Acquires a client, blocking while all clients are in use. The client must be handed back with
+   * {@link #release(TServiceClient)}.
+   *
+   * @return an idle client, or a newly opened one if there is no idle client
+   * @throws TTransportException if a new client is needed and could not be opened
+   * @throws IOException if the pool is closed or the thread was interrupted while waiting
+   */
+  public C acquire() throws IOException, TTransportException {
+    try {
+      mPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a client");
+    }
+    if (mClosed) {
+      mPermits.release();
+      throw new IOException("The client pool is closed");
+    }
+    C client;
+    while ((client = mIdleClients.poll()) != null) {
+      if (getTransport(client).isOpen()) {
+        return client;
+      }
+    }
+    try {
+      return createClient();
+    } catch (TTransportException e) {
+      mPermits.release();
+      throw e;
+    } catch (RuntimeException e) {
+      mPermits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Hands a client acquired with {@link #acquire()} back to the pool. The client is kept for reuse
+   * unless its transport was closed or the pool was closed meanwhile.
+   *
+   * @param client the client to release
+   */
+  public void release(C client) {
+    if (!mClosed && getTransport(client).isOpen()) {
+      mIdleClients.offer(client);
+      if (mClosed) {
+        // close() may have drained the idle clients before the offer above.
+        clear();
+      }
+    } else {
+      getTransport(client).close();
+    }
+    mPermits.release();
+  }
+
+  /**
+   * Closes the transport of a client after a failed call, so that it is dropped instead of reused
+   * when it is released.
+   *
+   * @param client the client to invalidate
+   */
+  public void invalidate(C client) {
+    getTransport(client).close();
+  }
+
+  /**
+   * Closes all the idle clients. Clients in use are not affected.
+   */
+  public void clear() {
+    C client;
+    while ((client = mIdleClients.poll()) != null) {
+      getTransport(client).close();
+    }
+  }
+
+  /**
+   * Closes the pool and all its idle clients. Clients in use are closed when they are released.
+   */
+  @Override
+  public void close() {
+    mClosed = true;
+    clear();
+  }
+
+  private TTransport getTransport(C client) {
+    return client.getInputProtocol().getTransport();
+  }
+}
@@ -43,6 +43,7 @@ import tachyon.HeartbeatExecutor;
 import tachyon.HeartbeatThread;
 import tachyon.LeaderInquireClient;
 import tachyon.TachyonURI;
+import tachyon.ThriftClientPool;
 import tachyon.Version;
 import tachyon.conf.TachyonConf;
 import tachyon.retry.ExponentialBackoffRetry;
@@ -71,8 +72,10 @@ import tachyon.util.NetworkUtils;
 /**
  * The client side of master server.
  *
- * Since MasterService.Client is not thread safe, this class is a wrapper of MasterService.Client to
- * provide thread safety.
+ * Since MasterService.Client is not thread safe, this class keeps a pool of MasterService.Client
+ * connections, sized by <code>tachyon.user.master.client.pool.size</code>, and every call borrows
+ * one for its duration, so concurrent calls do not serialize on a single connection. All the
+ * connections share the user id and the heartbeat of this client.
  */
 // TODO When TException happens, the caller can't really do anything about it.
 // when the other exceptions are thrown as a IOException, the caller can't do anything about it
@@ -81,9 +84,9 @@ public final class MasterClient implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
 
   private final boolean mUseZookeeper;
-  private MasterService.Client mClient = null;
-  private InetSocketAddress mMasterAddress = null;
-  private TProtocol mProtocol = null;
+  /** The connections to the master, shared by all the threads calling this client. */
+  private final ThriftClientPool<MasterService.Client> mPool;
+  private volatile InetSocketAddress mMasterAddress = null;
   private volatile boolean mConnected;
   private volatile boolean mIsClosed;
   /** A unique Id generated by master to identify a client */
@@ -102,6 +105,45 @@ public final class MasterClient implements Closeable {
     mConnected = false;
     mIsClosed = false;
     mExecutorService = executorService;
+    mPool = new ThriftClientPool<MasterService.Client>(mTachyonConf.getInt(
+        Constants.USER_MASTER_CLIENT_POOL_SIZE, Constants.DEFAULT_USER_MASTER_CLIENT_POOL_SIZE)) {
+      @Override
+      protected MasterService.Client createClient() throws TTransportException {
+        InetSocketAddress address = mMasterAddress;
+        TProtocol protocol = new TBinaryProtocol(new TFramedTransport(new TSocket(
+            NetworkUtils.getFqdnHost(address), address.getPort())));
+        protocol.getTransport().open();
+        return new MasterService.Client(protocol);
+      }
+    };
+  }
+
+  /**
+   * Connects to the master if needed, and acquires one of the pooled connections. The connection
+   * must be released to the pool once the call is done.
+   *
+   * @return a connection to the master
+   * @throws IOException if the client is closed or the master can not be reached
+   */
+  private MasterService.Client acquireClient() throws IOException {
+    while (true) {
+      connect();
+      try {
+        return mPool.acquire();
+      } catch (TTransportException e) {
+        LOG.error("Failed to open a connection with master @ " + mMasterAddress + " : "
+            + e.getMessage());
+        mConnected = false;
+      }
+    }
+  }
+
+  /**
+   * Drops a connection after a failed call, and reconnects with the master on the next call.
+   */
+  private void invalidate(MasterService.Client client) {
+    mPool.invalidate(client);
+    mConnected = false;
   }
 
   /**
@@ -116,13 +158,12 @@ public final class MasterClient implements Closeable {
    * @throws SuspectedFileSizeException
    * @throws BlockInfoException
    */
-  public synchronized boolean addCheckpoint(long workerId, int fileId, long length,
+  public boolean addCheckpoint(long workerId, int fileId, long length,
       String checkpointPath) throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.addCheckpoint(workerId, fileId, length, checkpointPath);
+        return client.addCheckpoint(workerId, fileId, length, checkpointPath);
       } catch (FileDoesNotExistException e) {
         throw new IOException(e);
       } catch (SuspectedFileSizeException e) {
@@ -131,7 +172,9 @@ public final class MasterClient implements Closeable {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return false;
@@ -147,9 +190,7 @@ public final class MasterClient implements Closeable {
       mConnected = false;
     }
     try {
-      if (mProtocol != null) {
-        mProtocol.getTransport().close();
-      }
+      mPool.clear();
     } finally {
       if (mHeartbeat != null) {
         mHeartbeat.cancel(true);
@@ -158,15 +199,23 @@ public final class MasterClient implements Closeable {
   }
 
   /**
-   * Connect with the Tachyon Master; an exception is thrown if this fails.
+   * Connect with the Tachyon Master; an exception is thrown if this fails. Only connecting takes
+   * the lock of this client, the calls to the master run concurrently on pooled connections.
    *
    * @throws IOException
    */
-  public synchronized void connect() throws IOException {
+  public void connect() throws IOException {
     if (mConnected) {
       return;
     }
+    synchronized (this) {
+      if (!mConnected) {
+        connectWithRetry();
+      }
+    }
+  }
 
+  private void connectWithRetry() throws IOException {
     disconnect();
 
     if (mIsClosed) {
@@ -182,39 +231,35 @@ public final class MasterClient implements Closeable {
       LOG.info("Tachyon client (version " + Version.VERSION + ") is trying to connect with master"
           + " @ " + mMasterAddress);
 
-      mProtocol =
-          new TBinaryProtocol(new TFramedTransport(new TSocket(
-              NetworkUtils.getFqdnHost(mMasterAddress), mMasterAddress.getPort())));
-      mClient = new MasterService.Client(mProtocol);
+      MasterService.Client client;
       try {
-        mProtocol.getTransport().open();
-
-        HeartbeatExecutor heartBeater = new MasterClientHeartbeatExecutor(this);
-
-        String threadName = "master-heartbeat-" + mMasterAddress;
-        int interval =
-            mTachyonConf.getInt(Constants.USER_HEARTBEAT_INTERVAL_MS, Constants.SECOND_MS);
-        mHeartbeat =
-            mExecutorService.submit(new HeartbeatThread(threadName, heartBeater, interval / 2));
+        client = mPool.acquire();
       } catch (TTransportException e) {
         lastException = e;
         LOG.error("Failed to connect (" + retry.getRetryCount() + ") with master @ "
             + mMasterAddress + " : " + e.getMessage());
-        if (mHeartbeat != null) {
-          mHeartbeat.cancel(true);
-        }
         continue;
       }
 
       try {
-        mUserId = mClient.user_getUserId();
+        mUserId = client.user_getUserId();
       } catch (TException e) {
         lastException = e;
         LOG.error(e.getMessage(), e);
+        mPool.invalidate(client);
         continue;
+      } finally {
+        mPool.release(client);
       }
       LOG.info("User registered with the master @ " + mMasterAddress + "; got UserId " + mUserId);
 
+      HeartbeatExecutor heartBeater = new MasterClientHeartbeatExecutor(this);
+      String threadName = "master-heartbeat-" + mMasterAddress;
+      int interval =
+          mTachyonConf.getInt(Constants.USER_HEARTBEAT_INTERVAL_MS, Constants.SECOND_MS);
+      mHeartbeat =
+          mExecutorService.submit(new HeartbeatThread(threadName, heartBeater, interval / 2));
+
       mConnected = true;
       return;
     } while (retry.attemptRetry() && !mIsClosed);
@@ -231,17 +276,18 @@ public final class MasterClient implements Closeable {
    * @return ClientDependencyInfo returned from master
    * @throws IOException
    */
-  public synchronized ClientDependencyInfo getClientDependencyInfo(int did) throws IOException {
+  public ClientDependencyInfo getClientDependencyInfo(int did) throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_getClientDependencyInfo(did);
+        return client.user_getClientDependencyInfo(did);
       } catch (DependencyDoesNotExistException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
@@ -256,7 +302,7 @@ public final class MasterClient implements Closeable {
    * @return ClientFileInfo returned from master
    * @throws IOException
    */
-  public synchronized ClientFileInfo getFileStatus(int fileId, String path) throws IOException {
+  public ClientFileInfo getFileStatus(int fileId, String path) throws IOException {
     if (path == null) {
       path = "";
     }
@@ -265,15 +311,16 @@ public final class MasterClient implements Closeable {
     }
 
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.getFileStatus(fileId, path);
+        return client.getFileStatus(fileId, path);
       } catch (InvalidPathException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
@@ -296,13 +343,24 @@ public final class MasterClient implements Closeable {
     }
   }
 
+  /**
+   * Get the address of the master this client is connected to, connecting first if needed.
+   *
+   * @return the address of the master
+   * @throws IOException if the client could not connect
+   */
+  public InetSocketAddress getAddress() throws IOException {
+    connect();
+    return mMasterAddress;
+  }
+
   /**
    * Get the id of this master client.
    *
    * @return the id of this client
    * @throws IOException
    */
-  public synchronized long getUserId() throws IOException {
+  public long getUserId() throws IOException {
     while (!mIsClosed) {
       connect();
       return mUserId;
@@ -317,15 +375,16 @@ public final class MasterClient implements Closeable {
    * @return A list of worker info returned by master
    * @throws IOException
    */
-  public synchronized List<ClientWorkerInfo> getWorkersInfo() throws IOException {
+  public List<ClientWorkerInfo> getWorkersInfo() throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.getWorkersInfo();
+        return client.getWorkersInfo();
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
@@ -337,14 +396,16 @@ public final class MasterClient implements Closeable {
    * @return capacity in bytes
    * @throws IOException
    */
-  public synchronized long getCapacityBytes() throws IOException {
+  public long getCapacityBytes() throws IOException {
     while (!mIsClosed) {
-      connect();
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_getCapacityBytes();
+        return client.user_getCapacityBytes();
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return -1;
@@ -356,41 +417,45 @@ public final class MasterClient implements Closeable {
    * @return amount of used space in bytes
    * @throws IOException
    */
-  public synchronized long getUsedBytes() throws IOException {
+  public long getUsedBytes() throws IOException {
     while (!mIsClosed) {
-      connect();
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_getUsedBytes();
+        return client.user_getUsedBytes();
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return -1;
   }
 
-  public synchronized boolean isConnected() {
+  public boolean isConnected() {
     return mConnected;
   }
 
-  public synchronized List<ClientFileInfo> listStatus(String path) throws IOException {
+  public List<ClientFileInfo> listStatus(String path) throws IOException {
     while (!mIsClosed) {
-      connect();
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.liststatus(path);
+        return client.liststatus(path);
       } catch (InvalidPathException e) {
         throw new IOException(e);
       } catch (FileDoesNotExistException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
   }
 
-  private synchronized void parameterCheck(int id, String path) throws IOException {
+  private void parameterCheck(int id, String path) throws IOException {
     if (path == null) {
       throw new NullPointerException("Paths may not be null; empty is the null state");
     }
@@ -407,32 +472,33 @@ public final class MasterClient implements Closeable {
   public synchronized void close() {
     disconnect();
     mIsClosed = true;
+    mPool.close();
   }
 
-  public synchronized void user_completeFile(int fId) throws IOException {
+  public void user_completeFile(int fId) throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        mClient.user_completeFile(fId);
+        client.user_completeFile(fId);
         return;
       } catch (FileDoesNotExistException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
   }
 
-  public synchronized int user_createDependency(List<String> parents, List<String> children,
+  public int user_createDependency(List<String> parents, List<String> children,
       String commandPrefix, List<ByteBuffer> data, String comment, String framework,
       String frameworkVersion, int dependencyType, long childrenBlockSizeByte) throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_createDependency(parents, children, commandPrefix, data, comment,
+        return client.user_createDependency(parents, children, commandPrefix, data, comment,
             framework, frameworkVersion, dependencyType, childrenBlockSizeByte);
       } catch (InvalidPathException e) {
         throw new IOException(e);
@@ -446,13 +512,15 @@ public final class MasterClient implements Closeable {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return -1;
   }
 
-  public synchronized int user_createFile(String path, String ufsPath, long blockSizeByte,
+  public int user_createFile(String path, String ufsPath, long blockSizeByte,
       boolean recursive) throws IOException {
     if (path == null || !path.startsWith(TachyonURI.SEPARATOR)) {
       throw new IOException("Illegal path parameter: " + path);
@@ -462,10 +530,9 @@ public final class MasterClient implements Closeable {
     }
 
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_createFile(path, ufsPath, blockSizeByte, recursive);
+        return client.user_createFile(path, ufsPath, blockSizeByte, recursive);
       } catch (FileAlreadyExistException e) {
         throw new IOException(e);
       } catch (InvalidPathException e) {
@@ -478,39 +545,41 @@ public final class MasterClient implements Closeable {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return -1;
   }
 
-  public synchronized long user_createNewBlock(int fId) throws IOException {
+  public long user_createNewBlock(int fId) throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_createNewBlock(fId);
+        return client.user_createNewBlock(fId);
       } catch (FileDoesNotExistException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return -1;
   }
 
-  public synchronized int user_createRawTable(String path, int columns, ByteBuffer metadata)
+  public int user_createRawTable(String path, int columns, ByteBuffer metadata)
       throws IOException {
     if (metadata == null) {
       metadata = ByteBuffer.allocate(0);
     }
 
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_createRawTable(path, columns, metadata);
+        return client.user_createRawTable(path, columns, metadata);
       } catch (FileAlreadyExistException e) {
         throw new IOException(e);
       } catch (InvalidPathException e) {
@@ -521,71 +590,76 @@ public final class MasterClient implements Closeable {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return -1;
   }
 
-  public synchronized boolean user_delete(int fileId, String path, boolean recursive)
+  public boolean user_delete(int fileId, String path, boolean recursive)
       throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_delete(fileId, path, recursive);
+        return client.user_delete(fileId, path, recursive);
       } catch (TachyonException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return false;
   }
 
-  public synchronized long user_getBlockId(int fId, int index) throws IOException {
+  public long user_getBlockId(int fId, int index) throws IOException {
     while (!mIsClosed) {
-      connect();
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_getBlockId(fId, index);
+        return client.user_getBlockId(fId, index);
       } catch (FileDoesNotExistException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return -1;
   }
 
-  public synchronized ClientBlockInfo user_getClientBlockInfo(long blockId) throws IOException {
+  public ClientBlockInfo user_getClientBlockInfo(long blockId) throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_getClientBlockInfo(blockId);
+        return client.user_getClientBlockInfo(blockId);
       } catch (FileDoesNotExistException e) {
         throw new FileNotFoundException(e.getMessage());
       } catch (BlockInfoException e) {
         throw new IOException(e.getMessage(), e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
   }
 
-  public synchronized ClientRawTableInfo user_getClientRawTableInfo(int id, String path)
+  public ClientRawTableInfo user_getClientRawTableInfo(int id, String path)
       throws IOException {
     parameterCheck(id, path);
 
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        ClientRawTableInfo ret = mClient.user_getClientRawTableInfo(id, path);
+        ClientRawTableInfo ret = client.user_getClientRawTableInfo(id, path);
         ret.setMetadata(CommonUtils.generateNewByteBufferFromThriftRPCResults(ret.metadata));
         return ret;
       } catch (TableDoesNotExistException e) {
@@ -594,97 +668,106 @@ public final class MasterClient implements Closeable {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
   }
 
-  public synchronized List<ClientBlockInfo> user_getFileBlocks(int fileId, String path)
+  public List<ClientBlockInfo> user_getFileBlocks(int fileId, String path)
       throws IOException {
     parameterCheck(fileId, path);
 
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_getFileBlocks(fileId, path);
+        return client.user_getFileBlocks(fileId, path);
       } catch (FileDoesNotExistException e) {
         throw new IOException(e);
       } catch (InvalidPathException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
   }
 
-  public synchronized int user_getRawTableId(String path) throws IOException {
+  public int user_getRawTableId(String path) throws IOException {
     while (!mIsClosed) {
-      connect();
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_getRawTableId(path);
+        return client.user_getRawTableId(path);
       } catch (InvalidPathException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return -1;
   }
 
-  public synchronized String user_getUfsAddress() throws IOException {
+  public String user_getUfsAddress() throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_getUfsAddress();
+        return client.user_getUfsAddress();
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
   }
 
-  public synchronized NetAddress user_getWorker(boolean random, String hostname)
+  public NetAddress user_getWorker(boolean random, String hostname)
       throws NoWorkerException, IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_getWorker(random, hostname);
+        return client.user_getWorker(random, hostname);
       } catch (NoWorkerException e) {
         throw e;
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
   }
 
-  public synchronized void user_heartbeat() throws IOException {
+  public void user_heartbeat() throws IOException {
     while (!mIsClosed) {
-      connect();
+      MasterService.Client client = acquireClient();
       try {
-        mClient.user_heartbeat();
+        client.user_heartbeat();
         return;
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
   }
 
-  public synchronized boolean user_mkdirs(String path, boolean recursive) throws IOException {
+  public boolean user_mkdirs(String path, boolean recursive) throws IOException {
     while (!mIsClosed) {
-      connect();
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_mkdirs(path, recursive);
+        return client.user_mkdirs(path, recursive);
       } catch (FileAlreadyExistException e) {
         throw new IOException(e);
       } catch (InvalidPathException e) {
@@ -693,21 +776,22 @@ public final class MasterClient implements Closeable {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return false;
   }
 
-  public synchronized boolean user_rename(int fileId, String srcPath, String dstPath)
+  public boolean user_rename(int fileId, String srcPath, String dstPath)
       throws IOException {
     parameterCheck(fileId, srcPath);
 
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_rename(fileId, srcPath, dstPath);
+        return client.user_rename(fileId, srcPath, dstPath);
       } catch (FileAlreadyExistException e) {
         throw new IOException(e);
       } catch (FileDoesNotExistException e) {
@@ -716,67 +800,71 @@ public final class MasterClient implements Closeable {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return false;
   }
 
-  public synchronized void user_reportLostFile(int fileId) throws IOException {
+  public void user_reportLostFile(int fileId) throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        mClient.user_reportLostFile(fileId);
+        client.user_reportLostFile(fileId);
         return;
       } catch (FileDoesNotExistException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
   }
 
-  public synchronized void user_requestFilesInDependency(int depId) throws IOException {
+  public void user_requestFilesInDependency(int depId) throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        mClient.user_requestFilesInDependency(depId);
+        client.user_requestFilesInDependency(depId);
         return;
       } catch (DependencyDoesNotExistException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
   }
 
-  public synchronized void user_setPinned(int id, boolean pinned) throws IOException {
+  public void user_setPinned(int id, boolean pinned) throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        mClient.user_setPinned(id, pinned);
+        client.user_setPinned(id, pinned);
         return;
       } catch (FileDoesNotExistException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
   }
 
-  public synchronized void user_updateRawTableMetadata(int id, ByteBuffer metadata)
+  public void user_updateRawTableMetadata(int id, ByteBuffer metadata)
       throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        mClient.user_updateRawTableMetadata(id, metadata);
+        client.user_updateRawTableMetadata(id, metadata);
         return;
       } catch (TableDoesNotExistException e) {
         throw new IOException(e);
@@ -784,34 +872,37 @@ public final class MasterClient implements Closeable {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
   }
 
-  public synchronized boolean user_freepath(int fileId, String path, boolean recursive)
+  public boolean user_freepath(int fileId, String path, boolean recursive)
       throws IOException {
     while (!mIsClosed) {
-      connect();
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.user_freepath(fileId, path, recursive);
+        return client.user_freepath(fileId, path, recursive);
       } catch (FileDoesNotExistException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return false;
   }
 
-  public synchronized void worker_cacheBlock(long workerId, long usedBytesOnTier, long storageDirId,
+  public void worker_cacheBlock(long workerId, long usedBytesOnTier, long storageDirId,
       long blockId, long length) throws IOException, FileDoesNotExistException, BlockInfoException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        mClient.worker_cacheBlock(workerId, usedBytesOnTier, storageDirId, blockId, length);
+        client.worker_cacheBlock(workerId, usedBytesOnTier, storageDirId, blockId, length);
         return;
       } catch (FileDoesNotExistException e) {
         throw e;
@@ -819,50 +910,56 @@ public final class MasterClient implements Closeable {
         throw e;
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
   }
 
-  public synchronized Set<Integer> worker_getPinIdList() throws IOException {
+  public Set<Integer> worker_getPinIdList() throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.worker_getPinIdList();
+        return client.worker_getPinIdList();
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
   }
 
-  public synchronized List<Integer> worker_getPriorityDependencyList() throws IOException {
+  public List<Integer> worker_getPriorityDependencyList() throws IOException {
     while (!mIsClosed) {
-      connect();
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.worker_getPriorityDependencyList();
+        return client.worker_getPriorityDependencyList();
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return new ArrayList<Integer>();
   }
 
-  public synchronized Command worker_heartbeat(long workerId, List<Long> usedBytesOnTiers,
+  public Command worker_heartbeat(long workerId, List<Long> usedBytesOnTiers,
       List<Long> removedBlockIds, Map<Long, List<Long>> addedBlockIds) throws IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
-        return mClient.worker_heartbeat(workerId, usedBytesOnTiers, removedBlockIds, addedBlockIds);
+        return client.worker_heartbeat(workerId, usedBytesOnTiers, removedBlockIds, addedBlockIds);
       } catch (BlockInfoException e) {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return null;
@@ -879,15 +976,14 @@ public final class MasterClient implements Closeable {
    * @throws BlockInfoException
    * @throws TException
    */
-  public synchronized long worker_register(NetAddress workerNetAddress,
+  public long worker_register(NetAddress workerNetAddress,
       List<Long> totalBytesOnTiers, List<Long> usedBytesOnTiers,
       Map<Long, List<Long>> currentBlockList) throws BlockInfoException, IOException {
     while (!mIsClosed) {
-      connect();
-
+      MasterService.Client client = acquireClient();
       try {
         long ret =
-            mClient.worker_register(workerNetAddress, totalBytesOnTiers, usedBytesOnTiers,
+            client.worker_register(workerNetAddress, totalBytesOnTiers, usedBytesOnTiers,
                 currentBlockList);
         LOG.info("Registered at the master " + mMasterAddress + " from worker " + workerNetAddress
             + " , got WorkerId " + ret);
@@ -896,7 +992,9 @@ public final class MasterClient implements Closeable {
         throw new IOException(e);
       } catch (TException e) {
         LOG.error(e.getMessage(), e);
-        mConnected = false;
+        invalidate(client);
+      } finally {
+        mPool.release(client);
       }
     }
     return -1;
@@ -27,6 +27,19 @@ public enum ChannelType {
    */
   EPOLL;
 
+  /**
+   * Whether this type of channel can be used on this system. {@link #EPOLL} needs Linux and the
+   * netty native transport library.
+   *
+   * @return true if the channel type is available, false otherwise
+   */
+  public boolean isAvailable() {
+    if (this == EPOLL) {
+      return Epoll.isAvailable();
+    }
+    return true;
+  }
+
   /**
    * Determines the default type to use based off the system.
    * <p>
@@ -35,7 +48,7 @@ public enum ChannelType {
    * </p>
    */
   public static ChannelType defaultType() {
-    if (Epoll.isAvailable()) {
+    if (EPOLL.isAvailable()) {
       return ChannelType.EPOLL;
     } else {
       return ChannelType.NIO;
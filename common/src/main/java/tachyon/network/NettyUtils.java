@@ -17,8 +17,12 @@ package tachyon.network;
 
 import java.util.concurrent.ThreadFactory;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.epoll.EpollSocketChannel;
@@ -27,11 +31,34 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 
+import tachyon.Constants;
+import tachyon.conf.TachyonConf;
 import tachyon.util.ThreadFactoryUtils;
 
 public final class NettyUtils {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+
   private NettyUtils() {}
 
+  /**
+   * Gets the channel type to use from the configuration. If the key is not set, the fastest type
+   * available on this system is used. If the configured type is not available, e.g. EPOLL on a
+   * system without the netty native library, NIO is used instead of failing.
+   *
+   * @param tachyonConf the configuration to read the type from
+   * @param key the key of the channel type, e.g. tachyon.worker.network.netty.channel
+   * @return the channel type to use
+   */
+  public static ChannelType getChannelType(TachyonConf tachyonConf, String key) {
+    ChannelType type = tachyonConf.getEnum(key, ChannelType.defaultType());
+    if (!type.isAvailable()) {
+      LOG.warn(key + " is set to " + type + ", which is not available on this system, falling "
+          + "back to " + ChannelType.NIO, Epoll.unavailabilityCause());
+      return ChannelType.NIO;
+    }
+    return type;
+  }
+
   /**
    * Creates a Netty EventLoopGroup based on the IOMode.
    *
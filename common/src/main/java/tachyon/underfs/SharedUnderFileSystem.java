@@ -0,0 +1,209 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.underfs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import tachyon.conf.TachyonConf;
+
+/**
+ * A handle to an {@link UnderFileSystem} client shared through the {@link UnderFileSystemCache}.
+ * Every operation goes to the shared client, except {@link #close()} which only releases the
+ * reference of the handle on it.
+ *
+ * The operations which change the state of the client, {@link #setConf(Object)},
+ * {@link #connectFromMaster(TachyonConf, String)} and
+ * {@link #connectFromWorker(TachyonConf, String)}, must not affect the other handles: the handle
+ * first stops sharing the client, creating a client of its own which it closes when it is closed.
+ */
+final class SharedUnderFileSystem extends UnderFileSystem {
+  private final String mPath;
+  private final Object mUfsConf;
+  private final UnderFileSystemCache.Entry mEntry;
+  private final AtomicBoolean mClosed = new AtomicBoolean(false);
+  /** The shared client, or the client of this handle once detached. */
+  private volatile UnderFileSystem mUfs;
+  /** Whether the handle has a client of its own, guarded by this handle. */
+  private boolean mDetached = false;
+
+  SharedUnderFileSystem(String path, Object ufsConf, TachyonConf tachyonConf,
+      UnderFileSystemCache.Entry entry) {
+    super(tachyonConf);
+    mPath = path;
+    mUfsConf = ufsConf;
+    mEntry = entry;
+    mUfs = entry.getUfs();
+  }
+
+  @Override
+  public boolean providesStorage() {
+    return mUfs.providesStorage();
+  }
+
+  @Override
+  public void connectFromMaster(TachyonConf conf, String hostname) throws IOException {
+    detach().connectFromMaster(conf, hostname);
+  }
+
+  @Override
+  public void connectFromWorker(TachyonConf conf, String hostname) throws IOException {
+    detach().connectFromWorker(conf, hostname);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (mClosed.compareAndSet(false, true)) {
+      synchronized (this) {
+        if (mDetached) {
+          mUfs.close();
+        } else {
+          UnderFileSystemCache.release(mEntry);
+        }
+      }
+    }
+  }
+
+  @Override
+  public OutputStream create(String path) throws IOException {
+    return mUfs.create(path);
+  }
+
+  @Override
+  public OutputStream create(String path, int blockSizeByte) throws IOException {
+    return mUfs.create(path, blockSizeByte);
+  }
+
+  @Override
+  public OutputStream create(String path, short replication, int blockSizeByte)
+      throws IOException {
+    return mUfs.create(path, replication, blockSizeByte);
+  }
+
+  @Override
+  public boolean delete(String path, boolean recursive) throws IOException {
+    return mUfs.delete(path, recursive);
+  }
+
+  @Override
+  public boolean exists(String path) throws IOException {
+    return mUfs.exists(path);
+  }
+
+  @Override
+  public long getBlockSizeByte(String path) throws IOException {
+    return mUfs.getBlockSizeByte(path);
+  }
+
+  @Override
+  public Object getConf() {
+    return mUfs.getConf();
+  }
+
+  @Override
+  public List<String> getFileLocations(String path) throws IOException {
+    return mUfs.getFileLocations(path);
+  }
+
+  @Override
+  public List<String> getFileLocations(String path, long offset) throws IOException {
+    return mUfs.getFileLocations(path, offset);
+  }
+
+  @Override
+  public long getFileSize(String path) throws IOException {
+    return mUfs.getFileSize(path);
+  }
+
+  @Override
+  public long getModificationTimeMs(String path) throws IOException {
+    return mUfs.getModificationTimeMs(path);
+  }
+
+  @Override
+  public long getSpace(String path, SpaceType type) throws IOException {
+    return mUfs.getSpace(path, type);
+  }
+
+  @Override
+  public boolean isFile(String path) throws IOException {
+    return mUfs.isFile(path);
+  }
+
+  @Override
+  public String[] list(String path) throws IOException {
+    return mUfs.list(path);
+  }
+
+  @Override
+  public UnderFileStatus[] listStatus(String path) throws IOException {
+    return mUfs.listStatus(path);
+  }
+
+  @Override
+  public boolean mkdirs(String path, boolean createParent) throws IOException {
+    return mUfs.mkdirs(path, createParent);
+  }
+
+  @Override
+  public InputStream open(String path) throws IOException {
+    return mUfs.open(path);
+  }
+
+  @Override
+  public InputStream open(String path, long position) throws IOException {
+    return mUfs.open(path, position);
+  }
+
+  @Override
+  public int read(String path, long position, byte[] buffer, int offset, int length)
+      throws IOException {
+    return mUfs.read(path, position, buffer, offset, length);
+  }
+
+  @Override
+  public boolean rename(String src, String dst) throws IOException {
+    return mUfs.rename(src, dst);
+  }
+
+  @Override
+  public void setConf(Object conf) {
+    detach().setConf(conf);
+  }
+
+  @Override
+  public void setPermission(String path, String posixPerm) throws IOException {
+    mUfs.setPermission(path, posixPerm);
+  }
+
+  /**
+   * Stops sharing the client, unless the handle is closed: creates a client of its own for the
+   * handle and releases the reference on the shared one.
+   *
+   * @return the client the handle uses from now on
+   */
+  private synchronized UnderFileSystem detach() {
+    if (!mDetached && !mClosed.get()) {
+      mUfs = UnderFileSystemRegistry.create(mPath, mTachyonConf, mUfsConf);
+      mDetached = true;
+      UnderFileSystemCache.release(mEntry);
+    }
+    return mUfs;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.underfs;
+
+/**
+ * The status of an entry of a directory of an under file system, as returned by
+ * {@link UnderFileSystem#listStatus(String)}.
+ */
+public final class UnderFileStatus {
+  private final String mName;
+  private final boolean mIsFile;
+  private final long mLength;
+  private final long mBlockSizeByte;
+
+  /**
+   * @param name the name of the entry, relative to its directory
+   * @param isFile whether the entry is a file, rather than a directory
+   * @param length the length of the file, 0 for a directory
+   * @param blockSizeByte the block size of the file, 0 for a directory
+   */
+  public UnderFileStatus(String name, boolean isFile, long length, long blockSizeByte) {
+    mName = name;
+    mIsFile = isFile;
+    mLength = length;
+    mBlockSizeByte = blockSizeByte;
+  }
+
+  /**
+   * @return the name of the entry, relative to its directory
+   */
+  public String getName() {
+    return mName;
+  }
+
+  /**
+   * @return true if the entry is a file, false if it is a directory
+   */
+  public boolean isFile() {
+    return mIsFile;
+  }
+
+  /**
+   * @return the length of the file, 0 for a directory
+   */
+  public long getLength() {
+    return mLength;
+  }
+
+  /**
+   * @return the block size of the file, 0 for a directory
+   */
+  public long getBlockSizeByte() {
+    return mBlockSizeByte;
+  }
+}
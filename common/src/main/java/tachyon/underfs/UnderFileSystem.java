@@ -18,6 +18,7 @@ package tachyon.underfs;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.google.common.base.Preconditions;
@@ -26,6 +27,7 @@ import tachyon.conf.TachyonConf;
 import tachyon.Constants;
 import tachyon.Pair;
 import tachyon.TachyonURI;
+import tachyon.util.CommonUtils;
 
 /**
  * Tachyon stores data into an under layer file system. Any file system implementing this interface
@@ -70,7 +72,9 @@ public abstract class UnderFileSystem {
   }
 
   /**
-   * Get the UnderFileSystem instance according to its scheme and configuration.
+   * Get the UnderFileSystem instance according to its scheme and configuration. With
+   * <code>tachyon.underfs.cache.enabled</code>, the instance is shared with the other callers
+   * through the {@link UnderFileSystemCache}, and closing it only releases it.
    *
    * @param path file path storing over the ufs
    * @param ufsConf the configuration object for ufs only
@@ -81,6 +85,9 @@ public abstract class UnderFileSystem {
   public static UnderFileSystem get(String path, Object ufsConf, TachyonConf tachyonConf) {
     Preconditions.checkArgument(path != null, "path may not be null");
 
+    if (tachyonConf != null && tachyonConf.getBoolean(Constants.UNDERFS_CACHE_ENABLED, true)) {
+      return UnderFileSystemCache.get(path, ufsConf, tachyonConf);
+    }
     // Use the registry to determine the factory to use to create the client
     return UnderFileSystemRegistry.create(path, tachyonConf, ufsConf);
   }
@@ -330,6 +337,37 @@ public abstract class UnderFileSystem {
    */
   public abstract String[] list(String path) throws IOException;
 
+  /**
+   * Lists a directory with the status of its entries. The default implementation lists the names
+   * of the entries, then gets the status of every entry on its own, under file systems able to list
+   * a directory with the status of its entries at once should override it.
+   *
+   * @param path the path to list
+   * @return the status of the entries of the directory, or {@code null} if the path does not denote
+   *         a directory
+   * @throws IOException if the directory or the status of an entry cannot be read
+   */
+  public UnderFileStatus[] listStatus(String path) throws IOException {
+    String[] names = list(path);
+    if (names == null) {
+      return null;
+    }
+    List<UnderFileStatus> statuses = new ArrayList<UnderFileStatus>(names.length);
+    for (String name : names) {
+      if (name.isEmpty()) {
+        continue;
+      }
+      String child = CommonUtils.concatPath(path, name);
+      if (isFile(child)) {
+        statuses.add(new UnderFileStatus(name, true, getFileSize(child),
+            getBlockSizeByte(child)));
+      } else {
+        statuses.add(new UnderFileStatus(name, false, 0, 0));
+      }
+    }
+    return statuses.toArray(new UnderFileStatus[statuses.size()]);
+  }
+
   /**
    * Creates the directory named by this abstract pathname. If the folder already exists, the method
    * returns false.
@@ -352,6 +390,76 @@ public abstract class UnderFileSystem {
    */
   public abstract InputStream open(String path) throws IOException;
 
+  /**
+   * Opens an {@code InputStream} at the indicated path, positioned at the given offset. The default
+   * implementation skips from the start of the file, under file systems able to start reading at an
+   * offset should override it.
+   *
+   * @param path The file name
+   * @param position The offset in the file to start reading at
+   * @return The {@code InputStream} object
+   * @throws IOException if the file cannot be opened or is shorter than the position
+   */
+  public InputStream open(String path, long position) throws IOException {
+    InputStream in = open(path);
+    if (in == null) {
+      return null;
+    }
+    long skipped = 0;
+    while (skipped < position) {
+      long n = in.skip(position - skipped);
+      if (n <= 0) {
+        in.close();
+        throw new IOException("Failed to skip to the position " + position + " of " + path);
+      }
+      skipped += n;
+    }
+    return in;
+  }
+
+  /**
+   * Reads up to {@code length} bytes of a file, starting at the given offset, without keeping any
+   * stream open. Fewer bytes are read only when the end of the file is reached. The default
+   * implementation reads from {@link #open(String, long)}, under file systems able to read a range
+   * more efficiently, e.g. in parallel, should override it.
+   *
+   * @param path The file name
+   * @param position The offset in the file to start reading at
+   * @param buffer The buffer to read into
+   * @param offset The offset in the buffer to read into
+   * @param length The maximum number of bytes to read
+   * @return the number of bytes read, or -1 if the position is at or past the end of the file
+   * @throws IOException if the file cannot be read
+   */
+  public int read(String path, long position, byte[] buffer, int offset, int length)
+      throws IOException {
+    Preconditions.checkArgument(position >= 0 && offset >= 0 && length >= 0
+        && length <= buffer.length - offset, "Invalid range to read");
+    if (length == 0) {
+      return 0;
+    }
+    if (position >= getFileSize(path)) {
+      return -1;
+    }
+    InputStream in = open(path, position);
+    if (in == null) {
+      throw new IOException("Failed to open " + path);
+    }
+    try {
+      int read = 0;
+      while (read < length) {
+        int n = in.read(buffer, offset + read, length - read);
+        if (n < 0) {
+          break;
+        }
+        read += n;
+      }
+      return read;
+    } finally {
+      in.close();
+    }
+  }
+
   /**
    * Renames a file or folder from {@code src} to {@code dst} in under file system
    *
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.underfs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.TachyonURI;
+import tachyon.conf.TachyonConf;
+
+/**
+ * <p>
+ * Process wide cache of the {@link UnderFileSystem} clients returned by
+ * {@link UnderFileSystem#get(String, Object, TachyonConf)}. Creating a client is expensive for most
+ * under file systems, e.g. it builds a Hadoop {@code FileSystem} or an HTTP client, so the clients
+ * are shared by all the paths with the same scheme and authority, created with the same Tachyon and
+ * under file system configuration objects.
+ * </p>
+ * <p>
+ * Every call to {@link #get(String, Object, TachyonConf)} returns a new handle to the shared client
+ * and takes a reference on it. Closing the handle releases the reference, it does not close the
+ * shared client, which stays cached for the next calls. At most {@link #MAX_IDLE_ENTRIES} clients
+ * without references stay cached, the least recently released ones beyond that are evicted and
+ * closed, so that the clients cached for configuration objects which are not used anymore, e.g.
+ * the Hadoop configuration of a stream, do not pile up. {@link #clear()} empties the cache: clients
+ * without references are closed right away, the others once their last handle is closed. Handles
+ * which are never closed keep their client open, like the clients which were not shared. Closing
+ * an HDFS client leaves the Hadoop {@code FileSystem} it shares through the cache of Hadoop open.
+ * </p>
+ * <p>
+ * The configuration objects are compared by identity, as they are mutable and comparing them by
+ * value is expensive. A handle which changes the configuration of its client, or connects it, stops
+ * sharing it and gets a client of its own, see {@link SharedUnderFileSystem}. This class is thread
+ * safe.
+ * </p>
+ */
+public final class UnderFileSystemCache {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+
+  /** The maximum number of cached clients without references. */
+  static final int MAX_IDLE_ENTRIES = 16;
+
+  private static final Map<Key, Entry> ENTRIES = new HashMap<Key, Entry>();
+  /** The cached entries without references, the least recently released first. */
+  private static final Set<Entry> IDLE_ENTRIES = new LinkedHashSet<Entry>();
+
+  private UnderFileSystemCache() {}
+
+  /**
+   * Gets a handle to the cached client for a path, creating the client if needed.
+   *
+   * @param path file path storing over the ufs
+   * @param ufsConf the configuration object for ufs only, may be null
+   * @param tachyonConf the {@link tachyon.conf.TachyonConf} instance
+   * @throws IllegalArgumentException for unknown scheme
+   * @return a handle to the shared client, to close once done with it
+   */
+  public static UnderFileSystem get(String path, Object ufsConf, TachyonConf tachyonConf) {
+    String root = getRoot(path);
+    if (root == null) {
+      return UnderFileSystemRegistry.create(path, tachyonConf, ufsConf);
+    }
+    Key key = new Key(root, tachyonConf, ufsConf);
+    Entry entry;
+    synchronized (ENTRIES) {
+      entry = ENTRIES.get(key);
+      if (entry != null) {
+        reference(entry);
+        return new SharedUnderFileSystem(path, ufsConf, tachyonConf, entry);
+      }
+    }
+    // Created outside of the lock, as it may take long, e.g. to connect to a name node. If another
+    // thread cached a client for the same key meanwhile, that one is used and ours is closed.
+    UnderFileSystem ufs = UnderFileSystemRegistry.create(path, tachyonConf, ufsConf);
+    synchronized (ENTRIES) {
+      entry = ENTRIES.get(key);
+      if (entry == null) {
+        entry = new Entry(key, ufs);
+        ENTRIES.put(key, entry);
+        LOG.debug("Cached under file system client {} for {}", ufs.getClass(), root);
+        ufs = null;
+      }
+      reference(entry);
+    }
+    if (ufs != null) {
+      closeQuietly(ufs);
+    }
+    return new SharedUnderFileSystem(path, ufsConf, tachyonConf, entry);
+  }
+
+  /**
+   * Empties the cache. The clients without references are closed, the others are closed when their
+   * last handle is closed.
+   */
+  public static void clear() {
+    List<UnderFileSystem> unreferenced = new ArrayList<UnderFileSystem>();
+    synchronized (ENTRIES) {
+      for (Entry entry : ENTRIES.values()) {
+        entry.mEvicted = true;
+        if (entry.mReferences == 0) {
+          unreferenced.add(entry.mUfs);
+        }
+      }
+      ENTRIES.clear();
+      IDLE_ENTRIES.clear();
+    }
+    for (UnderFileSystem ufs : unreferenced) {
+      closeQuietly(ufs);
+    }
+  }
+
+  /**
+   * @return the number of cached clients
+   */
+  public static int size() {
+    synchronized (ENTRIES) {
+      return ENTRIES.size();
+    }
+  }
+
+  /**
+   * Releases a reference taken by {@link #get(String, Object, TachyonConf)}, closing the client if
+   * it was evicted and this was its last reference. A client left without references is kept
+   * cached, evicting the least recently released client if too many are.
+   *
+   * @param entry the entry of the client
+   */
+  static void release(Entry entry) {
+    List<UnderFileSystem> closed = new ArrayList<UnderFileSystem>();
+    synchronized (ENTRIES) {
+      entry.mReferences --;
+      if (entry.mReferences > 0) {
+        return;
+      }
+      if (entry.mEvicted) {
+        closed.add(entry.mUfs);
+      } else {
+        IDLE_ENTRIES.add(entry);
+        Iterator<Entry> it = IDLE_ENTRIES.iterator();
+        while (IDLE_ENTRIES.size() > MAX_IDLE_ENTRIES) {
+          Entry eldest = it.next();
+          it.remove();
+          ENTRIES.remove(eldest.mKey);
+          eldest.mEvicted = true;
+          closed.add(eldest.mUfs);
+        }
+      }
+    }
+    for (UnderFileSystem ufs : closed) {
+      closeQuietly(ufs);
+    }
+  }
+
+  /**
+   * Takes a reference on a cached entry. Called with the lock of the cache held.
+   */
+  private static void reference(Entry entry) {
+    if (entry.mReferences == 0) {
+      IDLE_ENTRIES.remove(entry);
+    }
+    entry.mReferences ++;
+  }
+
+  /**
+   * @param path a path
+   * @return the scheme and authority of the path, "/" for a local path, or null for a path which
+   *         cannot be shared
+   */
+  private static String getRoot(String path) {
+    // Parsed by hand rather than with TachyonURI, as this is on the path of every operation.
+    int schemeEnd = path.indexOf("://");
+    if (schemeEnd < 0) {
+      return path.startsWith(TachyonURI.SEPARATOR) ? TachyonURI.SEPARATOR : null;
+    }
+    int authorityEnd = path.indexOf(TachyonURI.SEPARATOR, schemeEnd + 3);
+    return authorityEnd < 0 ? path : path.substring(0, authorityEnd);
+  }
+
+  private static void closeQuietly(UnderFileSystem ufs) {
+    try {
+      ufs.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close under file system client " + ufs.getClass(), e);
+    }
+  }
+
+  /**
+   * A cached client and its number of references.
+   */
+  static final class Entry {
+    private final Key mKey;
+    private final UnderFileSystem mUfs;
+    /** The number of open handles, guarded by the lock of the cache. */
+    private int mReferences = 0;
+    /** Whether the entry was removed from the cache, guarded by the lock of the cache. */
+    private boolean mEvicted = false;
+
+    private Entry(Key key, UnderFileSystem ufs) {
+      mKey = key;
+      mUfs = ufs;
+    }
+
+    UnderFileSystem getUfs() {
+      return mUfs;
+    }
+  }
+
+  private static final class Key {
+    private final String mRoot;
+    private final TachyonConf mTachyonConf;
+    private final Object mUfsConf;
+
+    Key(String root, TachyonConf tachyonConf, Object ufsConf) {
+      mRoot = root;
+      mTachyonConf = tachyonConf;
+      mUfsConf = ufsConf;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return mRoot.equals(that.mRoot) && mTachyonConf == that.mTachyonConf
+          && mUfsConf == that.mUfsConf;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * mRoot.hashCode() + System.identityHashCode(mTachyonConf))
+          + System.identityHashCode(mUfsConf);
+    }
+  }
+}
@@ -82,4 +82,39 @@ public class ClientMetrics {
     mMetrics.set(Constants.BYTES_WRITTEN_UFS_INDEX,
         mMetrics.get(Constants.BYTES_WRITTEN_UFS_INDEX) + n);
   }
+
+  public synchronized void incMetadataCacheHits(long n) {
+    mMetrics.set(Constants.METADATA_CACHE_HITS_INDEX,
+        mMetrics.get(Constants.METADATA_CACHE_HITS_INDEX) + n);
+  }
+
+  public synchronized void incMetadataCacheMisses(long n) {
+    mMetrics.set(Constants.METADATA_CACHE_MISSES_INDEX,
+        mMetrics.get(Constants.METADATA_CACHE_MISSES_INDEX) + n);
+  }
+
+  public synchronized void incRemoteReadCacheHits(long n) {
+    mMetrics.set(Constants.REMOTE_READ_CACHE_HITS_INDEX,
+        mMetrics.get(Constants.REMOTE_READ_CACHE_HITS_INDEX) + n);
+  }
+
+  public synchronized void incRemoteReadCacheMisses(long n) {
+    mMetrics.set(Constants.REMOTE_READ_CACHE_MISSES_INDEX,
+        mMetrics.get(Constants.REMOTE_READ_CACHE_MISSES_INDEX) + n);
+  }
+
+  public synchronized void incRemoteReadCacheBytesSaved(long n) {
+    mMetrics.set(Constants.REMOTE_READ_CACHE_BYTES_SAVED_INDEX,
+        mMetrics.get(Constants.REMOTE_READ_CACHE_BYTES_SAVED_INDEX) + n);
+  }
+
+  public synchronized void incAdaptiveReadsUfs(long n) {
+    mMetrics.set(Constants.ADAPTIVE_READS_UFS_INDEX,
+        mMetrics.get(Constants.ADAPTIVE_READS_UFS_INDEX) + n);
+  }
+
+  public synchronized void incAdaptiveRecachesSkipped(long n) {
+    mMetrics.set(Constants.ADAPTIVE_RECACHES_SKIPPED_INDEX,
+        mMetrics.get(Constants.ADAPTIVE_RECACHES_SKIPPED_INDEX) + n);
+  }
 }
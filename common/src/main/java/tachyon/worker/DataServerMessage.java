@@ -17,6 +17,7 @@ package tachyon.worker;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SocketChannel;
 
 import org.slf4j.Logger;
@@ -148,6 +149,38 @@ public class DataServerMessage {
     return ret;
   }
 
+  /**
+   * Create a block response message whose data is sent straight from a file channel with
+   * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, so the data
+   * is never copied into user space. The message is ready to be sent. The channel is not closed by
+   * the message.
+   *
+   * @param blockId The id of the block
+   * @param offset The responded data's offset in the block, also the position in the channel to
+   *        start sending from
+   * @param len The length of the responded data, which must not be -1
+   * @param channel The channel of the block file
+   * @return The created block response message
+   */
+  public static DataServerMessage createBlockResponseMessage(long blockId, long offset, long len,
+      FileChannel channel) {
+    Preconditions.checkArgument(len >= 0, "Length must be known when sending from a channel");
+    DataServerMessage ret = new DataServerMessage(true, DATA_SERVER_RESPONSE_MESSAGE);
+    ret.mRPCMessageType = RPCMessage.Type.RPC_BLOCK_RESPONSE;
+
+    ret.mHeader = ByteBuffer.allocate(HEADER_LENGTH);
+    ret.mBlockId = blockId;
+    ret.mOffset = offset;
+    ret.mLength = len;
+    ret.mData = ByteBuffer.allocate(0);
+    ret.mFileChannel = channel;
+    ret.mFileChannelPosition = offset;
+    ret.mIsMessageReady = true;
+    ret.generateHeader();
+
+    return ret;
+  }
+
   private final boolean mToSendData;
   private final short mMessageType;
   private boolean mIsMessageReady;
@@ -165,6 +198,12 @@ public class DataServerMessage {
 
   private ByteBuffer mData = null;
 
+  // If not null, the data is sent from this channel instead of mData.
+  private FileChannel mFileChannel = null;
+
+  // The position in mFileChannel of the next byte to send.
+  private long mFileChannelPosition = -1;
+
   // This is the new message type. For now, DataServerMessage must manually send this type on the
   // network. When the client is converted to to use Netty, this DataServerMessage class will be
   // removed.
@@ -204,7 +243,8 @@ public class DataServerMessage {
   public boolean finishSending() {
     isSend(true);
 
-    return mHeader.remaining() == 0 && mData.remaining() == 0;
+    return mHeader.remaining() == 0 && mData.remaining() == 0
+        && (mFileChannel == null || mFileChannelPosition == mOffset + mLength);
   }
 
   private void generateHeader() {
@@ -360,7 +400,12 @@ public class DataServerMessage {
     socketChannel.write(mHeader);
 
     if (mHeader.remaining() == 0) {
-      socketChannel.write(mData);
+      if (mFileChannel != null) {
+        mFileChannelPosition += mFileChannel.transferTo(mFileChannelPosition,
+            mOffset + mLength - mFileChannelPosition, socketChannel);
+      } else {
+        socketChannel.write(mData);
+      }
     }
   }
 
@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import tachyon.Constants;
 import tachyon.HeartbeatExecutor;
 import tachyon.HeartbeatThread;
+import tachyon.ThriftClientPool;
 import tachyon.conf.TachyonConf;
 import tachyon.master.MasterClient;
 import tachyon.thrift.BlockInfoException;
@@ -51,18 +52,20 @@ import tachyon.util.NetworkUtils;
 /**
  * The client talks to a worker server. It keeps sending keep alive message to the worker server.
  *
- * Since WorkerService.Client is not thread safe, this class has to guarantee thread safety.
+ * Since WorkerService.Client is not thread safe, this class keeps a pool of WorkerService.Client
+ * connections, sized by <code>tachyon.user.worker.client.pool.size</code>, and every call borrows
+ * one for its duration.
  */
 public class WorkerClient implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
   private final MasterClient mMasterClient;
   private static final int CONNECTION_RETRY_TIMES = 5;
 
-  private WorkerService.Client mClient;
-  private TProtocol mProtocol;
-  private InetSocketAddress mWorkerAddress;
-  private boolean mConnected = false;
-  private boolean mIsLocal = false;
+  /** The connections to the worker, shared by all the threads calling this client. */
+  private final ThriftClientPool<WorkerService.Client> mPool;
+  private volatile InetSocketAddress mWorkerAddress;
+  private volatile boolean mConnected = false;
+  private volatile boolean mIsLocal = false;
   private final ExecutorService mExecutorService;
   private Future<?> mHeartbeat;
   private HeartbeatExecutor mHeartbeatExecutor;
@@ -85,6 +88,42 @@ public class WorkerClient implements Closeable {
     mExecutorService = executorService;
     mTachyonConf = conf;
     mClientMetrics = clientMetrics;
+    mPool = new ThriftClientPool<WorkerService.Client>(mTachyonConf.getInt(
+        Constants.USER_WORKER_CLIENT_POOL_SIZE, Constants.DEFAULT_USER_WORKER_CLIENT_POOL_SIZE)) {
+      @Override
+      protected WorkerService.Client createClient() throws TTransportException {
+        InetSocketAddress address = mWorkerAddress;
+        TProtocol protocol = new TBinaryProtocol(new TFramedTransport(new TSocket(
+            address.getHostName(), address.getPort())));
+        protocol.getTransport().open();
+        return new WorkerService.Client(protocol);
+      }
+    };
+  }
+
+  /**
+   * Connects to the worker if needed, and acquires one of the pooled connections. The connection
+   * must be released to the pool once the call is done.
+   *
+   * @return a connection to the worker
+   * @throws IOException if the worker can not be reached
+   */
+  private WorkerService.Client acquireClient() throws IOException {
+    mustConnect();
+    try {
+      return mPool.acquire();
+    } catch (TTransportException e) {
+      mConnected = false;
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Drops a connection after a failed call, and reconnects with the worker on the next call.
+   */
+  private void invalidate(WorkerService.Client client) {
+    mPool.invalidate(client);
+    mConnected = false;
   }
 
   /**
@@ -93,15 +132,16 @@ public class WorkerClient implements Closeable {
    * @param blockId The id of the block
    * @throws IOException
    */
-  public synchronized void accessBlock(long blockId) throws IOException {
-    mustConnect();
-
+  public void accessBlock(long blockId) throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      mClient.accessBlock(blockId);
+      client.accessBlock(blockId);
     } catch (TException e) {
       LOG.error("TachyonClient accessLocalBlock(" + blockId + ") failed");
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
@@ -111,11 +151,10 @@ public class WorkerClient implements Closeable {
    * @param fileId The id of the checkpointed file
    * @throws IOException
    */
-  public synchronized void addCheckpoint(int fileId) throws IOException {
-    mustConnect();
-
+  public void addCheckpoint(int fileId) throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      mClient.addCheckpoint(mMasterClient.getUserId(), fileId);
+      client.addCheckpoint(mMasterClient.getUserId(), fileId);
     } catch (FileDoesNotExistException e) {
       throw new IOException(e);
     } catch (SuspectedFileSizeException e) {
@@ -125,8 +164,10 @@ public class WorkerClient implements Closeable {
     } catch (BlockInfoException e) {
       throw new IOException(e);
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
@@ -137,16 +178,17 @@ public class WorkerClient implements Closeable {
    * @return true if success, false otherwise
    * @throws IOException
    */
-  public synchronized boolean asyncCheckpoint(int fileId) throws IOException {
-    mustConnect();
-
+  public boolean asyncCheckpoint(int fileId) throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      return mClient.asyncCheckpoint(fileId);
+      return client.asyncCheckpoint(fileId);
     } catch (TachyonException e) {
       throw new IOException(e);
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
@@ -156,18 +198,19 @@ public class WorkerClient implements Closeable {
    * @param blockId The id of the block
    * @throws IOException
    */
-  public synchronized void cacheBlock(long blockId) throws IOException {
-    mustConnect();
-
+  public void cacheBlock(long blockId) throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      mClient.cacheBlock(mMasterClient.getUserId(), blockId);
+      client.cacheBlock(mMasterClient.getUserId(), blockId);
     } catch (FileDoesNotExistException e) {
       throw new IOException(e);
     } catch (BlockInfoException e) {
       throw new IOException(e);
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
@@ -177,14 +220,15 @@ public class WorkerClient implements Closeable {
    * @param blockId The Id of the block to be cancelled
    * @throws IOException
    */
-  public synchronized void cancelBlock(long blockId) throws IOException {
-    mustConnect();
-
+  public void cancelBlock(long blockId) throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      mClient.cancelBlock(mMasterClient.getUserId(), blockId);
+      client.cancelBlock(mMasterClient.getUserId(), blockId);
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
@@ -193,17 +237,17 @@ public class WorkerClient implements Closeable {
    */
   @Override
   public synchronized void close() {
-    if (mConnected) {
-      try {
+    try {
+      if (mConnected) {
         // Heartbeat to send the client metrics.
         if (mHeartbeatExecutor != null) {
           mHeartbeatExecutor.heartbeat();
         }
-        mProtocol.getTransport().close();
-      } finally {
-        if (mHeartbeat != null) {
-          mHeartbeat.cancel(true);
-        }
+      }
+    } finally {
+      mPool.clear();
+      if (mHeartbeat != null) {
+        mHeartbeat.cancel(true);
       }
       mConnected = false;
     }
@@ -236,7 +280,6 @@ public class WorkerClient implements Closeable {
           workerNetAddress = mMasterClient.user_getWorker(true, "");
         } catch (NoWorkerException e) {
           LOG.info("No worker running in the system: " + e.getMessage());
-          mClient = null;
           return false;
         }
       }
@@ -246,8 +289,8 @@ public class WorkerClient implements Closeable {
       mWorkerAddress = new InetSocketAddress(host, port);
       LOG.info("Connecting " + (mIsLocal ? "local" : "remote") + " worker @ " + mWorkerAddress);
 
-      mProtocol = new TBinaryProtocol(new TFramedTransport(new TSocket(host, port)));
-      mClient = new WorkerService.Client(mProtocol);
+      // Connections to the previous worker address are not reused.
+      mPool.clear();
 
       mHeartbeatExecutor =
           new WorkerClientHeartbeatExecutor(this, mMasterClient.getUserId());
@@ -258,7 +301,7 @@ public class WorkerClient implements Closeable {
           mExecutorService.submit(new HeartbeatThread(threadName, mHeartbeatExecutor, interval));
 
       try {
-        mProtocol.getTransport().open();
+        mPool.release(mPool.acquire());
       } catch (TTransportException e) {
         LOG.error(e.getMessage(), e);
         return false;
@@ -272,7 +315,7 @@ public class WorkerClient implements Closeable {
   /**
    * @return the address of the worker.
    */
-  public synchronized InetSocketAddress getAddress() {
+  public InetSocketAddress getAddress() {
     return mWorkerAddress;
   }
 
@@ -282,28 +325,29 @@ public class WorkerClient implements Closeable {
    * @return The user temporary folder in the under file system
    * @throws IOException
    */
-  public synchronized String getUserUfsTempFolder() throws IOException {
-    mustConnect();
-
+  public String getUserUfsTempFolder() throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      return mClient.getUserUfsTempFolder(mMasterClient.getUserId());
+      return client.getUserUfsTempFolder(mMasterClient.getUserId());
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
   /**
    * @return true if it's connected to the worker, false otherwise.
    */
-  public synchronized boolean isConnected() {
+  public boolean isConnected() {
     return mConnected;
   }
 
   /**
    * @return true if the worker is local, false otherwise.
    */
-  public synchronized boolean isLocal() {
+  public boolean isLocal() {
     if (!isConnected()) {
       try {
         connect();
@@ -323,16 +367,17 @@ public class WorkerClient implements Closeable {
    * @return the path of the block file locked
    * @throws IOException
    */
-  public synchronized String lockBlock(long blockId) throws IOException {
-    mustConnect();
-
+  public String lockBlock(long blockId) throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      return mClient.lockBlock(blockId, mMasterClient.getUserId());
+      return client.lockBlock(blockId, mMasterClient.getUserId());
     } catch (FileDoesNotExistException e) {
       return null;
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
@@ -341,7 +386,10 @@ public class WorkerClient implements Closeable {
    *
    * @throws IOException
    */
-  public synchronized void mustConnect() throws IOException {
+  public void mustConnect() throws IOException {
+    if (mConnected) {
+      return;
+    }
     int tries = 0;
     while (tries ++ <= CONNECTION_RETRY_TIMES) {
       if (connect()) {
@@ -358,14 +406,15 @@ public class WorkerClient implements Closeable {
    * @return true if succeed, false otherwise
    * @throws IOException
    */
-  public synchronized boolean promoteBlock(long blockId) throws IOException {
-    mustConnect();
-
+  public boolean promoteBlock(long blockId) throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      return mClient.promoteBlock(blockId);
+      return client.promoteBlock(blockId);
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
@@ -377,19 +426,20 @@ public class WorkerClient implements Closeable {
    * @return the temporary path of the block
    * @throws IOException
    */
-  public synchronized String requestBlockLocation(long blockId, long initialBytes)
+  public String requestBlockLocation(long blockId, long initialBytes)
       throws IOException {
-    mustConnect();
-
+    WorkerService.Client client = acquireClient();
     try {
-      return mClient.requestBlockLocation(mMasterClient.getUserId(), blockId, initialBytes);
+      return client.requestBlockLocation(mMasterClient.getUserId(), blockId, initialBytes);
     } catch (OutOfSpaceException e) {
       throw new IOException(e);
     } catch (FileAlreadyExistException e) {
       throw new IOException(e);
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
@@ -401,18 +451,19 @@ public class WorkerClient implements Closeable {
    * @return true if success, false otherwise
    * @throws IOException
    */
-  public synchronized boolean requestSpace(long blockId, long requestBytes) throws IOException {
-    mustConnect();
-
+  public boolean requestSpace(long blockId, long requestBytes) throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      return mClient.requestSpace(mMasterClient.getUserId(), blockId, requestBytes);
+      return client.requestSpace(mMasterClient.getUserId(), blockId, requestBytes);
     } catch (OutOfSpaceException e) {
       return false;
     } catch (FileDoesNotExistException e) {
       throw new IOException(e);
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
@@ -423,14 +474,15 @@ public class WorkerClient implements Closeable {
    * @return true if success, false otherwise
    * @throws IOException
    */
-  public synchronized boolean unlockBlock(long blockId) throws IOException {
-    mustConnect();
-
+  public boolean unlockBlock(long blockId) throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      return mClient.unlockBlock(blockId, mMasterClient.getUserId());
+      return client.unlockBlock(blockId, mMasterClient.getUserId());
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 
@@ -440,14 +492,15 @@ public class WorkerClient implements Closeable {
    * @param userId The id of the user
    * @throws IOException
    */
-  public synchronized void userHeartbeat(long userId) throws IOException {
-    mustConnect();
-
+  public void userHeartbeat(long userId) throws IOException {
+    WorkerService.Client client = acquireClient();
     try {
-      mClient.userHeartbeat(userId, mClientMetrics.getHeartbeatData());
+      client.userHeartbeat(userId, mClientMetrics.getHeartbeatData());
     } catch (TException e) {
-      mConnected = false;
+      invalidate(client);
       throw new IOException(e);
+    } finally {
+      mPool.release(client);
     }
   }
 }
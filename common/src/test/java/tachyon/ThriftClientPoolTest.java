@@ -0,0 +1,140 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import tachyon.thrift.MasterService;
+
+/**
+ * Unit tests for tachyon.ThriftClientPool
+ */
+public class ThriftClientPoolTest {
+  /**
+   * A transport that is open until closed, and never transfers any data.
+   */
+  private static final class FakeTransport extends TTransport {
+    private boolean mOpen = true;
+
+    @Override
+    public boolean isOpen() {
+      return mOpen;
+    }
+
+    @Override
+    public void open() {
+      mOpen = true;
+    }
+
+    @Override
+    public void close() {
+      mOpen = false;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws TTransportException {
+      throw new TTransportException("Not supported");
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws TTransportException {
+      throw new TTransportException("Not supported");
+    }
+  }
+
+  private static final class FakeClientPool extends ThriftClientPool<MasterService.Client> {
+    private final AtomicInteger mCreated = new AtomicInteger(0);
+
+    FakeClientPool(int maxSize) {
+      super(maxSize);
+    }
+
+    @Override
+    protected MasterService.Client createClient() {
+      mCreated.incrementAndGet();
+      return new MasterService.Client(new TBinaryProtocol(new FakeTransport()));
+    }
+  }
+
+  @Test
+  public void reuseIdleClientTest() throws Exception {
+    FakeClientPool pool = new FakeClientPool(2);
+    MasterService.Client client = pool.acquire();
+    pool.release(client);
+    Assert.assertSame(client, pool.acquire());
+    Assert.assertEquals(1, pool.mCreated.get());
+  }
+
+  @Test
+  public void invalidatedClientIsDroppedTest() throws Exception {
+    FakeClientPool pool = new FakeClientPool(2);
+    MasterService.Client client = pool.acquire();
+    pool.invalidate(client);
+    pool.release(client);
+    Assert.assertNotSame(client, pool.acquire());
+    Assert.assertEquals(2, pool.mCreated.get());
+  }
+
+  @Test
+  public void acquireBlocksWhenExhaustedTest() throws Exception {
+    final FakeClientPool pool = new FakeClientPool(1);
+    final MasterService.Client client = pool.acquire();
+    final CountDownLatch acquired = new CountDownLatch(1);
+    Thread waiter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          pool.release(pool.acquire());
+          acquired.countDown();
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    waiter.start();
+    Assert.assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+    pool.release(client);
+    Assert.assertTrue(acquired.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals(1, pool.mCreated.get());
+  }
+
+  @Test
+  public void closeTest() throws Exception {
+    FakeClientPool pool = new FakeClientPool(2);
+    MasterService.Client idle = pool.acquire();
+    MasterService.Client inUse = pool.acquire();
+    pool.release(idle);
+    pool.close();
+    Assert.assertFalse(idle.getInputProtocol().getTransport().isOpen());
+    pool.release(inUse);
+    Assert.assertFalse(inUse.getInputProtocol().getTransport().isOpen());
+    try {
+      pool.acquire();
+      Assert.fail("Acquiring from a closed pool should fail");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.network;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import tachyon.Constants;
+import tachyon.conf.TachyonConf;
+
+/**
+ * Unit tests for tachyon.network.NettyUtils
+ */
+public class NettyUtilsTest {
+  @Test
+  public void getChannelTypeDefaultTest() {
+    TachyonConf conf = new TachyonConf();
+    Assert.assertEquals(ChannelType.defaultType(),
+        NettyUtils.getChannelType(conf, Constants.USER_NETTY_CHANNEL));
+  }
+
+  @Test
+  public void getChannelTypeNioTest() {
+    TachyonConf conf = new TachyonConf();
+    conf.set(Constants.USER_NETTY_CHANNEL, ChannelType.NIO.toString());
+    Assert.assertEquals(ChannelType.NIO,
+        NettyUtils.getChannelType(conf, Constants.USER_NETTY_CHANNEL));
+  }
+
+  @Test
+  public void getChannelTypeFallbackTest() {
+    TachyonConf conf = new TachyonConf();
+    conf.set(Constants.USER_NETTY_CHANNEL, ChannelType.EPOLL.toString());
+    ChannelType expected = ChannelType.EPOLL.isAvailable() ? ChannelType.EPOLL : ChannelType.NIO;
+    Assert.assertEquals(expected, NettyUtils.getChannelType(conf, Constants.USER_NETTY_CHANNEL));
+  }
+}
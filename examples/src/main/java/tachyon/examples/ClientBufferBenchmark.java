@@ -0,0 +1,135 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.examples;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.TachyonURI;
+import tachyon.Version;
+import tachyon.client.OutStream;
+import tachyon.client.TachyonFS;
+import tachyon.client.WriteType;
+import tachyon.conf.TachyonConf;
+
+/**
+ * Measures the garbage a client allocates to write many small files to its local worker, once
+ * with the buffer pool of the client disabled and once with it enabled. Every file is written
+ * with <code>MUST_CACHE</code>, so every file opens a block output stream and its file buffer. The
+ * bytes allocated by the writing thread and the collections run are reported for both runs.
+ */
+public class ClientBufferBenchmark implements Callable<Boolean> {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+
+  private final TachyonURI mMasterLocation;
+  private final TachyonURI mFolder;
+  private final int mNumFiles;
+  private final int mFileBytes;
+
+  public ClientBufferBenchmark(TachyonURI masterLocation, TachyonURI folder, int numFiles,
+      int fileBytes) {
+    mMasterLocation = masterLocation;
+    mFolder = folder;
+    mNumFiles = numFiles;
+    mFileBytes = fileBytes;
+  }
+
+  @Override
+  public Boolean call() throws Exception {
+    return run("without pool", 0) && run("with pool", Constants.DEFAULT_USER_BUFFER_POOL_MAX_BYTES);
+  }
+
+  private boolean run(String name, long maxPooledBytes) throws IOException {
+    TachyonConf tachyonConf = new TachyonConf();
+    tachyonConf.set(Constants.USER_BUFFER_POOL_MAX_BYTES, Long.toString(maxPooledBytes));
+    TachyonFS tachyonClient = TachyonFS.get(mMasterLocation, tachyonConf);
+    TachyonURI folder = new TachyonURI(mFolder + "/" + maxPooledBytes);
+    try {
+      if (tachyonClient.exist(folder)) {
+        tachyonClient.delete(folder, true);
+      }
+      byte[] data = new byte[mFileBytes];
+      long startAllocatedBytes = getAllocatedBytes();
+      long startCollections = getCollections();
+      long startCollectionMs = getCollectionMs();
+      long startTimeNs = System.nanoTime();
+      for (int k = 0; k < mNumFiles; k ++) {
+        TachyonURI path = new TachyonURI(folder + "/" + k);
+        tachyonClient.createFile(path);
+        OutStream os = tachyonClient.getFile(path).getOutStream(WriteType.MUST_CACHE);
+        os.write(data);
+        os.close();
+      }
+      long takenNs = System.nanoTime() - startTimeNs;
+      LOG.info(String.format("%s: %d files in %.3f sec, %d bytes allocated, "
+          + "%d collections taking %d ms", name, mNumFiles, takenNs / 1000000000.0,
+          getAllocatedBytes() - startAllocatedBytes, getCollections() - startCollections,
+          getCollectionMs() - startCollectionMs));
+      tachyonClient.delete(folder, true);
+      return true;
+    } catch (IOException e) {
+      LOG.error("Client buffer benchmark " + name + " failed", e);
+      return false;
+    } finally {
+      tachyonClient.close();
+    }
+  }
+
+  // The bytes allocated by this thread, or -1 if the JVM does not report them.
+  private static long getAllocatedBytes() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threadBean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  private static long getCollections() {
+    long collections = 0;
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      collections += Math.max(gcBean.getCollectionCount(), 0);
+    }
+    return collections;
+  }
+
+  private static long getCollectionMs() {
+    long collectionMs = 0;
+    for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      collectionMs += Math.max(gcBean.getCollectionTime(), 0);
+    }
+    return collectionMs;
+  }
+
+  public static void main(String[] args) throws IllegalArgumentException {
+    if (args.length != 4) {
+      System.out.println("java -cp target/tachyon-" + Version.VERSION
+          + "-jar-with-dependencies.jar tachyon.examples.ClientBufferBenchmark "
+          + "<TachyonMasterAddress> <Folder> <NumberOfFiles> <FileBytes>");
+      System.exit(-1);
+    }
+
+    Utils.runExample(new ClientBufferBenchmark(new TachyonURI(args[0]), new TachyonURI(args[1]),
+        Integer.parseInt(args[2]), Integer.parseInt(args[3])));
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.examples;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.TachyonURI;
+import tachyon.Version;
+import tachyon.client.OutStream;
+import tachyon.client.RemoteBlockReader;
+import tachyon.client.TachyonFile;
+import tachyon.client.TachyonFS;
+import tachyon.client.WriteType;
+import tachyon.conf.TachyonConf;
+import tachyon.thrift.ClientBlockInfo;
+import tachyon.thrift.NetAddress;
+import tachyon.util.ThreadFactoryUtils;
+
+/**
+ * Measures the remote read throughput and latency of the worker data server across block sizes and
+ * client concurrency. For every block size a single-block file is written with MUST_CACHE, then
+ * every concurrency level reads the block from the worker's data port with the configured remote
+ * block reader.
+ *
+ * The data server is configured on the worker, so to compare the NIO data server with zero-copy
+ * transfer against the Netty data server with TRANSFER and MAPPED, restart the worker with each of
+ * the following settings and run the benchmark once per setting:
+ * <ul>
+ * <li>tachyon.worker.data.server.class=tachyon.worker.nio.NIODataServer,
+ * tachyon.worker.network.nio.file.transfer=TRANSFER</li>
+ * <li>tachyon.worker.data.server.class=tachyon.worker.netty.NettyDataServer,
+ * tachyon.worker.network.netty.file.transfer=TRANSFER</li>
+ * <li>tachyon.worker.data.server.class=tachyon.worker.netty.NettyDataServer,
+ * tachyon.worker.network.netty.file.transfer=MAPPED</li>
+ * </ul>
+ */
+public class DataServerBenchmark implements Callable<Boolean> {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+
+  private final TachyonURI mMasterLocation;
+  private final TachyonURI mFolder;
+  private final long[] mBlockSizes;
+  private final int[] mConcurrencies;
+  private final int mReadsPerThread;
+  private final TachyonConf mTachyonConf = new TachyonConf();
+
+  public DataServerBenchmark(TachyonURI masterLocation, TachyonURI folder, long[] blockSizes,
+      int[] concurrencies, int readsPerThread) {
+    mMasterLocation = masterLocation;
+    mFolder = folder;
+    mBlockSizes = blockSizes;
+    mConcurrencies = concurrencies;
+    mReadsPerThread = readsPerThread;
+  }
+
+  @Override
+  public Boolean call() throws Exception {
+    TachyonFS tachyonClient = TachyonFS.get(mMasterLocation, mTachyonConf);
+    boolean pass = true;
+    for (long blockSize : mBlockSizes) {
+      TachyonURI path = new TachyonURI(mFolder + "/" + blockSize);
+      ClientBlockInfo blockInfo = writeBlock(tachyonClient, path, blockSize);
+      if (blockInfo.getLocations().isEmpty()) {
+        LOG.error("Block of " + path + " is not in any worker");
+        return false;
+      }
+      NetAddress address = blockInfo.getLocations().get(0);
+      for (int concurrency : mConcurrencies) {
+        pass = pass && readBlock(address, blockInfo.blockId, blockSize, concurrency);
+      }
+      tachyonClient.delete(path, false);
+    }
+    return pass;
+  }
+
+  private ClientBlockInfo writeBlock(TachyonFS tachyonClient, TachyonURI path, long blockSize)
+      throws IOException {
+    if (tachyonClient.exist(path)) {
+      tachyonClient.delete(path, false);
+    }
+    int fileId = tachyonClient.createFile(path, blockSize);
+    TachyonFile file = tachyonClient.getFile(fileId);
+    OutStream os = file.getOutStream(WriteType.MUST_CACHE);
+    byte[] buf = new byte[(int) Math.min(blockSize, Constants.MB)];
+    for (int k = 0; k < buf.length; k ++) {
+      buf[k] = (byte) k;
+    }
+    long written = 0;
+    while (written < blockSize) {
+      int len = (int) Math.min(buf.length, blockSize - written);
+      os.write(buf, 0, len);
+      written += len;
+    }
+    os.close();
+    return file.getClientBlockInfo(0);
+  }
+
+  private boolean readBlock(final NetAddress address, final long blockId, final long blockSize,
+      int concurrency) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency,
+        ThreadFactoryUtils.build("data-server-benchmark-%d", true));
+    List<Future<Long>> futures = new ArrayList<Future<Long>>(concurrency);
+    long startTimeNs = System.nanoTime();
+    try {
+      for (int t = 0; t < concurrency; t ++) {
+        futures.add(executor.submit(new Callable<Long>() {
+          @Override
+          public Long call() throws IOException {
+            RemoteBlockReader reader =
+                RemoteBlockReader.Factory.createRemoteBlockReader(mTachyonConf);
+            long latencyNs = 0;
+            for (int k = 0; k < mReadsPerThread; k ++) {
+              long readStartNs = System.nanoTime();
+              ByteBuffer data = reader.readRemoteBlock(address.mHost, address.mSecondaryPort,
+                  blockId, 0, blockSize);
+              latencyNs += System.nanoTime() - readStartNs;
+              if (data == null || data.remaining() != blockSize) {
+                throw new IOException("Read " + (data == null ? 0 : data.remaining())
+                    + " bytes of block " + blockId + " instead of " + blockSize);
+              }
+            }
+            return latencyNs;
+          }
+        }));
+      }
+      long totalLatencyNs = 0;
+      for (Future<Long> future : futures) {
+        totalLatencyNs += future.get();
+      }
+      long takenNs = System.nanoTime() - startTimeNs;
+      int reads = concurrency * mReadsPerThread;
+      double throughput = 1.0 * reads * blockSize / Constants.MB / takenNs * 1000000000L;
+      LOG.info(String.format("Block size %d bytes, concurrency %d: %.2f MB/sec, "
+          + "average latency %.3f ms over %d reads", blockSize, concurrency, throughput,
+          totalLatencyNs / 1000000.0 / reads, reads));
+      return true;
+    } catch (Exception e) {
+      LOG.error("Failed to read block " + blockId + " with concurrency " + concurrency, e);
+      return false;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static long[] parseLongs(String list) {
+    String[] items = list.split(",");
+    long[] ret = new long[items.length];
+    for (int k = 0; k < items.length; k ++) {
+      ret[k] = Long.parseLong(items[k].trim());
+    }
+    return ret;
+  }
+
+  private static int[] parseInts(String list) {
+    String[] items = list.split(",");
+    int[] ret = new int[items.length];
+    for (int k = 0; k < items.length; k ++) {
+      ret[k] = Integer.parseInt(items[k].trim());
+    }
+    return ret;
+  }
+
+  public static void main(String[] args) throws IllegalArgumentException {
+    if (args.length != 5) {
+      System.out.println("java -cp target/tachyon-" + Version.VERSION
+          + "-jar-with-dependencies.jar tachyon.examples.DataServerBenchmark "
+          + "<TachyonMasterAddress> <Folder> <BlockSizesInBytes, e.g. 65536,1048576,67108864> "
+          + "<Concurrencies, e.g. 1,4,16> <ReadsPerThread>");
+      System.exit(-1);
+    }
+
+    Utils.runExample(new DataServerBenchmark(new TachyonURI(args[0]), new TachyonURI(args[1]),
+        parseLongs(args[2]), parseInts(args[3]), Integer.parseInt(args[4])));
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.examples;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.TachyonURI;
+import tachyon.Version;
+import tachyon.client.TachyonFS;
+import tachyon.conf.TachyonConf;
+import tachyon.util.ThreadFactoryUtils;
+
+/**
+ * Measures the metadata operations per second of a single TachyonFS instance shared by a varying
+ * number of threads in one JVM. Every thread repeatedly creates a file, gets its status without
+ * the client metadata cache, and lists its folder, so every operation is a call to the master.
+ * The throughput should grow with the number of threads up to
+ * <code>tachyon.user.master.client.pool.size</code>.
+ */
+public class MetadataBenchmark implements Callable<Boolean> {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  /** The number of master calls made by one iteration of a thread. */
+  private static final int OPS_PER_ITERATION = 3;
+
+  private final TachyonURI mMasterLocation;
+  private final TachyonURI mFolder;
+  private final int[] mThreadCounts;
+  private final int mIterationsPerThread;
+  private final TachyonConf mTachyonConf = new TachyonConf();
+
+  public MetadataBenchmark(TachyonURI masterLocation, TachyonURI folder, int[] threadCounts,
+      int iterationsPerThread) {
+    mMasterLocation = masterLocation;
+    mFolder = folder;
+    mThreadCounts = threadCounts;
+    mIterationsPerThread = iterationsPerThread;
+  }
+
+  @Override
+  public Boolean call() throws Exception {
+    TachyonFS tachyonClient = TachyonFS.get(mMasterLocation, mTachyonConf);
+    boolean pass = true;
+    try {
+      for (int threads : mThreadCounts) {
+        TachyonURI folder = new TachyonURI(mFolder + "/" + threads);
+        if (tachyonClient.exist(folder)) {
+          tachyonClient.delete(folder, true);
+        }
+        pass = pass && runThreads(tachyonClient, folder, threads);
+        tachyonClient.delete(folder, true);
+      }
+    } finally {
+      tachyonClient.close();
+    }
+    return pass;
+  }
+
+  private boolean runThreads(final TachyonFS tachyonClient, TachyonURI folder, int threads)
+      throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+        ThreadFactoryUtils.build("metadata-benchmark-%d", true));
+    List<Future<Void>> futures = new ArrayList<Future<Void>>(threads);
+    long startTimeNs = System.nanoTime();
+    try {
+      for (int t = 0; t < threads; t ++) {
+        final TachyonURI threadFolder = new TachyonURI(folder + "/" + t);
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            for (int k = 0; k < mIterationsPerThread; k ++) {
+              TachyonURI path = new TachyonURI(threadFolder + "/" + k);
+              int fileId = tachyonClient.createFile(path);
+              if (tachyonClient.getFileStatus(fileId, path, false) == null) {
+                throw new IOException("File " + path + " does not exist after creation");
+              }
+              tachyonClient.listStatus(threadFolder);
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+      long takenNs = System.nanoTime() - startTimeNs;
+      long ops = (long) threads * mIterationsPerThread * OPS_PER_ITERATION;
+      LOG.info(String.format("%d threads: %.1f metadata ops/sec, %d ops in %.3f sec", threads,
+          ops * 1000000000.0 / takenNs, ops, takenNs / 1000000000.0));
+      return true;
+    } catch (Exception e) {
+      LOG.error("Metadata benchmark with " + threads + " threads failed", e);
+      return false;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static int[] parseInts(String list) {
+    String[] items = list.split(",");
+    int[] ret = new int[items.length];
+    for (int k = 0; k < items.length; k ++) {
+      ret[k] = Integer.parseInt(items[k].trim());
+    }
+    return ret;
+  }
+
+  public static void main(String[] args) throws IllegalArgumentException {
+    if (args.length != 4) {
+      System.out.println("java -cp target/tachyon-" + Version.VERSION
+          + "-jar-with-dependencies.jar tachyon.examples.MetadataBenchmark "
+          + "<TachyonMasterAddress> <Folder> <ThreadCounts, e.g. 1,2,4,8,16> "
+          + "<IterationsPerThread>");
+      System.exit(-1);
+    }
+
+    Utils.runExample(new MetadataBenchmark(new TachyonURI(args[0]), new TachyonURI(args[1]),
+        parseInts(args[2]), Integer.parseInt(args[3])));
+  }
+}
@@ -27,8 +27,7 @@ public class IntegrationTestConstants {
   public static final String TCP_BLOCK_READER = "tachyon.client.tcp.TCPRemoteBlockReader";
   public static final String NETTY_BLOCK_READER = "tachyon.client.netty.NettyRemoteBlockReader";
 
-  // Netty transfer types.
+  // File transfer types of the data servers.
   public static final String MAPPED_TRANSFER = "MAPPED";
   public static final String FILE_CHANNEL_TRANSFER = "TRANSFER";
-  public static final String UNUSED_TRANSFER = "UNUSED";
 }
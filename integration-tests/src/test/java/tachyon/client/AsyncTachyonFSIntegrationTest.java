@@ -0,0 +1,144 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import tachyon.Constants;
+import tachyon.TachyonURI;
+import tachyon.TestUtils;
+import tachyon.master.LocalTachyonCluster;
+import tachyon.thrift.ClientBlockInfo;
+import tachyon.thrift.ClientFileInfo;
+import tachyon.thrift.NetAddress;
+
+/**
+ * Integration tests for <code>tachyon.client.AsyncTachyonFS</code>.
+ */
+public class AsyncTachyonFSIntegrationTest {
+  private static final int WORKER_CAPACITY_BYTES = 10000;
+  private static final int USER_QUOTA_UNIT_BYTES = 100;
+  private static final int FILE_LEN = 1000;
+
+  private LocalTachyonCluster mLocalTachyonCluster = null;
+  private TachyonFS mTfs = null;
+  private AsyncTachyonFS mAsyncTfs = null;
+
+  @After
+  public final void after() throws Exception {
+    mLocalTachyonCluster.stop();
+  }
+
+  @Before
+  public final void before() throws IOException {
+    mLocalTachyonCluster =
+        new LocalTachyonCluster(WORKER_CAPACITY_BYTES, USER_QUOTA_UNIT_BYTES, Constants.GB);
+    mLocalTachyonCluster.start();
+    mTfs = mLocalTachyonCluster.getClient();
+    mAsyncTfs = mTfs.getAsync();
+  }
+
+  @Test
+  public void manyCallsInFlightTest() throws Exception {
+    String uniqPath = TestUtils.uniqPath();
+    int files = 200;
+    List<ListenableFuture<Integer>> creates = new ArrayList<ListenableFuture<Integer>>(files);
+    for (int k = 0; k < files; k ++) {
+      creates.add(mAsyncTfs.createFile(new TachyonURI(uniqPath + "/" + k), Constants.KB));
+    }
+    List<Integer> fileIds = Futures.allAsList(creates).get();
+    List<ListenableFuture<ClientFileInfo>> statuses =
+        new ArrayList<ListenableFuture<ClientFileInfo>>(files);
+    for (int fileId : fileIds) {
+      statuses.add(mAsyncTfs.getFileStatus(fileId, TachyonURI.EMPTY_URI));
+    }
+    for (int k = 0; k < files; k ++) {
+      Assert.assertEquals(uniqPath + "/" + k, statuses.get(k).get().getPath());
+    }
+    Assert.assertEquals(files, mAsyncTfs.listStatus(new TachyonURI(uniqPath)).get().size());
+  }
+
+  @Test
+  public void metadataTest() throws Exception {
+    TachyonURI folder = new TachyonURI(TestUtils.uniqPath());
+    TachyonURI src = new TachyonURI(folder + "/src");
+    TachyonURI dst = new TachyonURI(folder + "/dst");
+    Assert.assertTrue(mAsyncTfs.mkdirs(folder, true).get());
+    int fileId = mAsyncTfs.createFile(src, Constants.KB).get();
+    Assert.assertEquals(fileId, mAsyncTfs.getFileStatus(-1, src).get().getId());
+    Assert.assertTrue(mAsyncTfs.rename(src, dst).get());
+    Assert.assertNull(mAsyncTfs.getFileStatus(-1, src).get());
+    Assert.assertEquals(fileId, mTfs.getFileId(dst));
+    Assert.assertTrue(mAsyncTfs.delete(dst, false).get());
+    Assert.assertFalse(mTfs.exist(dst));
+  }
+
+  @Test
+  public void failureTest() throws Exception {
+    TachyonURI path = new TachyonURI(TestUtils.uniqPath());
+    mAsyncTfs.createFile(path, Constants.KB).get();
+    try {
+      mAsyncTfs.createFile(path, Constants.KB).get();
+      Assert.fail("Creating an existing file should fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IOException);
+    }
+    // The pool keeps working after a failed call.
+    Assert.assertNotNull(mAsyncTfs.getFileStatus(-1, path).get());
+  }
+
+  @Test
+  public void lockAndReadBlockTest() throws Exception {
+    int fileId = TachyonFSTestUtils.createByteFile(mTfs, TestUtils.uniqPath(),
+        WriteType.MUST_CACHE, FILE_LEN);
+    List<ClientBlockInfo> blocks = mAsyncTfs.getFileBlocks(fileId).get();
+    Assert.assertEquals(1, blocks.size());
+    ClientBlockInfo blockInfo = blocks.get(0);
+
+    String blockPath = mAsyncTfs.lockBlock(blockInfo.blockId).get();
+    Assert.assertNotNull(blockPath);
+    Assert.assertTrue(mAsyncTfs.unlockBlock(blockInfo.blockId).get());
+
+    ByteBuffer data = mAsyncTfs.readRemoteBlock(blockInfo, 10, FILE_LEN - 10).get();
+    Assert.assertTrue(TestUtils.equalIncreasingByteBuffer(10, FILE_LEN - 10, data));
+  }
+
+  @Test
+  public void readBlockInNoWorkerTest() throws Exception {
+    int fileId = TachyonFSTestUtils.createByteFile(mTfs, TestUtils.uniqPath(),
+        WriteType.THROUGH, FILE_LEN);
+    ClientBlockInfo blockInfo = mAsyncTfs.getFileBlocks(fileId).get().get(0);
+    Assert.assertFalse(TachyonFile.isInWorkerMemory(blockInfo));
+    // The under file system locations reported by the master have no data port.
+    blockInfo.addToLocations(new NetAddress("localhost", -1, -1));
+
+    Assert.assertNull(mAsyncTfs.readRemoteBlock(blockInfo, 0, FILE_LEN).get(10,
+        TimeUnit.SECONDS));
+  }
+}
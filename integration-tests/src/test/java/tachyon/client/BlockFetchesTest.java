@@ -0,0 +1,163 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tachyon.Constants;
+import tachyon.TestUtils;
+
+/**
+ * Unit tests for <code>tachyon.client.BlockFetches</code>.
+ */
+public class BlockFetchesTest {
+  private BlockFetches mFetches;
+  private ExecutorService mExecutor;
+
+  @Before
+  public final void before() {
+    mFetches = new BlockFetches();
+    mExecutor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public final void after() {
+    mExecutor.shutdownNow();
+  }
+
+  @Test
+  public void concurrentFetchesTest() throws Exception {
+    final CountDownLatch fetching = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger fetches = new AtomicInteger(0);
+    final Callable<ByteBuffer> fetcher = new Callable<ByteBuffer>() {
+      @Override
+      public ByteBuffer call() throws InterruptedException {
+        fetches.incrementAndGet();
+        fetching.countDown();
+        release.await();
+        return TestUtils.getIncreasingByteBuffer(10, 20);
+      }
+    };
+    Callable<ByteBuffer> reader = new Callable<ByteBuffer>() {
+      @Override
+      public ByteBuffer call() {
+        return mFetches.fetch(1, false, 10, 20, fetcher);
+      }
+    };
+    Future<ByteBuffer> first = mExecutor.submit(reader);
+    Assert.assertTrue(fetching.await(10, TimeUnit.SECONDS));
+    Future<ByteBuffer> second = mExecutor.submit(reader);
+    // Another range, or the same range from the under file system, is fetched separately.
+    Assert.assertEquals(TestUtils.getIncreasingByteBuffer(0, 5),
+        mFetches.fetch(1, false, 0, 5, constant(TestUtils.getIncreasingByteBuffer(0, 5))));
+    Assert.assertEquals(TestUtils.getIncreasingByteBuffer(10, 20),
+        mFetches.fetch(1, true, 10, 20, constant(TestUtils.getIncreasingByteBuffer(10, 20))));
+    // Let the second reader join the fetch in progress before completing it.
+    long deadlineMs = System.currentTimeMillis() + 10 * Constants.SECOND_MS;
+    while (mFetches.getWaiters(1, false, 10, 20) == 0) {
+      Assert.assertTrue(System.currentTimeMillis() < deadlineMs);
+      Thread.sleep(1);
+    }
+    release.countDown();
+
+    ByteBuffer firstData = first.get(10, TimeUnit.SECONDS);
+    ByteBuffer secondData = second.get(10, TimeUnit.SECONDS);
+    Assert.assertEquals(1, fetches.get());
+    Assert.assertEquals(TestUtils.getIncreasingByteBuffer(10, 20), firstData);
+    Assert.assertEquals(TestUtils.getIncreasingByteBuffer(10, 20), secondData);
+    // The waiters get their own copy of the data.
+    Assert.assertNotSame(firstData, secondData);
+    Assert.assertEquals(0, mFetches.getWaiters(1, false, 10, 20));
+
+    // Once done, the range is fetched again.
+    mFetches.fetch(1, false, 10, 20, fetcher);
+    Assert.assertEquals(2, fetches.get());
+  }
+
+  @Test
+  public void failedFetchTest() {
+    Assert.assertNull(mFetches.fetch(1, false, 0, 10, constant(null)));
+    Assert.assertNull(mFetches.fetch(1, false, 0, 10, new Callable<ByteBuffer>() {
+      @Override
+      public ByteBuffer call() throws IOException {
+        throw new IOException("failed");
+      }
+    }));
+    // A failure is not remembered.
+    Assert.assertEquals(TestUtils.getIncreasingByteBuffer(10),
+        mFetches.fetch(1, false, 0, 10, constant(TestUtils.getIncreasingByteBuffer(10))));
+  }
+
+  @Test
+  public void recacheTest() {
+    Owner first = new Owner();
+    Owner second = new Owner();
+    Assert.assertTrue(mFetches.startRecache(1, first));
+    Assert.assertFalse(mFetches.startRecache(1, second));
+    Assert.assertTrue(mFetches.startRecache(2, second));
+    mFetches.finishRecache(1, first);
+    Assert.assertTrue(mFetches.startRecache(1, second));
+    // Only the owner of a claim releases it.
+    mFetches.finishRecache(1, first);
+    Assert.assertFalse(mFetches.startRecache(1, first));
+  }
+
+  @Test
+  public void staleRecacheTest() {
+    Owner first = new Owner();
+    Owner second = new Owner();
+    Assert.assertTrue(mFetches.startRecache(1, first));
+    // A stream which stopped recaching without releasing its claim loses it.
+    first.mRecaching = false;
+    Assert.assertTrue(mFetches.startRecache(1, second));
+    Assert.assertFalse(mFetches.startRecache(1, new Owner()));
+    // Releasing the claim taken over does not release the new one.
+    mFetches.finishRecache(1, first);
+    Assert.assertFalse(mFetches.startRecache(1, new Owner()));
+  }
+
+  private static final class Owner implements BlockFetches.RecacheOwner {
+    private volatile boolean mRecaching = true;
+
+    @Override
+    public boolean isRecaching() {
+      return mRecaching;
+    }
+  }
+
+  private static Callable<ByteBuffer> constant(final ByteBuffer data) {
+    return new Callable<ByteBuffer>() {
+      @Override
+      public ByteBuffer call() {
+        return data;
+      }
+    };
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for <code>tachyon.client.ClientBufferPool</code>.
+ */
+public class ClientBufferPoolTest {
+  @Test
+  public void reuseTest() {
+    ClientBufferPool pool = new ClientBufferPool(false, 1000);
+    ByteBuffer buffer = pool.acquire(100);
+    Assert.assertEquals(100, buffer.capacity());
+    buffer.put((byte) 1);
+    pool.release(buffer);
+    Assert.assertEquals(100, pool.getPooledBytes());
+
+    // The same buffer is handed out again, cleared, but not for another capacity.
+    Assert.assertTrue(pool.acquire(200) != buffer);
+    ByteBuffer reused = pool.acquire(100);
+    Assert.assertTrue(reused == buffer);
+    Assert.assertEquals(0, reused.position());
+    Assert.assertEquals(100, reused.limit());
+    Assert.assertEquals(0, pool.getPooledBytes());
+  }
+
+  @Test
+  public void directTest() {
+    ClientBufferPool pool = new ClientBufferPool(true, 1000);
+    ByteBuffer direct = pool.acquire(100);
+    Assert.assertTrue(direct.isDirect());
+    ByteBuffer heap = pool.acquireHeap(100);
+    Assert.assertFalse(heap.isDirect());
+    Assert.assertTrue(heap.hasArray());
+
+    // Direct and heap buffers of the same capacity are pooled apart.
+    pool.release(direct);
+    pool.release(heap);
+    Assert.assertTrue(pool.acquireHeap(100) == heap);
+    Assert.assertTrue(pool.acquire(100) == direct);
+  }
+
+  @Test
+  public void maxPooledBytesTest() {
+    ClientBufferPool pool = new ClientBufferPool(false, 150);
+    ByteBuffer first = pool.acquire(100);
+    ByteBuffer second = pool.acquire(100);
+    pool.release(first);
+    // Pooling the second buffer would exceed the maximum, so it is dropped.
+    pool.release(second);
+    Assert.assertEquals(100, pool.getPooledBytes());
+    Assert.assertTrue(pool.acquire(100) == first);
+    Assert.assertTrue(pool.acquire(100) != second);
+  }
+
+  @Test
+  public void closeTest() {
+    ClientBufferPool pool = new ClientBufferPool(false, 1000);
+    ByteBuffer buffer = pool.acquire(100);
+    pool.release(pool.acquire(200));
+    pool.close();
+    Assert.assertEquals(0, pool.getPooledBytes());
+    // Buffers given back after the pool is closed are dropped.
+    pool.release(buffer);
+    Assert.assertEquals(0, pool.getPooledBytes());
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tachyon.Constants;
+import tachyon.conf.TachyonConf;
+import tachyon.thrift.ClientFileInfo;
+import tachyon.worker.ClientMetrics;
+
+/**
+ * Unit tests for <code>tachyon.client.ClientFileInfoCache</code>.
+ */
+public class ClientFileInfoCacheTest {
+  private TachyonConf mTachyonConf;
+  private ClientMetrics mClientMetrics;
+
+  @Before
+  public final void before() {
+    mTachyonConf = new TachyonConf();
+    mClientMetrics = new ClientMetrics();
+  }
+
+  private static ClientFileInfo createInfo(int id, String path) {
+    ClientFileInfo info = new ClientFileInfo();
+    info.setId(id);
+    info.setPath(path);
+    return info;
+  }
+
+  @Test
+  public void hitAndMissTest() {
+    ClientFileInfoCache cache = new ClientFileInfoCache(mTachyonConf, mClientMetrics);
+    ClientFileInfo info = createInfo(2, "/a");
+    Assert.assertNull(cache.get(2));
+    cache.put(info);
+    Assert.assertTrue(info == cache.get(2));
+    Assert.assertTrue(info == cache.get("/a"));
+
+    List<Long> metrics = mClientMetrics.getHeartbeatData();
+    Assert.assertEquals(2L, (long) metrics.get(Constants.METADATA_CACHE_HITS_INDEX));
+    Assert.assertEquals(1L, (long) metrics.get(Constants.METADATA_CACHE_MISSES_INDEX));
+  }
+
+  @Test
+  public void maxSizeTest() {
+    mTachyonConf.set(Constants.USER_METADATA_CACHE_MAX_SIZE, "1");
+    ClientFileInfoCache cache = new ClientFileInfoCache(mTachyonConf, mClientMetrics);
+    cache.put(createInfo(2, "/a"));
+    cache.put(createInfo(3, "/b"));
+    Assert.assertNull(cache.get(2));
+    Assert.assertNull(cache.get("/a"));
+    Assert.assertNotNull(cache.get(3));
+  }
+
+  @Test
+  public void expiryTest() throws Exception {
+    mTachyonConf.set(Constants.USER_METADATA_CACHE_EXPIRY_MS, "10");
+    ClientFileInfoCache cache = new ClientFileInfoCache(mTachyonConf, mClientMetrics);
+    cache.put(createInfo(2, "/a"));
+    Thread.sleep(50);
+    Assert.assertNull(cache.get(2));
+    Assert.assertNull(cache.get("/a"));
+  }
+
+  @Test
+  public void invalidateTreeTest() {
+    ClientFileInfoCache cache = new ClientFileInfoCache(mTachyonConf, mClientMetrics);
+    cache.put(createInfo(2, "/a"));
+    cache.put(createInfo(3, "/a/b"));
+    cache.put(createInfo(4, "/a/b/c"));
+    cache.put(createInfo(5, "/ab"));
+
+    cache.invalidate(3, null);
+    Assert.assertNotNull(cache.get(2));
+    Assert.assertNull(cache.get(3));
+    Assert.assertNull(cache.get("/a/b/c"));
+    Assert.assertNull(cache.get(4));
+    Assert.assertNotNull(cache.get("/ab"));
+
+    cache.invalidate(-1, "/a");
+    Assert.assertNull(cache.get(2));
+    Assert.assertNotNull(cache.get(5));
+  }
+
+  @Test
+  public void putAfterInvalidationTest() {
+    ClientFileInfoCache cache = new ClientFileInfoCache(mTachyonConf, mClientMetrics);
+    long invalidations = cache.getInvalidations();
+    cache.put(createInfo(2, "/a"), invalidations);
+    Assert.assertNotNull(cache.get(2));
+
+    // The info requested before an invalidation, e.g. by a status read racing with a rename, may
+    // predate the change, it is not cached.
+    invalidations = cache.getInvalidations();
+    cache.invalidate(-1, "/b");
+    cache.put(createInfo(3, "/c"), invalidations);
+    Assert.assertNull(cache.get(3));
+    Assert.assertNull(cache.get("/c"));
+  }
+}
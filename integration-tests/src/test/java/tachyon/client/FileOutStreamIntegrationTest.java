@@ -230,4 +230,28 @@ public class FileOutStreamIntegrationTest {
 
     checkWrite(filePath, WriteType.MUST_CACHE, length + 1, length + 1);
   }
+
+  /**
+   * Tests writing a file of many blocks in small writes, whose full blocks are committed and whose
+   * under file system copy is written while the next data is written.
+   */
+  @Test
+  public void multiBlockWriteTest() throws IOException {
+    String uniqPath = TestUtils.uniqPath();
+    int len = 10 * 128 + 7;
+    byte[] data = TestUtils.getIncreasingByteArray(len);
+    for (WriteType op : WriteType.values()) {
+      TachyonURI filePath = new TachyonURI(uniqPath + "/file_" + op);
+      int fileId = sTfs.createFile(filePath);
+      OutStream os = sTfs.getFile(fileId).getOutStream(op);
+      for (int off = 0; off < len; off += 50) {
+        os.write(data, off, Math.min(50, len - off));
+      }
+      os.close();
+      checkWrite(filePath, op, len, len);
+      if (op.isCache()) {
+        Assert.assertEquals(11, sTfs.getFile(fileId).getNumberOfBlocks());
+      }
+    }
+  }
 }
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tachyon.Constants;
+import tachyon.TestUtils;
+import tachyon.conf.TachyonConf;
+import tachyon.master.LocalTachyonCluster;
+import tachyon.util.CommonUtils;
+
+/**
+ * Integration tests for <code>tachyon.client.LocalBlockLeases</code>.
+ */
+public class LocalBlockLeasesIntegrationTest {
+  private static final int WORKER_CAPACITY_BYTES = 20000;
+  private static final int USER_QUOTA_UNIT_BYTES = 1000;
+  private static final int NUM_FILES = 5;
+  private static final int FILE_LEN = WORKER_CAPACITY_BYTES / NUM_FILES;
+
+  private LocalTachyonCluster mLocalTachyonCluster = null;
+  private TachyonFS mTfs = null;
+  private TachyonConf mMasterTachyonConf;
+  private TachyonConf mWorkerTachyonConf;
+
+  @After
+  public final void after() throws Exception {
+    mLocalTachyonCluster.stop();
+  }
+
+  @Before
+  public final void before() throws IOException {
+    mLocalTachyonCluster =
+        new LocalTachyonCluster(WORKER_CAPACITY_BYTES, USER_QUOTA_UNIT_BYTES, Constants.GB);
+    mLocalTachyonCluster.start();
+    mTfs = mLocalTachyonCluster.getClient();
+    mMasterTachyonConf = mLocalTachyonCluster.getMasterTachyonConf();
+    mWorkerTachyonConf = mLocalTachyonCluster.getWorkerTachyonConf();
+  }
+
+  /**
+   * Fills the worker with files and reads all of them with the given client.
+   */
+  private List<Integer> fillAndRead(String uniqPath, TachyonFS reader) throws IOException {
+    List<Integer> fileIds = new ArrayList<Integer>();
+    for (int k = 0; k < NUM_FILES; k ++) {
+      fileIds.add(TachyonFSTestUtils.createByteFile(mTfs, uniqPath + k, WriteType.CACHE_THROUGH,
+          FILE_LEN));
+    }
+    for (int k = 0; k < NUM_FILES; k ++) {
+      TachyonByteBuffer tBuf = reader.getFile(fileIds.get(k)).readByteBuffer(0);
+      Assert.assertNotNull(tBuf);
+      Assert.assertTrue(TestUtils.equalIncreasingByteBuffer(0, FILE_LEN, tBuf.mData));
+      tBuf.close();
+    }
+    return fileIds;
+  }
+
+  private TachyonFS getClient(long leaseMs) throws IOException {
+    mMasterTachyonConf.set(Constants.USER_LOCAL_READ_LEASE_MS, "" + leaseMs);
+    return mLocalTachyonCluster.getClient();
+  }
+
+  private long getSleepMs() {
+    return TestUtils.getToMasterHeartBeatIntervalMs(mWorkerTachyonConf) * 2 + 10;
+  }
+
+  @Test
+  public void leasedBlockTest() throws IOException {
+    TachyonFS reader = getClient(Constants.HOUR_MS);
+    String uniqPath = TestUtils.uniqPath();
+    List<Integer> fileIds = fillAndRead(uniqPath, reader);
+
+    // The blocks stay locked after they were read, so locking them again needs no call to the
+    // worker, and the worker does not evict them for another client.
+    for (int k = 0; k < NUM_FILES; k ++) {
+      TachyonFile tFile = reader.getFile(fileIds.get(k));
+      int blockLockId = reader.getBlockLockId();
+      Assert.assertEquals(tFile.getLocalFilename(0),
+          reader.lockBlock(tFile.getBlockId(0), blockLockId));
+      Assert.assertTrue(reader.unlockBlock(tFile.getBlockId(0), blockLockId));
+    }
+    fileIds.add(TachyonFSTestUtils.createByteFile(mTfs, uniqPath + NUM_FILES,
+        WriteType.CACHE_THROUGH, FILE_LEN));
+    CommonUtils.sleepMs(null, getSleepMs());
+    for (int k = 0; k < NUM_FILES; k ++) {
+      Assert.assertTrue(mTfs.getFile(fileIds.get(k)).isInMemory());
+    }
+    Assert.assertFalse(mTfs.getFile(fileIds.get(NUM_FILES)).isInMemory());
+
+    // Closing the reader releases its leases.
+    reader.close();
+    fileIds.add(TachyonFSTestUtils.createByteFile(mTfs, uniqPath + (NUM_FILES + 1),
+        WriteType.CACHE_THROUGH, FILE_LEN));
+    CommonUtils.sleepMs(null, getSleepMs());
+    Assert.assertTrue(mTfs.getFile(fileIds.get(NUM_FILES + 1)).isInMemory());
+  }
+
+  @Test
+  public void leaseExpiresTest() throws IOException {
+    TachyonFS reader = getClient(100);
+    String uniqPath = TestUtils.uniqPath();
+    List<Integer> fileIds = fillAndRead(uniqPath, reader);
+
+    // The leases expire and the accesses are reported, so the least recently read file is evicted.
+    CommonUtils.sleepMs(null, 500);
+    fileIds.add(TachyonFSTestUtils.createByteFile(mTfs, uniqPath + NUM_FILES,
+        WriteType.CACHE_THROUGH, FILE_LEN));
+    CommonUtils.sleepMs(null, getSleepMs());
+    Assert.assertFalse(mTfs.getFile(fileIds.get(0)).isInMemory());
+    for (int k = 1; k <= NUM_FILES; k ++) {
+      Assert.assertTrue(mTfs.getFile(fileIds.get(k)).isInMemory());
+    }
+  }
+
+  @Test
+  public void releaseLeasesForSpaceTest() throws IOException {
+    TachyonFS reader = getClient(Constants.HOUR_MS);
+    String uniqPath = TestUtils.uniqPath();
+    List<Integer> fileIds = fillAndRead(uniqPath, reader);
+
+    // The reader releases its own leases when it needs space in the worker.
+    fileIds.add(TachyonFSTestUtils.createByteFile(reader, uniqPath + NUM_FILES,
+        WriteType.CACHE_THROUGH, FILE_LEN));
+    CommonUtils.sleepMs(null, getSleepMs());
+    Assert.assertTrue(mTfs.getFile(fileIds.get(NUM_FILES)).isInMemory());
+    int inMemory = 0;
+    for (int k = 0; k < NUM_FILES; k ++) {
+      if (mTfs.getFile(fileIds.get(k)).isInMemory()) {
+        inMemory ++;
+      }
+    }
+    Assert.assertEquals(NUM_FILES - 1, inMemory);
+  }
+}
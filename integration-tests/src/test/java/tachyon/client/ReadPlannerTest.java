@@ -0,0 +1,108 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tachyon.Constants;
+import tachyon.worker.ClientMetrics;
+
+/**
+ * Unit tests for <code>tachyon.client.ReadPlanner</code>.
+ */
+public class ReadPlannerTest {
+  private static final InetSocketAddress FAST = InetSocketAddress.createUnresolved("fast", 1);
+  private static final InetSocketAddress SLOW = InetSocketAddress.createUnresolved("slow", 1);
+  private static final InetSocketAddress LOCAL = InetSocketAddress.createUnresolved("local", 1);
+
+  private ClientMetrics mClientMetrics;
+
+  @Before
+  public final void before() {
+    mClientMetrics = new ClientMetrics();
+  }
+
+  private static void read(ReadPlanner planner, InetSocketAddress address, long bytes, long ms) {
+    planner.startWorkerRead(address);
+    planner.endWorkerRead(address, bytes, ms * 1000000L);
+  }
+
+  @Test
+  public void orderWorkersTest() {
+    ReadPlanner planner = new ReadPlanner(true, 2, "local", mClientMetrics);
+    read(planner, SLOW, 100, 10);
+    read(planner, FAST, 100, 1);
+    Assert.assertEquals(Arrays.asList(FAST, SLOW), planner.orderWorkers(Arrays.asList(SLOW, FAST)));
+
+    // Workers on the local host come first, unmeasured workers before measured ones.
+    Assert.assertEquals(Arrays.asList(LOCAL, FAST, SLOW),
+        planner.orderWorkers(Arrays.asList(SLOW, FAST, LOCAL)));
+    InetSocketAddress unmeasured = InetSocketAddress.createUnresolved("new", 1);
+    Assert.assertEquals(unmeasured, planner.orderWorkers(Arrays.asList(FAST, unmeasured)).get(0));
+
+    // A fast worker busy with many requests is shared among them.
+    for (int k = 0; k < 20; k ++) {
+      planner.startWorkerRead(FAST);
+    }
+    Assert.assertEquals(Arrays.asList(SLOW, FAST), planner.orderWorkers(Arrays.asList(FAST, SLOW)));
+  }
+
+  @Test
+  public void readFromUnderFsTest() {
+    ReadPlanner planner = new ReadPlanner(true, 2, "local", mClientMetrics);
+    List<InetSocketAddress> workers = Arrays.asList(SLOW);
+    // Nothing is known about the under file system yet.
+    Assert.assertFalse(planner.shouldReadFromUnderFs(workers, true));
+    planner.recordUnderFsRead(100, 1 * 1000000L);
+    // Nothing is known about the worker yet.
+    Assert.assertFalse(planner.shouldReadFromUnderFs(workers, true));
+    read(planner, SLOW, 100, 10);
+    Assert.assertTrue(planner.shouldReadFromUnderFs(workers, true));
+    // Blocks which are not checkpointed can only be read from the workers.
+    Assert.assertFalse(planner.shouldReadFromUnderFs(workers, false));
+    read(planner, FAST, 100, 1);
+    Assert.assertFalse(planner.shouldReadFromUnderFs(Arrays.asList(SLOW, FAST), true));
+    Assert.assertEquals(1L,
+        (long) mClientMetrics.getHeartbeatData().get(Constants.ADAPTIVE_READS_UFS_INDEX));
+  }
+
+  @Test
+  public void recacheTest() {
+    ReadPlanner planner = new ReadPlanner(true, 2, "local", mClientMetrics);
+    Assert.assertFalse(planner.shouldRecache(1));
+    Assert.assertTrue(planner.shouldRecache(1));
+    Assert.assertFalse(planner.shouldRecache(2));
+    Assert.assertEquals(2L,
+        (long) mClientMetrics.getHeartbeatData().get(Constants.ADAPTIVE_RECACHES_SKIPPED_INDEX));
+  }
+
+  @Test
+  public void disabledTest() {
+    ReadPlanner planner = new ReadPlanner(false, 2, "local", mClientMetrics);
+    read(planner, FAST, 100, 1);
+    planner.recordUnderFsRead(1000, 1 * 1000000L);
+    read(planner, SLOW, 100, 10);
+    Assert.assertEquals(Arrays.asList(SLOW, FAST), planner.orderWorkers(Arrays.asList(SLOW, FAST)));
+    Assert.assertFalse(planner.shouldReadFromUnderFs(Arrays.asList(SLOW), true));
+    Assert.assertTrue(planner.shouldRecache(1));
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tachyon.Constants;
+import tachyon.TestUtils;
+import tachyon.worker.ClientMetrics;
+
+/**
+ * Unit tests for <code>tachyon.client.RemoteBlockCache</code>.
+ */
+public class RemoteBlockCacheTest {
+  private ClientMetrics mClientMetrics;
+
+  @Before
+  public final void before() {
+    mClientMetrics = new ClientMetrics();
+  }
+
+  @Test
+  public void hitAndMissTest() {
+    RemoteBlockCache cache = new RemoteBlockCache(1000, false, mClientMetrics);
+    Assert.assertNull(cache.get(1, 10, 20));
+    ByteBuffer data = TestUtils.getIncreasingByteBuffer(10, 20);
+    cache.put(1, 10, data);
+    // The data put is not consumed.
+    Assert.assertEquals(20, data.remaining());
+
+    Assert.assertEquals(TestUtils.getIncreasingByteBuffer(10, 20), cache.get(1, 10, 20));
+    Assert.assertEquals(TestUtils.getIncreasingByteBuffer(10, 5), cache.get(1, 10, 5));
+    // Longer ranges, other offsets and other blocks are not served.
+    Assert.assertNull(cache.get(1, 10, 21));
+    Assert.assertNull(cache.get(1, 11, 5));
+    Assert.assertNull(cache.get(2, 10, 20));
+
+    List<Long> metrics = mClientMetrics.getHeartbeatData();
+    Assert.assertEquals(2L, (long) metrics.get(Constants.REMOTE_READ_CACHE_HITS_INDEX));
+    Assert.assertEquals(4L, (long) metrics.get(Constants.REMOTE_READ_CACHE_MISSES_INDEX));
+    Assert.assertEquals(25L, (long) metrics.get(Constants.REMOTE_READ_CACHE_BYTES_SAVED_INDEX));
+  }
+
+  @Test
+  public void wholeBlockTest() {
+    RemoteBlockCache cache = new RemoteBlockCache(1000, true, mClientMetrics);
+    cache.put(1, 0, TestUtils.getIncreasingByteBuffer(100));
+    // Any range of a cached whole block is served, as a heap copy.
+    ByteBuffer range = cache.get(1, 30, 40);
+    Assert.assertEquals(TestUtils.getIncreasingByteBuffer(30, 40), range);
+    Assert.assertTrue(range.hasArray());
+    Assert.assertNull(cache.get(1, 90, 20));
+  }
+
+  @Test
+  public void maxBytesTest() {
+    RemoteBlockCache cache = new RemoteBlockCache(150, false, mClientMetrics);
+    cache.put(1, 0, TestUtils.getIncreasingByteBuffer(100));
+    cache.put(2, 0, TestUtils.getIncreasingByteBuffer(100));
+    // The least recently used range is evicted.
+    Assert.assertEquals(100, cache.getCachedBytes());
+    Assert.assertNull(cache.get(1, 0, 100));
+    Assert.assertNotNull(cache.get(2, 0, 100));
+    // Ranges larger than the cache are not cached.
+    cache.put(3, 0, TestUtils.getIncreasingByteBuffer(200));
+    Assert.assertNull(cache.get(3, 0, 200));
+  }
+
+  @Test
+  public void disabledTest() {
+    RemoteBlockCache cache = new RemoteBlockCache(0, false, mClientMetrics);
+    Assert.assertFalse(cache.isEnabled());
+    cache.put(1, 0, TestUtils.getIncreasingByteBuffer(100));
+    Assert.assertNull(cache.get(1, 0, 100));
+    Assert.assertEquals(0L, (long) mClientMetrics.getHeartbeatData()
+        .get(Constants.REMOTE_READ_CACHE_MISSES_INDEX));
+  }
+}
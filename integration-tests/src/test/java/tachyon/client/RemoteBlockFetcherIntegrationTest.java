@@ -0,0 +1,126 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tachyon.Constants;
+import tachyon.TestUtils;
+import tachyon.conf.TachyonConf;
+import tachyon.master.LocalTachyonCluster;
+import tachyon.thrift.ClientBlockInfo;
+import tachyon.thrift.NetAddress;
+
+/**
+ * Integration tests for <code>tachyon.client.RemoteBlockFetcher</code>.
+ */
+public class RemoteBlockFetcherIntegrationTest {
+  private static final int WORKER_CAPACITY_BYTES = 10000;
+  private static final int USER_QUOTA_UNIT_BYTES = 100;
+  private static final int FILE_LEN = 1000;
+
+  private LocalTachyonCluster mLocalTachyonCluster = null;
+  private TachyonFS mTfs = null;
+  private TachyonConf mTachyonConf;
+
+  @After
+  public final void after() throws Exception {
+    mLocalTachyonCluster.stop();
+    System.clearProperty("fs.hdfs.impl.disable.cache");
+  }
+
+  @Before
+  public final void before() throws IOException {
+    // Disable hdfs client caching to avoid file system close() affecting other clients
+    System.setProperty("fs.hdfs.impl.disable.cache", "true");
+
+    mLocalTachyonCluster =
+        new LocalTachyonCluster(WORKER_CAPACITY_BYTES, USER_QUOTA_UNIT_BYTES, Constants.GB);
+    mLocalTachyonCluster.start();
+    mTfs = mLocalTachyonCluster.getClient();
+    mTachyonConf = new TachyonConf(mLocalTachyonCluster.getWorkerTachyonConf());
+  }
+
+  private ClientBlockInfo createBlock() throws IOException {
+    int fileId = TachyonFSTestUtils.createByteFile(mTfs, TestUtils.uniqPath(),
+        WriteType.MUST_CACHE, FILE_LEN);
+    return mTfs.getFile(fileId).getClientBlockInfo(0);
+  }
+
+  private InetSocketAddress getWorkerDataAddress() {
+    NetAddress address = mLocalTachyonCluster.getWorkerAddress();
+    return new InetSocketAddress(address.mHost, address.mSecondaryPort);
+  }
+
+  private InetSocketAddress getUnusedAddress() throws IOException {
+    ServerSocket socket = new ServerSocket(0);
+    int port = socket.getLocalPort();
+    socket.close();
+    return new InetSocketAddress("localhost", port);
+  }
+
+  @Test
+  public void hedgedReadSkipsFailedLocationTest() throws IOException {
+    ClientBlockInfo blockInfo = createBlock();
+    mTachyonConf.set(Constants.USER_REMOTE_READ_HEDGE_DELAY_MS, "0");
+
+    List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+    addresses.add(getUnusedAddress());
+    addresses.add(getWorkerDataAddress());
+    ByteBuffer buf =
+        RemoteBlockFetcher.fetch(addresses, blockInfo.blockId, 0, FILE_LEN, mTachyonConf);
+    Assert.assertNotNull(buf);
+    Assert.assertTrue(TestUtils.equalIncreasingByteBuffer(0, FILE_LEN, buf));
+  }
+
+  @Test
+  public void noLocationTest() throws IOException {
+    ClientBlockInfo blockInfo = createBlock();
+    List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+    Assert.assertNull(
+        RemoteBlockFetcher.fetch(addresses, blockInfo.blockId, 0, FILE_LEN, mTachyonConf));
+    addresses.add(getUnusedAddress());
+    Assert.assertNull(
+        RemoteBlockFetcher.fetch(addresses, blockInfo.blockId, 0, FILE_LEN, mTachyonConf));
+  }
+
+  @Test
+  public void splitReadTest() throws IOException {
+    ClientBlockInfo blockInfo = createBlock();
+    mTachyonConf.set(Constants.USER_REMOTE_READ_SPLIT_MIN_BYTE, "1");
+
+    List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+    for (int k = 0; k < 3; k ++) {
+      addresses.add(getWorkerDataAddress());
+    }
+    int offset = 10;
+    int length = FILE_LEN - offset - 1;
+    ByteBuffer buf =
+        RemoteBlockFetcher.fetch(addresses, blockInfo.blockId, offset, length, mTachyonConf);
+    Assert.assertNotNull(buf);
+    Assert.assertTrue(TestUtils.equalIncreasingByteBuffer(offset, length, buf));
+  }
+}
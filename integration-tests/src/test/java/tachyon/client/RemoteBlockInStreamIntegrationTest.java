@@ -78,6 +78,7 @@ public class RemoteBlockInStreamIntegrationTest {
   public final void after() throws Exception {
     mLocalTachyonCluster.stop();
     System.clearProperty("fs.hdfs.impl.disable.cache");
+    System.clearProperty(Constants.WORKER_UFS_READ_THROUGH_ENABLED);
   }
 
   @Before
@@ -88,6 +89,7 @@ public class RemoteBlockInStreamIntegrationTest {
     mLocalTachyonCluster = new LocalTachyonCluster(10000, 1000, Constants.GB);
     System.setProperty(Constants.WORKER_DATA_SERVER, mDataServerClass);
     System.setProperty(Constants.USER_REMOTE_BLOCK_READER, mRemoteReaderClass);
+    System.setProperty(Constants.WORKER_UFS_READ_THROUGH_ENABLED, "true");
     mLocalTachyonCluster.start();
     mLocalTachyonCluster.getWorkerTachyonConf().set(Constants.USER_REMOTE_READ_BUFFER_SIZE_BYTE,
         "100");
@@ -556,6 +558,28 @@ public class RemoteBlockInStreamIntegrationTest {
     is.close();
   }
 
+  /**
+   * Tests that a block in no worker is read through the worker, which caches it, with the Netty
+   * data server, and read from the underfs with the others.
+   */
+  @Test
+  public void readThroughWorker() throws IOException {
+    String uniqPath = TestUtils.uniqPath();
+    int len = 50;
+    int fileId = TachyonFSTestUtils.createByteFile(mTfs, uniqPath, WriteType.THROUGH, len);
+    TachyonFile file = mTfs.getFile(fileId);
+    TachyonConf conf = new TachyonConf(mMasterTachyonConf);
+    conf.set(Constants.USER_UFS_READ_THROUGH, "true");
+    conf.set(Constants.USER_UFS_READ_THROUGH_TIMEOUT_MS, "10000");
+    InStream is = new RemoteBlockInStream(file, ReadType.NO_CACHE, 0, conf);
+    byte[] ret = new byte[len];
+    Assert.assertEquals(len, is.read(ret));
+    Assert.assertTrue(TestUtils.equalIncreasingByteArray(len, ret));
+    is.close();
+    boolean readThrough = mDataServerClass.equals(IntegrationTestConstants.NETTY_DATA_SERVER);
+    Assert.assertEquals(readThrough, file.isInMemory());
+  }
+
   /**
    * Tests that reading a file consisting of more than one block from the underfs works
    */
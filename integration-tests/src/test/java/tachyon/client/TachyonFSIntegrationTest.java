@@ -17,7 +17,12 @@ package tachyon.client;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -86,6 +91,38 @@ public class TachyonFSIntegrationTest {
     }
   }
 
+  @Test
+  public void concurrentMetadataTest() throws Exception {
+    final String uniqPath = TestUtils.uniqPath();
+    final int filesPerThread = 10;
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<Void>> futures = new ArrayList<Future<Void>>(threads);
+    try {
+      for (int t = 0; t < threads; t ++) {
+        final TachyonURI folder = new TachyonURI(uniqPath + "/" + t);
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            for (int k = 0; k < filesPerThread; k ++) {
+              TachyonURI uri = new TachyonURI(folder + "/" + k);
+              int fileId = sTfs.createFile(uri);
+              Assert.assertEquals(fileId, sTfs.getFileId(uri));
+            }
+            Assert.assertEquals(filesPerThread, sTfs.listStatus(folder).size());
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(threads, sTfs.listStatus(new TachyonURI(uniqPath)).size());
+  }
+
   @Test(expected = IOException.class)
   public void createFileWithFileAlreadyExistExceptionTest() throws IOException {
     TachyonURI uri = new TachyonURI(TestUtils.uniqPath());
@@ -242,6 +279,30 @@ public class TachyonFSIntegrationTest {
     Assert.assertFalse(fileInfo == fileInfoNotCached);
   }
 
+  @Test
+  public void getFileStatusCacheInvalidationTest() throws IOException {
+    String uniqPath = TestUtils.uniqPath();
+    TachyonURI folder = new TachyonURI(uniqPath);
+    TachyonURI uri = new TachyonURI(uniqPath + "/file");
+    int fileId = TachyonFSTestUtils.createByteFile(sTfs, uri, WriteType.MUST_CACHE, 10);
+    ClientFileInfo fileInfo = sTfs.getFileStatus(-1, uri, false);
+    Assert.assertTrue(fileInfo == sTfs.getFileStatus(-1, uri, true));
+    Assert.assertTrue(fileInfo == sTfs.getFileStatus(fileId, true));
+
+    // Renaming the parent folder invalidates the cached entries of the files under it.
+    TachyonURI dstFolder = new TachyonURI(uniqPath + "_dst");
+    Assert.assertTrue(sTfs.rename(folder, dstFolder));
+    Assert.assertNull(sTfs.getFileStatus(-1, uri, true));
+    ClientFileInfo renamedInfo = sTfs.getFileStatus(fileId, true);
+    Assert.assertEquals(uniqPath + "_dst/file", renamedInfo.getPath());
+
+    sTfs.setPinned(fileId, true);
+    Assert.assertTrue(sTfs.getFileStatus(fileId, true).isPinned);
+
+    Assert.assertTrue(sTfs.delete(dstFolder, true));
+    Assert.assertNull(sTfs.getFileStatus(-1, new TachyonURI(renamedInfo.getPath()), true));
+  }
+
   @Test(expected = IOException.class)
   public void getTestAbnormal1() throws IOException {
     TachyonFS.get(new TachyonURI("/" + sHost + ":" + sPort), mMasterTachyonConf);
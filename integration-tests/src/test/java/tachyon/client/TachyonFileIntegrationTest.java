@@ -17,11 +17,17 @@ package tachyon.client;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 import tachyon.Constants;
 import tachyon.TachyonURI;
@@ -47,6 +53,9 @@ public class TachyonFileIntegrationTest {
 
   private TachyonConf mWorkerTachyonConf;
 
+  @Rule
+  public ExpectedException mThrown = ExpectedException.none();
+
   @After
   public final void after() throws Exception {
     mLocalTachyonCluster.stop();
@@ -234,6 +243,44 @@ public class TachyonFileIntegrationTest {
     buf.close();
   }
 
+  /**
+   * Test <code>List<ByteBuffer> readRanges(List<FileRange> ranges)</code> on a multi-block file,
+   * for both cached and under file system only data.
+   */
+  @Test
+  public void readRangesTest() throws IOException {
+    int len = 250;
+    int blockSize = 60;
+    List<FileRange> ranges = new ArrayList<FileRange>();
+    ranges.add(new FileRange(200, 50));
+    ranges.add(new FileRange(0, 10));
+    ranges.add(new FileRange(12, 3));
+    ranges.add(new FileRange(55, 70));
+    ranges.add(new FileRange(30, 0));
+    ranges.add(new FileRange(5, 10));
+    for (WriteType op : new WriteType[] {WriteType.MUST_CACHE, WriteType.THROUGH}) {
+      int fileId = TachyonFSTestUtils.createByteFile(mTfs, "/root/testFile_ranges_" + op, op,
+          len, blockSize);
+      TachyonFile file = mTfs.getFile(fileId);
+      List<ByteBuffer> results = file.readRanges(ranges);
+      Assert.assertEquals(ranges.size(), results.size());
+      for (int k = 0; k < ranges.size(); k ++) {
+        FileRange range = ranges.get(k);
+        Assert.assertTrue(TestUtils.equalIncreasingByteBuffer((int) range.getOffset(),
+            range.getLength(), results.get(k)));
+      }
+    }
+  }
+
+  @Test
+  public void readRangesPastEndTest() throws IOException {
+    int fileId = TachyonFSTestUtils.createByteFile(mTfs, "/root/testFile", WriteType.MUST_CACHE,
+        10);
+    TachyonFile file = mTfs.getFile(fileId);
+    mThrown.expect(IOException.class);
+    file.readRanges(Arrays.asList(new FileRange(5, 6)));
+  }
+
   @Test
   public void writeEmptyFileTest() throws IOException {
     TachyonURI uri = new TachyonURI("/emptyFile");
@@ -95,4 +95,32 @@ public class UfsUtilsIntegrationTest {
       Assert.assertNotNull(paths);
     }
   }
+
+  @Test
+  public void loadUnderFsTreeTest() throws IOException {
+    // More files than a batch in a directory, and nested directories
+    String root = mUnderfsAddress + "/tree";
+    mUfs.mkdirs(root + "/a", true);
+    mUfs.mkdirs(root + "/b/c", true);
+    for (int k = 0; k < 150; k ++) {
+      UnderFileSystemUtils.touch(root + "/a/" + k, mLocalTachyonCluster.getMasterTachyonConf());
+    }
+    for (int k = 0; k < 5; k ++) {
+      UnderFileSystemUtils.touch(root + "/b/c/" + k, mLocalTachyonCluster.getMasterTachyonConf());
+    }
+
+    UfsUtils.loadUnderFs(mTfs, new TachyonURI("/dst"), new TachyonURI(root), new PrefixList(null),
+        mLocalTachyonCluster.getMasterTachyonConf());
+    Assert.assertEquals(150, mTfs.listStatus(new TachyonURI("/dst/a")).size());
+    Assert.assertEquals(5, mTfs.listStatus(new TachyonURI("/dst/b/c")).size());
+    Assert.assertEquals(root + "/b/c/3",
+        mTfs.getFile(new TachyonURI("/dst/b/c/3")).getUfsPath());
+
+    // Loading again only loads the new files
+    UnderFileSystemUtils.touch(root + "/b/new", mLocalTachyonCluster.getMasterTachyonConf());
+    UfsUtils.loadUnderFs(mTfs, new TachyonURI("/dst"), new TachyonURI(root), new PrefixList(null),
+        mLocalTachyonCluster.getMasterTachyonConf());
+    Assert.assertEquals(150, mTfs.listStatus(new TachyonURI("/dst/a")).size());
+    Assert.assertEquals(2, mTfs.listStatus(new TachyonURI("/dst/b")).size());
+  }
 }
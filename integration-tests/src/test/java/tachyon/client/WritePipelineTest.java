@@ -0,0 +1,106 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.client;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for <code>tachyon.client.WritePipeline</code>.
+ */
+public class WritePipelineTest {
+  private static WritePipeline.Step addStep(final List<Integer> steps, final int step) {
+    return new WritePipeline.Step() {
+      @Override
+      public void run() throws IOException {
+        steps.add(step);
+      }
+
+      @Override
+      public void abandon() {
+        steps.add(-step);
+      }
+    };
+  }
+
+  private static WritePipeline.Step failStep() {
+    return new WritePipeline.Step() {
+      @Override
+      public void run() throws IOException {
+        throw new IOException("fail");
+      }
+    };
+  }
+
+  @Test
+  public void orderTest() throws IOException {
+    List<Integer> steps = new CopyOnWriteArrayList<Integer>();
+    WritePipeline pipeline = new WritePipeline(true, 2);
+    for (int k = 0; k < 100; k ++) {
+      pipeline.submit(addStep(steps, k));
+    }
+    pipeline.await();
+    Assert.assertEquals(100, steps.size());
+    for (int k = 0; k < 100; k ++) {
+      Assert.assertEquals(k, (int) steps.get(k));
+    }
+  }
+
+  @Test
+  public void failureTest() throws IOException {
+    List<Integer> steps = new CopyOnWriteArrayList<Integer>();
+    WritePipeline pipeline = new WritePipeline(true, 1);
+    pipeline.submit(addStep(steps, 0));
+    pipeline.submit(failStep());
+    try {
+      // The step submitted after the failure is dropped.
+      pipeline.submit(addStep(steps, 1));
+      pipeline.await();
+      Assert.fail("The failure of a step should be rethrown");
+    } catch (IOException ioe) {
+      Assert.assertEquals("fail", ioe.getMessage());
+    }
+    // The dropped step is abandoned.
+    Assert.assertEquals(2, steps.size());
+    Assert.assertEquals(-1, (int) steps.get(1));
+    try {
+      pipeline.submit(addStep(steps, 2));
+      Assert.fail("A failed pipeline should not take steps");
+    } catch (IOException ioe) {
+      Assert.assertEquals("fail", ioe.getMessage());
+    }
+    Assert.assertEquals(-2, (int) steps.get(2));
+  }
+
+  @Test
+  public void syncTest() throws IOException {
+    List<Integer> steps = new CopyOnWriteArrayList<Integer>();
+    WritePipeline pipeline = new WritePipeline(false, 1);
+    pipeline.submit(addStep(steps, 0));
+    // Steps run right away in the submitting thread.
+    Assert.assertEquals(1, steps.size());
+    try {
+      pipeline.submit(failStep());
+      Assert.fail("The failure of a step should be thrown right away");
+    } catch (IOException ioe) {
+      Assert.assertEquals("fail", ioe.getMessage());
+    }
+  }
+}
@@ -15,8 +15,15 @@
 
 package tachyon.hadoop;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -171,6 +178,85 @@ public class HdfsFileInputStreamIntegrationTest {
     Assert.assertEquals(-1, length);
   }
 
+  /**
+   * Test <code>int read(byte[] b)</code>.
+   */
+  @Test
+  public void readTest4() throws IOException {
+    byte[] buf = new byte[FILE_LEN];
+    Assert.assertEquals(FILE_LEN, mInMemInputStream.read(buf));
+    Assert.assertTrue(TestUtils.equalIncreasingByteArray(FILE_LEN, buf));
+    Assert.assertEquals(FILE_LEN, mInMemInputStream.getPos());
+
+    Arrays.fill(buf, (byte) 0);
+    Assert.assertEquals(FILE_LEN, mUfsInputStream.read(buf));
+    Assert.assertTrue(TestUtils.equalIncreasingByteArray(FILE_LEN, buf));
+    Assert.assertEquals(FILE_LEN, mUfsInputStream.getPos());
+  }
+
+  /**
+   * Test <code>void readFully(long position, byte[] buffer, int offset, int length)</code>.
+   */
+  @Test
+  public void readFullyTest() throws IOException {
+    byte[] buf = new byte[FILE_LEN - 10];
+    mInMemInputStream.seek(5);
+    mInMemInputStream.readFully(10, buf);
+    Assert.assertTrue(TestUtils.equalIncreasingByteArray(10, FILE_LEN - 10, buf));
+    Assert.assertEquals(5, mInMemInputStream.getPos());
+    Assert.assertEquals(5, mInMemInputStream.read());
+
+    Arrays.fill(buf, (byte) 0);
+    mUfsInputStream.readFully(10, buf, 0, FILE_LEN - 10);
+    Assert.assertTrue(TestUtils.equalIncreasingByteArray(10, FILE_LEN - 10, buf));
+    Assert.assertEquals(0, mUfsInputStream.getPos());
+
+    EOFException exception = null;
+    try {
+      mInMemInputStream.readFully(20, buf);
+    } catch (EOFException e) {
+      exception = e;
+    }
+    Assert.assertNotNull(exception);
+  }
+
+  /**
+   * Test concurrent <code>int read(long position, byte[] buffer, int offset, int length)</code>
+   * calls, interleaved with sequential reads of the same stream.
+   */
+  @Test
+  public void concurrentPositionalReadTest() throws Exception {
+    final int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+      for (int t = 0; t < threads; t ++) {
+        final int position = t * 10;
+        futures.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws IOException {
+            byte[] buf = new byte[FILE_LEN - position];
+            for (int k = 0; k < 20; k ++) {
+              mInMemInputStream.readFully(position, buf);
+              if (!TestUtils.equalIncreasingByteArray(position, FILE_LEN - position, buf)) {
+                return false;
+              }
+            }
+            return true;
+          }
+        }));
+      }
+      for (int i = 0; i < FILE_LEN; i ++) {
+        Assert.assertEquals(i & 0x00ff, mInMemInputStream.read());
+      }
+      for (Future<Boolean> future : futures) {
+        Assert.assertTrue(future.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   public void seekTest() throws IOException {
     mInMemInputStream.seek(0);
@@ -47,6 +47,8 @@ import tachyon.thrift.InvalidPathException;
 import tachyon.thrift.SuspectedFileSizeException;
 import tachyon.thrift.TableColumnException;
 import tachyon.thrift.TachyonException;
+import tachyon.underfs.UnderFileSystem;
+import tachyon.util.CommonUtils;
 
 /**
  * Unit tests for tachyon.MasterInfo
@@ -519,6 +521,26 @@ public class MasterInfoIntegrationTest {
     Assert.assertEquals(-1, mMasterInfo.getFileId(new TachyonURI("/testFile")));
   }
 
+  @Test
+  public void deleteCheckpointedFileTest() throws Exception {
+    String ufsPath =
+        CommonUtils.concatPath(mLocalTachyonCluster.getTempFolderInUnderFs(), "checkpointed");
+    UnderFileSystem ufs = UnderFileSystem.get(ufsPath, mMasterTachyonConf);
+    ufs.create(ufsPath).close();
+    int fileId =
+        mMasterInfo.createFile(new TachyonURI("/testFile"), Constants.DEFAULT_BLOCK_SIZE_BYTE);
+    mMasterInfo.addCheckpoint(-1, fileId, 0, new TachyonURI(ufsPath));
+
+    // The file is deleted right away, and its under file system copy in the background
+    Assert.assertTrue(mMasterInfo.delete(fileId, true));
+    Assert.assertEquals(-1, mMasterInfo.getFileId(new TachyonURI("/testFile")));
+    for (int k = 0; k < 50 && ufs.exists(ufsPath); k ++) {
+      CommonUtils.sleepMs(null, 100);
+    }
+    Assert.assertFalse(ufs.exists(ufsPath));
+    Assert.assertEquals(0, mMasterInfo.getUnderFsDeletesPending());
+  }
+
   @Test
   public void deleteRootTest() throws InvalidPathException, FileAlreadyExistException,
       TachyonException, BlockInfoException {
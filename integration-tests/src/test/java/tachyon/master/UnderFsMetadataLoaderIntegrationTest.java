@@ -0,0 +1,114 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.master;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tachyon.Constants;
+import tachyon.TachyonURI;
+import tachyon.conf.TachyonConf;
+import tachyon.thrift.ClientFileInfo;
+import tachyon.underfs.UnderFileSystem;
+import tachyon.util.CommonUtils;
+
+/**
+ * Tests the on demand loading of the under file system metadata by the master.
+ */
+public class UnderFsMetadataLoaderIntegrationTest {
+  private LocalTachyonCluster mLocalTachyonCluster = null;
+  private MasterInfo mMasterInfo = null;
+  private String mUnderfsAddress = null;
+  private UnderFileSystem mUfs = null;
+
+  @After
+  public final void after() throws Exception {
+    mLocalTachyonCluster.stop();
+  }
+
+  @Before
+  public final void before() throws IOException {
+    TachyonConf tachyonConf = new TachyonConf();
+    tachyonConf.set(Constants.MASTER_LAZY_LOAD_ENABLED, "true");
+    // Lists the under file system directories on every access
+    tachyonConf.set(Constants.MASTER_LAZY_LOAD_TTL_MS, "0");
+    mLocalTachyonCluster = new LocalTachyonCluster(1000, 1000, Constants.GB);
+    mLocalTachyonCluster.start(tachyonConf);
+    mMasterInfo = mLocalTachyonCluster.getMasterInfo();
+    mUnderfsAddress = mLocalTachyonCluster.getTempFolderInUnderFs();
+    mUfs = UnderFileSystem.get(mUnderfsAddress, mLocalTachyonCluster.getMasterTachyonConf());
+  }
+
+  @Test
+  public void loadOnAccessTest() throws Exception {
+    mUfs.mkdirs(CommonUtils.concatPath(mUnderfsAddress, "lazy/dir"), true);
+    createUfsFile("lazy/a", 10);
+    createUfsFile("lazy/dir/b", 20);
+
+    ClientFileInfo info = mMasterInfo.getClientFileInfo(new TachyonURI("/lazy/dir/b"));
+    Assert.assertNotEquals(-1, info.getId());
+    Assert.assertEquals(20, info.getLength());
+    Assert.assertEquals(CommonUtils.concatPath(mUnderfsAddress, "lazy/dir/b"), info.getUfsPath());
+    Assert.assertEquals(2, mMasterInfo.getFilesInfo(new TachyonURI("/lazy")).size());
+    Assert.assertEquals(-1, mMasterInfo.getFileId(new TachyonURI("/lazy/missing")));
+
+    // The system folders of Tachyon are not loaded
+    Set<String> names = new HashSet<String>();
+    for (ClientFileInfo child : mMasterInfo.getFilesInfo(new TachyonURI("/"))) {
+      names.add(child.getName());
+    }
+    Assert.assertTrue(names.contains("lazy"));
+    Assert.assertFalse(names.contains("tachyon"));
+  }
+
+  @Test
+  public void newFilesTest() throws Exception {
+    mUfs.mkdirs(CommonUtils.concatPath(mUnderfsAddress, "lazy"), true);
+    createUfsFile("lazy/a", 10);
+    // The listing starts with the listed directory itself
+    Assert.assertEquals(uris("/lazy", "/lazy/a"), ls("/lazy"));
+
+    // A file landing in the under file system shows up once the listing expires
+    createUfsFile("lazy/b", 10);
+    Assert.assertEquals(uris("/lazy", "/lazy/a", "/lazy/b"), ls("/lazy"));
+    Assert.assertNotEquals(-1, mMasterInfo.getFileId(new TachyonURI("/lazy/b")));
+  }
+
+  private Set<TachyonURI> ls(String path) throws Exception {
+    return new HashSet<TachyonURI>(mMasterInfo.ls(new TachyonURI(path), false));
+  }
+
+  private static Set<TachyonURI> uris(String... paths) {
+    Set<TachyonURI> uris = new HashSet<TachyonURI>();
+    for (String path : paths) {
+      uris.add(new TachyonURI(path));
+    }
+    return uris;
+  }
+
+  private void createUfsFile(String path, int length) throws IOException {
+    OutputStream os = mUfs.create(CommonUtils.concatPath(mUnderfsAddress, path));
+    os.write(new byte[length]);
+    os.close();
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.underfs;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import tachyon.Constants;
+import tachyon.conf.TachyonConf;
+import tachyon.underfs.local.LocalUnderFileSystem;
+
+/**
+ * Unit tests for {@link UnderFileSystemCache}
+ */
+public final class UnderFileSystemCacheTest {
+  private static final String SCHEME = "cachetest://";
+
+  private final AtomicInteger mCreated = new AtomicInteger(0);
+  private final AtomicInteger mClosed = new AtomicInteger(0);
+  private final UnderFileSystemFactory mFactory = new UnderFileSystemFactory() {
+    @Override
+    public UnderFileSystem create(String path, TachyonConf tachyonConf, Object ufsConf) {
+      mCreated.incrementAndGet();
+      return new LocalUnderFileSystem(tachyonConf) {
+        @Override
+        public void close() throws IOException {
+          mClosed.incrementAndGet();
+        }
+      };
+    }
+
+    @Override
+    public boolean supportsPath(String path, TachyonConf tachyonConf) {
+      return path != null && path.startsWith(SCHEME);
+    }
+  };
+  private TachyonConf mTachyonConf;
+
+  @Before
+  public void before() {
+    UnderFileSystemCache.clear();
+    UnderFileSystemRegistry.register(mFactory);
+    mTachyonConf = new TachyonConf();
+  }
+
+  @After
+  public void after() {
+    UnderFileSystemRegistry.unregister(mFactory);
+    UnderFileSystemCache.clear();
+  }
+
+  @Test
+  public void sharedByAuthorityTest() throws IOException {
+    UnderFileSystem ufs1 = UnderFileSystem.get(SCHEME + "host1:1/a", mTachyonConf);
+    UnderFileSystem ufs2 = UnderFileSystem.get(SCHEME + "host1:1/b/c", mTachyonConf);
+    Assert.assertEquals(1, mCreated.get());
+    Assert.assertEquals(1, UnderFileSystemCache.size());
+
+    UnderFileSystem.get(SCHEME + "host2:1/a", mTachyonConf);
+    UnderFileSystem.get(SCHEME + "host1:1/a", new TachyonConf());
+    Assert.assertEquals(3, mCreated.get());
+    Assert.assertEquals(3, UnderFileSystemCache.size());
+
+    // Closing the handles does not close the shared client, which stays cached
+    ufs1.close();
+    ufs2.close();
+    ufs2.close();
+    Assert.assertEquals(0, mClosed.get());
+    UnderFileSystem.get(SCHEME + "host1:1/a", mTachyonConf);
+    Assert.assertEquals(3, mCreated.get());
+  }
+
+  @Test
+  public void clearTest() throws IOException {
+    UnderFileSystem ufs1 = UnderFileSystem.get(SCHEME + "host1:1/a", mTachyonConf);
+    UnderFileSystem ufs2 = UnderFileSystem.get(SCHEME + "host2:1/a", mTachyonConf);
+    ufs2.close();
+
+    // Only the client without references is closed by the clear
+    UnderFileSystemCache.clear();
+    Assert.assertEquals(0, UnderFileSystemCache.size());
+    Assert.assertEquals(1, mClosed.get());
+
+    // The other one is closed with its last handle, and can still be used until then
+    Assert.assertTrue(ufs1.exists("/"));
+    ufs1.close();
+    Assert.assertEquals(2, mClosed.get());
+
+    UnderFileSystem.get(SCHEME + "host1:1/a", mTachyonConf);
+    Assert.assertEquals(3, mCreated.get());
+  }
+
+  @Test
+  public void idleEvictionTest() throws IOException {
+    UnderFileSystem held = UnderFileSystem.get(SCHEME + "held:1/a", mTachyonConf);
+    for (int k = 0; k <= UnderFileSystemCache.MAX_IDLE_ENTRIES; k ++) {
+      UnderFileSystem.get(SCHEME + "host1:1/a", new Object(), mTachyonConf).close();
+    }
+    // Only the least recently released client without references is evicted
+    Assert.assertEquals(UnderFileSystemCache.MAX_IDLE_ENTRIES + 1, UnderFileSystemCache.size());
+    Assert.assertEquals(1, mClosed.get());
+    Assert.assertTrue(held.exists("/"));
+    held.close();
+    Assert.assertEquals(2, mClosed.get());
+  }
+
+  @Test
+  public void detachTest() throws IOException {
+    UnderFileSystem ufs1 = UnderFileSystem.get(SCHEME + "host1:1/a", mTachyonConf);
+    UnderFileSystem ufs2 = UnderFileSystem.get(SCHEME + "host1:1/a", mTachyonConf);
+    Assert.assertEquals(1, mCreated.get());
+
+    // Changing the configuration of a handle gives it a client of its own
+    ufs1.setConf(null);
+    Assert.assertEquals(2, mCreated.get());
+    ufs1.close();
+    Assert.assertEquals(1, mClosed.get());
+    Assert.assertTrue(ufs2.exists("/"));
+    ufs2.close();
+    Assert.assertEquals(1, mClosed.get());
+  }
+
+  @Test
+  public void disabledTest() throws IOException {
+    mTachyonConf.set(Constants.UNDERFS_CACHE_ENABLED, "false");
+    UnderFileSystem.get(SCHEME + "host1:1/a", mTachyonConf).close();
+    UnderFileSystem.get(SCHEME + "host1:1/a", mTachyonConf).close();
+    Assert.assertEquals(2, mCreated.get());
+    Assert.assertEquals(2, mClosed.get());
+    Assert.assertEquals(0, UnderFileSystemCache.size());
+  }
+}
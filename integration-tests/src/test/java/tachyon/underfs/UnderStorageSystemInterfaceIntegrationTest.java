@@ -70,6 +70,31 @@ public class UnderStorageSystemInterfaceIntegrationTest {
     Assert.assertTrue(Arrays.equals(buf, TEST_BYTES));
   }
 
+  // Tests that a file can be opened at an offset
+  @Test
+  public void openAtPositionTest() throws IOException {
+    String testFile = CommonUtils.concatPath(mUnderfsAddress, "testFile");
+    createTestBytesFile(testFile);
+    byte[] buf = new byte[TEST_BYTES.length - 4];
+    int bytesRead = mUfs.open(testFile, 4).read(buf);
+    Assert.assertEquals(TEST_BYTES.length - 4, bytesRead);
+    Assert.assertArrayEquals(Arrays.copyOfRange(TEST_BYTES, 4, TEST_BYTES.length), buf);
+  }
+
+  // Tests positioned reads, including ones reaching or starting past the end of the file
+  @Test
+  public void positionedReadTest() throws IOException {
+    String testFile = CommonUtils.concatPath(mUnderfsAddress, "testFile");
+    createTestBytesFile(testFile);
+    byte[] buf = new byte[TEST_BYTES.length + 2];
+    Assert.assertEquals(3, mUfs.read(testFile, 2, buf, 1, 3));
+    Assert.assertArrayEquals(Arrays.copyOfRange(TEST_BYTES, 2, 5), Arrays.copyOfRange(buf, 1, 4));
+    Assert.assertEquals(TEST_BYTES.length - 5, mUfs.read(testFile, 5, buf, 0, buf.length));
+    Assert.assertArrayEquals(Arrays.copyOfRange(TEST_BYTES, 5, TEST_BYTES.length),
+        Arrays.copyOfRange(buf, 0, TEST_BYTES.length - 5));
+    Assert.assertEquals(-1, mUfs.read(testFile, TEST_BYTES.length, buf, 0, buf.length));
+  }
+
   // Tests a file can be deleted
   @Test
   public void deleteFileTest() throws IOException {
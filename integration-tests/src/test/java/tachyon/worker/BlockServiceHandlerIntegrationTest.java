@@ -17,6 +17,7 @@ package tachyon.worker;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.apache.thrift.TException;
@@ -100,6 +101,28 @@ public class BlockServiceHandlerIntegrationTest {
     Assert.assertTrue(mTfs.getFile(fileId).isComplete());
   }
 
+  // Tests that the worker checkpoints a file written with ASYNC_THROUGH in the background
+  @Test
+  public void asyncCheckpointTest() throws Exception {
+    final int length = (int) WORKER_CAPACITY_BYTES / 10;
+    int fileId =
+        TachyonFSTestUtils.createByteFile(mTfs, "/testFile", WriteType.ASYNC_THROUGH, length);
+
+    String ufsPath = "";
+    for (int k = 0; k < 50 && ufsPath.isEmpty(); k ++) {
+      CommonUtils.sleepMs(null, 100);
+      ufsPath = mTfs.getFileStatus(fileId, true).getUfsPath();
+    }
+    Assert.assertFalse(ufsPath.isEmpty());
+
+    UnderFileSystem ufs = UnderFileSystem.get(ufsPath, mMasterTachyonConf);
+    InputStream is = ufs.open(ufsPath);
+    byte[] res = new byte[length];
+    Assert.assertEquals(length, is.read(res));
+    Assert.assertTrue(TestUtils.equalIncreasingByteArray(length, res));
+    is.close();
+  }
+
   // Tests that caching a block successfully persists the block if the block exists
   @Test
   public void cacheBlockTest() throws Exception {
@@ -70,27 +70,32 @@ public class DataServerIntegrationTest {
     list.add(new Object[] { IntegrationTestConstants.NETTY_DATA_SERVER,
         IntegrationTestConstants.FILE_CHANNEL_TRANSFER,
         IntegrationTestConstants.NETTY_BLOCK_READER });
-    // The transfer type is not applicable to the NIODataServer.
     list.add(new Object[] { IntegrationTestConstants.NIO_DATA_SERVER,
-        IntegrationTestConstants.UNUSED_TRANSFER,
+        IntegrationTestConstants.MAPPED_TRANSFER,
+        IntegrationTestConstants.TCP_BLOCK_READER });
+    list.add(new Object[] { IntegrationTestConstants.NIO_DATA_SERVER,
+        IntegrationTestConstants.MAPPED_TRANSFER,
+        IntegrationTestConstants.NETTY_BLOCK_READER });
+    list.add(new Object[] { IntegrationTestConstants.NIO_DATA_SERVER,
+        IntegrationTestConstants.FILE_CHANNEL_TRANSFER,
         IntegrationTestConstants.TCP_BLOCK_READER });
     list.add(new Object[] { IntegrationTestConstants.NIO_DATA_SERVER,
-        IntegrationTestConstants.UNUSED_TRANSFER,
+        IntegrationTestConstants.FILE_CHANNEL_TRANSFER,
         IntegrationTestConstants.NETTY_BLOCK_READER });
     return list;
   }
 
   private final String mDataServerClass;
-  private final String mNettyTransferType;
+  private final String mTransferType;
   private final String mBlockReader;
 
   private LocalTachyonCluster mLocalTachyonCluster = null;
   private TachyonFS mTFS = null;
   private TachyonConf mWorkerTachyonConf;
 
-  public DataServerIntegrationTest(String className, String nettyTransferType, String blockReader) {
+  public DataServerIntegrationTest(String className, String transferType, String blockReader) {
     mDataServerClass = className;
-    mNettyTransferType = nettyTransferType;
+    mTransferType = transferType;
     mBlockReader = blockReader;
   }
 
@@ -99,6 +104,7 @@ public class DataServerIntegrationTest {
     mLocalTachyonCluster.stop();
     System.clearProperty(Constants.WORKER_DATA_SERVER);
     System.clearProperty(Constants.WORKER_NETTY_FILE_TRANSFER_TYPE);
+    System.clearProperty(Constants.WORKER_NIO_FILE_TRANSFER_TYPE);
     System.clearProperty(Constants.USER_REMOTE_BLOCK_READER);
   }
 
@@ -131,7 +137,8 @@ public class DataServerIntegrationTest {
   @Before
   public final void before() throws IOException {
     System.setProperty(Constants.WORKER_DATA_SERVER, mDataServerClass);
-    System.setProperty(Constants.WORKER_NETTY_FILE_TRANSFER_TYPE, mNettyTransferType);
+    System.setProperty(Constants.WORKER_NETTY_FILE_TRANSFER_TYPE, mTransferType);
+    System.setProperty(Constants.WORKER_NIO_FILE_TRANSFER_TYPE, mTransferType);
     System.setProperty(Constants.USER_REMOTE_BLOCK_READER, mBlockReader);
     mLocalTachyonCluster = new LocalTachyonCluster(WORKER_CAPACITY_BYTES, USER_QUOTA_UNIT_BYTES,
         Constants.GB);
@@ -38,6 +38,7 @@ public class Users {
   public static final int MIGRATE_DATA_USER_ID = -3;
   public static final int MASTER_COMMAND_USER_ID = -4;
   public static final int ACCESS_BLOCK_USER_ID = -5;
+  public static final int READ_THROUGH_USER_ID = -6;
 
   private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
 
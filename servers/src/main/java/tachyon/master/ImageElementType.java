@@ -17,5 +17,5 @@ package tachyon.master;
 
 /** Type of Image entry. */
 enum ImageElementType {
-  Version, Checkpoint, InodeFile, InodeFolder, RawTable, Dependency,
+  Version, Checkpoint, InodeFile, InodeFolder, RawTable, Dependency, UnderFsDeletes,
 }
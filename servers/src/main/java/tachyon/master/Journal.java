@@ -111,10 +111,14 @@ public class Journal {
    */
   public long getImageModTimeMs() throws IOException {
     UnderFileSystem ufs = UnderFileSystem.get(mImagePath, mTachyonConf);
-    if (!ufs.exists(mImagePath)) {
-      return -1;
+    try {
+      if (!ufs.exists(mImagePath)) {
+        return -1;
+      }
+      return ufs.getModificationTimeMs(mImagePath);
+    } finally {
+      ufs.close();
     }
-    return ufs.getModificationTimeMs(mImagePath);
   }
 
   /**
@@ -43,6 +43,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
@@ -295,6 +296,9 @@ public class MasterInfo extends ImageWriter {
 
   private final TachyonConf mTachyonConf;
   private final String mUFSDataFolder;
+  /** Deletes the under file system copies of the deleted files. */
+  private final UnderFsDeleter mUnderFsDeleter;
+  private final UnderFsMetadataLoader mUnderFsMetadataLoader;
 
   public MasterInfo(InetSocketAddress address, Journal journal, ExecutorService executorService,
       TachyonConf tachyonConf) throws IOException {
@@ -317,6 +321,8 @@ public class MasterInfo extends ImageWriter {
         new PrefixList(mTachyonConf.getList(Constants.MASTER_WHITELIST, ",",
             new LinkedList<String>()));
     mPinnedInodeFileIds = Collections.synchronizedSet(new HashSet<Integer>());
+    mUnderFsDeleter = new UnderFsDeleter(mTachyonConf);
+    mUnderFsMetadataLoader = new UnderFsMetadataLoader(this, mTachyonConf);
 
     mJournal.loadImage(this);
     mMasterSource = new MasterSource(this);
@@ -370,6 +376,8 @@ public class MasterInfo extends ImageWriter {
 
       if (!tFile.hasCheckpointed()) {
         tFile.setUfsPath(checkpointPath.toString());
+        // The path may be reused after its previous file was deleted.
+        mUnderFsDeleter.cancel(checkpointPath.toString());
         needLog = true;
 
         synchronized (mFileIdToDependency) {
@@ -643,16 +651,8 @@ public class MasterInfo extends ImageWriter {
         if (delInode.isFile()) {
           String checkpointPath = ((InodeFile) delInode).getUfsPath();
           if (!checkpointPath.equals("")) {
-            UnderFileSystem ufs = UnderFileSystem.get(checkpointPath, mTachyonConf);
-            try {
-              if (!ufs.exists(checkpointPath)) {
-                LOG.warn("File does not exist the underfs: " + checkpointPath);
-              } else if (!ufs.delete(checkpointPath, true)) {
-                return false;
-              }
-            } catch (IOException e) {
-              throw new TachyonException(e.getMessage());
-            }
+            // Deleted in the background, as it may take long for many files.
+            mUnderFsDeleter.delete(checkpointPath);
           }
 
           List<Pair<Long, Long>> blockIdWorkerIdList =
@@ -1257,6 +1257,7 @@ public class MasterInfo extends ImageWriter {
    */
   public ClientFileInfo getClientFileInfo(TachyonURI path) throws InvalidPathException {
     mMasterSource.incGetFileStatusOps();
+    mUnderFsMetadataLoader.load(path, false);
     synchronized (mRootLock) {
       Inode inode = getInode(path);
       if (inode == null) {
@@ -1312,6 +1313,7 @@ public class MasterInfo extends ImageWriter {
    * @throws InvalidPathException
    */
   public int getFileId(TachyonURI path) throws InvalidPathException {
+    mUnderFsMetadataLoader.load(path, false);
     Inode inode = getInode(path);
     int ret = -1;
     if (inode != null) {
@@ -1393,6 +1395,7 @@ public class MasterInfo extends ImageWriter {
       InvalidPathException {
     List<ClientFileInfo> ret = new ArrayList<ClientFileInfo>();
 
+    mUnderFsMetadataLoader.load(path, true);
     Inode inode = getInode(path);
     if (inode == null) {
       throw new FileDoesNotExistException(path.toString());
@@ -1493,6 +1496,32 @@ public class MasterInfo extends ImageWriter {
     return inodeTraversal.getFirst();
   }
 
+  /**
+   * Get the names of the children of a folder, without loading metadata from the under file
+   * system.
+   *
+   * @param path The path of the folder
+   * @return the names of the children, or null if the path is not an existing folder
+   */
+  Set<String> getChildNames(TachyonURI path) {
+    synchronized (mRootLock) {
+      Inode inode;
+      try {
+        inode = getInode(path);
+      } catch (InvalidPathException e) {
+        return null;
+      }
+      if (inode == null || !inode.isDirectory()) {
+        return null;
+      }
+      Set<String> names = new HashSet<String>();
+      for (Inode child : ((InodeFolder) inode).getChildren()) {
+        names.add(child.getName());
+      }
+      return names;
+    }
+  }
+
   /**
    * Returns a list of the given folder's children, recursively scanning subdirectories. It adds the
    * parent of a node before adding its children.
@@ -1717,6 +1746,25 @@ public class MasterInfo extends ImageWriter {
     return ufs.getSpace(mUFSDataFolder, SpaceType.SPACE_TOTAL);
   }
 
+  /**
+   * Get the number of under file system copies of deleted files not deleted yet.
+   *
+   * @return the number of files
+   */
+  public int getUnderFsDeletesPending() {
+    return mUnderFsDeleter.getPendingCount();
+  }
+
+  /**
+   * Whether the under file system copy of a deleted file is waiting to be deleted.
+   *
+   * @param ufsPath the path in the under file system
+   * @return true if the path is not deleted yet
+   */
+  boolean isUnderFsDeletePending(String ufsPath) {
+    return mUnderFsDeleter.isPending(ufsPath);
+  }
+
   /**
    * Get the amount of free space in the under file system.
    *
@@ -1875,6 +1923,7 @@ public class MasterInfo extends ImageWriter {
                 Constants.MASTER_HEARTBEAT_INTERVAL_MS, Constants.SECOND_MS)));
 
     mRecompute = mExecutorService.submit(new RecomputationScheduler());
+    mUnderFsDeleter.start();
   }
 
   /**
@@ -1988,6 +2037,12 @@ public class MasterInfo extends ImageWriter {
           mRawTables.loadImage(ele);
           break;
         }
+        case UnderFsDeletes: {
+          for (String ufsPath : ele.get("paths", new TypeReference<List<String>>() {})) {
+            mUnderFsDeleter.delete(ufsPath);
+          }
+          break;
+        }
         default:
           throw new IOException("Invalid element type " + ele);
       }
@@ -2005,6 +2060,7 @@ public class MasterInfo extends ImageWriter {
    */
   public List<TachyonURI> ls(TachyonURI path, boolean recursive) throws InvalidPathException,
       FileDoesNotExistException {
+    mUnderFsMetadataLoader.load(path, true);
     synchronized (mRootLock) {
       Inode inode = getInode(path);
       if (inode == null) {
@@ -2328,6 +2384,8 @@ public class MasterInfo extends ImageWriter {
     if (mRecompute != null) {
       mRecompute.cancel(true);
     }
+    mUnderFsDeleter.stop();
+    mUnderFsMetadataLoader.stop();
   }
 
   /**
@@ -2515,6 +2573,14 @@ public class MasterInfo extends ImageWriter {
       mRoot.writeImage(objWriter, dos);
       mRawTables.writeImage(objWriter, dos);
 
+      List<String> pendingUfsDeletes = mUnderFsDeleter.getPending();
+      if (!pendingUfsDeletes.isEmpty()) {
+        ele =
+            new ImageElement(ImageElementType.UnderFsDeletes).withParameter("paths",
+                pendingUfsDeletes);
+        writeElement(objWriter, dos, ele);
+      }
+
       ele =
           new ImageElement(ImageElementType.Checkpoint)
               .withParameter("inodeCounter", mInodeCounter.get())
@@ -75,6 +75,13 @@ public class MasterSource implements Source {
       }
     });
 
+    mMetricRegistry.register(MetricRegistry.name("UnderFsDeletesPending"), new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return masterInfo.getUnderFsDeletesPending();
+      }
+    });
+
     mMetricRegistry.register(MetricRegistry.name("UnderFsCapacityTotal"), new Gauge<Long>() {
       @Override
       public Long getValue() {
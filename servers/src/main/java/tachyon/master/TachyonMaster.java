@@ -40,6 +40,7 @@ import tachyon.conf.TachyonConf;
 import tachyon.metrics.MetricsSystem;
 import tachyon.thrift.MasterService;
 import tachyon.underfs.UnderFileSystem;
+import tachyon.underfs.UnderFileSystemCache;
 import tachyon.util.CommonUtils;
 import tachyon.util.NetworkUtils;
 import tachyon.util.ThreadFactoryUtils;
@@ -348,6 +349,7 @@ public class TachyonMaster {
       mMasterServiceServer.stop();
       mServerTServerSocket.close();
       mExecutorService.shutdown();
+      UnderFileSystemCache.clear();
       mIsStarted = false;
     }
     if (mZookeeperMode) {
@@ -0,0 +1,329 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.master;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.Pair;
+import tachyon.TachyonURI;
+import tachyon.conf.TachyonConf;
+import tachyon.underfs.UnderFileSystem;
+import tachyon.util.ThreadFactoryUtils;
+
+/**
+ * Deletes the under file system copies of the deleted files in the background, so that deleting a
+ * directory with many checkpointed files does not hold the namespace lock of the master while
+ * every copy is deleted.
+ *
+ * The paths to delete are grouped by under file system, and
+ * <code>tachyon.master.ufs.delete.threads</code> threads delete them in batches, every batch with
+ * one client of its under file system. A path failing to be deleted is retried a few times, after
+ * a delay doubling with every attempt, before being given up. The pending paths are not journaled
+ * by themselves: the delete operations in the edit log queue them again when replayed, and they
+ * are saved in the image of the master. This class is thread safe.
+ */
+final class UnderFsDeleter {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  /** The maximum number of paths deleted with one client. */
+  private static final int BATCH_SIZE = 100;
+  private static final int MAX_ATTEMPTS = 3;
+  /** How long to wait before the first retry of a path which failed to be deleted. */
+  private static final long RETRY_INTERVAL_MS = Constants.SECOND_MS;
+
+  private final TachyonConf mTachyonConf;
+  private final int mThreads;
+  /** The paths waiting to be deleted, by under file system, in order of the next batch to take. */
+  private final LinkedHashMap<String, LinkedHashSet<String>> mPending =
+      new LinkedHashMap<String, LinkedHashSet<String>>();
+  /** The paths of the batches being deleted. */
+  private final Set<String> mInProgress = new HashSet<String>();
+  /** The number of failed attempts of the paths which failed to be deleted. */
+  private final Map<String, Integer> mFailures = new HashMap<String, Integer>();
+  /** The paths waiting to be retried, with the time they are due at. */
+  private final Map<String, Long> mRetries = new LinkedHashMap<String, Long>();
+  private int mPendingCount = 0;
+  private ExecutorService mExecutor = null;
+  private boolean mStopped = false;
+
+  /**
+   * @param tachyonConf the configuration of the master
+   */
+  UnderFsDeleter(TachyonConf tachyonConf) {
+    mTachyonConf = tachyonConf;
+    mThreads = Math.max(tachyonConf.getInt(Constants.MASTER_UFS_DELETE_THREADS, 4), 1);
+  }
+
+  /**
+   * Queues a path to delete. The path is deleted once the deleter is started.
+   *
+   * @param path the path in the under file system
+   */
+  synchronized void delete(String path) {
+    String root = getRoot(path);
+    LinkedHashSet<String> paths = mPending.get(root);
+    if (paths == null) {
+      paths = new LinkedHashSet<String>();
+      mPending.put(root, paths);
+    }
+    if (paths.add(path)) {
+      mPendingCount ++;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Stops a path from being deleted, e.g. because a new file uses it. A path whose deletion already
+   * started may still be deleted.
+   *
+   * @param path the path in the under file system
+   */
+  synchronized void cancel(String path) {
+    LinkedHashSet<String> paths = mPending.get(getRoot(path));
+    if (paths != null && paths.remove(path)) {
+      mPendingCount --;
+    }
+    mInProgress.remove(path);
+    mRetries.remove(path);
+    mFailures.remove(path);
+  }
+
+  /**
+   * @param path the path in the under file system
+   * @return true if the path is not deleted yet, including if it is being deleted or retried
+   */
+  synchronized boolean isPending(String path) {
+    if (mInProgress.contains(path) || mRetries.containsKey(path)) {
+      return true;
+    }
+    LinkedHashSet<String> paths = mPending.get(getRoot(path));
+    return paths != null && paths.contains(path);
+  }
+
+  /**
+   * @return the paths not deleted yet, including the ones being deleted
+   */
+  synchronized List<String> getPending() {
+    List<String> pending = new ArrayList<String>(getPendingCount());
+    for (LinkedHashSet<String> paths : mPending.values()) {
+      pending.addAll(paths);
+    }
+    pending.addAll(mInProgress);
+    pending.addAll(mRetries.keySet());
+    return pending;
+  }
+
+  /**
+   * @return the number of paths not deleted yet
+   */
+  synchronized int getPendingCount() {
+    return mPendingCount + mInProgress.size() + mRetries.size();
+  }
+
+  /**
+   * Starts the threads deleting the queued paths.
+   */
+  synchronized void start() {
+    if (mExecutor != null) {
+      return;
+    }
+    mStopped = false;
+    mExecutor =
+        Executors.newFixedThreadPool(mThreads,
+            ThreadFactoryUtils.build("master-ufs-delete-%d", true));
+    for (int k = 0; k < mThreads; k ++) {
+      mExecutor.submit(new Runnable() {
+        @Override
+        public void run() {
+          deleteBatches();
+        }
+      });
+    }
+  }
+
+  /**
+   * Stops the threads. The paths not deleted yet stay queued.
+   */
+  void stop() {
+    ExecutorService executor;
+    synchronized (this) {
+      mStopped = true;
+      notifyAll();
+      executor = mExecutor;
+      mExecutor = null;
+    }
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private void deleteBatches() {
+    while (true) {
+      List<String> batch;
+      try {
+        batch = takeBatch();
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (batch == null) {
+        return;
+      }
+      deleteBatch(batch);
+    }
+  }
+
+  /**
+   * Takes the next batch of paths of one under file system, the under file systems taking turns.
+   *
+   * @return the paths, or null if the deleter is stopped
+   */
+  private synchronized List<String> takeBatch() throws InterruptedException {
+    while (!mStopped) {
+      long waitMs = queueDueRetries();
+      if (mPendingCount > 0) {
+        break;
+      }
+      wait(waitMs);
+    }
+    if (mStopped) {
+      return null;
+    }
+    Iterator<Map.Entry<String, LinkedHashSet<String>>> roots = mPending.entrySet().iterator();
+    Map.Entry<String, LinkedHashSet<String>> root = roots.next();
+    while (root.getValue().isEmpty()) {
+      roots.remove();
+      root = roots.next();
+    }
+    roots.remove();
+    List<String> batch = new ArrayList<String>(Math.min(BATCH_SIZE, root.getValue().size()));
+    Iterator<String> paths = root.getValue().iterator();
+    while (paths.hasNext() && batch.size() < BATCH_SIZE) {
+      batch.add(paths.next());
+      paths.remove();
+    }
+    if (!root.getValue().isEmpty()) {
+      // Goes to the end, so that the next batch is of another under file system if any.
+      mPending.put(root.getKey(), root.getValue());
+    }
+    mPendingCount -= batch.size();
+    mInProgress.addAll(batch);
+    return batch;
+  }
+
+  private void deleteBatch(List<String> batch) {
+    UnderFileSystem ufs;
+    try {
+      ufs = UnderFileSystem.get(batch.get(0), mTachyonConf);
+    } catch (IllegalArgumentException e) {
+      LOG.error("No under file system to delete " + batch.size() + " files from", e);
+      synchronized (this) {
+        mInProgress.removeAll(batch);
+      }
+      return;
+    }
+    try {
+      for (String path : batch) {
+        synchronized (this) {
+          if (!mInProgress.contains(path)) {
+            // Canceled meanwhile.
+            continue;
+          }
+        }
+        boolean deleted;
+        try {
+          deleted = ufs.delete(path, true) || !ufs.exists(path);
+        } catch (IOException e) {
+          LOG.warn("Failed to delete " + path + " from the under file system", e);
+          deleted = false;
+        }
+        done(path, deleted);
+      }
+    } finally {
+      try {
+        ufs.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close the under file system client", e);
+      }
+    }
+  }
+
+  /**
+   * Queues the paths whose retry is due. Called with the lock held.
+   *
+   * @return how long to wait for the next retry to be due, 0 if there is none
+   */
+  private long queueDueRetries() {
+    long nowMs = System.currentTimeMillis();
+    long waitMs = 0;
+    Iterator<Map.Entry<String, Long>> retries = mRetries.entrySet().iterator();
+    while (retries.hasNext()) {
+      Map.Entry<String, Long> retry = retries.next();
+      long dueInMs = retry.getValue() - nowMs;
+      if (dueInMs <= 0) {
+        retries.remove();
+        delete(retry.getKey());
+      } else if (waitMs == 0 || dueInMs < waitMs) {
+        waitMs = dueInMs;
+      }
+    }
+    return waitMs;
+  }
+
+  private synchronized void done(String path, boolean deleted) {
+    if (!mInProgress.remove(path)) {
+      return;
+    }
+    if (deleted) {
+      mFailures.remove(path);
+      return;
+    }
+    Integer failures = mFailures.get(path);
+    failures = (failures == null ? 0 : failures) + 1;
+    if (failures >= MAX_ATTEMPTS) {
+      LOG.error("Giving up deleting " + path + " from the under file system after " + failures
+          + " attempts");
+      mFailures.remove(path);
+      return;
+    }
+    mFailures.put(path, failures);
+    mRetries.put(path, System.currentTimeMillis() + (RETRY_INTERVAL_MS << (failures - 1)));
+    notifyAll();
+  }
+
+  private String getRoot(String path) {
+    Pair<String, String> parsed = null;
+    try {
+      parsed = UnderFileSystem.parse(new TachyonURI(path), mTachyonConf);
+    } catch (IllegalArgumentException e) {
+      // Treated as its own under file system below.
+    }
+    return parsed == null ? path : parsed.getFirst();
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.master;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.TachyonURI;
+import tachyon.conf.TachyonConf;
+import tachyon.thrift.FileAlreadyExistException;
+import tachyon.thrift.InvalidPathException;
+import tachyon.underfs.UnderFileStatus;
+import tachyon.underfs.UnderFileSystem;
+import tachyon.util.CommonUtils;
+import tachyon.util.ThreadFactoryUtils;
+
+/**
+ * Loads the metadata of the under file system into the master on demand, when
+ * <code>tachyon.master.lazy.load.enabled</code> is set, so that the files of the under file system
+ * are visible in Tachyon without importing them first with loadufs. The directory
+ * <code>tachyon.master.lazy.load.ufs.root</code> of the under file system is mapped to the root of
+ * Tachyon.
+ *
+ * Resolving a path lists the under file system directories of its ancestors, and the directory
+ * itself when it is listed, and creates the files and directories missing in Tachyon, the files
+ * with their under file system copy as checkpoint, like loadufs does. A directory is listed with
+ * the status of its entries at once, see {@link UnderFileSystem#listStatus(String)}. The listings
+ * run on <code>tachyon.master.lazy.load.threads</code> threads, and a request waits at most
+ * <code>tachyon.master.lazy.load.timeout.ms</code> for one: past that, it resolves the path with
+ * the metadata already in Tachyon, while the listing goes on in the background for the next
+ * requests. Concurrent requests for a directory wait for the same listing.
+ *
+ * A loaded listing is trusted for <code>tachyon.master.lazy.load.ttl.ms</code>, after which the
+ * directory is listed again on its next access, so new files of the under file system show up
+ * without a full rescan. Loading only adds metadata: the entries of Tachyon missing in the under
+ * file system are kept. The system folders of Tachyon are never loaded, nor are the under file
+ * system copies of deleted files still waiting to be deleted, which would otherwise bring the files
+ * back and cancel their deletion. This class is thread safe.
+ */
+final class UnderFsMetadataLoader {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  /** The maximum number of directories whose loaded listing is remembered. */
+  private static final int MAX_LOADED_DIRECTORIES = 100000;
+
+  private final MasterInfo mMasterInfo;
+  private final TachyonConf mTachyonConf;
+  private final boolean mEnabled;
+  private final String mUfsRoot;
+  /** The folders of the under file system used by Tachyon itself, which are not loaded. */
+  private final List<String> mSystemFolders = new ArrayList<String>();
+  /** The Tachyon directories loaded less than the TTL ago. */
+  private final Cache<String, Boolean> mLoadedDirectories;
+  /** The loads in progress, by Tachyon directory, so that concurrent accesses list it once. */
+  private final ConcurrentMap<String, FutureTask<Boolean>> mLoads =
+      new ConcurrentHashMap<String, FutureTask<Boolean>>();
+  /** Runs the loads, null if lazy loading is disabled. */
+  private final ExecutorService mExecutor;
+  private final long mTimeoutMs;
+
+  /**
+   * @param masterInfo the master to load the metadata into
+   * @param tachyonConf the configuration of the master
+   */
+  UnderFsMetadataLoader(MasterInfo masterInfo, TachyonConf tachyonConf) {
+    mMasterInfo = masterInfo;
+    mTachyonConf = tachyonConf;
+    mEnabled = tachyonConf.getBoolean(Constants.MASTER_LAZY_LOAD_ENABLED, false);
+    String ufsRoot = tachyonConf.get(Constants.MASTER_LAZY_LOAD_UFS_ROOT,
+        tachyonConf.get(Constants.UNDERFS_ADDRESS, null));
+    mUfsRoot = ufsRoot == null ? null : trimSeparators(ufsRoot);
+    for (String key : new String[] {Constants.UNDERFS_DATA_FOLDER,
+        Constants.UNDERFS_WORKERS_FOLDER, Constants.MASTER_JOURNAL_FOLDER}) {
+      String folder = tachyonConf.get(key, null);
+      if (folder != null) {
+        mSystemFolders.add(trimSeparators(folder));
+      }
+    }
+    long ttlMs = tachyonConf.getLong(Constants.MASTER_LAZY_LOAD_TTL_MS, Constants.MINUTE_MS);
+    mLoadedDirectories = CacheBuilder.newBuilder().maximumSize(MAX_LOADED_DIRECTORIES)
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS).build();
+    mTimeoutMs =
+        tachyonConf.getLong(Constants.MASTER_LAZY_LOAD_TIMEOUT_MS, 5 * Constants.SECOND_MS);
+    mExecutor = mEnabled ? Executors.newFixedThreadPool(
+        Math.max(tachyonConf.getInt(Constants.MASTER_LAZY_LOAD_THREADS, 8), 1),
+        ThreadFactoryUtils.build("master-lazy-load-%d", true)) : null;
+  }
+
+  /**
+   * Stops the loads in progress.
+   */
+  void stop() {
+    if (mExecutor != null) {
+      mExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Loads the metadata needed to resolve a path: the listings of its ancestors, and its own listing
+   * if it is listed. Does nothing if lazy loading is disabled.
+   *
+   * @param path the path to resolve
+   * @param listing whether the children of the path are needed too
+   * @throws InvalidPathException if the path is invalid
+   */
+  void load(TachyonURI path, boolean listing) throws InvalidPathException {
+    if (!mEnabled || mUfsRoot == null) {
+      return;
+    }
+    String[] components = CommonUtils.getPathComponents(path.toString());
+    int depth = listing ? components.length : components.length - 1;
+    String directory = TachyonURI.SEPARATOR;
+    for (int k = 0; k < depth; k ++) {
+      if (k > 0) {
+        directory = CommonUtils.concatPath(directory, components[k]);
+      }
+      if (!loadDirectory(directory)) {
+        // Neither the under file system nor Tachyon has deeper directories to load.
+        return;
+      }
+    }
+  }
+
+  /**
+   * Loads the listing of a directory of the under file system if it was not loaded less than the
+   * TTL ago, waiting at most the timeout for it.
+   *
+   * @return false if the directory exists neither in the under file system nor in Tachyon
+   */
+  private boolean loadDirectory(final String directory) {
+    Boolean exists = mLoadedDirectories.getIfPresent(directory);
+    if (exists != null) {
+      return exists;
+    }
+    FutureTask<Boolean> load = new FutureTask<Boolean>(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        try {
+          Boolean exists = mLoadedDirectories.getIfPresent(directory);
+          if (exists == null) {
+            exists = loadDirectoryInternal(directory);
+            mLoadedDirectories.put(directory, exists);
+          }
+          return exists;
+        } finally {
+          mLoads.remove(directory);
+        }
+      }
+    });
+    FutureTask<Boolean> inProgress = mLoads.putIfAbsent(directory, load);
+    if (inProgress == null) {
+      inProgress = load;
+      try {
+        mExecutor.execute(load);
+      } catch (RejectedExecutionException e) {
+        mLoads.remove(directory, load);
+        return mMasterInfo.getChildNames(new TachyonURI(directory)) != null;
+      }
+    }
+    try {
+      return inProgress.get(mTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      LOG.warn("Loading the under file system directory of " + directory + " takes longer than "
+          + mTimeoutMs + " ms, resolving with the metadata already loaded");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      LOG.warn("Failed to load the under file system directory of " + directory, e.getCause());
+    }
+    return mMasterInfo.getChildNames(new TachyonURI(directory)) != null;
+  }
+
+  private boolean loadDirectoryInternal(String directory) {
+    String ufsDirectory =
+        TachyonURI.SEPARATOR.equals(directory) ? mUfsRoot : CommonUtils.concatPath(mUfsRoot,
+            directory);
+    Set<String> existing = mMasterInfo.getChildNames(new TachyonURI(directory));
+    if (isSystemFolder(ufsDirectory)) {
+      return existing != null;
+    }
+    UnderFileSystem ufs = UnderFileSystem.get(ufsDirectory, mTachyonConf);
+    try {
+      UnderFileStatus[] children = ufs.listStatus(ufsDirectory);
+      if (children == null) {
+        return existing != null;
+      }
+      int loaded = 0;
+      for (UnderFileStatus child : children) {
+        String name = child.getName();
+        if (name.isEmpty() || (existing != null && existing.contains(name))) {
+          continue;
+        }
+        String ufsChild = CommonUtils.concatPath(ufsDirectory, name);
+        if (isSystemFolder(ufsChild) || mMasterInfo.isUnderFsDeletePending(ufsChild)) {
+          continue;
+        }
+        if (loadChild(child, ufsChild, new TachyonURI(CommonUtils.concatPath(directory, name)))) {
+          loaded ++;
+        }
+      }
+      if (loaded > 0) {
+        LOG.info("Loaded " + loaded + " entries of " + ufsDirectory + " into " + directory);
+      }
+      return true;
+    } catch (IOException e) {
+      LOG.warn("Failed to load the under file system directory " + ufsDirectory, e);
+      return existing != null;
+    } finally {
+      try {
+        ufs.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close the under file system client", e);
+      }
+    }
+  }
+
+  /**
+   * Creates a file or a directory of the under file system in Tachyon.
+   *
+   * @return true if it was created, false if it already exists or failed to be created
+   */
+  private boolean loadChild(UnderFileStatus status, String ufsPath, TachyonURI path) {
+    try {
+      if (status.isFile()) {
+        int fileId = mMasterInfo.createFile(true, path, false, status.getBlockSizeByte());
+        return mMasterInfo.addCheckpoint(-1, fileId, status.getLength(), new TachyonURI(ufsPath));
+      }
+      return mMasterInfo.mkdirs(path, true);
+    } catch (FileAlreadyExistException e) {
+      // Created meanwhile.
+      return false;
+    } catch (Exception e) {
+      LOG.warn("Failed to load " + ufsPath + " into " + path, e);
+      return false;
+    }
+  }
+
+  private boolean isSystemFolder(String ufsPath) {
+    if (ufsPath.equals(mUfsRoot)) {
+      return false;
+    }
+    for (String folder : mSystemFolders) {
+      // The ancestors of the system folders are skipped too, so they do not show up empty.
+      if (ufsPath.equals(folder) || ufsPath.startsWith(folder + TachyonURI.SEPARATOR)
+          || folder.startsWith(ufsPath + TachyonURI.SEPARATOR)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String trimSeparators(String path) {
+    return CharMatcher.is(TachyonURI.SEPARATOR.charAt(0)).trimTrailingFrom(path);
+  }
+}
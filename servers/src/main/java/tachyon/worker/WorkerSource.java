@@ -38,6 +38,10 @@ public class WorkerSource implements Source {
       mMetricRegistry.counter(MetricRegistry.name("BlocksEvicted"));
   private final Counter mBlocksPromoted =
       mMetricRegistry.counter(MetricRegistry.name("BlocksPromoted"));
+  private final Counter mBytesCheckpointed =
+      mMetricRegistry.counter(MetricRegistry.name("BytesCheckpointed"));
+  private final Counter mFilesCheckpointed =
+      mMetricRegistry.counter(MetricRegistry.name("FilesCheckpointed"));
 
   // metrics from client
   private final Counter mBlocksReadLocal = mMetricRegistry.counter(MetricRegistry
@@ -56,6 +60,24 @@ public class WorkerSource implements Source {
       .name("BytesWrittenLocal"));
   private final Counter mBytesWrittenUfs = mMetricRegistry.counter(MetricRegistry
       .name("BytesWrittenUfs"));
+  private final Counter mMetadataCacheHits = mMetricRegistry.counter(MetricRegistry
+      .name("MetadataCacheHits"));
+  private final Counter mMetadataCacheMisses = mMetricRegistry.counter(MetricRegistry
+      .name("MetadataCacheMisses"));
+  private final Counter mRemoteReadCacheHits = mMetricRegistry.counter(MetricRegistry
+      .name("RemoteReadCacheHits"));
+  private final Counter mRemoteReadCacheMisses = mMetricRegistry.counter(MetricRegistry
+      .name("RemoteReadCacheMisses"));
+  private final Counter mRemoteReadCacheBytesSaved = mMetricRegistry.counter(MetricRegistry
+      .name("RemoteReadCacheBytesSaved"));
+  private final Counter mAdaptiveReadsUfs = mMetricRegistry.counter(MetricRegistry
+      .name("AdaptiveReadsUfs"));
+  private final Counter mAdaptiveRecachesSkipped = mMetricRegistry.counter(MetricRegistry
+      .name("AdaptiveRecachesSkipped"));
+  private final Counter mBlocksReadThrough = mMetricRegistry.counter(MetricRegistry
+      .name("BlocksReadThrough"));
+  private final Counter mReadThroughCoalesced = mMetricRegistry.counter(MetricRegistry
+      .name("ReadThroughCoalesced"));
 
   @Override
   public String getName() {
@@ -87,6 +109,14 @@ public class WorkerSource implements Source {
     mBlocksPromoted.inc();
   }
 
+  public void incBytesCheckpointed(long n) {
+    mBytesCheckpointed.inc(n);
+  }
+
+  public void incFilesCheckpointed(long n) {
+    mFilesCheckpointed.inc(n);
+  }
+
   public void incBlocksReadLocal(long n) {
     mBlocksReadLocal.inc(n);
   }
@@ -119,6 +149,42 @@ public class WorkerSource implements Source {
     mBytesWrittenUfs.inc(n);
   }
 
+  public void incMetadataCacheHits(long n) {
+    mMetadataCacheHits.inc(n);
+  }
+
+  public void incMetadataCacheMisses(long n) {
+    mMetadataCacheMisses.inc(n);
+  }
+
+  public void incRemoteReadCacheHits(long n) {
+    mRemoteReadCacheHits.inc(n);
+  }
+
+  public void incRemoteReadCacheMisses(long n) {
+    mRemoteReadCacheMisses.inc(n);
+  }
+
+  public void incRemoteReadCacheBytesSaved(long n) {
+    mRemoteReadCacheBytesSaved.inc(n);
+  }
+
+  public void incAdaptiveReadsUfs(long n) {
+    mAdaptiveReadsUfs.inc(n);
+  }
+
+  public void incAdaptiveRecachesSkipped(long n) {
+    mAdaptiveRecachesSkipped.inc(n);
+  }
+
+  public void incBlocksReadThrough(long n) {
+    mBlocksReadThrough.inc(n);
+  }
+
+  public void incReadThroughCoalesced(long n) {
+    mReadThroughCoalesced.inc(n);
+  }
+
   public void registerGauges(final BlockWorker worker) {
     mMetricRegistry.register(MetricRegistry.name("CapacityTotal"), new Gauge<Long>() {
       @Override
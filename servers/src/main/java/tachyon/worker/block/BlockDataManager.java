@@ -21,6 +21,8 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,6 +63,10 @@ public class BlockDataManager {
   private final WorkerSource mWorkerSource;
   /** Metrics reporter that listens on block events and increases metrics counters*/
   private final BlockMetricsReporter mMetricsReporter;
+  /** Checkpoints the files written with ASYNC_THROUGH */
+  private final CheckpointService mCheckpointService;
+  /** Fetches the blocks read remotely from the under file system, null if disabled */
+  private final UnderFsBlockFetcher mUnderFsBlockFetcher;
 
   // TODO: See if this can be removed from the class
   /** MasterClient, only used to inform the master of a new block in commitBlock */
@@ -101,6 +107,12 @@ public class BlockDataManager {
     // Connect to UFS to handle UFS security
     InetSocketAddress workerAddress = getWorkerAddress();
     mUfs.connectFromWorker(mTachyonConf, NetworkUtils.getFqdnHost(workerAddress));
+    mCheckpointService =
+        new CheckpointService(this, mMasterClient, mUfs, mWorkerSource, mTachyonConf);
+    mUnderFsBlockFetcher =
+        mTachyonConf.getBoolean(Constants.WORKER_UFS_READ_THROUGH_ENABLED, false)
+            ? new UnderFsBlockFetcher(this, mBlockStore, mMasterClient, mWorkerSource,
+                mTachyonConf) : null;
 
     // Register the heartbeat reporter so it can record block store changes
     mBlockStore.registerBlockStoreEventListener(mHeartbeatReporter);
@@ -165,6 +177,17 @@ public class BlockDataManager {
     mMasterClient.addCheckpoint(mWorkerId, fileId, fileSize, dstPath);
   }
 
+  /**
+   * Checkpoints a file written to this worker with ASYNC_THROUGH in the background, once the file
+   * is complete. See {@link CheckpointService}.
+   *
+   * @param fileId The id of the file
+   * @return true, as the file is checkpointed in the background
+   */
+  public boolean asyncCheckpoint(int fileId) {
+    return mCheckpointService.submit(fileId);
+  }
+
   /**
    * Cleans up after users, to prevent zombie users. This method is called periodically.
    */
@@ -247,6 +270,21 @@ public class BlockDataManager {
     return mBlockStore.getBlockWriter(userId, blockId);
   }
 
+  /**
+   * Fetches a block missing from this worker from the under file system into the block store. This
+   * method is only called from a data server. See {@link UnderFsBlockFetcher}.
+   *
+   * @param blockId The id of the block to fetch
+   * @return a future set to true once the block is in the block store, or to false if it cannot be
+   *         fetched, or null if reading through to the under file system is disabled
+   */
+  public ListenableFuture<Boolean> fetchBlockFromUnderFs(long blockId) {
+    if (mUnderFsBlockFetcher == null) {
+      return null;
+    }
+    return mUnderFsBlockFetcher.fetch(blockId);
+  }
+
   /**
    * Gets a report for the periodic heartbeat to master. Contains the blocks added since the last
    * heart beat and blocks removed since the last heartbeat.
@@ -378,12 +416,25 @@ public class BlockDataManager {
    */
   public void setWorkerId(long workerId) {
     mWorkerId = workerId;
+    mCheckpointService.setWorkerId(workerId);
+  }
+
+  /**
+   * Starts the background services of the data manager. This method should only be called once
+   * the worker is registered with the master.
+   */
+  public void start() {
+    mCheckpointService.start();
   }
 
   /**
    * Stop the block data manager. This method should only be called when terminating the worker.
    */
   public void stop() {
+    mCheckpointService.stop();
+    if (mUnderFsBlockFetcher != null) {
+      mUnderFsBlockFetcher.stop();
+    }
     mMasterClient.close();
     mMasterClientExecutorService.shutdown();
   }
@@ -421,6 +472,23 @@ public class BlockDataManager {
       mWorkerSource.incBytesReadUfs(metrics.get(Constants.BYTES_READ_UFS_INDEX));
       mWorkerSource.incBytesWrittenLocal(metrics.get(Constants.BYTES_WRITTEN_LOCAL_INDEX));
       mWorkerSource.incBytesWrittenUfs(metrics.get(Constants.BYTES_WRITTEN_UFS_INDEX));
+      // Clients older than the metadata cache metrics send fewer metrics.
+      if (metrics.size() > Constants.METADATA_CACHE_MISSES_INDEX) {
+        mWorkerSource.incMetadataCacheHits(metrics.get(Constants.METADATA_CACHE_HITS_INDEX));
+        mWorkerSource.incMetadataCacheMisses(metrics.get(Constants.METADATA_CACHE_MISSES_INDEX));
+      }
+      if (metrics.size() > Constants.REMOTE_READ_CACHE_BYTES_SAVED_INDEX) {
+        mWorkerSource.incRemoteReadCacheHits(metrics.get(Constants.REMOTE_READ_CACHE_HITS_INDEX));
+        mWorkerSource.incRemoteReadCacheMisses(
+            metrics.get(Constants.REMOTE_READ_CACHE_MISSES_INDEX));
+        mWorkerSource.incRemoteReadCacheBytesSaved(
+            metrics.get(Constants.REMOTE_READ_CACHE_BYTES_SAVED_INDEX));
+      }
+      if (metrics.size() > Constants.ADAPTIVE_RECACHES_SKIPPED_INDEX) {
+        mWorkerSource.incAdaptiveReadsUfs(metrics.get(Constants.ADAPTIVE_READS_UFS_INDEX));
+        mWorkerSource.incAdaptiveRecachesSkipped(
+            metrics.get(Constants.ADAPTIVE_RECACHES_SKIPPED_INDEX));
+      }
     }
   }
 
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 
@@ -44,6 +45,8 @@ public class BlockLockManager {
   private static final int NUM_LOCKS = 100;
   /** The unique id of each lock */
   private static final AtomicLong LOCK_ID_GEN = new AtomicLong(0);
+  /** The lock id returned by {@link #tryLockBlock} when the lock is not available */
+  public static final long INVALID_LOCK_ID = -1;
 
   private final BlockMetadataManager mMetaManager;
   /** A map from a block ID to its lock */
@@ -74,16 +77,50 @@ public class BlockLockManager {
    * @throws IOException
    */
   public long lockBlock(long userId, long blockId, BlockLockType blockLockType) throws IOException {
+    Lock lock = getLock(blockId, blockLockType);
+    lock.lock();
+    return recordLock(userId, blockId, lock);
+  }
+
+  /**
+   * Locks a block if it exists and the lock becomes available within the given time, unlike
+   * {@link #lockBlock(long, long, BlockLockType)} this does not wait for the other holders of the
+   * lock indefinitely.
+   *
+   * @param userId the ID of user
+   * @param blockId the ID of block
+   * @param blockLockType READ or WRITE
+   * @param timeoutMs how long to wait for the lock, 0 to not wait
+   * @return lock id if the block was locked, {@link #INVALID_LOCK_ID} if the lock is held
+   * @throws IOException if the block does not exist
+   */
+  public long tryLockBlock(long userId, long blockId, BlockLockType blockLockType, long timeoutMs)
+      throws IOException {
+    Lock lock = getLock(blockId, blockLockType);
+    try {
+      if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+        return INVALID_LOCK_ID;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return INVALID_LOCK_ID;
+    }
+    return recordLock(userId, blockId, lock);
+  }
+
+  private Lock getLock(long blockId, BlockLockType blockLockType) {
     // hashing blockId into the range of [0, NUM_LOCKS-1]
     int hashValue = Math.abs(mHashFunc.hashLong(blockId).asInt()) % NUM_LOCKS;
     ClientRWLock blockLock = mLockArray[hashValue];
-    Lock lock;
     if (blockLockType == BlockLockType.READ) {
-      lock = blockLock.readLock();
+      return blockLock.readLock();
     } else { // blockLockType == BlockLockType.WRITE
-      lock = blockLock.writeLock();
+      return blockLock.writeLock();
     }
-    lock.lock();
+  }
+
+  // Records a lock just acquired by the user, releases it if the block does not exist.
+  private long recordLock(long userId, long blockId, Lock lock) throws IOException {
     if (!mMetaManager.hasBlockMeta(blockId)) {
       lock.unlock();
       throw new IOException("Failed to lockBlock: no blockId " + blockId + " found");
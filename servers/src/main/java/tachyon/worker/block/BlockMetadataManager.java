@@ -324,6 +324,24 @@ public class BlockMetadataManager {
     dir.resizeTempBlockMeta(tempBlockMeta, newSize);
   }
 
+  /**
+   * Modifies the size of a temp block if its dir has enough available space, atomically.
+   *
+   * @param tempBlockMeta the temp block to modify
+   * @param newSize new block size in bytes
+   * @return true if the block was resized, false if its dir does not have enough space
+   * @throws IOException
+   */
+  public synchronized boolean resizeTempBlockMetaIfAvailable(TempBlockMeta tempBlockMeta,
+      long newSize) throws IOException {
+    StorageDir dir = tempBlockMeta.getParentDir();
+    if (dir.getAvailableBytes() < newSize - tempBlockMeta.getBlockSize()) {
+      return false;
+    }
+    dir.resizeTempBlockMeta(tempBlockMeta, newSize);
+    return true;
+  }
+
   /**
    * Cleans up the meta data of temp blocks created by the given user.
    *
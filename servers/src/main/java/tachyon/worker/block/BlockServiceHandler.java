@@ -75,9 +75,16 @@ public class BlockServiceHandler implements WorkerService.Iface {
     }
   }
 
-  // TODO: Make this supported again
+  /**
+   * Checkpoints a file written to this worker with ASYNC_THROUGH in the background, once the file
+   * is complete.
+   *
+   * @param fileId the id of the file to checkpoint
+   * @return true if the file will be checkpointed
+   * @throws TException never
+   */
   public boolean asyncCheckpoint(int fileId) throws TException {
-    return false;
+    return mWorker.asyncCheckpoint(fileId);
   }
 
   /**
@@ -36,6 +36,7 @@ import tachyon.conf.TachyonConf;
 import tachyon.metrics.MetricsSystem;
 import tachyon.thrift.NetAddress;
 import tachyon.thrift.WorkerService;
+import tachyon.underfs.UnderFileSystemCache;
 import tachyon.util.CommonUtils;
 import tachyon.util.NetworkUtils;
 import tachyon.util.ThreadFactoryUtils;
@@ -43,13 +44,15 @@ import tachyon.web.UIWebServer;
 import tachyon.web.WorkerUIWebServer;
 import tachyon.worker.DataServer;
 import tachyon.worker.WorkerSource;
+import tachyon.worker.netty.NettyDataServer;
 
 /**
  * The class responsible for managing all top level components of the Block Worker. These include:
  *
  * Servers: BlockServiceHandler (RPC Server), BlockDataServer (Data Server)
  *
- * Periodic Threads: BlockMasterSync (Worker to Master continuous communication)
+ * Periodic Threads: BlockMasterSync (Worker to Master continuous communication), CheckpointService
+ * (ASYNC_THROUGH files to the under file system)
  *
  * Logic: BlockDataManager (Logic for all block related storage operations)
  *
@@ -118,6 +121,9 @@ public class BlockWorker {
         new InetSocketAddress(NetworkUtils.getLocalHostName(tachyonConf), dataServerPort);
     mDataServer =
         DataServer.Factory.createDataServer(dataServerAddress, mBlockDataManager, mTachyonConf);
+    if (mDataServer instanceof NettyDataServer) {
+      mWorkerMetricsSystem.registerSource(((NettyDataServer) mDataServer).getTransportSource());
+    }
 
     // Setup RPC Server
     mServiceHandler = new BlockServiceHandler(mBlockDataManager);
@@ -197,6 +203,7 @@ public class BlockWorker {
     mWebServer.addHandler(mWorkerMetricsSystem.getServletHandler());
 
     mSyncExecutorService.submit(mBlockMasterSync);
+    mBlockDataManager.start();
     mWebServer.startWebServer();
     mThriftServer.serve();
   }
@@ -218,6 +225,7 @@ public class BlockWorker {
       LOG.error("Failed to stop web server", e);
     }
     mBlockDataManager.stop();
+    UnderFileSystemCache.clear();
     while (!mDataServer.isClosed() || mThriftServer.isServing()) {
       // TODO: The reason to stop and close again is due to some issues in Thrift.
       mThriftServer.stop();
@@ -0,0 +1,374 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.worker.block;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.Users;
+import tachyon.conf.TachyonConf;
+import tachyon.master.MasterClient;
+import tachyon.thrift.ClientFileInfo;
+import tachyon.underfs.UnderFileSystem;
+import tachyon.util.CommonUtils;
+import tachyon.util.ThreadFactoryUtils;
+import tachyon.worker.WorkerSource;
+import tachyon.worker.block.io.BlockReader;
+
+/**
+ * Checkpoints the files written with <code>WriteType.ASYNC_THROUGH</code> to this worker: once a
+ * file is complete, its blocks are streamed from the block store to the under file system, and
+ * the checkpoint is reported to the master with <code>addCheckpoint</code>.
+ *
+ * The files are checkpointed by <code>tachyon.worker.checkpoint.threads</code> threads, each
+ * writing at most <code>tachyon.worker.per.thread.checkpoint.cap.mb.sec</code>. The files of the
+ * dependencies the master asks to checkpoint first (see
+ * <code>MasterInfo.getPriorityDependencyList()</code>) are taken first, the others in the order
+ * they were submitted. Files which are not complete yet, or failed to be checkpointed, are retried
+ * until their writer would have timed out. A file is checkpointed by one thread at a time: a file
+ * submitted again while it is being checkpointed is not queued. This class is thread safe.
+ */
+public final class CheckpointService {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  /** The number of bytes read from the block store and written to the under file system at once. */
+  private static final int CHUNK_BYTES = 4 * Constants.MB;
+  /** How long to wait before checking again whether a submitted file is complete. */
+  private static final long RETRY_INTERVAL_MS = Constants.SECOND_MS;
+
+  private final BlockDataManager mDataManager;
+  private final MasterClient mMasterClient;
+  private final UnderFileSystem mUfs;
+  private final WorkerSource mWorkerSource;
+  private final String mUfsDataFolder;
+  private final int mThreads;
+  /** The maximum bytes per second of a checkpoint thread, or 0 for no limit. */
+  private final long mCapBytesPerSec;
+  private final long mPriorityRefreshIntervalMs;
+  private final long mMaxWaitMs;
+  private final ExecutorService mExecutor;
+
+  private final Object mLock = new Object();
+  /** The files to checkpoint, with the time before which they are not retried. */
+  private final Map<Integer, Long> mPendingFiles = new LinkedHashMap<Integer, Long>();
+  /** The files being checkpointed by a thread. */
+  private final Set<Integer> mInProgressFiles = new HashSet<Integer>();
+  /** The time the files were submitted at, to give up on files that never complete. */
+  private final Map<Integer, Long> mSubmitTimeMs = new LinkedHashMap<Integer, Long>();
+  /** The files of the priority dependencies, refreshed from the master periodically. */
+  private Set<Integer> mPriorityFiles = new HashSet<Integer>();
+  private long mPriorityRefreshTimeMs = 0;
+
+  private volatile boolean mRunning = false;
+  private volatile long mWorkerId = -1;
+
+  /**
+   * @param dataManager the data manager to read the blocks with
+   * @param masterClient the client of the master
+   * @param ufs the under file system to checkpoint to
+   * @param workerSource the metrics of the worker
+   * @param tachyonConf the configuration of the worker
+   */
+  public CheckpointService(BlockDataManager dataManager, MasterClient masterClient,
+      UnderFileSystem ufs, WorkerSource workerSource, TachyonConf tachyonConf) {
+    mDataManager = dataManager;
+    mMasterClient = masterClient;
+    mUfs = ufs;
+    mWorkerSource = workerSource;
+    mUfsDataFolder = tachyonConf.get(Constants.UNDERFS_DATA_FOLDER, Constants.DEFAULT_DATA_FOLDER);
+    mThreads = Math.max(tachyonConf.getInt(Constants.WORKER_CHECKPOINT_THREADS, 1), 1);
+    mCapBytesPerSec = Math.max(tachyonConf.getLong(
+        Constants.WORKER_PER_THREAD_CHECKPOINT_CAP_MB_SEC,
+        Constants.DEFAULT_CHECKPOINT_CAP_MB_SEC), 0) * Constants.MB;
+    mPriorityRefreshIntervalMs = tachyonConf.getInt(
+        Constants.WORKER_TO_MASTER_HEARTBEAT_INTERVAL_MS, Constants.SECOND_MS);
+    mMaxWaitMs = tachyonConf.getInt(Constants.WORKER_USER_TIMEOUT_MS, 10 * Constants.SECOND_MS);
+    mExecutor = Executors.newFixedThreadPool(mThreads,
+        ThreadFactoryUtils.build("worker-checkpoint-%d", true));
+  }
+
+  /**
+   * Sets the id of this worker, which is reported to the master with the checkpoints.
+   *
+   * @param workerId the id of the worker
+   */
+  public void setWorkerId(long workerId) {
+    mWorkerId = workerId;
+  }
+
+  /**
+   * Starts the checkpoint threads.
+   */
+  public void start() {
+    mRunning = true;
+    for (int k = 0; k < mThreads; k ++) {
+      mExecutor.submit(new Runnable() {
+        @Override
+        public void run() {
+          runCheckpoints();
+        }
+      });
+    }
+  }
+
+  /**
+   * Stops the checkpoint threads. The files not checkpointed yet are dropped.
+   */
+  public void stop() {
+    mRunning = false;
+    mExecutor.shutdownNow();
+  }
+
+  /**
+   * Submits a file to checkpoint. The file is checkpointed once it is complete.
+   *
+   * @param fileId the id of the file
+   * @return true, the file is checkpointed in the background
+   */
+  public boolean submit(int fileId) {
+    synchronized (mLock) {
+      if (!mPendingFiles.containsKey(fileId) && !mInProgressFiles.contains(fileId)) {
+        mPendingFiles.put(fileId, 0L);
+        mSubmitTimeMs.put(fileId, System.currentTimeMillis());
+      }
+      mLock.notifyAll();
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of files waiting to be checkpointed
+   */
+  public int getPendingFiles() {
+    synchronized (mLock) {
+      return mPendingFiles.size();
+    }
+  }
+
+  private void runCheckpoints() {
+    while (mRunning) {
+      int fileId;
+      try {
+        fileId = takeNextFile();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (fileId == -1) {
+        continue;
+      }
+      boolean done = false;
+      try {
+        done = checkpoint(fileId);
+      } catch (IOException ioe) {
+        LOG.error("Failed to checkpoint file " + fileId, ioe);
+      } catch (RuntimeException re) {
+        LOG.error("Failed to checkpoint file " + fileId, re);
+      }
+      synchronized (mLock) {
+        mInProgressFiles.remove(fileId);
+        Long submitTimeMs = mSubmitTimeMs.get(fileId);
+        if (!done && submitTimeMs != null
+            && System.currentTimeMillis() - submitTimeMs < mMaxWaitMs) {
+          mPendingFiles.put(fileId, System.currentTimeMillis() + RETRY_INTERVAL_MS);
+        } else {
+          if (!done) {
+            LOG.warn("Gave up checkpointing file {}, which was never completed or checkpointed",
+                fileId);
+          }
+          mSubmitTimeMs.remove(fileId);
+        }
+      }
+    }
+  }
+
+  /**
+   * Takes the next file to checkpoint, preferring the files of the priority dependencies.
+   *
+   * @return the id of the file, or -1 if there is none due
+   */
+  private int takeNextFile() throws InterruptedException {
+    Set<Integer> priorityFiles = getPriorityFiles();
+    synchronized (mLock) {
+      long nowMs = System.currentTimeMillis();
+      int next = -1;
+      long nextDueMs = Long.MAX_VALUE;
+      for (Map.Entry<Integer, Long> entry : mPendingFiles.entrySet()) {
+        if (entry.getValue() > nowMs) {
+          nextDueMs = Math.min(nextDueMs, entry.getValue());
+          continue;
+        }
+        if (next == -1 || priorityFiles.contains(entry.getKey())) {
+          next = entry.getKey();
+          if (priorityFiles.contains(next)) {
+            break;
+          }
+        }
+      }
+      if (next == -1) {
+        mLock.wait(Math.min(Math.max(nextDueMs - nowMs, 1), mPriorityRefreshIntervalMs));
+        return -1;
+      }
+      mPendingFiles.remove(next);
+      mInProgressFiles.add(next);
+      return next;
+    }
+  }
+
+  private Set<Integer> getPriorityFiles() {
+    synchronized (mLock) {
+      if (mPendingFiles.isEmpty() || System.currentTimeMillis() - mPriorityRefreshTimeMs
+          < mPriorityRefreshIntervalMs) {
+        return mPriorityFiles;
+      }
+      mPriorityRefreshTimeMs = System.currentTimeMillis();
+    }
+    Set<Integer> priorityFiles = new HashSet<Integer>();
+    try {
+      for (int depId : mMasterClient.worker_getPriorityDependencyList()) {
+        priorityFiles.addAll(mMasterClient.getClientDependencyInfo(depId).getChildren());
+      }
+    } catch (IOException ioe) {
+      LOG.error("Failed to get the priority dependencies from the master", ioe);
+      synchronized (mLock) {
+        return mPriorityFiles;
+      }
+    }
+    synchronized (mLock) {
+      mPriorityFiles = priorityFiles;
+      return priorityFiles;
+    }
+  }
+
+  /**
+   * Checkpoints a file, if it is complete.
+   *
+   * @param fileId the id of the file
+   * @return true if the file is checkpointed or does not need to be, false if it is not complete
+   * @throws IOException if the file cannot be checkpointed
+   */
+  private boolean checkpoint(int fileId) throws IOException {
+    ClientFileInfo info = mMasterClient.getFileStatus(fileId, "");
+    if (info == null || info.getId() == -1) {
+      LOG.warn("File {} to checkpoint does not exist anymore", fileId);
+      return true;
+    }
+    if (!info.getUfsPath().isEmpty()) {
+      return true;
+    }
+    if (!info.isIsComplete()) {
+      return false;
+    }
+
+    String dstPath = CommonUtils.concatPath(mUfsDataFolder, fileId);
+    String tmpPath = dstPath + ".checkpointing";
+    LOG.info("Checkpointing file {} of {} bytes to {}", fileId, info.getLength(), dstPath);
+    long startMs = System.currentTimeMillis();
+    long written = 0;
+    OutputStream os = mUfs.create(tmpPath);
+    try {
+      byte[] chunk = new byte[CHUNK_BYTES];
+      for (long blockId : info.getBlockIds()) {
+        written += copyBlock(blockId, os, chunk, written, startMs);
+      }
+    } finally {
+      os.close();
+    }
+    if (written != info.getLength()) {
+      mUfs.delete(tmpPath, false);
+      throw new IOException("Checkpointed " + written + " bytes of file " + fileId + " of "
+          + info.getLength() + " bytes");
+    }
+    if (mUfs.exists(dstPath)) {
+      mUfs.delete(dstPath, false);
+    }
+    if (!mUfs.rename(tmpPath, dstPath)) {
+      throw new IOException("Failed to rename " + tmpPath + " to " + dstPath);
+    }
+    mMasterClient.addCheckpoint(mWorkerId, fileId, written, dstPath);
+    mWorkerSource.incFilesCheckpointed(1);
+    mWorkerSource.incBytesCheckpointed(written);
+    LOG.info("Checkpointed file {} in {} ms", fileId, System.currentTimeMillis() - startMs);
+    return true;
+  }
+
+  /**
+   * Copies a block of the local block store to the under file system, throttled to the cap of the
+   * thread. The block is locked only while a chunk is read from it, not while the chunk is written
+   * or the copy is throttled, so that it does not hold off eviction for the whole copy.
+   *
+   * @return the number of bytes copied
+   */
+  private long copyBlock(long blockId, OutputStream os, byte[] chunk, long writtenBefore,
+      long startMs) throws IOException {
+    long length = -1;
+    long offset = 0;
+    while (length == -1 || offset < length) {
+      int len;
+      long lockId = mDataManager.lockBlock(Users.CHECKPOINT_USER_ID, blockId);
+      try {
+        BlockReader reader =
+            mDataManager.readBlockRemote(Users.CHECKPOINT_USER_ID, blockId, lockId);
+        try {
+          length = reader.getLength();
+          len = (int) Math.min(chunk.length, length - offset);
+          if (len > 0) {
+            reader.read(offset, len).get(chunk, 0, len);
+          }
+        } finally {
+          reader.close();
+        }
+      } finally {
+        mDataManager.unlockBlock(lockId);
+      }
+      if (len <= 0) {
+        break;
+      }
+      os.write(chunk, 0, len);
+      offset += len;
+      throttle(writtenBefore + offset, startMs);
+    }
+    return offset;
+  }
+
+  /**
+   * Sleeps as long as the bytes written since the start are ahead of the cap.
+   */
+  private void throttle(long written, long startMs) throws IOException {
+    if (mCapBytesPerSec <= 0) {
+      return;
+    }
+    long expectedMs = written * Constants.SECOND_MS / mCapBytesPerSec;
+    long aheadMs = expectedMs - (System.currentTimeMillis() - startMs);
+    if (aheadMs > 0) {
+      try {
+        Thread.sleep(aheadMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while checkpointing");
+      }
+    }
+  }
+}
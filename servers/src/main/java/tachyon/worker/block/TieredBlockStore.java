@@ -66,6 +66,8 @@ import tachyon.worker.block.meta.TempBlockMeta;
 // TODO: If a method requires certain locks being hold, validate it.
 public class TieredBlockStore implements BlockStore {
   private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  /** How long eviction waits for the lock of a block before it considers the block in use */
+  private static final long FREE_SPACE_LOCK_WAIT_MS = 100;
 
   private final TachyonConf mTachyonConf;
   private final BlockMetadataManager mMetaManager;
@@ -183,7 +185,18 @@ public class TieredBlockStore implements BlockStore {
 
   @Override
   public void requestSpace(long userId, long blockId, long additionalBytes) throws IOException {
-    // TODO: Change the lock to read lock and only upgrade to write lock if necessary
+    // Fast path: the dir of the block has room, so no eviction and no write lock are needed.
+    mEvictionLock.readLock().lock();
+    try {
+      TempBlockMeta tempBlockMeta = mMetaManager.getTempBlockMeta(blockId);
+      if (mMetaManager.resizeTempBlockMetaIfAvailable(tempBlockMeta,
+          tempBlockMeta.getBlockSize() + additionalBytes)) {
+        return;
+      }
+    } finally {
+      mEvictionLock.readLock().unlock();
+    }
+
     mEvictionLock.writeLock().lock();
     try {
       TempBlockMeta tempBlockMeta = mMetaManager.getTempBlockMeta(blockId);
@@ -414,15 +427,37 @@ public class TieredBlockStore implements BlockStore {
   // This method must be guarded by WRITE lock of mEvictionLock
   private void freeSpaceInternal(long userId, long availableBytes, BlockStoreLocation location)
       throws IOException {
-    EvictionPlan plan = mEvictor.freeSpace(availableBytes, location);
-    // Absent plan means failed to evict enough space.
-    if (plan == null) {
-      throw new IOException("Failed to free space: no eviction plan by evictor");
+    // Blocks in use can not be freed, so plan again until a plan is carried out, or a block
+    // already found in use is planned again.
+    Set<Long> blocksInUse = new HashSet<Long>();
+    while (true) {
+      EvictionPlan plan = mEvictor.freeSpace(availableBytes, location);
+      // Absent plan means failed to evict enough space.
+      if (plan == null) {
+        throw new IOException("Failed to free space: no eviction plan by evictor");
+      }
+      Long blockInUse = freeSpaceWithPlan(userId, plan);
+      if (blockInUse == null) {
+        return;
+      }
+      if (!blocksInUse.add(blockInUse)) {
+        throw new IOException("Failed to free space: blocks " + blocksInUse + " are in use");
+      }
+      LOG.debug("Block {} is in use, planning eviction again", blockInUse);
     }
+  }
 
+  // Carries out an eviction plan, returns null if it was, or the id of the block in use that
+  // stopped it. This method must be guarded by WRITE lock of mEvictionLock
+  private Long freeSpaceWithPlan(long userId, EvictionPlan plan) throws IOException {
     // 1. remove blocks to make room.
-    for (long blockId : plan.toEvict()) {
-      long lockId = mLockManager.lockBlock(userId, blockId, BlockLockType.WRITE);
+    List<Long> toEvict = plan.toEvict();
+    for (int i = 0; i < toEvict.size(); i ++) {
+      long blockId = toEvict.get(i);
+      long lockId = tryLockBlockToFree(userId, blockId, toEvict.subList(i, toEvict.size()));
+      if (lockId == BlockLockManager.INVALID_LOCK_ID) {
+        return blockId;
+      }
       try {
         removeBlockNoLock(userId, blockId);
         synchronized (mBlockStoreEventListeners) {
@@ -458,7 +493,10 @@ public class TieredBlockStore implements BlockStore {
         BlockStoreLocation newLocation = entry.getSecond();
         BlockMeta blockMeta = mMetaManager.getBlockMeta(blockId);
         BlockStoreLocation oldLocation = blockMeta.getBlockLocation();
-        long lockId = mLockManager.lockBlock(userId, blockId, BlockLockType.WRITE);
+        long lockId = tryLockBlockToFree(userId, blockId, Collections.<Long>emptyList());
+        if (lockId == BlockLockManager.INVALID_LOCK_ID) {
+          return blockId;
+        }
         try {
           moveBlockNoLock(blockId, newLocation);
           synchronized (mBlockStoreEventListeners) {
@@ -474,5 +512,24 @@ public class TieredBlockStore implements BlockStore {
         }
       }
     }
+    return null;
+  }
+
+  // Locks a block in WRITE mode to evict or move it. Readers may hold a block for a long time, e.g.
+  // clients keep the blocks they read locally locked for a while, so this gives up after a short
+  // wait and returns INVALID_LOCK_ID. The evictor may have dropped the blocks to evict from its
+  // candidates, those not evicted are then reported to it as accessed so that they remain
+  // candidates, behind the idle blocks.
+  private long tryLockBlockToFree(long userId, long blockId, List<Long> notFreed)
+      throws IOException {
+    long lockId = mLockManager.tryLockBlock(userId, blockId, BlockLockType.WRITE,
+        FREE_SPACE_LOCK_WAIT_MS);
+    if (lockId == BlockLockManager.INVALID_LOCK_ID
+        && mEvictor instanceof BlockStoreEventListener) {
+      for (long id : notFreed) {
+        ((BlockStoreEventListener) mEvictor).onAccessBlock(userId, id);
+      }
+    }
+    return lockId;
   }
 }
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.worker.block;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.Users;
+import tachyon.conf.TachyonConf;
+import tachyon.master.BlockInfo;
+import tachyon.master.MasterClient;
+import tachyon.thrift.ClientBlockInfo;
+import tachyon.thrift.ClientFileInfo;
+import tachyon.underfs.UnderFileSystem;
+import tachyon.util.ThreadFactoryUtils;
+import tachyon.worker.WorkerSource;
+import tachyon.worker.block.io.BlockWriter;
+
+/**
+ * Fetches the blocks missing from this worker from the checkpoints of their files in the under file
+ * system, so that a remote read of a block which is in no worker is served by this worker, which
+ * caches the block, instead of being read from the under file system by the client.
+ *
+ * The blocks are fetched by <code>tachyon.worker.ufs.read.through.threads</code> threads. The
+ * concurrent requests for the same block are coalesced: the block is fetched once and all the
+ * requests wait for that fetch, so a burst of reads of a cold block reads it from the under file
+ * system once. The fetched block is committed like a block written by a client, so the master
+ * learns about it. This class is thread safe.
+ */
+public final class UnderFsBlockFetcher {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  /** The number of bytes read from the under file system and written to the block at once. */
+  private static final int CHUNK_BYTES = 4 * Constants.MB;
+
+  private final BlockDataManager mDataManager;
+  private final BlockStore mBlockStore;
+  private final MasterClient mMasterClient;
+  private final WorkerSource mWorkerSource;
+  private final TachyonConf mTachyonConf;
+  private final ExecutorService mExecutor;
+  /** The fetches in progress, by block id. */
+  private final ConcurrentMap<Long, SettableFuture<Boolean>> mFetches =
+      new ConcurrentHashMap<Long, SettableFuture<Boolean>>();
+
+  /**
+   * @param dataManager the data manager to commit the fetched blocks with
+   * @param blockStore the block store to write the fetched blocks to
+   * @param masterClient the client of the master
+   * @param workerSource the metrics of the worker
+   * @param tachyonConf the configuration of the worker
+   */
+  public UnderFsBlockFetcher(BlockDataManager dataManager, BlockStore blockStore,
+      MasterClient masterClient, WorkerSource workerSource, TachyonConf tachyonConf) {
+    mDataManager = dataManager;
+    mBlockStore = blockStore;
+    mMasterClient = masterClient;
+    mWorkerSource = workerSource;
+    mTachyonConf = tachyonConf;
+    mExecutor = Executors.newFixedThreadPool(
+        Math.max(tachyonConf.getInt(Constants.WORKER_UFS_READ_THROUGH_THREADS, 4), 1),
+        ThreadFactoryUtils.build("worker-ufs-fetch-%d", true));
+  }
+
+  /**
+   * Fetches a block from the under file system into the block store, in the background, or joins
+   * the fetch of the block in progress.
+   *
+   * @param blockId the id of the block
+   * @return a future set to true once the block is in the block store, or to false if it cannot be
+   *         fetched, e.g. because its file is not checkpointed
+   */
+  public ListenableFuture<Boolean> fetch(final long blockId) {
+    final SettableFuture<Boolean> future = SettableFuture.create();
+    SettableFuture<Boolean> inProgress = mFetches.putIfAbsent(blockId, future);
+    if (inProgress != null) {
+      mWorkerSource.incReadThroughCoalesced(1);
+      return inProgress;
+    }
+    mExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        boolean fetched = false;
+        try {
+          fetched = fetchBlock(blockId);
+        } catch (Exception e) {
+          LOG.warn("Failed to fetch block " + blockId + " from the under file system", e);
+        } finally {
+          mFetches.remove(blockId);
+          future.set(fetched);
+        }
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Stops the fetch threads. The fetches in progress are interrupted.
+   */
+  public void stop() {
+    mExecutor.shutdownNow();
+  }
+
+  private boolean fetchBlock(long blockId) throws IOException {
+    if (hasBlock(blockId)) {
+      // Fetched by the previous fetch, which completed meanwhile.
+      return true;
+    }
+    ClientBlockInfo blockInfo = mMasterClient.user_getClientBlockInfo(blockId);
+    ClientFileInfo fileInfo = mMasterClient.getFileStatus(BlockInfo.computeInodeId(blockId), "");
+    String ufsPath = fileInfo.getUfsPath();
+    if (ufsPath == null || ufsPath.isEmpty()) {
+      LOG.info("Block {} is not checkpointed, it cannot be read through", blockId);
+      return false;
+    }
+
+    long length = blockInfo.getLength();
+    UnderFileSystem ufs = null;
+    InputStream in = null;
+    BlockWriter writer = null;
+    boolean committed = false;
+    try {
+      // Inside the try, so that a temporary block left by a failed creation is aborted too.
+      mBlockStore.createBlockMeta(Users.READ_THROUGH_USER_ID, blockId,
+          BlockStoreLocation.anyTier(), length);
+      ufs = UnderFileSystem.get(ufsPath, mTachyonConf);
+      in = ufs.open(ufsPath, blockInfo.getOffset());
+      writer = mBlockStore.getBlockWriter(Users.READ_THROUGH_USER_ID, blockId);
+      byte[] buffer = new byte[(int) Math.min(CHUNK_BYTES, Math.max(length, 1))];
+      long remaining = length;
+      while (remaining > 0) {
+        int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (read < 0) {
+          throw new IOException("Unexpected end of " + ufsPath + " at "
+              + (blockInfo.getOffset() + length - remaining) + " reading block " + blockId);
+        }
+        writer.append(ByteBuffer.wrap(buffer, 0, read));
+        remaining -= read;
+      }
+      writer.close();
+      writer = null;
+      mDataManager.commitBlock(Users.READ_THROUGH_USER_ID, blockId);
+      committed = true;
+      mWorkerSource.incBlocksReadThrough(1);
+      mWorkerSource.incBytesReadUfs(length);
+      LOG.info("Fetched block {} ({} bytes) from {}", blockId, length, ufsPath);
+      return true;
+    } finally {
+      if (writer != null) {
+        writer.close();
+      }
+      if (in != null) {
+        in.close();
+      }
+      if (ufs != null) {
+        ufs.close();
+      }
+      if (!committed) {
+        try {
+          mBlockStore.abortBlock(Users.READ_THROUGH_USER_ID, blockId);
+        } catch (IOException e) {
+          // The block was never created, or committed to the store and only reporting it to the
+          // master failed.
+          LOG.warn("Failed to abort the fetch of block " + blockId, e);
+        }
+      }
+    }
+  }
+
+  private boolean hasBlock(long blockId) {
+    try {
+      long lockId = mBlockStore.lockBlock(Users.READ_THROUGH_USER_ID, blockId);
+      mBlockStore.unlockBlock(lockId);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+}
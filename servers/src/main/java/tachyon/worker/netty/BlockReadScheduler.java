@@ -0,0 +1,310 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.worker.netty;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tachyon.Constants;
+import tachyon.util.ThreadFactoryUtils;
+
+/**
+ * Schedules the block responses of the data server when read bandwidth limits are configured.
+ * Requests are queued per client host and dispatched by a scheduler thread in fair order: the
+ * backlogged client which has been served the fewest bytes goes first, so a client scanning a large
+ * dataset can not starve clients issuing a few small reads. The dispatched reads run on a pool of
+ * threads, at most one read per thread at once, so the reads of different blocks proceed in
+ * parallel. Two token buckets shape the traffic, one for the whole worker and one per client host.
+ * A response is sent as a whole: its expected size is charged when it is dispatched and corrected
+ * with the bytes actually sent once it is done, delaying the following responses until the debt is
+ * paid off. The reads still queued when the scheduler is closed are cancelled.
+ */
+final class BlockReadScheduler implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  private static final long SECOND_NS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * A queued block read.
+   */
+  interface ReadTask {
+    /**
+     * Sends the response of the read.
+     *
+     * @return the number of bytes of block data sent
+     */
+    long run();
+
+    /**
+     * Fails the read, which will not be run, so that the client does not wait for it.
+     */
+    void cancel();
+  }
+
+  private final long mBandwidth;
+  private final long mClientBandwidth;
+  private final TransportSource mTransportSource;
+  private final ExecutorService mExecutor;
+  private final int mMaxInFlight;
+
+  private final Lock mLock = new ReentrantLock();
+  private final Condition mChanged = mLock.newCondition();
+  private final Map<String, ClientQueue> mClients = new HashMap<String, ClientQueue>();
+  private final Set<ClientQueue> mBacklogged = new LinkedHashSet<ClientQueue>();
+  private final Thread mSchedulerThread;
+  // The number of reads dispatched and not done yet.
+  private int mInFlight = 0;
+  // The served bytes of the last client scheduled, new backlogged clients start from here.
+  private long mVirtualBytes = 0;
+  // When the worker-wide token bucket allows the next response.
+  private long mNextSendNs = 0;
+  private boolean mClosed = false;
+
+  /**
+   * @param bandwidth the maximum bytes per second sent by the data server, 0 for no limit
+   * @param clientBandwidth the maximum bytes per second sent to one client host, 0 for no limit
+   * @param threads the number of threads running the reads
+   * @param transportSource the metrics to report the queued bytes and throttled time to
+   */
+  BlockReadScheduler(long bandwidth, long clientBandwidth, int threads,
+      TransportSource transportSource) {
+    mBandwidth = bandwidth;
+    mClientBandwidth = clientBandwidth;
+    mTransportSource = transportSource;
+    mMaxInFlight = Math.max(threads, 1);
+    mExecutor = Executors.newFixedThreadPool(mMaxInFlight,
+        ThreadFactoryUtils.build("data-server-read-%d", true));
+    mSchedulerThread = ThreadFactoryUtils.build("data-server-read-scheduler-%d", true).newThread(
+        new Runnable() {
+          @Override
+          public void run() {
+            schedule();
+          }
+        });
+    mSchedulerThread.start();
+  }
+
+  /**
+   * Queues a block read of a client.
+   *
+   * @param client the host of the client
+   * @param estimatedBytes the number of bytes the read is expected to send, or 0 if unknown
+   * @param task the read to run when it is scheduled, cancelled if the scheduler is closed first
+   */
+  void submit(String client, long estimatedBytes, ReadTask task) {
+    mLock.lock();
+    try {
+      if (!mClosed) {
+        ClientQueue queue = mClients.get(client);
+        if (queue == null) {
+          queue = new ClientQueue();
+          mClients.put(client, queue);
+        }
+        if (queue.mReads.isEmpty()) {
+          queue.mServedBytes = Math.max(queue.mServedBytes, mVirtualBytes);
+          mBacklogged.add(queue);
+        }
+        queue.mReads.add(new QueuedRead(task, estimatedBytes, System.nanoTime()));
+        mTransportSource.incQueuedBytes(estimatedBytes);
+        mChanged.signal();
+        return;
+      }
+    } finally {
+      mLock.unlock();
+    }
+    task.cancel();
+  }
+
+  @Override
+  public void close() {
+    List<QueuedRead> cancelled = new ArrayList<QueuedRead>();
+    mLock.lock();
+    try {
+      mClosed = true;
+      for (ClientQueue queue : mBacklogged) {
+        cancelled.addAll(queue.mReads);
+        queue.mReads.clear();
+      }
+      mBacklogged.clear();
+      mChanged.signal();
+    } finally {
+      mLock.unlock();
+    }
+    for (QueuedRead read : cancelled) {
+      mTransportSource.decQueuedBytes(read.mEstimatedBytes);
+      try {
+        read.mTask.cancel();
+      } catch (RuntimeException e) {
+        LOG.error("Failed to cancel scheduled block read", e);
+      }
+    }
+    // The reads in progress complete.
+    mExecutor.shutdown();
+  }
+
+  private void schedule() {
+    mLock.lock();
+    try {
+      while (!mClosed) {
+        long nowNs = System.nanoTime();
+        if (mBacklogged.isEmpty() || mInFlight >= mMaxInFlight) {
+          if (mBacklogged.isEmpty()) {
+            pruneIdleClients(nowNs);
+          }
+          mChanged.await();
+          continue;
+        }
+
+        ClientQueue next = null;
+        long waitNs = mNextSendNs - nowNs;
+        if (waitNs <= 0) {
+          waitNs = Long.MAX_VALUE;
+          for (ClientQueue queue : mBacklogged) {
+            if (queue.mNextSendNs > nowNs) {
+              waitNs = Math.min(waitNs, queue.mNextSendNs - nowNs);
+            } else if (next == null || queue.mServedBytes < next.mServedBytes) {
+              next = queue;
+            }
+          }
+        }
+        if (next == null) {
+          mChanged.awaitNanos(waitNs);
+          continue;
+        }
+
+        QueuedRead read = next.mReads.poll();
+        if (next.mReads.isEmpty()) {
+          mBacklogged.remove(next);
+        }
+        mVirtualBytes = next.mServedBytes;
+        mTransportSource.decQueuedBytes(read.mEstimatedBytes);
+        mTransportSource.incThrottledTimeMs(TimeUnit.NANOSECONDS.toMillis(nowNs
+            - read.mQueuedNs));
+        charge(next, read.mEstimatedBytes);
+        dispatch(next, read);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      mLock.unlock();
+    }
+  }
+
+  /**
+   * Runs a read on the pool, then charges the difference between the bytes it sent and the bytes
+   * charged when it was dispatched. Called with the lock held.
+   */
+  private void dispatch(final ClientQueue queue, final QueuedRead read) {
+    mInFlight ++;
+    queue.mInFlight ++;
+    mExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        long bytes = 0;
+        try {
+          bytes = read.mTask.run();
+        } catch (RuntimeException e) {
+          LOG.error("Failed to run scheduled block read", e);
+        } finally {
+          mLock.lock();
+          try {
+            mInFlight --;
+            queue.mInFlight --;
+            charge(queue, bytes - read.mEstimatedBytes);
+            mChanged.signal();
+          } finally {
+            mLock.unlock();
+          }
+        }
+      }
+    });
+  }
+
+  private void charge(ClientQueue queue, long bytes) {
+    if (bytes == 0) {
+      return;
+    }
+    long nowNs = System.nanoTime();
+    queue.mServedBytes += bytes;
+    if (mBandwidth > 0) {
+      mNextSendNs = advance(mNextSendNs, nowNs, bytes, mBandwidth);
+    }
+    if (mClientBandwidth > 0) {
+      queue.mNextSendNs = advance(queue.mNextSendNs, nowNs, bytes, mClientBandwidth);
+    }
+  }
+
+  /**
+   * Moves the time of the next send by the time the bytes take at the bandwidth. A debt is paid off
+   * from now at the earliest, a refund of an over-estimated charge moves the time back.
+   */
+  private static long advance(long nextSendNs, long nowNs, long bytes, long bandwidth) {
+    long delayNs = (long) (1.0 * bytes * SECOND_NS / bandwidth);
+    return bytes > 0 ? Math.max(nextSendNs, nowNs) + delayNs : nextSendNs + delayNs;
+  }
+
+  /**
+   * Forgets the clients with nothing queued and no bandwidth debt, so the map does not grow with
+   * every host which ever read from the worker.
+   */
+  private void pruneIdleClients(long nowNs) {
+    Iterator<ClientQueue> it = mClients.values().iterator();
+    while (it.hasNext()) {
+      ClientQueue queue = it.next();
+      if (queue.mReads.isEmpty() && queue.mInFlight == 0 && queue.mNextSendNs <= nowNs) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * The queued reads of one client host.
+   */
+  private static final class ClientQueue {
+    final Queue<QueuedRead> mReads = new ArrayDeque<QueuedRead>();
+    long mServedBytes = 0;
+    long mNextSendNs = 0;
+    int mInFlight = 0;
+  }
+
+  private static final class QueuedRead {
+    final ReadTask mTask;
+    final long mEstimatedBytes;
+    final long mQueuedNs;
+
+    QueuedRead(ReadTask task, long estimatedBytes, long queuedNs) {
+      mTask = task;
+      mEstimatedBytes = estimatedBytes;
+      mQueuedNs = queuedNs;
+    }
+  }
+}
@@ -16,14 +16,18 @@
 package tachyon.worker.netty;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
 
 import com.google.common.base.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -56,10 +60,23 @@ public final class DataServerHandler extends SimpleChannelInboundHandler<RPCMess
   private final BlockDataManager mDataManager;
   private final TachyonConf mTachyonConf;
   private final FileTransferType mTransferType;
+  // Schedules the responses when read bandwidth limits are set, null otherwise.
+  private final BlockReadScheduler mReadScheduler;
 
   public DataServerHandler(final BlockDataManager dataManager, TachyonConf tachyonConf) {
+    this(dataManager, tachyonConf, null);
+  }
+
+  /**
+   * @param dataManager the block data manager of the worker
+   * @param tachyonConf the configuration of the worker
+   * @param readScheduler the scheduler to queue block responses on, or null to respond right away
+   */
+  DataServerHandler(final BlockDataManager dataManager, TachyonConf tachyonConf,
+      BlockReadScheduler readScheduler) {
     mDataManager = dataManager;
     mTachyonConf = tachyonConf;
+    mReadScheduler = readScheduler;
     mTransferType =
         mTachyonConf.getEnum(Constants.WORKER_NETTY_FILE_TRANSFER_TYPE, FileTransferType.TRANSFER);
   }
@@ -69,7 +86,7 @@ public final class DataServerHandler extends SimpleChannelInboundHandler<RPCMess
       throws IOException {
     switch (msg.getType()) {
       case RPC_BLOCK_REQUEST:
-        handleBlockRequest(ctx, (RPCBlockRequest) msg);
+        respond(ctx, (RPCBlockRequest) msg, true);
         break;
       default:
         throw new IllegalArgumentException("No handler implementation for rpc msg type: "
@@ -83,8 +100,58 @@ public final class DataServerHandler extends SimpleChannelInboundHandler<RPCMess
     ctx.close();
   }
 
-  private void handleBlockRequest(final ChannelHandlerContext ctx, final RPCBlockRequest req)
+  /**
+   * Responds to a block request, through the read scheduler if bandwidth limits are configured.
+   *
+   * @param readThrough whether to fetch the block from the under file system if it is missing
+   */
+  private void respond(ChannelHandlerContext ctx, RPCBlockRequest req, boolean readThrough)
       throws IOException {
+    if (mReadScheduler != null) {
+      scheduleBlockRequest(ctx, req, readThrough);
+    } else {
+      handleBlockRequest(ctx, req, readThrough);
+    }
+  }
+
+  private void scheduleBlockRequest(final ChannelHandlerContext ctx, final RPCBlockRequest req,
+      final boolean readThrough) {
+    String client = "unknown";
+    if (ctx.channel().remoteAddress() instanceof InetSocketAddress) {
+      client = ((InetSocketAddress) ctx.channel().remoteAddress()).getAddress().getHostAddress();
+    }
+    mReadScheduler.submit(client, Math.max(req.getLength(), 0),
+        new BlockReadScheduler.ReadTask() {
+          @Override
+          public long run() {
+            try {
+              return handleBlockRequest(ctx, req, readThrough);
+            } catch (IOException e) {
+              ctx.fireExceptionCaught(e);
+              return 0;
+            }
+          }
+
+          @Override
+          public void cancel() {
+            LOG.warn("Cancelled the scheduled read of block {}, the data server is closing",
+                req.getBlockId());
+            ChannelFuture future =
+                ctx.writeAndFlush(RPCBlockResponse.createErrorResponse(req.getBlockId()));
+            future.addListener(ChannelFutureListener.CLOSE);
+          }
+        });
+  }
+
+  /**
+   * Responds to a block request.
+   *
+   * @param readThrough whether to fetch the block from the under file system if it is missing
+   * @return the number of bytes of block data sent, 0 if the request failed or waits for the block
+   *         to be fetched
+   */
+  private long handleBlockRequest(final ChannelHandlerContext ctx, final RPCBlockRequest req,
+      boolean readThrough) throws IOException {
     final long blockId = req.getBlockId();
     final long offset = req.getOffset();
     final long len = req.getLength();
@@ -92,11 +159,14 @@ public final class DataServerHandler extends SimpleChannelInboundHandler<RPCMess
     try {
       lockId = mDataManager.lockBlock(Users.DATASERVER_USER_ID, blockId);
     } catch (IOException ioe) {
+      if (readThrough && readThrough(ctx, req)) {
+        return 0;
+      }
       LOG.error("Failed to lock block: " + blockId, ioe);
       RPCBlockResponse resp = RPCBlockResponse.createErrorResponse(blockId);
       ChannelFuture future = ctx.writeAndFlush(resp);
       future.addListener(ChannelFutureListener.CLOSE);
-      return;
+      return 0;
     }
 
     BlockReader reader = mDataManager.readBlockRemote(Users.DATASERVER_USER_ID, blockId, lockId);
@@ -112,6 +182,7 @@ public final class DataServerHandler extends SimpleChannelInboundHandler<RPCMess
       future.addListener(new ClosableResourceChannelListener(reader));
       mDataManager.accessBlock(Users.DATASERVER_USER_ID, blockId);
       LOG.info("Preparation for responding to remote block request for: " + blockId + " done.");
+      return readLength;
     } catch (Exception e) {
       // TODO This is a trick for now. The data may have been removed before remote retrieving.
       LOG.error("The file is not here : " + e.getMessage(), e);
@@ -121,11 +192,47 @@ public final class DataServerHandler extends SimpleChannelInboundHandler<RPCMess
       if (reader != null) {
         reader.close();
       }
+      return 0;
     } finally {
       mDataManager.unlockBlock(lockId);
     }
   }
 
+  /**
+   * Fetches a block missing from this worker from the under file system, without blocking the event
+   * loop, and responds to the request once the block is fetched. The response is scheduled like
+   * any other, so that it is subject to the bandwidth limits.
+   *
+   * @return true if the request is responded to once the block is fetched, false if the block
+   *         cannot be read through
+   */
+  private boolean readThrough(final ChannelHandlerContext ctx, final RPCBlockRequest req) {
+    final ListenableFuture<Boolean> fetch = mDataManager.fetchBlockFromUnderFs(req.getBlockId());
+    if (fetch == null) {
+      return false;
+    }
+    LOG.info("Block {} is not here, reading it through from the under file system",
+        req.getBlockId());
+    fetch.addListener(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          // On failure, the request is answered with an error by handleBlockRequest.
+          fetch.get();
+          respond(ctx, req, false);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          ctx.fireExceptionCaught(e);
+        } catch (ExecutionException e) {
+          ctx.fireExceptionCaught(e);
+        } catch (IOException e) {
+          ctx.fireExceptionCaught(e);
+        }
+      }
+    }, MoreExecutors.sameThreadExecutor());
+    return true;
+  }
+
   /**
    * Returns how much of a file to read. When {@code len} is {@code -1}, then
    * {@code fileLength - offset} is used.
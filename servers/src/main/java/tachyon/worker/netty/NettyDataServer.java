@@ -42,11 +42,26 @@ public final class NettyDataServer implements DataServer {
   private final ServerBootstrap mBootstrap;
   private final ChannelFuture mChannelFuture;
   private final TachyonConf mTachyonConf;
+  private final ChannelType mChannelType;
+  private final TransportSource mTransportSource;
+  // Schedules the block responses when read bandwidth limits are set, null otherwise.
+  private final BlockReadScheduler mReadScheduler;
 
   public NettyDataServer(final InetSocketAddress address, final BlockDataManager dataManager,
       final TachyonConf tachyonConf) {
     mTachyonConf = tachyonConf;
-    mBootstrap = createBootstrap().childHandler(new PipelineHandler(dataManager, mTachyonConf));
+    mChannelType = NettyUtils.getChannelType(mTachyonConf, Constants.WORKER_NETWORK_NETTY_CHANNEL);
+    mTransportSource = new TransportSource(mChannelType);
+    long bandwidth = mTachyonConf.getBytes(Constants.WORKER_NETTY_READ_BANDWIDTH, 0);
+    long clientBandwidth = mTachyonConf.getBytes(Constants.WORKER_NETTY_READ_CLIENT_BANDWIDTH, 0);
+    if (bandwidth > 0 || clientBandwidth > 0) {
+      mReadScheduler = new BlockReadScheduler(bandwidth, clientBandwidth,
+          mTachyonConf.getInt(Constants.WORKER_NETTY_READ_THREADS, 8), mTransportSource);
+    } else {
+      mReadScheduler = null;
+    }
+    mBootstrap = createBootstrap().childHandler(
+        new PipelineHandler(dataManager, mTachyonConf, mTransportSource, mReadScheduler));
 
     try {
       mChannelFuture = mBootstrap.bind(address).sync();
@@ -60,13 +75,16 @@ public final class NettyDataServer implements DataServer {
     int quietPeriodSecs = mTachyonConf.getInt(Constants.WORKER_NETTY_SHUTDOWN_QUIET_PERIOD, 2);
     int timeoutSecs = mTachyonConf.getInt(Constants.WORKER_NETTY_SHUTDOWN_TIMEOUT, 15);
     mChannelFuture.channel().close().awaitUninterruptibly();
+    if (mReadScheduler != null) {
+      // Before the event loops stop, so that the queued reads are answered with an error.
+      mReadScheduler.close();
+    }
     mBootstrap.group().shutdownGracefully(quietPeriodSecs, timeoutSecs, TimeUnit.SECONDS);
     mBootstrap.childGroup().shutdownGracefully(quietPeriodSecs, timeoutSecs, TimeUnit.SECONDS);
   }
 
   private ServerBootstrap createBootstrap() {
-    final ServerBootstrap boot = createBootstrapOfType(
-        mTachyonConf.getEnum(Constants.WORKER_NETWORK_NETTY_CHANNEL, ChannelType.defaultType()));
+    final ServerBootstrap boot = createBootstrapOfType(mChannelType);
 
     // use pooled buffers
     boot.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
@@ -105,6 +123,20 @@ public final class NettyDataServer implements DataServer {
     return ((InetSocketAddress) mChannelFuture.channel().localAddress()).getPort();
   }
 
+  /**
+   * @return the channel type the server runs with
+   */
+  public ChannelType getChannelType() {
+    return mChannelType;
+  }
+
+  /**
+   * @return the metrics of the server's network traffic
+   */
+  public TransportSource getTransportSource() {
+    return mTransportSource;
+  }
+
   @Override
   public boolean isClosed() {
     return mBootstrap.group().isShutdown();
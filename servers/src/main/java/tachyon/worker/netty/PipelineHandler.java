@@ -32,19 +32,26 @@ import tachyon.worker.block.BlockDataManager;
 public final class PipelineHandler extends ChannelInitializer<SocketChannel> {
   private final BlockDataManager mDataManager;
   private final TachyonConf mTachyonConf;
+  private final TransportMetricsHandler mTransportMetricsHandler;
+  private final BlockReadScheduler mReadScheduler;
 
-  public PipelineHandler(final BlockDataManager dataManager, final TachyonConf tachyonConf) {
+  PipelineHandler(final BlockDataManager dataManager, final TachyonConf tachyonConf,
+      final TransportSource transportSource, final BlockReadScheduler readScheduler) {
     mDataManager = dataManager;
     mTachyonConf = tachyonConf;
+    mTransportMetricsHandler = new TransportMetricsHandler(transportSource);
+    mReadScheduler = readScheduler;
   }
 
   @Override
   protected void initChannel(SocketChannel ch) throws Exception {
     ChannelPipeline pipeline = ch.pipeline();
+    pipeline.addLast("transportMetrics", mTransportMetricsHandler);
     pipeline.addLast("nioChunkedWriter", new ChunkedWriteHandler());
     pipeline.addLast("frameDecoder", RPCMessage.createFrameDecoder());
     pipeline.addLast("RPCMessageDecoder", new RPCMessageDecoder());
     pipeline.addLast("RPCMessageEncoder", new RPCMessageEncoder());
-    pipeline.addLast("dataServerHandler", new DataServerHandler(mDataManager, mTachyonConf));
+    pipeline.addLast("dataServerHandler", new DataServerHandler(mDataManager, mTachyonConf,
+        mReadScheduler));
   }
 }
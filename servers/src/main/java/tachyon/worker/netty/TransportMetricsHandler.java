@@ -0,0 +1,91 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.worker.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+
+/**
+ * Records the traffic of the data server's channels into a {@link TransportSource}. It is the
+ * first handler of the pipeline, so it sees the raw bytes read from and written to the socket.
+ */
+@ChannelHandler.Sharable
+public final class TransportMetricsHandler extends ChannelDuplexHandler {
+  private final TransportSource mTransportSource;
+
+  public TransportMetricsHandler(TransportSource transportSource) {
+    mTransportSource = transportSource;
+  }
+
+  @Override
+  public void channelActive(ChannelHandlerContext ctx) throws Exception {
+    mTransportSource.incConnections();
+    super.channelActive(ctx);
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    mTransportSource.decConnections();
+    super.channelInactive(ctx);
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    mTransportSource.incBytesRead(sizeOf(msg));
+    super.channelRead(ctx, msg);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    final long bytes = sizeOf(msg);
+    if (promise == ctx.voidPromise() || promise == ctx.channel().voidPromise()) {
+      // Listeners can not be added to a void promise, so the write is not tracked.
+      mTransportSource.incBytesWritten(bytes);
+      super.write(ctx, msg, promise);
+      return;
+    }
+    mTransportSource.incPendingWrites();
+    promise.addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) {
+        mTransportSource.decPendingWrites();
+        if (future.isSuccess()) {
+          mTransportSource.incBytesWritten(bytes);
+        }
+      }
+    });
+    super.write(ctx, msg, promise);
+  }
+
+  private static long sizeOf(Object msg) {
+    if (msg instanceof ByteBuf) {
+      return ((ByteBuf) msg).readableBytes();
+    } else if (msg instanceof ByteBufHolder) {
+      return ((ByteBufHolder) msg).content().readableBytes();
+    } else if (msg instanceof FileRegion) {
+      return ((FileRegion) msg).count();
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.worker.netty;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import tachyon.metrics.source.Source;
+import tachyon.network.ChannelType;
+
+/**
+ * A TransportSource collects the network metrics of the netty data server, under the name of the
+ * channel type it runs with, so that workers running different transports can be told apart.
+ */
+public final class TransportSource implements Source {
+  private static final String TRANSPORT_SOURCE_NAME = "transport";
+  private final MetricRegistry mMetricRegistry = new MetricRegistry();
+  private final Meter mBytesRead;
+  private final Meter mBytesWritten;
+  private final Counter mConnections;
+  private final Counter mPendingWrites;
+  private final Counter mQueuedBytes;
+  private final Counter mThrottledTimeMs;
+
+  /**
+   * @param channelType the channel type the data server runs with
+   */
+  public TransportSource(ChannelType channelType) {
+    String type = channelType.name();
+    mBytesRead = mMetricRegistry.meter(MetricRegistry.name(type, "BytesRead"));
+    mBytesWritten = mMetricRegistry.meter(MetricRegistry.name(type, "BytesWritten"));
+    mConnections = mMetricRegistry.counter(MetricRegistry.name(type, "Connections"));
+    mPendingWrites = mMetricRegistry.counter(MetricRegistry.name(type, "PendingWrites"));
+    mQueuedBytes = mMetricRegistry.counter(MetricRegistry.name(type, "QueuedBytes"));
+    mThrottledTimeMs = mMetricRegistry.counter(MetricRegistry.name(type, "ThrottledTimeMs"));
+  }
+
+  @Override
+  public String getName() {
+    return TRANSPORT_SOURCE_NAME;
+  }
+
+  @Override
+  public MetricRegistry getMetricRegistry() {
+    return mMetricRegistry;
+  }
+
+  public long getConnections() {
+    return mConnections.getCount();
+  }
+
+  public long getPendingWrites() {
+    return mPendingWrites.getCount();
+  }
+
+  public long getQueuedBytes() {
+    return mQueuedBytes.getCount();
+  }
+
+  public long getThrottledTimeMs() {
+    return mThrottledTimeMs.getCount();
+  }
+
+  public long getBytesRead() {
+    return mBytesRead.getCount();
+  }
+
+  public long getBytesWritten() {
+    return mBytesWritten.getCount();
+  }
+
+  public void incBytesRead(long n) {
+    mBytesRead.mark(n);
+  }
+
+  public void incBytesWritten(long n) {
+    mBytesWritten.mark(n);
+  }
+
+  public void incConnections() {
+    mConnections.inc();
+  }
+
+  public void decConnections() {
+    mConnections.dec();
+  }
+
+  public void incPendingWrites() {
+    mPendingWrites.inc();
+  }
+
+  public void decPendingWrites() {
+    mPendingWrites.dec();
+  }
+
+  public void incQueuedBytes(long n) {
+    mQueuedBytes.inc(n);
+  }
+
+  public void decQueuedBytes(long n) {
+    mQueuedBytes.dec(n);
+  }
+
+  public void incThrottledTimeMs(long n) {
+    mThrottledTimeMs.inc(n);
+  }
+}
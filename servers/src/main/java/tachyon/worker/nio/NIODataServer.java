@@ -18,6 +18,7 @@ package tachyon.worker.nio;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
@@ -32,6 +33,7 @@ import com.google.common.base.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 
 import tachyon.Constants;
@@ -41,6 +43,7 @@ import tachyon.worker.DataServer;
 import tachyon.worker.DataServerMessage;
 import tachyon.worker.block.BlockDataManager;
 import tachyon.worker.block.io.BlockReader;
+import tachyon.worker.netty.FileTransferType;
 
 /**
  * The Server to serve data file read requests from remote machines. The current implementation is
@@ -65,6 +68,12 @@ public class NIODataServer implements Runnable, DataServer {
       .synchronizedMap(new HashMap<SocketChannel, DataServerMessage>());
   private final Map<SocketChannel, DataServerMessage> mReceivingData = Collections
       .synchronizedMap(new HashMap<SocketChannel, DataServerMessage>());
+  // The readers of the blocks being sent with FileChannel.transferTo, closed once sent.
+  private final Map<SocketChannel, BlockReader> mSendingReaders = Collections
+      .synchronizedMap(new HashMap<SocketChannel, BlockReader>());
+
+  // How the block data is sent to the socket
+  private final FileTransferType mTransferType;
 
   // The block data manager.
   private final BlockDataManager mDataManager;
@@ -86,6 +95,8 @@ public class NIODataServer implements Runnable, DataServer {
     TachyonConf.assertValidPort(address, mTachyonConf);
     mAddress = address;
     mDataManager = dataManager;
+    mTransferType =
+        mTachyonConf.getEnum(Constants.WORKER_NIO_FILE_TRANSFER_TYPE, FileTransferType.MAPPED);
     try {
       mSelector = initSelector();
       mListenerThread = new Thread(this);
@@ -196,6 +207,7 @@ public class NIODataServer implements Runnable, DataServer {
       socketChannel.close();
       mReceivingData.remove(socketChannel);
       mSendingData.remove(socketChannel);
+      closeReader(socketChannel);
       return;
     }
 
@@ -206,6 +218,7 @@ public class NIODataServer implements Runnable, DataServer {
       key.cancel();
       mReceivingData.remove(socketChannel);
       mSendingData.remove(socketChannel);
+      closeReader(socketChannel);
       return;
     }
 
@@ -221,26 +234,81 @@ public class NIODataServer implements Runnable, DataServer {
 
       long lockId = mDataManager.lockBlock(Users.DATASERVER_USER_ID, blockId);
       BlockReader reader = mDataManager.readBlockRemote(Users.DATASERVER_USER_ID, blockId, lockId);
-      ByteBuffer data;
-      int dataLen = 0;
-      try {
-        data = reader.read(tMessage.getOffset(), tMessage.getLength());
-        mDataManager.accessBlock(Users.DATASERVER_USER_ID, blockId);
-        dataLen = data.limit();
-      } catch (Exception e) {
-        LOG.error(e.getMessage(), e);
-        data = null;
-      } finally {
-        reader.close();
+      DataServerMessage tResponseMessage;
+      if (mTransferType == FileTransferType.TRANSFER
+          && reader.getChannel() instanceof FileChannel) {
+        tResponseMessage = createTransferResponse(tMessage, reader);
+        if (tResponseMessage.getBlockId() > 0) {
+          mSendingReaders.put(socketChannel, reader);
+        }
+      } else {
+        tResponseMessage = createMappedResponse(tMessage, reader);
       }
-      DataServerMessage tResponseMessage =
-          DataServerMessage.createBlockResponseMessage(true, blockId, tMessage.getOffset(),
-              dataLen, data);
       tResponseMessage.setLockId(lockId);
       mSendingData.put(socketChannel, tResponseMessage);
     }
   }
 
+  /**
+   * Creates a response holding a memory mapped copy of the requested data. The reader is closed.
+   */
+  private DataServerMessage createMappedResponse(DataServerMessage request, BlockReader reader)
+      throws IOException {
+    long blockId = request.getBlockId();
+    ByteBuffer data;
+    int dataLen = 0;
+    try {
+      data = reader.read(request.getOffset(), request.getLength());
+      mDataManager.accessBlock(Users.DATASERVER_USER_ID, blockId);
+      dataLen = data.limit();
+    } catch (Exception e) {
+      LOG.error(e.getMessage(), e);
+      data = null;
+    } finally {
+      reader.close();
+    }
+    return DataServerMessage.createBlockResponseMessage(true, blockId, request.getOffset(),
+        dataLen, data);
+  }
+
+  /**
+   * Creates a response sending the requested data straight from the block file with
+   * FileChannel.transferTo. On success the reader is left open until the response is sent,
+   * otherwise it is closed and an error response is returned.
+   */
+  private DataServerMessage createTransferResponse(DataServerMessage request, BlockReader reader)
+      throws IOException {
+    long blockId = request.getBlockId();
+    long offset = request.getOffset();
+    long length = request.getLength();
+    try {
+      long blockLength = reader.getLength();
+      if (length == -1) {
+        length = blockLength - offset;
+      }
+      Preconditions.checkArgument(offset >= 0 && length >= 0 && offset + length <= blockLength,
+          "offset=%s, length=%s, exceeding blockLength=%s", offset, length, blockLength);
+      mDataManager.accessBlock(Users.DATASERVER_USER_ID, blockId);
+      return DataServerMessage.createBlockResponseMessage(blockId, offset, length,
+          (FileChannel) reader.getChannel());
+    } catch (Exception e) {
+      LOG.error(e.getMessage(), e);
+      reader.close();
+      return DataServerMessage.createBlockResponseMessage(true, blockId, offset, 0, null);
+    }
+  }
+
+  private void closeReader(SocketChannel socketChannel) {
+    BlockReader reader = mSendingReaders.remove(socketChannel);
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        LOG.error("Failed to close block reader", e);
+      }
+    }
+  }
+
   public void run() {
     while (!mShutdown) {
       try {
@@ -303,6 +371,7 @@ public class NIODataServer implements Runnable, DataServer {
       key.cancel();
       mReceivingData.remove(socketChannel);
       mSendingData.remove(socketChannel);
+      closeReader(socketChannel);
       sendMessage.close();
       // TODO: Reconsider how we handle this exception
       try {
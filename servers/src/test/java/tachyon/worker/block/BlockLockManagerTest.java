@@ -60,6 +60,21 @@ public class BlockLockManagerTest {
     Assert.assertNotEquals(lockId1, lockId2);
   }
 
+  @Test
+  public void tryLockBlockTest() throws Exception {
+    long readLockId = mLockManager.lockBlock(TEST_USER_ID, TEST_BLOCK_ID, BlockLockType.READ);
+    // The block is read, so it can not be write-locked right away
+    Assert.assertEquals(BlockLockManager.INVALID_LOCK_ID,
+        mLockManager.tryLockBlock(TEST_USER_ID, TEST_BLOCK_ID, BlockLockType.WRITE, 0));
+    Assert.assertNotEquals(BlockLockManager.INVALID_LOCK_ID,
+        mLockManager.tryLockBlock(TEST_USER_ID, TEST_BLOCK_ID, BlockLockType.READ, 0));
+    mLockManager.cleanupUser(TEST_USER_ID);
+    long writeLockId =
+        mLockManager.tryLockBlock(TEST_USER_ID, TEST_BLOCK_ID, BlockLockType.WRITE, 0);
+    Assert.assertNotEquals(BlockLockManager.INVALID_LOCK_ID, writeLockId);
+    Assert.assertNotEquals(readLockId, writeLockId);
+  }
+
   @Test
   public void unlockNonExistingLockTest() throws Exception {
     long badBockId = 1;
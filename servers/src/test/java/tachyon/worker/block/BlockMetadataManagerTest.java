@@ -228,6 +228,22 @@ public class BlockMetadataManagerTest {
     Assert.assertEquals(TEST_BLOCK_SIZE + 1, tempBlockMeta.getBlockSize());
   }
 
+  @Test
+  public void resizeTempBlockMetaIfAvailableTest() throws Exception {
+    // The MEM dir has 1000 bytes
+    StorageDir dir = mMetaManager.getTier(1).getDir(0);
+    TempBlockMeta tempBlockMeta =
+        new TempBlockMeta(TEST_USER_ID, TEST_TEMP_BLOCK_ID, TEST_BLOCK_SIZE, dir);
+    mMetaManager.addTempBlockMeta(tempBlockMeta);
+    Assert.assertTrue(mMetaManager.resizeTempBlockMetaIfAvailable(tempBlockMeta, 1000));
+    Assert.assertEquals(1000, tempBlockMeta.getBlockSize());
+    Assert.assertEquals(0, dir.getAvailableBytes());
+
+    Assert.assertFalse(mMetaManager.resizeTempBlockMetaIfAvailable(tempBlockMeta, 1001));
+    Assert.assertEquals(1000, tempBlockMeta.getBlockSize());
+    Assert.assertEquals(0, dir.getAvailableBytes());
+  }
+
   @Test
   public void cleanupUserTest() throws Exception {
     StorageDir dir = mMetaManager.getTier(1).getDir(0);
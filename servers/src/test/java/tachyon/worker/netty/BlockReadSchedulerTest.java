@@ -0,0 +1,159 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.worker.netty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import tachyon.network.ChannelType;
+
+/**
+ * Unit tests for tachyon.worker.netty.BlockReadScheduler
+ */
+public class BlockReadSchedulerTest {
+  private final List<String> mOrder = Collections.synchronizedList(new ArrayList<String>());
+  private TransportSource mTransportSource;
+  private BlockReadScheduler mScheduler;
+
+  @Before
+  public void before() {
+    mTransportSource = new TransportSource(ChannelType.NIO);
+  }
+
+  @After
+  public void after() {
+    mScheduler.close();
+  }
+
+  private BlockReadScheduler.ReadTask createTask(final String name, final long bytes,
+      final CountDownLatch start, final CountDownLatch done) {
+    return createTask(name, bytes, new CountDownLatch(0), start, done);
+  }
+
+  /**
+   * @param running counted down when the read starts running
+   */
+  private BlockReadScheduler.ReadTask createTask(final String name, final long bytes,
+      final CountDownLatch running, final CountDownLatch start, final CountDownLatch done) {
+    return new BlockReadScheduler.ReadTask() {
+      @Override
+      public long run() {
+        running.countDown();
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        mOrder.add(name);
+        done.countDown();
+        return bytes;
+      }
+
+      @Override
+      public void cancel() {
+        mOrder.add("cancelled " + name);
+      }
+    };
+  }
+
+  @Test
+  public void fairOrderTest() throws Exception {
+    // A single read at a time, so the reads run in the order they are dispatched.
+    mScheduler = new BlockReadScheduler(Long.MAX_VALUE / 2, 0, 1, mTransportSource);
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(0);
+    CountDownLatch done = new CountDownLatch(5);
+    // The first read blocks the scheduler until every other read is queued.
+    mScheduler.submit("a", 100, createTask("a0", 100, start, done));
+    for (int k = 1; k <= 3; k ++) {
+      mScheduler.submit("a", 100, createTask("a" + k, 100, started, done));
+    }
+    mScheduler.submit("b", 100, createTask("b0", 100, started, done));
+    start.countDown();
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    // Client b is served before the remaining reads of client a, which was served first.
+    Assert.assertEquals(Lists.newArrayList("a0", "b0", "a1", "a2", "a3"), mOrder);
+    Assert.assertEquals(0, mTransportSource.getQueuedBytes());
+  }
+
+  @Test
+  public void clientBandwidthTest() throws Exception {
+    mScheduler = new BlockReadScheduler(0, 1000, 4, mTransportSource);
+    CountDownLatch start = new CountDownLatch(0);
+    CountDownLatch done = new CountDownLatch(2);
+    long startMs = System.currentTimeMillis();
+    mScheduler.submit("a", 500, createTask("a0", 500, start, done));
+    mScheduler.submit("a", 500, createTask("a1", 500, start, done));
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    // The second read waits until the 500 bytes of the first one are paid off at 1000 bytes/sec.
+    Assert.assertTrue(System.currentTimeMillis() - startMs >= 400);
+    Assert.assertTrue(mTransportSource.getThrottledTimeMs() >= 400);
+  }
+
+  @Test
+  public void clientBandwidthIsPerClientTest() throws Exception {
+    mScheduler = new BlockReadScheduler(0, 10, 4, mTransportSource);
+    CountDownLatch start = new CountDownLatch(0);
+    CountDownLatch done = new CountDownLatch(2);
+    mScheduler.submit("a", 1000, createTask("a0", 1000, start, done));
+    mScheduler.submit("b", 1000, createTask("b0", 1000, start, done));
+    // Client a has to wait 100 seconds for its next read, but client b is not throttled.
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void parallelReadsTest() throws Exception {
+    mScheduler = new BlockReadScheduler(Long.MAX_VALUE / 2, 0, 2, mTransportSource);
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(2);
+    // Both reads block until released, which only completes if they run at the same time.
+    CountDownLatch bothRunning = new CountDownLatch(2);
+    mScheduler.submit("a", 100, createTask("a0", 100, bothRunning, start, done));
+    mScheduler.submit("b", 100, createTask("b0", 100, bothRunning, start, done));
+    Assert.assertTrue(bothRunning.await(10, TimeUnit.SECONDS));
+    start.countDown();
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void closeCancelsQueuedReadsTest() throws Exception {
+    mScheduler = new BlockReadScheduler(Long.MAX_VALUE / 2, 0, 1, mTransportSource);
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    mScheduler.submit("a", 100, createTask("a0", 100, running, start, done));
+    Assert.assertTrue(running.await(10, TimeUnit.SECONDS));
+    mScheduler.submit("a", 100, createTask("a1", 100, start, done));
+    mScheduler.close();
+    // Submitted after the close.
+    mScheduler.submit("b", 100, createTask("b0", 100, start, done));
+    start.countDown();
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    // The read in progress completes, the queued and later reads are cancelled.
+    Assert.assertEquals(Lists.newArrayList("cancelled a1", "cancelled b0", "a0"), mOrder);
+    Assert.assertEquals(0, mTransportSource.getQueuedBytes());
+  }
+}
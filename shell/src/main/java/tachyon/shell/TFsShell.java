@@ -33,6 +33,7 @@ import com.google.common.io.Closer;
 
 import tachyon.Constants;
 import tachyon.TachyonURI;
+import tachyon.client.BlockLoader;
 import tachyon.client.InStream;
 import tachyon.client.OutStream;
 import tachyon.client.ReadType;
@@ -522,6 +523,7 @@ public class TFsShell implements Closeable {
     System.out.println("       [pin <path>]");
     System.out.println("       [unpin <path>]");
     System.out.println("       [free <file path|folder path>]");
+    System.out.println("       [load <path>]");
     System.out.println("       [getUsedBytes]");
     System.out.println("       [getCapacityBytes]");
     System.out.println("       [du <path>]");
@@ -577,6 +579,27 @@ public class TFsShell implements Closeable {
     return 0;
   }
 
+  /**
+   * Loads the files matching the path specified by argv, and the files under the matching
+   * directories, from the under file system into the memory of the local worker.
+   *
+   * @param argv [] Array of arguments given by the user's input from the terminal
+   * @return 0 if command is successful, -1 if an error occurred.
+   * @throws IOException
+   */
+  public int load(String[] argv) throws IOException {
+    if (argv.length != 2) {
+      System.out.println("Usage: tfs load <path>");
+      return -1;
+    }
+    TachyonURI path = new TachyonURI(argv[1]);
+    TachyonFS tachyonClient = createFS(path);
+    BlockLoader loader = new BlockLoader(tachyonClient, mTachyonConf);
+    boolean succeed = loader.load(path);
+    System.out.println(path + " loaded: " + loader.getProgress());
+    return succeed ? 0 : -1;
+  }
+
   /**
    * Removes the file specified by argv.
    *
@@ -714,6 +737,8 @@ public class TFsShell implements Closeable {
         exitCode = free(argv);
       } else if (cmd.equals("du")) {
         exitCode = du(argv);
+      } else if (cmd.equals("load")) {
+        exitCode = load(argv);
       } else {
         printUsage();
         return -1;
@@ -612,6 +612,30 @@ public class TFsShellTest {
     Assert.assertFalse(mTfs.getFile(new TachyonURI("/testFile")).isInMemory());
   }
 
+  @Test
+  public void loadTest() throws IOException {
+    TachyonFSTestUtils.createByteFile(mTfs, "/testRoot/testFileA", WriteType.THROUGH, 10);
+    TachyonFSTestUtils.createByteFile(mTfs, "/testRoot/testDir/testFileB", WriteType.THROUGH, 20);
+    TachyonFSTestUtils.createByteFile(mTfs, "/testRoot/otherFile", WriteType.THROUGH, 30);
+    Assert.assertFalse(mTfs.getFile(new TachyonURI("/testRoot/testFileA")).isInMemory());
+
+    // The blocks only in the under file system are loaded
+    mOutput.reset();
+    Assert.assertEquals(0, mFsShell.load(new String[] {"load", "/testRoot/test*"}));
+    Assert.assertEquals("/testRoot/test* loaded: 2 files, 2 blocks (30 bytes) loaded, "
+        + "0 blocks already in memory, 0 failures\n", mOutput.toString());
+    Assert.assertTrue(mTfs.getFile(new TachyonURI("/testRoot/testFileA")).isInMemory());
+    Assert.assertTrue(mTfs.getFile(new TachyonURI("/testRoot/testDir/testFileB")).isInMemory());
+    Assert.assertFalse(mTfs.getFile(new TachyonURI("/testRoot/otherFile")).isInMemory());
+
+    // The blocks already in memory are not loaded again
+    mOutput.reset();
+    Assert.assertEquals(0, mFsShell.load(new String[] {"load", "/testRoot/test*"}));
+    Assert.assertEquals("/testRoot/test* loaded: 2 files, 0 blocks (0 bytes) loaded, "
+        + "2 blocks already in memory, 0 failures\n", mOutput.toString());
+    Assert.assertEquals(-1, mFsShell.run(new String[] {"load", "/noneExisting"}));
+  }
+
   @Test
   public void duTest() throws IOException {
     TachyonFSTestUtils.createByteFile(mTfs, "/testRoot/testFileA", WriteType.MUST_CACHE, 10);
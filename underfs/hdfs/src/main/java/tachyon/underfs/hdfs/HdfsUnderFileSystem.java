@@ -40,6 +40,7 @@ import com.google.common.base.Throwables;
 import tachyon.conf.TachyonConf;
 import tachyon.Constants;
 import tachyon.TachyonURI;
+import tachyon.underfs.UnderFileStatus;
 import tachyon.underfs.UnderFileSystem;
 import tachyon.util.NetworkUtils;
 
@@ -51,6 +52,11 @@ public class HdfsUnderFileSystem extends UnderFileSystem {
   private static final int MAX_TRY = 5;
 
   private FileSystem mFs = null;
+  /**
+   * Whether mFs comes from the cache of Hadoop, which shares it with every user of the same scheme
+   * and authority in the process, so it must not be closed.
+   */
+  private boolean mFsShared = false;
   private String mUfsPrefix = null;
   // TODO add sticky bit and narrow down the permission in hadoop 2
   private static final FsPermission PERMISSION = new FsPermission((short) 0777)
@@ -72,6 +78,8 @@ public class HdfsUnderFileSystem extends UnderFileSystem {
     Path path = new Path(mUfsPrefix);
     try {
       mFs = path.getFileSystem(tConf);
+      mFsShared =
+          !tConf.getBoolean("fs." + mFs.getUri().getScheme() + ".impl.disable.cache", false);
     } catch (IOException e) {
       LOG.error("Exception thrown when trying to get FileSystem for " + mUfsPrefix, e);
       throw Throwables.propagate(e);
@@ -111,7 +119,11 @@ public class HdfsUnderFileSystem extends UnderFileSystem {
 
   @Override
   public void close() throws IOException {
-    mFs.close();
+    // A cached file system is closed by Hadoop on shutdown, closing it here would fail the other
+    // clients of the same file system with "Filesystem closed".
+    if (!mFsShared) {
+      mFs.close();
+    }
   }
 
   @Override
@@ -300,6 +312,22 @@ public class HdfsUnderFileSystem extends UnderFileSystem {
     }
   }
 
+  @Override
+  public UnderFileStatus[] listStatus(String path) throws IOException {
+    FileStatus[] files = mFs.listStatus(new Path(path));
+    if (files == null) {
+      return null;
+    }
+    UnderFileStatus[] statuses = new UnderFileStatus[files.length];
+    for (int k = 0; k < files.length; k ++) {
+      FileStatus status = files[k];
+      boolean isFile = !status.isDir();
+      statuses[k] = new UnderFileStatus(status.getPath().getName(), isFile,
+          isFile ? status.getLen() : 0, isFile ? status.getBlockSize() : 0);
+    }
+    return statuses;
+  }
+
   @Override
   public void connectFromMaster(TachyonConf conf, String host) throws IOException {
     String masterKeytab = conf.get(Constants.MASTER_KEYTAB_KEY, null);
@@ -368,6 +396,40 @@ public class HdfsUnderFileSystem extends UnderFileSystem {
     throw te;
   }
 
+  @Override
+  public FSDataInputStream open(String path, long position) throws IOException {
+    FSDataInputStream in = open(path);
+    try {
+      in.seek(position);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+    return in;
+  }
+
+  @Override
+  public int read(String path, long position, byte[] buffer, int offset, int length)
+      throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    FSDataInputStream in = open(path);
+    try {
+      int read = 0;
+      while (read < length) {
+        int n = in.read(position + read, buffer, offset + read, length - read);
+        if (n <= 0) {
+          break;
+        }
+        read += n;
+      }
+      return read == 0 ? -1 : read;
+    } finally {
+      in.close();
+    }
+  }
+
   @Override
   public boolean rename(String src, String dst) throws IOException {
     LOG.debug("Renaming from {} to {}", src, dst);
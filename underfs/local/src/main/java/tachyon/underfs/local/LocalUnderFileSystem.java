@@ -27,6 +27,7 @@ import java.util.List;
 
 import tachyon.conf.TachyonConf;
 import tachyon.Constants;
+import tachyon.underfs.UnderFileStatus;
 import tachyon.underfs.UnderFileSystem;
 import tachyon.util.CommonUtils;
 import tachyon.util.NetworkUtils;
@@ -171,6 +172,21 @@ public class LocalUnderFileSystem extends UnderFileSystem {
     }
   }
 
+  @Override
+  public UnderFileStatus[] listStatus(String path) throws IOException {
+    File[] files = new File(path).listFiles();
+    if (files == null) {
+      return null;
+    }
+    UnderFileStatus[] statuses = new UnderFileStatus[files.length];
+    for (int k = 0; k < files.length; k ++) {
+      boolean isFile = files[k].isFile();
+      statuses[k] = new UnderFileStatus(files[k].getName(), isFile,
+          isFile ? files[k].length() : 0, isFile ? Constants.GB * 2L : 0);
+    }
+    return statuses;
+  }
+
   @Override
   public boolean mkdirs(String path, boolean createParent) throws IOException {
     File file = new File(path);
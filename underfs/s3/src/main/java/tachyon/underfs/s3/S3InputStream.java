@@ -47,10 +47,23 @@ public class S3InputStream extends InputStream {
   private long mPos;
 
   S3InputStream(String bucketName, String key, S3Service client) throws ServiceException {
+    this(bucketName, key, client, 0);
+  }
+
+  /**
+   * Creates a stream starting at the given position, with a ranged request when it is not 0.
+   */
+  S3InputStream(String bucketName, String key, S3Service client, long position)
+      throws ServiceException {
     mBucketName = bucketName;
     mKey = key;
     mClient = client;
-    mObject = mClient.getObject(mBucketName, mKey);
+    mPos = position;
+    if (position == 0) {
+      mObject = mClient.getObject(mBucketName, mKey);
+    } else {
+      mObject = mClient.getObject(mBucketName, mKey, null, null, null, null, mPos, null);
+    }
     mInputStream = new BufferedInputStream(mObject.getDataInputStream());
   }
 
@@ -89,7 +102,9 @@ public class S3InputStream extends InputStream {
   @Override
   public long skip(long n) throws IOException {
     if (mInputStream.available() >= n) {
-      return mInputStream.skip(n);
+      long skipped = mInputStream.skip(n);
+      mPos += skipped;
+      return skipped;
     }
     // The number of bytes to skip is possibly large, open a new stream from S3.
     mInputStream.close();
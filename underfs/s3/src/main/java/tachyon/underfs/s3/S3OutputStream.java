@@ -15,91 +15,132 @@
 
 package tachyon.underfs.s3;
 
-import java.io.BufferedOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 import com.google.common.base.Preconditions;
 
 import org.jets3t.service.S3Service;
 import org.jets3t.service.ServiceException;
+import org.jets3t.service.model.MultipartPart;
+import org.jets3t.service.model.MultipartUpload;
 import org.jets3t.service.model.S3Object;
 import org.jets3t.service.utils.Mimetypes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import tachyon.Constants;
-import tachyon.util.CommonUtils;
+import tachyon.util.ThreadFactoryUtils;
 
 /**
- * This class creates a streaming interface for writing a file in s3. The data will be persisted
- * to a temporary directory on local disk and copied as a complete file when the close() method is
- * called.
+ * This class creates a streaming interface for writing a file in s3. The data is buffered in memory
+ * in parts of <code>tachyon.underfs.s3.upload.part.bytes</code>. A file smaller than a part is
+ * uploaded as a single object when the stream is closed, its buffer growing with the data written.
+ * A larger file is uploaded as a multipart upload, every part being uploaded in the background as
+ * soon as it is full. The streams of a client share the permits of
+ * <code>tachyon.underfs.s3.upload.threads</code> parts uploading at once, so that at most as many
+ * parts are held in memory by the uploads, plus the part being filled by each stream. As S3 allows
+ * at most 10000 parts, files are limited to 10000 times the part size.
  */
 public class S3OutputStream extends OutputStream {
   private static final Logger LOG = LoggerFactory.getLogger(Constants.LOGGER_TYPE);
+  /** The minimum size of a part but the last one, as required by S3 */
+  static final int MIN_PART_BYTES = 5 * Constants.MB;
+  /** The initial size of the buffer of a stream, which grows up to the size of a part */
+  private static final int INITIAL_BUFFER_BYTES = 64 * Constants.KB;
+  private static final ExecutorService UPLOAD_EXECUTOR = Executors.newCachedThreadPool(
+      ThreadFactoryUtils.build("s3-upload-%d", true));
 
   /** Bucket name of the Tachyon S3 bucket */
   private final String mBucketName;
   /** Key of the file when it is uploaded to S3 */
   private final String mKey;
-  /** The local file that will be uploaded when the stream is closed */
-  private final File mFile;
   /** The JetS3t client for S3 operations */
   private final S3Service mClient;
+  private final int mPartBytes;
+  /** The permits of the parts which can start uploading, shared by the streams of a client */
+  private final Semaphore mUploadPermits;
 
-  /** The outputstream to a local file where the file will be buffered until closed */
-  private OutputStream mLocalOutputStream;
-  /** The MD5 hash of the file */
-  private MessageDigest mHash;
+  /** The data not uploaded yet, null until data is written */
+  private byte[] mBuffer = null;
+  private int mBufferedBytes = 0;
+  /** The multipart upload, null until the first part is full */
+  private MultipartUpload mUpload = null;
+  /** The number of parts started */
+  private int mPartCount = 0;
+  /** The parts uploaded, guarded by itself */
+  private final List<MultipartPart> mParts = new ArrayList<MultipartPart>();
+  /** The first failure of a part upload, guarded by mParts */
+  private Exception mUploadFailure = null;
+  /** The number of parts of this stream uploading, guarded by mParts */
+  private int mUploadingParts = 0;
 
   /** Flag to indicate this stream has been closed, to ensure close is only done once */
   private boolean mClosed;
 
-  public S3OutputStream(String bucketName, String key, S3Service client) throws IOException {
+  /**
+   * @param bucketName the name of the bucket
+   * @param key the key of the file
+   * @param client the JetS3t client
+   * @param partBytes the size of the parts, at least 5MB
+   * @param uploadPermits the permits of the parts uploading at once, shared by the streams of the
+   *        client
+   * @throws IOException never
+   */
+  public S3OutputStream(String bucketName, String key, S3Service client, int partBytes,
+      Semaphore uploadPermits) throws IOException {
     Preconditions.checkArgument(bucketName != null && !bucketName.isEmpty(), "Bucket name must "
         + "not be null or empty.");
     mBucketName = bucketName;
     mKey = key;
     mClient = client;
-    mFile = new File(CommonUtils.concatPath("/tmp", UUID.randomUUID()));
-    try {
-      mHash = MessageDigest.getInstance("MD5");
-      mLocalOutputStream =
-          new BufferedOutputStream(new DigestOutputStream(new FileOutputStream(mFile), mHash));
-    } catch (NoSuchAlgorithmException nsae) {
-      LOG.warn("Algorithm not available for MD5 hash.", nsae);
-      mHash = null;
-      mLocalOutputStream = new BufferedOutputStream(new FileOutputStream(mFile));
-    }
+    mPartBytes = Math.max(partBytes, MIN_PART_BYTES);
+    mUploadPermits = uploadPermits;
     mClosed = false;
   }
 
   @Override
   public void write(int b) throws IOException {
-    mLocalOutputStream.write(b);
+    if (mBufferedBytes == mPartBytes) {
+      uploadPart();
+    }
+    ensureCapacity(mBufferedBytes + 1);
+    mBuffer[mBufferedBytes ++] = (byte) b;
   }
 
   @Override
   public void write(byte[] b) throws IOException {
-    mLocalOutputStream.write(b, 0, b.length);
+    write(b, 0, b.length);
   }
 
   @Override
   public void write(byte[] b, int off, int len) throws IOException {
-    mLocalOutputStream.write(b, off, len);
+    while (len > 0) {
+      if (mBufferedBytes == mPartBytes) {
+        uploadPart();
+      }
+      int toCopy = Math.min(len, mPartBytes - mBufferedBytes);
+      ensureCapacity(mBufferedBytes + toCopy);
+      System.arraycopy(b, off, mBuffer, mBufferedBytes, toCopy);
+      mBufferedBytes += toCopy;
+      off += toCopy;
+      len -= toCopy;
+    }
   }
 
+  // Parts are only uploaded once full, as S3 does not allow small parts.
   @Override
-  public void flush() throws IOException {
-    mLocalOutputStream.flush();
-  }
+  public void flush() throws IOException {}
 
   @Override
   public void close() throws IOException {
@@ -107,23 +148,177 @@ public class S3OutputStream extends OutputStream {
       return;
     }
     mClosed = true;
-    mLocalOutputStream.close();
+    if (mUpload == null) {
+      putObject();
+      return;
+    }
+    if (mBufferedBytes > 0) {
+      uploadPart();
+    }
+    mBuffer = null;
+    awaitUploadingParts();
     try {
-      S3Object obj = new S3Object(mKey);
-      obj.setBucketName(mBucketName);
-      obj.setDataInputFile(mFile);
-      obj.setContentLength(mFile.length());
-      obj.setContentEncoding(Mimetypes.MIMETYPE_BINARY_OCTET_STREAM);
-      if (mHash != null) {
-        obj.setMd5Hash(mHash.digest());
-      } else {
-        LOG.warn("MD5 was not computed for: " + mKey);
+      List<MultipartPart> parts;
+      synchronized (mParts) {
+        if (mUploadFailure != null) {
+          throw mUploadFailure;
+        }
+        parts = new ArrayList<MultipartPart>(mParts);
+      }
+      Collections.sort(parts, new Comparator<MultipartPart>() {
+        @Override
+        public int compare(MultipartPart a, MultipartPart b) {
+          return a.getPartNumber().compareTo(b.getPartNumber());
+        }
+      });
+      mClient.multipartCompleteUpload(mUpload, parts);
+    } catch (Exception e) {
+      LOG.error("Failed to upload " + mKey + ", aborting the multipart upload.");
+      abortUpload();
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Grows the buffer to hold at least the given number of bytes, doubling its size up to the size
+   * of a part. Once the file is uploaded in parts, the buffers are allocated at the size of a part.
+   */
+  private void ensureCapacity(int bytes) {
+    if (mBuffer != null && mBuffer.length >= bytes) {
+      return;
+    }
+    int size = mUpload != null ? mPartBytes : Math.max(INITIAL_BUFFER_BYTES, bytes);
+    if (mBuffer != null) {
+      size = Math.max(size, (int) Math.min(2L * mBuffer.length, mPartBytes));
+    }
+    byte[] buffer = new byte[Math.min(size, mPartBytes)];
+    if (mBuffer != null) {
+      System.arraycopy(mBuffer, 0, buffer, 0, mBufferedBytes);
+    }
+    mBuffer = buffer;
+  }
+
+  /**
+   * Uploads the buffered data as the next part, in the background, waiting if too many parts are
+   * uploading.
+   */
+  private void uploadPart() throws IOException {
+    Exception failure;
+    synchronized (mParts) {
+      failure = mUploadFailure;
+    }
+    if (failure != null) {
+      abortUpload();
+      throw new IOException("Failed to upload a part of " + mKey, failure);
+    }
+    if (mUpload == null) {
+      try {
+        mUpload = mClient.multipartStartUpload(mBucketName, mKey, null);
+      } catch (ServiceException se) {
+        throw new IOException("Failed to start the upload of " + mKey, se);
       }
-      mClient.putObject(mBucketName, obj);
-      mFile.delete();
+    }
+    try {
+      mUploadPermits.acquire();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      abortUpload();
+      throw new IOException("Interrupted while uploading " + mKey);
+    }
+    final int partNumber = ++ mPartCount;
+    final S3Object part = createObject(mBuffer, mBufferedBytes);
+    synchronized (mParts) {
+      mUploadingParts ++;
+    }
+    UPLOAD_EXECUTOR.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          MultipartPart uploaded = mClient.multipartUploadPart(mUpload, partNumber, part);
+          synchronized (mParts) {
+            mParts.add(uploaded);
+          }
+        } catch (Exception e) {
+          LOG.warn("Failed to upload part " + partNumber + " of " + mKey, e);
+          synchronized (mParts) {
+            if (mUploadFailure == null) {
+              mUploadFailure = e;
+            }
+          }
+        } finally {
+          mUploadPermits.release();
+          synchronized (mParts) {
+            mUploadingParts --;
+            mParts.notifyAll();
+          }
+        }
+      }
+    });
+    // The buffer is owned by the upload now.
+    mBuffer = null;
+    mBufferedBytes = 0;
+  }
+
+  private void putObject() throws IOException {
+    try {
+      byte[] data = mBuffer == null ? new byte[0] : mBuffer;
+      mClient.putObject(mBucketName, createObject(data, mBufferedBytes));
     } catch (ServiceException se) {
-      LOG.error("Failed to upload " + mKey + ". Temporary file @ " + mFile.getPath());
+      LOG.error("Failed to upload " + mKey);
       throw new IOException(se);
+    } finally {
+      mBuffer = null;
+    }
+  }
+
+  private S3Object createObject(byte[] data, int length) {
+    S3Object obj = new S3Object(mKey);
+    obj.setBucketName(mBucketName);
+    obj.setDataInputStream(new ByteArrayInputStream(data, 0, length));
+    obj.setContentLength(length);
+    obj.setContentType(Mimetypes.MIMETYPE_BINARY_OCTET_STREAM);
+    try {
+      MessageDigest hash = MessageDigest.getInstance("MD5");
+      hash.update(data, 0, length);
+      obj.setMd5Hash(hash.digest());
+    } catch (NoSuchAlgorithmException nsae) {
+      LOG.warn("MD5 was not computed for: " + mKey, nsae);
+    }
+    return obj;
+  }
+
+  /**
+   * Waits for the parts of this stream being uploaded to be done, successfully or not.
+   */
+  private void awaitUploadingParts() {
+    boolean interrupted = false;
+    synchronized (mParts) {
+      while (mUploadingParts > 0) {
+        try {
+          mParts.wait();
+        } catch (InterruptedException ie) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Aborts the multipart upload, once no part is uploading anymore, so that S3 does not keep the
+   * parts which complete after the abort.
+   */
+  private void abortUpload() {
+    if (mUpload == null) {
+      return;
+    }
+    awaitUploadingParts();
+    try {
+      mClient.multipartAbortUpload(mUpload);
+    } catch (ServiceException se) {
+      LOG.warn("Failed to abort the multipart upload of " + mKey, se);
     }
   }
 }
@@ -20,9 +20,17 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jets3t.service.S3Service;
 import org.jets3t.service.ServiceException;
@@ -38,6 +46,7 @@ import tachyon.Constants;
 import tachyon.conf.TachyonConf;
 import tachyon.underfs.UnderFileSystem;
 import tachyon.util.CommonUtils;
+import tachyon.util.ThreadFactoryUtils;
 
 /**
  * Under file system implementation for S3 using the Jets3t library.
@@ -49,6 +58,10 @@ public class S3UnderFileSystem extends UnderFileSystem {
   private static final String FOLDER_SUFFIX = "_$folder$";
   /** Value used to indicate folder structure in S3 */
   private static final String PATH_SEPARATOR = "/";
+  /** HTTP status of a range starting past the end of the object */
+  private static final int RANGE_NOT_SATISFIABLE = 416;
+  private static final ExecutorService READ_EXECUTOR = Executors.newCachedThreadPool(
+      ThreadFactoryUtils.build("s3-read-%d", true));
 
   /** Jets3t S3 client */
   private final S3Service mClient;
@@ -56,6 +69,14 @@ public class S3UnderFileSystem extends UnderFileSystem {
   private final String mBucketName;
   /** Prefix of the bucket, for example s3n://my-bucket-name/ */
   private final String mBucketPrefix;
+  /** Size of the parts of the multipart uploads */
+  private final int mUploadPartBytes;
+  /** The permits of the parts uploading at once, shared by the files written with this client */
+  private final Semaphore mUploadPermits;
+  /** Size of the ranged requests of the positioned reads */
+  private final int mReadChunkBytes;
+  /** Maximum number of ranged requests of a positioned read fetched at once */
+  private final int mReadThreads;
 
   public S3UnderFileSystem(String bucketName, TachyonConf tachyonConf) throws ServiceException {
     super(tachyonConf);
@@ -65,6 +86,13 @@ public class S3UnderFileSystem extends UnderFileSystem {
     mBucketName = bucketName;
     mClient = new RestS3Service(awsCredentials);
     mBucketPrefix = Constants.HEADER_S3N + mBucketName + PATH_SEPARATOR;
+    mUploadPartBytes =
+        (int) tachyonConf.getBytes(Constants.UNDERFS_S3_UPLOAD_PART_BYTES, 32 * Constants.MB);
+    mUploadPermits = new Semaphore(
+        Math.max(tachyonConf.getInt(Constants.UNDERFS_S3_UPLOAD_THREADS, 4), 1), true);
+    mReadChunkBytes = (int) Math.max(Constants.KB,
+        tachyonConf.getBytes(Constants.UNDERFS_S3_READ_CHUNK_BYTES, 8 * Constants.MB));
+    mReadThreads = Math.max(tachyonConf.getInt(Constants.UNDERFS_S3_READ_THREADS, 4), 1);
   }
 
   @Override
@@ -84,7 +112,8 @@ public class S3UnderFileSystem extends UnderFileSystem {
   @Override
   public OutputStream create(String path) throws IOException {
     if (mkdirs(getParentKey(path), true)) {
-      return new S3OutputStream(mBucketName, stripPrefixIfPresent(path), mClient);
+      return new S3OutputStream(mBucketName, stripPrefixIfPresent(path), mClient,
+          mUploadPartBytes, mUploadPermits);
     }
     return null;
   }
@@ -248,6 +277,92 @@ public class S3UnderFileSystem extends UnderFileSystem {
     }
   }
 
+  @Override
+  public InputStream open(String path, long position) throws IOException {
+    try {
+      path = stripPrefixIfPresent(path);
+      return new S3InputStream(mBucketName, path, mClient, position);
+    } catch (ServiceException se) {
+      LOG.error("Failed to open file: " + path + " at position " + position, se);
+      return null;
+    }
+  }
+
+  /**
+   * Reads the range with ranged requests of at most
+   * <code>tachyon.underfs.s3.read.chunk.bytes</code> each, fetching up to
+   * <code>tachyon.underfs.s3.read.threads</code> of them in parallel.
+   */
+  @Override
+  public int read(String path, final long position, final byte[] buffer, final int offset,
+      int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+    final String key = stripPrefixIfPresent(path);
+    if (length <= mReadChunkBytes || mReadThreads == 1) {
+      return readRange(key, position, buffer, offset, length);
+    }
+    // The size of the object is needed to split the range, as ranges past its end fail.
+    long fileSize = getFileSize(path);
+    if (position >= fileSize) {
+      return -1;
+    }
+    final int toRead = (int) Math.min(length, fileSize - position);
+    final int chunks = (int) ((toRead + (long) mReadChunkBytes - 1) / mReadChunkBytes);
+    final AtomicInteger nextChunk = new AtomicInteger(0);
+    final ChunkFetchers running = new ChunkFetchers();
+    List<Future<Void>> fetchers = new ArrayList<Future<Void>>();
+    for (int k = 0; k < Math.min(mReadThreads, chunks); k ++) {
+      fetchers.add(READ_EXECUTOR.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          if (!running.start()) {
+            return null;
+          }
+          try {
+            int chunk;
+            while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+              int chunkOffset = chunk * mReadChunkBytes;
+              int chunkLength = Math.min(mReadChunkBytes, toRead - chunkOffset);
+              if (readRange(key, position + chunkOffset, buffer, offset + chunkOffset,
+                  chunkLength) != chunkLength) {
+                throw new IOException("Unexpected end of " + key + " at position "
+                    + (position + chunkOffset));
+              }
+            }
+            return null;
+          } finally {
+            running.finish();
+          }
+        }
+      }));
+    }
+    boolean done = false;
+    try {
+      for (Future<Void> fetcher : fetchers) {
+        fetcher.get();
+      }
+      done = true;
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading " + key);
+    } catch (ExecutionException ee) {
+      throw new IOException("Failed to read " + key + " at position " + position, ee.getCause());
+    } finally {
+      if (!done) {
+        // Stops the other fetchers, and waits for those in the middle of a chunk, so that none
+        // writes into the buffer once the caller is back, e.g. to read it another way.
+        nextChunk.set(chunks);
+        for (Future<Void> fetcher : fetchers) {
+          fetcher.cancel(false);
+        }
+        running.abort();
+      }
+    }
+    return toRead;
+  }
+
   @Override
   public boolean rename(String src, String dst) throws IOException {
     if (!exists(src)) {
@@ -286,6 +401,46 @@ public class S3UnderFileSystem extends UnderFileSystem {
   @Override
   public void setPermission(String path, String posixPerm) throws IOException {}
 
+  /**
+   * Reads a range of an object with a single ranged request.
+   *
+   * @param key the key of the object
+   * @param position the offset in the object of the range
+   * @param buffer the buffer to read into
+   * @param offset the offset in the buffer to read into
+   * @param length the length of the range
+   * @return the number of bytes read, less than the length only at the end of the object, or -1 if
+   *         the position is past the end of the object
+   * @throws IOException if the range cannot be read
+   */
+  private int readRange(String key, long position, byte[] buffer, int offset, int length)
+      throws IOException {
+    InputStream in;
+    try {
+      S3Object object = mClient.getObject(mBucketName, key, null, null, null, null, position,
+          position + length - 1);
+      in = object.getDataInputStream();
+    } catch (ServiceException se) {
+      if (se.getResponseCode() == RANGE_NOT_SATISFIABLE) {
+        return -1;
+      }
+      throw new IOException("Failed to read " + key + " at position " + position, se);
+    }
+    try {
+      int read = 0;
+      while (read < length) {
+        int n = in.read(buffer, offset + read, length - read);
+        if (n < 0) {
+          break;
+        }
+        read += n;
+      }
+      return read;
+    } finally {
+      in.close();
+    }
+  }
+
   /**
    * Appends the directory suffix to the key.
    * @param key the key to convert
@@ -527,4 +682,41 @@ public class S3UnderFileSystem extends UnderFileSystem {
     LOG.warn("Attempted to strip key with invalid prefix: " + key);
     return key;
   }
+
+  /**
+   * The fetchers of a parallel read running. Once the read is aborted, the fetchers which did not
+   * start yet do not run, and the read waits for the running ones to finish.
+   */
+  private static final class ChunkFetchers {
+    private int mRunning = 0;
+    private boolean mAborted = false;
+
+    synchronized boolean start() {
+      if (mAborted) {
+        return false;
+      }
+      mRunning ++;
+      return true;
+    }
+
+    synchronized void finish() {
+      mRunning --;
+      notifyAll();
+    }
+
+    synchronized void abort() {
+      mAborted = true;
+      boolean interrupted = false;
+      while (mRunning > 0) {
+        try {
+          wait();
+        } catch (InterruptedException ie) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
 }
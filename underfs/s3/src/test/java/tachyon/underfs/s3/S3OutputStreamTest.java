@@ -0,0 +1,118 @@
+/*
+ * Licensed to the University of California, Berkeley under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package tachyon.underfs.s3;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import org.jets3t.service.S3Service;
+import org.jets3t.service.model.MultipartPart;
+import org.jets3t.service.model.MultipartUpload;
+import org.jets3t.service.model.S3Object;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests for {@link tachyon.underfs.s3.S3OutputStream} against a mocked S3 client
+ */
+public class S3OutputStreamTest {
+  private static final int PART_BYTES = S3OutputStream.MIN_PART_BYTES;
+
+  private S3Service mClient;
+  private MultipartUpload mUpload;
+
+  @Before
+  public final void before() throws Exception {
+    mClient = Mockito.mock(S3Service.class);
+    mUpload = Mockito.mock(MultipartUpload.class);
+    Mockito.when(mClient.multipartStartUpload(Matchers.anyString(), Matchers.anyString(),
+        Matchers.anyMap())).thenReturn(mUpload);
+    Mockito.when(mClient.multipartUploadPart(Matchers.eq(mUpload), Matchers.anyInt(),
+        Matchers.any(S3Object.class))).thenAnswer(new Answer<MultipartPart>() {
+          @Override
+          public MultipartPart answer(InvocationOnMock invocation) {
+            MultipartPart part = Mockito.mock(MultipartPart.class);
+            Mockito.when(part.getPartNumber()).thenReturn((Integer) invocation.getArguments()[1]);
+            return part;
+          }
+        });
+  }
+
+  @Test
+  public void smallFileTest() throws Exception {
+    OutputStream os = new S3OutputStream("test-bucket", "small", mClient, PART_BYTES,
+        new Semaphore(2));
+    os.write(new byte[PART_BYTES]);
+    os.close();
+
+    ArgumentCaptor<S3Object> object = ArgumentCaptor.forClass(S3Object.class);
+    Mockito.verify(mClient).putObject(Matchers.eq("test-bucket"), object.capture());
+    Assert.assertEquals(PART_BYTES, object.getValue().getContentLength());
+    Mockito.verify(mClient, Mockito.never()).multipartStartUpload(Matchers.anyString(),
+        Matchers.anyString(), Matchers.anyMap());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void multipartTest() throws Exception {
+    OutputStream os = new S3OutputStream("test-bucket", "large", mClient, PART_BYTES,
+        new Semaphore(2));
+    byte[] data = new byte[PART_BYTES / 2];
+    for (int k = 0; k < 7; k ++) {
+      os.write(data);
+    }
+    os.write(1);
+    os.close();
+
+    Mockito.verify(mClient, Mockito.times(4)).multipartUploadPart(Matchers.eq(mUpload),
+        Matchers.anyInt(), Matchers.any(S3Object.class));
+    ArgumentCaptor<List> parts = ArgumentCaptor.forClass(List.class);
+    Mockito.verify(mClient).multipartCompleteUpload(Matchers.eq(mUpload), parts.capture());
+    List<MultipartPart> completed = parts.getValue();
+    Assert.assertEquals(4, completed.size());
+    for (int k = 0; k < completed.size(); k ++) {
+      Assert.assertEquals(k + 1, completed.get(k).getPartNumber().intValue());
+    }
+    Mockito.verify(mClient, Mockito.never()).putObject(Matchers.anyString(),
+        Matchers.any(S3Object.class));
+  }
+
+  @Test
+  public void failedPartTest() throws Exception {
+    Mockito.when(mClient.multipartUploadPart(Matchers.eq(mUpload), Matchers.eq(2),
+        Matchers.any(S3Object.class))).thenThrow(new RuntimeException("part 2 failed"));
+    OutputStream os = new S3OutputStream("test-bucket", "failed", mClient, PART_BYTES,
+        new Semaphore(2));
+    os.write(new byte[3 * PART_BYTES]);
+    try {
+      os.close();
+      Assert.fail("The upload of a file with a failed part should fail");
+    } catch (IOException ioe) {
+      // Expected
+    }
+    Mockito.verify(mClient).multipartAbortUpload(mUpload);
+    Mockito.verify(mClient, Mockito.never()).multipartCompleteUpload(Matchers.eq(mUpload),
+        Matchers.anyList());
+  }
+}